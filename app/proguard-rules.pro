@@ -23,6 +23,16 @@
 # Keep all model classes
 -keep class com.budgetwise.data.models.** { *; }
 
+# Backup metadata serialized with Gson
+-keep class com.budgetwise.backup.BackupInfo { *; }
+-keep class com.budgetwise.backup.ChunkRef { *; }
+
+# Merchant cluster assignments serialized with Gson
+-keep class com.budgetwise.ai.MerchantClusterer$StoredAssignments { *; }
+
+# User category keywords serialized with Gson
+-keep class com.budgetwise.ai.KeywordCategorizer$StoredKeywords { *; }
+
 # Keep all enum classes
 -keepclassmembers enum * {
     public static **[] values();
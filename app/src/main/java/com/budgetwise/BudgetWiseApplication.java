@@ -2,8 +2,13 @@ package com.budgetwise;
 
 import android.app.Application;
 import android.content.Context;
+import com.budgetwise.backup.BackupManager;
+import com.budgetwise.backup.BackupWorker;
 import com.budgetwise.data.repository.BudgetRepository;
+import com.budgetwise.export.DataExporter;
+import com.budgetwise.importer.TransactionImporter;
 import com.budgetwise.security.EncryptionManager;
+import com.budgetwise.security.KeyRotationWorker;
 import com.budgetwise.ai.EnhancedIntelligenceService;
 import com.budgetwise.utils.ThemeManager;
 import com.budgetwise.notifications.NotificationManager;
@@ -15,6 +20,9 @@ public class BudgetWiseApplication extends Application {
     private EnhancedIntelligenceService intelligenceService;
     private ThemeManager themeManager;
     private NotificationManager notificationManager;
+    private BackupManager backupManager;
+    private DataExporter dataExporter;
+    private TransactionImporter transactionImporter;
 
     @Override
     public void onCreate() {
@@ -26,15 +34,24 @@ public class BudgetWiseApplication extends Application {
     private void initializeServices() {
         encryptionManager = new EncryptionManager(this);
         budgetRepository = new BudgetRepository(this, encryptionManager);
-        intelligenceService = new EnhancedIntelligenceService(this, budgetRepository);
+        intelligenceService = new EnhancedIntelligenceService(this, budgetRepository, encryptionManager);
         themeManager = new ThemeManager(this);
         notificationManager = new NotificationManager(this);
+        backupManager = new BackupManager(this, budgetRepository, encryptionManager);
+        dataExporter = new DataExporter(budgetRepository);
+        transactionImporter = new TransactionImporter(budgetRepository, intelligenceService);
         
         // Apply dark mode by default for enhanced UI
         themeManager.setTheme(ThemeManager.THEME_DARK);
         themeManager.applyTheme();
         
-        // Schedule backup reminder
+        // Resume an interrupted key rotation
+        if (encryptionManager.isKeyRotationPending()) {
+            KeyRotationWorker.enqueue(this);
+        }
+        
+        // Schedule automatic backups and the fallback reminder
+        BackupWorker.schedule(this);
         notificationManager.scheduleBackupReminder();
         
         // Start AI analysis
@@ -64,4 +81,16 @@ public class BudgetWiseApplication extends Application {
     public NotificationManager getNotificationManager() {
         return notificationManager;
     }
+
+    public BackupManager getBackupManager() {
+        return backupManager;
+    }
+
+    public DataExporter getDataExporter() {
+        return dataExporter;
+    }
+
+    public TransactionImporter getTransactionImporter() {
+        return transactionImporter;
+    }
 }
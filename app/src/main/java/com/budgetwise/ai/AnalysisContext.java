@@ -0,0 +1,319 @@
+package com.budgetwise.ai;
+
+import com.budgetwise.data.models.Transaction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Everything the AI modules read, built in one pass over date-sorted transactions: expense
+ * and income series with prefix sums, the same per category with running statistics, and
+ * daily expense totals. Window totals are two binary searches instead of a filter over the
+ * list, so modules share one pass instead of each filtering, sorting and grouping again.
+ * <p>
+ * A context covers transactions from some start time on; a module asking for a window
+ * reaching before that start only sees the part the context holds.
+ */
+public final class AnalysisContext {
+    static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    // TimeZone.getDefault() copies the zone on every call, and the local-time helpers run
+    // once per entry, so the zone is read once and again only when it changes
+    private static volatile TimeZone localZone = TimeZone.getDefault();
+
+    private final long now;
+    private final TimeZone zone;
+    private final Transaction[] transactions;
+    private final long[] times;
+    private final Series expenses;
+    private final Series income;
+    private final Map<String, Series> categories;
+    private final long firstDay;
+    private final double[] dailyExpenses;
+
+    /** Builds a context over {@code transactions} in any order; the list is not modified. */
+    public static AnalysisContext of(List<Transaction> transactions, long now) {
+        List<Transaction> sorted = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            if (transaction.getDate() != null) {
+                sorted.add(transaction);
+            }
+        }
+        sorted.sort((t1, t2) -> Long.compare(t1.getDate().getTime(), t2.getDate().getTime()));
+        return new AnalysisContext(sorted, now);
+    }
+
+    /** Builds a context over transactions already sorted by date, oldest first. */
+    static AnalysisContext ofSorted(List<Transaction> sorted, long now) {
+        return new AnalysisContext(sorted, now);
+    }
+
+    private AnalysisContext(List<Transaction> sorted, long now) {
+        this.now = now;
+        this.zone = localZone;
+        int size = sorted.size();
+        this.transactions = new Transaction[size];
+        this.times = new long[size];
+        this.firstDay = size > 0 ? dayOf(sorted.get(0).getDate().getTime()) : dayOf(now);
+        int days = size > 0 ? (int) (dayOf(sorted.get(size - 1).getDate().getTime()) - firstDay + 1) : 0;
+        this.dailyExpenses = new double[days];
+
+        Series.Builder expenseBuilder = new Series.Builder(0);
+        Series.Builder incomeBuilder = new Series.Builder(0);
+        Map<String, Series.Builder> categoryBuilders = new HashMap<>();
+
+        for (int i = 0; i < size; i++) {
+            Transaction transaction = sorted.get(i);
+            long time = transaction.getDate().getTime();
+            transactions[i] = transaction;
+            times[i] = time;
+
+            if (transaction.getType() == Transaction.TransactionType.EXPENSE) {
+                int day = (int) (dayOf(time) - firstDay);
+                expenseBuilder.add(transaction, time, day);
+                categoryBuilders.computeIfAbsent(transaction.getCategory(), c -> new Series.Builder(days))
+                    .add(transaction, time, day);
+                dailyExpenses[day] += transaction.getAmount();
+            } else if (transaction.getType() == Transaction.TransactionType.INCOME) {
+                incomeBuilder.add(transaction, time, -1);
+            }
+        }
+
+        this.expenses = expenseBuilder.build();
+        this.income = incomeBuilder.build();
+        Map<String, Series> built = new HashMap<>();
+        for (Map.Entry<String, Series.Builder> entry : categoryBuilders.entrySet()) {
+            built.put(entry.getKey(), entry.getValue().build());
+        }
+        this.categories = Collections.unmodifiableMap(built);
+    }
+
+    /**
+     * Re-reads the default time zone the local-time helpers and new contexts use. Called when
+     * the device zone changes; until then they keep the zone read at startup.
+     */
+    static void refreshZone() {
+        localZone = TimeZone.getDefault();
+    }
+
+    /** The local calendar day {@code time} falls on, as a day number, in the current zone. */
+    static long localDay(long time) {
+        return Math.floorDiv(time + localZone.getOffset(time), DAY_MILLIS);
+    }
+
+    /** The local hour of day, 0 to 23, {@code time} falls in, in the current zone. */
+    static int localHour(long time) {
+        return (int) (Math.floorMod(time + localZone.getOffset(time), DAY_MILLIS) / TimeUnit.HOURS.toMillis(1));
+    }
+
+    /** The local calendar month {@code time} falls in, as year * 12 + month, in the current zone. */
+    static int localMonth(long time) {
+        Calendar calendar = Calendar.getInstance(localZone);
+        calendar.setTimeInMillis(time);
+        return calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+    }
+
+    /** The local midnight starting month number {@code month}, in the current zone. */
+    static long startOfLocalMonth(int month) {
+        Calendar calendar = Calendar.getInstance(localZone);
+        calendar.clear();
+        calendar.set(Math.floorDiv(month, 12), Math.floorMod(month, 12), 1);
+        return calendar.getTimeInMillis();
+    }
+
+    /** The local calendar day {@code time} falls on, as a day number. */
+    long dayOf(long time) {
+        return Math.floorDiv(time + zone.getOffset(time), DAY_MILLIS);
+    }
+
+    /** The local midnight starting day number {@code day}. */
+    long startOfDay(long day) {
+        long utcMidnight = day * DAY_MILLIS;
+        return utcMidnight - zone.getOffset(utcMidnight);
+    }
+
+    /** The time every window in this context is measured back from. */
+    public long getNow() {
+        return now;
+    }
+
+    int size() {
+        return transactions.length;
+    }
+
+    /** All transactions of every type, oldest first. */
+    List<Transaction> getTransactions() {
+        return Collections.unmodifiableList(Arrays.asList(transactions));
+    }
+
+    /** Number of transactions of any type dated at or after {@code from}. */
+    int countSince(long from) {
+        return transactions.length - lowerBound(times, times.length, from);
+    }
+
+    Series getExpenses() {
+        return expenses;
+    }
+
+    Series getIncome() {
+        return income;
+    }
+
+    /** Expense series per category. */
+    Map<String, Series> getCategories() {
+        return categories;
+    }
+
+    /** Expense total of one category in [from, to); zero for a category with no expenses. */
+    double categoryTotal(String category, long from, long to) {
+        Series series = categories.get(category);
+        return series != null ? series.total(from, to) : 0;
+    }
+
+    /** Expense totals in [from, to) for every category with at least one expense in it. */
+    Map<String, Double> categoryTotals(long from, long to) {
+        Map<String, Double> totals = new HashMap<>();
+        for (Map.Entry<String, Series> entry : categories.entrySet()) {
+            Series series = entry.getValue();
+            if (series.count(from, to) > 0) {
+                totals.put(entry.getKey(), series.total(from, to));
+            }
+        }
+        return totals;
+    }
+
+    /** Day number of index 0 in the daily series. */
+    long getFirstDay() {
+        return firstDay;
+    }
+
+    /** Expense total per local day, from {@link #getFirstDay()} to the last transaction's day. */
+    double[] getDailyExpenses() {
+        return dailyExpenses;
+    }
+
+    /** Index of the first element of {@code sorted[0..length)} at or above {@code key}. */
+    static int lowerBound(long[] sorted, int length, long key) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Transactions of one kind in date order, with prefix sums for window totals and
+     * running (Welford) statistics over the whole series.
+     */
+    static final class Series {
+        private final Transaction[] transactions;
+        private final long[] times;
+        private final double[] prefixSums;
+        private final double[] daily;
+        private final double mean;
+        private final double sumOfSquaredDeviations;
+
+        private Series(Builder builder) {
+            int size = builder.size;
+            this.transactions = Arrays.copyOf(builder.transactions, size);
+            this.times = Arrays.copyOf(builder.times, size);
+            this.prefixSums = Arrays.copyOf(builder.prefixSums, size + 1);
+            this.daily = builder.daily;
+            this.mean = builder.mean;
+            this.sumOfSquaredDeviations = builder.m2;
+        }
+
+        int size() {
+            return transactions.length;
+        }
+
+        Transaction get(int index) {
+            return transactions[index];
+        }
+
+        long timeAt(int index) {
+            return times[index];
+        }
+
+        /** Index of the first transaction dated at or after {@code time}. */
+        int indexOf(long time) {
+            return lowerBound(times, times.length, time);
+        }
+
+        int count(long from, long to) {
+            return Math.max(0, indexOf(to) - indexOf(from));
+        }
+
+        /** Sum of amounts in [from, to). */
+        double total(long from, long to) {
+            int start = indexOf(from);
+            int end = indexOf(to);
+            return end > start ? prefixSums[end] - prefixSums[start] : 0;
+        }
+
+        double getMean() {
+            return mean;
+        }
+
+        /** Population standard deviation of the amounts. */
+        double getStandardDeviation() {
+            return transactions.length > 0 ? Math.sqrt(sumOfSquaredDeviations / transactions.length) : 0;
+        }
+
+        /** Totals per local day from the context's first day, or null for series without days. */
+        double[] getDaily() {
+            return daily;
+        }
+
+        static final class Builder {
+            private Transaction[] transactions = new Transaction[16];
+            private long[] times = new long[16];
+            private double[] prefixSums = new double[17];
+            private final double[] daily;
+            private int size;
+            private double mean;
+            private double m2;
+
+            Builder(int days) {
+                this.daily = days > 0 ? new double[days] : null;
+            }
+
+            void add(Transaction transaction, long time, int day) {
+                if (size == transactions.length) {
+                    transactions = Arrays.copyOf(transactions, size * 2);
+                    times = Arrays.copyOf(times, size * 2);
+                    prefixSums = Arrays.copyOf(prefixSums, size * 2 + 1);
+                }
+                double amount = transaction.getAmount();
+                transactions[size] = transaction;
+                times[size] = time;
+                prefixSums[size + 1] = prefixSums[size] + amount;
+                size++;
+
+                double delta = amount - mean;
+                mean += delta / size;
+                m2 += delta * (amount - mean);
+
+                if (daily != null && day >= 0) {
+                    daily[day] += amount;
+                }
+            }
+
+            Series build() {
+                return new Series(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.budgetwise.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Turns bursts of analysis requests into single runs. A request starts a short debounce
+ * window and every request inside it joins the same run; the window restarts with each
+ * request but never delays a run past {@code maxDelayMillis} from the first one.
+ * <p>
+ * Runs never overlap. A request arriving while a run is in flight supersedes it: the task
+ * can see that through the supplier it is handed and stop early, and the callers waiting on
+ * it are then answered by the next run instead, so every future holds the latest result.
+ * The same bound applies here: once the oldest waiting caller has waited
+ * {@code maxDelayMillis}, a run is no longer superseded, so a steady stream of requests
+ * can't starve the callers.
+ */
+class AnalysisRequestCoalescer<R> {
+
+    interface Task<R> {
+        /**
+         * Runs the analysis. A task that sees {@code superseded} turn true may stop by
+         * throwing {@link CancellationException}.
+         */
+        R run(BooleanSupplier superseded) throws Exception;
+    }
+
+    private final Task<R> task;
+    private final long debounceMillis;
+    private final long maxDelayMillis;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    private volatile long generation;
+    private Batch<R> pending;
+    private ScheduledFuture<?> scheduled;
+
+    AnalysisRequestCoalescer(Task<R> task, long debounceMillis, long maxDelayMillis) {
+        this.task = task;
+        this.debounceMillis = debounceMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /** Requests a run; the future completes with the result of the run that covers it. */
+    synchronized Future<R> request() {
+        generation++;
+        long now = System.currentTimeMillis();
+        if (pending == null) {
+            pending = new Batch<>(now);
+        } else if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        long delay = Math.max(0, Math.min(debounceMillis, pending.firstRequestAt + maxDelayMillis - now));
+        scheduled = executor.schedule(this::runPending, delay, TimeUnit.MILLISECONDS);
+        return pending.result;
+    }
+
+    private void runPending() {
+        Batch<R> batch;
+        long runGeneration;
+        synchronized (this) {
+            batch = pending;
+            if (batch == null) {
+                // Already taken by a run that started just before this one was cancelled
+                return;
+            }
+            pending = null;
+            scheduled = null;
+            runGeneration = generation;
+        }
+
+        long deadline = batch.firstRequestAt + maxDelayMillis;
+        try {
+            batch.complete(task.run(() -> generation != runGeneration
+                && System.currentTimeMillis() < deadline), null);
+        } catch (CancellationException e) {
+            synchronized (this) {
+                if (pending != null) {
+                    pending.adopt(batch);
+                    return;
+                }
+            }
+            batch.complete(null, e);
+        } catch (Throwable t) {
+            batch.complete(null, t);
+        }
+    }
+
+    private static final class Batch<R> {
+        long firstRequestAt;
+        final Result<R> result = new Result<>();
+        final List<Result<R>> adopted = new ArrayList<>();
+
+        Batch(long firstRequestAt) {
+            this.firstRequestAt = firstRequestAt;
+        }
+
+        void adopt(Batch<R> superseded) {
+            firstRequestAt = Math.min(firstRequestAt, superseded.firstRequestAt);
+            adopted.add(superseded.result);
+            adopted.addAll(superseded.adopted);
+        }
+
+        void complete(R value, Throwable error) {
+            result.complete(value, error);
+            for (Result<R> waiting : adopted) {
+                waiting.complete(value, error);
+            }
+        }
+    }
+
+    /** A future completed by the coalescer; it can't be cancelled by callers. */
+    private static final class Result<R> implements Future<R> {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile R value;
+        private volatile Throwable error;
+
+        void complete(R value, Throwable error) {
+            this.value = value;
+            this.error = error;
+            done.countDown();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        @Override
+        public R get() throws InterruptedException, ExecutionException {
+            done.await();
+            return value();
+        }
+
+        @Override
+        public R get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (!done.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            return value();
+        }
+
+        private R value() throws ExecutionException {
+            if (error != null) {
+                throw new ExecutionException(error);
+            }
+            return value;
+        }
+    }
+}
@@ -4,12 +4,32 @@ import android.content.Context;
 import android.util.Log;
 import com.budgetwise.data.models.Transaction;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 public class AnomalyDetector {
     private static final String TAG = "AnomalyDetector";
-    private static final double ANOMALY_THRESHOLD = 2.5; // Standard deviations
-    private static final int MIN_TRANSACTIONS = 10; // Minimum transactions needed for analysis
+    static final int MIN_TRANSACTIONS = 10; // Minimum transactions needed for analysis
+    static final int MIN_CATEGORY_TRANSACTIONS = 5;
+    
+    // Spending patterns beyond single amounts, matched as transactions arrive
+    private static final List<SpendingRule> RULES = Arrays.asList(
+        // 3 or more expenses within 1 hour
+        SpendingRule.reporting(AnomalyType.RAPID_SPENDING, AnomalySeverity.MEDIUM)
+            .of(Transaction.TransactionType.EXPENSE)
+            .atLeast(3, TimeUnit.HOURS.toMillis(1))
+            .scored(3.0)
+            .described(episode -> String.format("%d transactions within %d minute(s)",
+                episode.getCount(), Math.max(1, TimeUnit.MILLISECONDS.toMinutes(episode.getDuration()))))
+            .build(),
+        // Consider 2 AM - 6 AM as unusual spending hours
+        SpendingRule.reporting(AnomalyType.UNUSUAL_TIMING, AnomalySeverity.LOW)
+            .betweenHours(2, 6)
+            .amountAbove(50)
+            .scored(2.0)
+            .described(episode -> String.format("Transaction at unusual hour: %02d:00",
+                AnalysisContext.localHour(episode.getLast().getDate().getTime())))
+            .build()
+    );
     
     private final Context context;
     private final AINotificationManager notificationManager;
@@ -20,174 +40,102 @@ public class AnomalyDetector {
     }
 
     public List<AnomalyResult> detectAnomalies(List<Transaction> transactions) {
+        return detectAnomalies(AnalysisContext.of(transactions, System.currentTimeMillis()));
+    }
+
+    public List<AnomalyResult> detectAnomalies(AnalysisContext context) {
         List<AnomalyResult> anomalies = new ArrayList<>();
         
-        if (transactions.size() < MIN_TRANSACTIONS) {
+        if (context.size() < MIN_TRANSACTIONS) {
             return anomalies; // Not enough data for meaningful analysis
         }
 
-        // Group transactions by category for category-specific analysis
-        Map<String, List<Transaction>> byCategory = transactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .collect(Collectors.groupingBy(Transaction::getCategory));
-
-        for (Map.Entry<String, List<Transaction>> entry : byCategory.entrySet()) {
-            String category = entry.getKey();
-            List<Transaction> categoryTransactions = entry.getValue();
-            
-            if (categoryTransactions.size() >= 5) { // Need minimum transactions per category
-                anomalies.addAll(detectCategoryAnomalies(category, categoryTransactions));
+        // Category-specific analysis
+        for (Map.Entry<String, AnalysisContext.Series> entry : context.getCategories().entrySet()) {
+            if (entry.getValue().size() >= MIN_CATEGORY_TRANSACTIONS) { // Need minimum transactions per category
+                anomalies.addAll(detectCategoryAnomalies(entry.getKey(), entry.getValue()));
             }
         }
 
         // Detect overall spending anomalies
-        anomalies.addAll(detectOverallAnomalies(transactions));
+        SpendingRuleEngine rules = newRuleEngine();
+        for (Transaction transaction : context.getTransactions()) {
+            rules.add(new LedgerEntry(transaction), false);
+        }
+        anomalies.addAll(rules.getMatches());
         
         // Trigger notifications for detected anomalies
         for (AnomalyResult anomaly : anomalies) {
-            if (anomaly.getSeverity() == AnomalySeverity.HIGH) {
-                notificationManager.showWarning(
-                    "Unusual Transaction Detected",
-                    String.format("⚠️ Unusual %s transaction: $%.2f in %s", 
-                        anomaly.getType().toString().toLowerCase(),
-                        anomaly.getAmount(), 
-                        anomaly.getCategory()),
-                    anomaly.hashCode()
-                );
-            }
+            notifyAnomaly(anomaly);
         }
 
         return anomalies;
     }
 
-    private List<AnomalyResult> detectCategoryAnomalies(String category, List<Transaction> transactions) {
-        List<AnomalyResult> anomalies = new ArrayList<>();
-        
-        // Calculate statistics for the category
-        double[] amounts = transactions.stream()
-            .mapToDouble(Transaction::getAmount)
-            .toArray();
-        
-        double mean = Arrays.stream(amounts).average().orElse(0.0);
-        double stdDev = calculateStandardDeviation(amounts, mean);
-        
-        // Find outliers
-        for (Transaction transaction : transactions) {
-            double zScore = Math.abs((transaction.getAmount() - mean) / stdDev);
-            
-            if (zScore > ANOMALY_THRESHOLD) {
-                AnomalyType type = transaction.getAmount() > mean ? 
-                    AnomalyType.UNUSUALLY_HIGH : AnomalyType.UNUSUALLY_LOW;
-                
-                AnomalySeverity severity = determineSeverity(zScore);
-                
-                anomalies.add(new AnomalyResult(
-                    transaction,
-                    type,
-                    severity,
-                    category,
-                    zScore,
-                    String.format("Amount $%.2f is %.1f standard deviations from average $%.2f", 
-                        transaction.getAmount(), zScore, mean)
-                ));
-            }
+    void notifyAnomaly(AnomalyResult anomaly) {
+        if (anomaly.getSeverity() == AnomalySeverity.HIGH) {
+            notificationManager.showWarning(
+                "Unusual Transaction Detected",
+                String.format("⚠️ Unusual %s transaction: $%.2f in %s", 
+                    anomaly.getType().toString().toLowerCase(),
+                    anomaly.getAmount(), 
+                    anomaly.getCategory()),
+                anomaly.hashCode()
+            );
         }
-        
-        return anomalies;
-    }
-
-    private List<AnomalyResult> detectOverallAnomalies(List<Transaction> transactions) {
-        List<AnomalyResult> anomalies = new ArrayList<>();
-        
-        // Detect rapid spending (multiple transactions in short time)
-        anomalies.addAll(detectRapidSpending(transactions));
-        
-        // Detect unusual timing (transactions at unusual hours)
-        anomalies.addAll(detectUnusualTiming(transactions));
-        
-        return anomalies;
     }
 
-    private List<AnomalyResult> detectRapidSpending(List<Transaction> transactions) {
+    private List<AnomalyResult> detectCategoryAnomalies(String category, AnalysisContext.Series expenses) {
         List<AnomalyResult> anomalies = new ArrayList<>();
         
-        // Sort by date
-        List<Transaction> sorted = transactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .sorted((t1, t2) -> t1.getDate().compareTo(t2.getDate()))
-            .collect(Collectors.toList());
+        // Median and spread rather than mean and deviation: a few large bills would inflate those
+        QuantileSketch amounts = new QuantileSketch();
+        for (int i = 0; i < expenses.size(); i++) {
+            amounts.add(expenses.get(i).getAmount());
+        }
         
-        // Look for clusters of transactions within 1 hour
-        for (int i = 0; i < sorted.size() - 2; i++) {
-            Transaction t1 = sorted.get(i);
-            Transaction t2 = sorted.get(i + 1);
-            Transaction t3 = sorted.get(i + 2);
-            
-            long timeDiff1 = t2.getDate().getTime() - t1.getDate().getTime();
-            long timeDiff2 = t3.getDate().getTime() - t2.getDate().getTime();
-            
-            // If 3 transactions within 1 hour
-            if (timeDiff1 <= 3600000 && timeDiff2 <= 3600000) {
-                anomalies.add(new AnomalyResult(
-                    t3, // Latest transaction
-                    AnomalyType.RAPID_SPENDING,
-                    AnomalySeverity.MEDIUM,
-                    "Multiple Categories",
-                    3.0,
-                    "Multiple transactions detected within 1 hour"
-                ));
+        // Find outliers
+        for (int i = 0; i < expenses.size(); i++) {
+            AnomalyResult anomaly = scoreAgainstCategory(expenses.get(i), category, amounts);
+            if (anomaly != null) {
+                anomalies.add(anomaly);
             }
         }
         
         return anomalies;
     }
 
-    private List<AnomalyResult> detectUnusualTiming(List<Transaction> transactions) {
-        List<AnomalyResult> anomalies = new ArrayList<>();
-        
-        // Analyze typical spending hours
-        Map<Integer, Integer> hourCounts = new HashMap<>();
-        for (Transaction transaction : transactions) {
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(transaction.getDate());
-            int hour = cal.get(Calendar.HOUR_OF_DAY);
-            hourCounts.put(hour, hourCounts.getOrDefault(hour, 0) + 1);
+    /** Returns the outlier result for a transaction against its category's amounts, or null. */
+    AnomalyResult scoreAgainstCategory(Transaction transaction, String category, QuantileSketch amounts) {
+        double robustScore = amounts.robustScore(transaction.getAmount());
+        if (!(Math.abs(robustScore) > QuantileSketch.OUTLIER_SCORE)) {
+            return null;
         }
         
-        // Find transactions at unusual hours (very late night/early morning)
-        for (Transaction transaction : transactions) {
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(transaction.getDate());
-            int hour = cal.get(Calendar.HOUR_OF_DAY);
-            
-            // Consider 2 AM - 6 AM as unusual spending hours
-            if (hour >= 2 && hour <= 6 && transaction.getAmount() > 50) {
-                anomalies.add(new AnomalyResult(
-                    transaction,
-                    AnomalyType.UNUSUAL_TIMING,
-                    AnomalySeverity.LOW,
-                    transaction.getCategory(),
-                    2.0,
-                    String.format("Transaction at unusual hour: %02d:00", hour)
-                ));
-            }
-        }
+        AnomalyType type = robustScore > 0 ? 
+            AnomalyType.UNUSUALLY_HIGH : AnomalyType.UNUSUALLY_LOW;
         
-        return anomalies;
+        return new AnomalyResult(
+            transaction,
+            type,
+            determineSeverity(Math.abs(robustScore)),
+            category,
+            Math.abs(robustScore),
+            String.format("Amount $%.2f is far from the usual $%.2f in %s (robust score %.1f)", 
+                transaction.getAmount(), amounts.getMedian(), category, Math.abs(robustScore))
+        );
     }
 
-    private double calculateStandardDeviation(double[] values, double mean) {
-        double sum = 0.0;
-        for (double value : values) {
-            sum += Math.pow(value - mean, 2);
-        }
-        return Math.sqrt(sum / values.length);
+    /** A rule engine over the rapid-spending and unusual-timing rules, with no transactions yet. */
+    SpendingRuleEngine newRuleEngine() {
+        return new SpendingRuleEngine(RULES);
     }
 
-    private AnomalySeverity determineSeverity(double zScore) {
-        if (zScore > 4.0) return AnomalySeverity.CRITICAL;
-        if (zScore > 3.0) return AnomalySeverity.HIGH;
-        if (zScore > 2.5) return AnomalySeverity.MEDIUM;
+    // Robust scores run higher than z-scores for the same transaction, hence the wider steps
+    private AnomalySeverity determineSeverity(double robustScore) {
+        if (robustScore > 8.0) return AnomalySeverity.CRITICAL;
+        if (robustScore > 5.0) return AnomalySeverity.HIGH;
+        if (robustScore > QuantileSketch.OUTLIER_SCORE) return AnomalySeverity.MEDIUM;
         return AnomalySeverity.LOW;
     }
 
@@ -0,0 +1,268 @@
+package com.budgetwise.ai;
+
+import com.budgetwise.data.models.Budget;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Anomaly detection over running state instead of a rescan:
+ * <ul>
+ *   <li>per-category {@link QuantileSketch}es give the median and robust spread, so a new
+ *       expense is scored on arrival, and expenses sorted by amount turn "beyond the outlier
+ *       score" into two range reads, redone only for categories that changed. Removed
+ *       amounts stay in a sketch until they are a small share of it, so rebuilds cost a
+ *       constant amount per removal instead of a pass over the category each;</li>
+ *   <li>per-month sketches of all expenses let insights compare months, merged on demand;</li>
+ *   <li>rapid spending and unusual timing are {@link SpendingRule}s, whose episodes a
+ *       {@link SpendingRuleEngine} updates around each change.</li>
+ * </ul>
+ * Only transactions that arrived since the last run can raise a notification, and only for
+ * kinds of anomaly not already reported for them, so editing a flagged transaction doesn't
+ * report it again. Rule episodes are reported once each, however they grow.
+ */
+class AnomalyModule implements IncrementalModule {
+    // A category's sketch keeps removed amounts until they are more than one in this many of
+    // its values, which moves a rank by about the sketch's own error; a rebuild then costs a
+    // constant amount per removal instead of a pass over the category for each
+    private static final int VALUES_PER_REMOVED = 200;
+
+    private final AnomalyDetector detector;
+    private final Map<String, CategoryStats> categories = new HashMap<>();
+    private final TreeSet<LedgerEntry> expensesByTime = new TreeSet<>(LedgerEntry.BY_TIME);
+    private final SpendingRuleEngine rules;
+    private final Set<String> dirtyCategories = new HashSet<>();
+    private final Map<Integer, QuantileSketch> monthlyExpenses = new HashMap<>();
+    // Sketches can't take values back out, so a removal rebuilds the month on the next refresh
+    private final Set<Integer> staleMonths = new HashSet<>();
+    private final Map<String, LedgerEntry> freshEntries = new HashMap<>();
+    private final Map<String, EnumSet<AnomalyDetector.AnomalyType>> reported = new HashMap<>();
+    // Removed since the last run; an edit adds the id straight back
+    private final Set<String> removedIds = new HashSet<>();
+    // Results depend only on the applied changes, so each change is a new version
+    private long version;
+    private int transactionCount;
+
+    AnomalyModule(AnomalyDetector detector) {
+        this.detector = detector;
+        this.rules = detector.newRuleEngine();
+    }
+
+    @Override
+    public void reset() {
+        version++;
+        categories.clear();
+        expensesByTime.clear();
+        rules.clear();
+        dirtyCategories.clear();
+        monthlyExpenses.clear();
+        staleMonths.clear();
+        freshEntries.clear();
+        reported.clear();
+        removedIds.clear();
+        transactionCount = 0;
+    }
+
+    @Override
+    public void add(LedgerEntry entry, boolean replay) {
+        version++;
+        transactionCount++;
+        removedIds.remove(entry.id);
+        if (!replay) {
+            freshEntries.put(entry.id, entry);
+        }
+        rules.add(entry, replay);
+        if (!entry.isExpense()) return;
+
+        categories.computeIfAbsent(entry.category, c -> new CategoryStats()).add(entry);
+        dirtyCategories.add(entry.category);
+        int month = AnalysisContext.localMonth(entry.time);
+        if (!staleMonths.contains(month)) {
+            monthlyExpenses.computeIfAbsent(month, m -> new QuantileSketch()).add(entry.amount);
+        }
+        expensesByTime.add(entry);
+    }
+
+    @Override
+    public void remove(LedgerEntry entry) {
+        version++;
+        transactionCount--;
+        freshEntries.remove(entry.id);
+        removedIds.add(entry.id);
+        rules.remove(entry);
+        if (!entry.isExpense()) return;
+
+        CategoryStats stats = categories.get(entry.category);
+        if (stats != null && stats.remove(entry)) {
+            categories.remove(entry.category);
+        }
+        dirtyCategories.add(entry.category);
+        staleMonths.add(AnalysisContext.localMonth(entry.time));
+        expensesByTime.remove(entry);
+    }
+
+    @Override
+    public void onBudgetsChanged(List<Budget> budgets) {
+        // Anomalies don't depend on budgets
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public boolean readsContext() {
+        return false;
+    }
+
+    @Override
+    public long contextStart(long now) {
+        // Works from its own state
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public void refresh(AnalysisContext context) {
+        for (String category : dirtyCategories) {
+            CategoryStats stats = categories.get(category);
+            if (stats != null) {
+                stats.findOutliers(category);
+            }
+        }
+        dirtyCategories.clear();
+        for (int month : staleMonths) {
+            rebuildMonth(month);
+        }
+        staleMonths.clear();
+
+        List<AnomalyDetector.AnomalyResult> matches = rules.takeUnreported();
+        if (transactionCount >= AnomalyDetector.MIN_TRANSACTIONS) {
+            for (LedgerEntry entry : freshEntries.values()) {
+                CategoryStats stats = entry.isExpense() ? categories.get(entry.category) : null;
+                reportIfNew(entry.id, stats != null ? stats.score(entry, entry.category) : null);
+            }
+            for (AnomalyDetector.AnomalyResult match : matches) {
+                detector.notifyAnomaly(match);
+            }
+        }
+        freshEntries.clear();
+        for (String id : removedIds) {
+            reported.remove(id);
+        }
+        removedIds.clear();
+    }
+
+    private void rebuildMonth(int month) {
+        QuantileSketch sketch = new QuantileSketch();
+        for (LedgerEntry entry : expensesByTime.subSet(
+                LedgerEntry.atTime(AnalysisContext.startOfLocalMonth(month)),
+                LedgerEntry.atTime(AnalysisContext.startOfLocalMonth(month + 1)))) {
+            sketch.add(entry.amount);
+        }
+        if (sketch.getCount() > 0) {
+            monthlyExpenses.put(month, sketch);
+        } else {
+            monthlyExpenses.remove(month);
+        }
+    }
+
+    private void reportIfNew(String id, AnomalyDetector.AnomalyResult anomaly) {
+        if (anomaly == null) return;
+        EnumSet<AnomalyDetector.AnomalyType> types =
+            reported.computeIfAbsent(id, i -> EnumSet.noneOf(AnomalyDetector.AnomalyType.class));
+        if (types.add(anomaly.getType())) {
+            detector.notifyAnomaly(anomaly);
+        }
+    }
+
+    List<AnomalyDetector.AnomalyResult> getAnomalies() {
+        List<AnomalyDetector.AnomalyResult> anomalies = new ArrayList<>();
+        if (transactionCount < AnomalyDetector.MIN_TRANSACTIONS) {
+            return anomalies; // Not enough data for meaningful analysis
+        }
+        for (CategoryStats stats : categories.values()) {
+            anomalies.addAll(stats.outliers.values());
+        }
+        anomalies.addAll(rules.getMatches());
+        return anomalies;
+    }
+
+    /**
+     * Expense amounts of local months {@code fromMonth} to {@code toMonth} inclusive (see
+     * {@link AnalysisContext#localMonth}), merged into a new sketch.
+     */
+    QuantileSketch getMonthlyExpenses(int fromMonth, int toMonth) {
+        QuantileSketch merged = new QuantileSketch();
+        for (int month = fromMonth; month <= toMonth; month++) {
+            QuantileSketch sketch = monthlyExpenses.get(month);
+            if (sketch != null) {
+                merged.merge(sketch);
+            }
+        }
+        return merged;
+    }
+
+    private final class CategoryStats {
+        private final TreeSet<LedgerEntry> byAmount = new TreeSet<>(LedgerEntry.BY_AMOUNT);
+        private final Map<String, AnomalyDetector.AnomalyResult> outliers = new LinkedHashMap<>();
+        private QuantileSketch amounts = new QuantileSketch();
+        // Removed since the sketch was built, and still in it
+        private int removedInSketch;
+
+        void add(LedgerEntry entry) {
+            byAmount.add(entry);
+            amounts.add(entry.amount);
+        }
+
+        /** Returns true when the category is left empty. */
+        boolean remove(LedgerEntry entry) {
+            if (byAmount.remove(entry)) {
+                removedInSketch++;
+            }
+            return byAmount.isEmpty();
+        }
+
+        private QuantileSketch amounts() {
+            if (removedInSketch > 0 && (long) removedInSketch * VALUES_PER_REMOVED >= byAmount.size()) {
+                amounts = new QuantileSketch();
+                for (LedgerEntry entry : byAmount) {
+                    amounts.add(entry.amount);
+                }
+                removedInSketch = 0;
+            }
+            return amounts;
+        }
+
+        /** Scores one expense of this category against its current amounts. */
+        AnomalyDetector.AnomalyResult score(LedgerEntry entry, String category) {
+            if (byAmount.size() < AnomalyDetector.MIN_CATEGORY_TRANSACTIONS) return null;
+            return detector.scoreAgainstCategory(entry.transaction, category, amounts());
+        }
+
+        void findOutliers(String category) {
+            outliers.clear();
+            if (byAmount.size() < AnomalyDetector.MIN_CATEGORY_TRANSACTIONS) return;
+            QuantileSketch amounts = amounts();
+            // Identical amounts have no outliers
+            if (amounts.getRobustScale() <= 0) return;
+
+            double median = amounts.getMedian();
+            double spread = QuantileSketch.OUTLIER_SCORE * amounts.getRobustScale();
+            List<LedgerEntry> candidates = new ArrayList<>(byAmount.headSet(LedgerEntry.atAmount(median - spread)));
+            candidates.addAll(byAmount.tailSet(LedgerEntry.atAmount(median + spread)));
+            for (LedgerEntry entry : candidates) {
+                AnomalyDetector.AnomalyResult anomaly = score(entry, category);
+                if (anomaly != null) {
+                    outliers.put(entry.id, anomaly);
+                }
+            }
+        }
+    }
+}
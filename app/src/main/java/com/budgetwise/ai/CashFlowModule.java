@@ -0,0 +1,216 @@
+package com.budgetwise.ai;
+
+import com.budgetwise.data.models.Budget;
+import com.budgetwise.data.models.Transaction;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Keeps what a {@link CashFlowSimulator} run starts from in step with the ledger: the running
+ * balance, the net flow of each day, and each description's own daily flows, so the days of
+ * merchants found recurring can be taken back out of the bootstrap history. A simulation is
+ * reused until the ledger, the recurring patterns or the day change, so an analysis run
+ * neither scans the repository nor redraws every path when none of its inputs moved.
+ */
+class CashFlowModule implements IncrementalModule {
+    // Anything smaller is what's left of removed amounts after rounding
+    private static final double EPSILON = 1e-9;
+
+    private final CashFlowSimulator simulator;
+    private final Function<String, String> merchantKey;
+    private double balance;
+    private DailySeries netByDay = new DailySeries();
+    private DailySeries incomeByDay = new DailySeries();
+    // Dated entries per day, for the first day with any activity
+    private DailySeries entriesByDay = new DailySeries();
+    private final Map<String, Flows> flowsByDescription = new HashMap<>();
+    // Descriptions can be edited in place, so removals use the key the entry was added under
+    private final Map<String, String> flowsKeyById = new HashMap<>();
+    private long version;
+    // The last simulation and the patterns version and day it was run for; null once stale
+    private volatile CashFlowSimulator.SimulationResult simulation;
+    private long simulatedPatternsVersion;
+    private long simulatedDay;
+
+    CashFlowModule(CashFlowSimulator simulator, Function<String, String> merchantKey) {
+        this.simulator = simulator;
+        this.merchantKey = merchantKey;
+    }
+
+    @Override
+    public void reset() {
+        version++;
+        balance = 0;
+        netByDay = new DailySeries();
+        incomeByDay = new DailySeries();
+        entriesByDay = new DailySeries();
+        flowsByDescription.clear();
+        flowsKeyById.clear();
+        simulation = null;
+    }
+
+    @Override
+    public void add(LedgerEntry entry, boolean replay) {
+        version++;
+        simulation = null;
+        double signed = CashFlowSimulator.signedAmount(entry.type, entry.amount);
+        balance += signed;
+        // An undated entry counts towards the balance only
+        if (entry.time == 0) return;
+        long day = AnalysisContext.localDay(entry.time);
+        entriesByDay.add(day, 1);
+        netByDay.add(day, signed);
+        if (signed > 0) {
+            incomeByDay.add(day, signed);
+        }
+        if (signed == 0) return;
+
+        String key = entry.type + ":" + entry.transaction.getDescription();
+        flowsKeyById.put(entry.id, key);
+        flowsByDescription.computeIfAbsent(key, k -> new Flows(entry.type, entry.transaction.getDescription()))
+            .add(day, signed);
+    }
+
+    @Override
+    public void remove(LedgerEntry entry) {
+        version++;
+        simulation = null;
+        double signed = CashFlowSimulator.signedAmount(entry.type, entry.amount);
+        balance -= signed;
+        if (entry.time == 0) return;
+        long day = AnalysisContext.localDay(entry.time);
+        entriesByDay.add(day, -1);
+        netByDay.add(day, -signed);
+        if (signed > 0) {
+            incomeByDay.add(day, -signed);
+        }
+
+        String key = flowsKeyById.remove(entry.id);
+        if (key == null) return;
+        Flows flows = flowsByDescription.get(key);
+        flows.remove(day, signed);
+        if (flows.entries == 0) {
+            flowsByDescription.remove(key);
+        }
+    }
+
+    @Override
+    public void onBudgetsChanged(List<Budget> budgets) {
+        // The balance doesn't depend on budgets
+    }
+
+    @Override
+    public boolean readsContext() {
+        return false;
+    }
+
+    @Override
+    public long contextStart(long now) {
+        // Works from its own state
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public void refresh(AnalysisContext context) {
+        // Simulations need this run's recurring patterns, so they happen in simulate()
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Simulates the next 30 days with {@code patterns} scheduled, or returns the last
+     * simulation if nothing it was run from has changed. Call on the analysis thread once the
+     * modules are refreshed; the seed is the day, so reruns on the same data agree.
+     *
+     * @param patternsVersion identifies {@code patterns}, e.g. the recurring module's version
+     * @return the result, or null if there are fewer than two weeks of history
+     */
+    CashFlowSimulator.SimulationResult simulate(List<RecurringDetector.RecurringPattern> patterns,
+                                                long patternsVersion, long now) {
+        long today = AnalysisContext.localDay(now);
+        CashFlowSimulator.SimulationResult last = simulation;
+        if (last != null && patternsVersion == simulatedPatternsVersion && today == simulatedDay) {
+            return last;
+        }
+
+        long historyStart = today - CashFlowSimulator.HISTORY_DAYS;
+        double[] history = new double[CashFlowSimulator.HISTORY_DAYS];
+        for (int i = 0; i < history.length; i++) {
+            history[i] = netByDay.get(historyStart + i);
+        }
+        Set<String> recurringMerchants = CashFlowSimulator.recurringMerchants(patterns, merchantKey);
+        if (!recurringMerchants.isEmpty()) {
+            for (Flows flows : flowsByDescription.values()) {
+                NavigableMap<Long, Double> recent = flows.netByDay.subMap(historyStart, true, today, false);
+                // Only descriptions with recent days need their merchant looked up
+                if (recent.isEmpty() || !recurringMerchants.contains(CashFlowSimulator.recurringKey(
+                        merchantKey.apply(flows.description), flows.type))) {
+                    continue;
+                }
+                for (Map.Entry<Long, Double> day : recent.entrySet()) {
+                    history[(int) (day.getKey() - historyStart)] -= day.getValue();
+                }
+            }
+        }
+
+        CashFlowSimulator.SimulationResult result = simulator.simulate(balance, entriesByDay.firstActiveDay(),
+            history, patterns, now, CashFlowSimulator.DEFAULT_PATHS, today);
+        simulatedPatternsVersion = patternsVersion;
+        simulatedDay = today;
+        simulation = result;
+        return result;
+    }
+
+    /**
+     * True if there is income to measure the balance against: some in the simulated history,
+     * or a recurring income in {@code patterns}. Without it the balance is only the sum of
+     * the expenses logged, and a simulation can't tell anything about running out of money.
+     */
+    boolean hasIncomeBaseline(List<RecurringDetector.RecurringPattern> patterns, long now) {
+        for (RecurringDetector.RecurringPattern pattern : patterns) {
+            if (pattern.getTransactionType() == Transaction.TransactionType.INCOME) return true;
+        }
+        long today = AnalysisContext.localDay(now);
+        return incomeByDay.total(today - CashFlowSimulator.HISTORY_DAYS, today) > EPSILON;
+    }
+
+    /** The last simulation, or null if the ledger changed since or there was too little history. */
+    CashFlowSimulator.SimulationResult getSimulation() {
+        return simulation;
+    }
+
+    /** One description's net flow per day, sparse: most descriptions appear on few days. */
+    private static final class Flows {
+        final Transaction.TransactionType type;
+        final String description;
+        final TreeMap<Long, Double> netByDay = new TreeMap<>();
+        int entries;
+
+        Flows(Transaction.TransactionType type, String description) {
+            this.type = type;
+            this.description = description;
+        }
+
+        void add(long day, double signed) {
+            entries++;
+            netByDay.merge(day, signed, Double::sum);
+        }
+
+        void remove(long day, double signed) {
+            entries--;
+            // One description has one type, so a day nets to zero only once its entries are gone
+            Double left = netByDay.merge(day, -signed, Double::sum);
+            if (left != null && Math.abs(left) < EPSILON) {
+                netByDay.remove(day);
+            }
+        }
+    }
+}
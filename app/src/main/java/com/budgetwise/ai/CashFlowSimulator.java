@@ -0,0 +1,251 @@
+package com.budgetwise.ai;
+
+import com.budgetwise.data.models.Transaction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Monte Carlo simulation of the balance over the next 30 days, for a spread of outcomes
+ * where the forecast gives one number.
+ * <p>
+ * Known recurring charges and income are put on their due days in every path. Everything
+ * else is bootstrapped: each simulated day draws the net flow of a random day from the last
+ * 90 that fell on the same weekday, so weekends stay weekends. Paths are split across a
+ * fork/join pool; each task draws from its own {@link SplitMix64} seeded by the first path
+ * it covers, so a seed gives the same result however the work is scheduled. Balances go
+ * into a day-major matrix kept between runs, and the per-day percentiles are read off it
+ * after sorting each day in place.
+ */
+public class CashFlowSimulator {
+    static final int HORIZON_DAYS = 30;
+    static final int HISTORY_DAYS = 90;
+    static final int DEFAULT_PATHS = 10_000;
+    // Two of each weekday to draw from, at least
+    private static final int MIN_HISTORY_DAYS = 14;
+    // A charge this late is still expected; one later than this is taken as cancelled
+    private static final int LATE_CHARGE_DAYS = 3;
+    private static final int PATHS_PER_TASK = 512;
+
+    private final ForkJoinPool pool;
+    private double[][] balances = new double[HORIZON_DAYS + 1][0];
+
+    CashFlowSimulator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Simulates {@code paths} balance trajectories from the current balance of
+     * {@code transactions}. {@code merchantKey} groups descriptions the way the recurring
+     * patterns were found, so their past occurrences are left out of the bootstrap.
+     *
+     * @return the result, or null if there are fewer than two weeks of history
+     */
+    SimulationResult simulate(List<Transaction> transactions,
+                              List<RecurringDetector.RecurringPattern> patterns,
+                              Function<String, String> merchantKey,
+                              long now, int paths, long seed) {
+        long today = AnalysisContext.localDay(now);
+        Set<String> recurringMerchants = recurringMerchants(patterns, merchantKey);
+
+        double startingBalance = 0;
+        long firstDay = Long.MAX_VALUE;
+        double[] history = new double[HISTORY_DAYS];
+        long historyStart = today - HISTORY_DAYS;
+        for (Transaction transaction : transactions) {
+            double signed = signedAmount(transaction.getType(), transaction.getAmount());
+            startingBalance += signed;
+            if (transaction.getDate() == null) continue;
+            long day = AnalysisContext.localDay(transaction.getDate().getTime());
+            firstDay = Math.min(firstDay, day);
+            if (day >= historyStart && day < today && !recurringMerchants.contains(
+                    recurringKey(merchantKey.apply(transaction.getDescription()), transaction.getType()))) {
+                history[(int) (day - historyStart)] += signed;
+            }
+        }
+        return simulate(startingBalance, firstDay, history, patterns, now, paths, seed);
+    }
+
+    /**
+     * Simulates from inputs gathered elsewhere: {@code history} holds the net flow of each of
+     * the {@link #HISTORY_DAYS} days before today, leaving out recurring merchants, and
+     * {@code firstDay} is the day of the first dated transaction.
+     *
+     * @return the result, or null if there are fewer than two weeks of history
+     */
+    synchronized SimulationResult simulate(double startingBalance, long firstDay, double[] history,
+                                           List<RecurringDetector.RecurringPattern> patterns,
+                                           long now, int paths, long seed) {
+        long today = AnalysisContext.localDay(now);
+        long historyStart = today - HISTORY_DAYS;
+        // Days before the first transaction say nothing about spending
+        long sampleStart = Math.max(historyStart, firstDay);
+        if (today - sampleStart < MIN_HISTORY_DAYS) {
+            return null;
+        }
+
+        double[] scheduled = new double[HORIZON_DAYS + 1];
+        for (RecurringDetector.RecurringPattern pattern : patterns) {
+            schedule(pattern, today, scheduled);
+        }
+
+        double[][] dayPools = new double[HORIZON_DAYS + 1][];
+        for (int weekday = 0; weekday < 7; weekday++) {
+            List<Double> flows = new ArrayList<>();
+            for (long day = sampleStart; day < today; day++) {
+                if (Math.floorMod(day, 7) == weekday) {
+                    flows.add(history[(int) (day - historyStart)]);
+                }
+            }
+            double[] weekdayPool = new double[flows.size()];
+            for (int i = 0; i < weekdayPool.length; i++) {
+                weekdayPool[i] = flows.get(i);
+            }
+            for (int day = 1; day <= HORIZON_DAYS; day++) {
+                if (Math.floorMod(today + day, 7) == weekday) {
+                    dayPools[day] = weekdayPool;
+                }
+            }
+        }
+
+        if (balances[0].length < paths) {
+            balances = new double[HORIZON_DAYS + 1][paths];
+        }
+        int negativePaths = pool.invoke(new PathTask(startingBalance, dayPools, scheduled, seed, 0, paths));
+
+        double[] p10 = new double[HORIZON_DAYS + 1];
+        double[] p50 = new double[HORIZON_DAYS + 1];
+        double[] p90 = new double[HORIZON_DAYS + 1];
+        p10[0] = p50[0] = p90[0] = startingBalance;
+        for (int day = 1; day <= HORIZON_DAYS; day++) {
+            double[] outcomes = balances[day];
+            Arrays.sort(outcomes, 0, paths);
+            p10[day] = outcomes[(int) (0.1 * (paths - 1))];
+            p50[day] = outcomes[(int) (0.5 * (paths - 1))];
+            p90[day] = outcomes[(int) (0.9 * (paths - 1))];
+        }
+        return new SimulationResult(paths, (double) negativePaths / paths, p10, p50, p90);
+    }
+
+    // Puts each occurrence due in the horizon on its day; one just missed goes on the first day.
+    // A pattern whose next charge is overdue by more than that has stopped, so it adds nothing.
+    static void schedule(RecurringDetector.RecurringPattern pattern, long today, double[] scheduled) {
+        if (pattern.getNextDueDate() <= 0) return;
+        long nextDue = AnalysisContext.localDay(pattern.getNextDueDate());
+        if (today - nextDue > LATE_CHARGE_DAYS) return;
+        double signed = signedAmount(pattern.getTransactionType(), pattern.getExpectedAmount());
+        int interval = Math.max(1, pattern.getIntervalDays());
+        for (long due = nextDue; due <= today + HORIZON_DAYS; due += interval) {
+            if (due > today) {
+                scheduled[(int) (due - today)] += signed;
+            } else if (today - due <= LATE_CHARGE_DAYS) {
+                scheduled[1] += signed;
+            }
+        }
+    }
+
+    /** The keys of the merchants behind {@code patterns}, as {@link #recurringKey} builds them. */
+    static Set<String> recurringMerchants(List<RecurringDetector.RecurringPattern> patterns,
+                                          Function<String, String> merchantKey) {
+        Set<String> merchants = new HashSet<>();
+        for (RecurringDetector.RecurringPattern pattern : patterns) {
+            merchants.add(recurringKey(merchantKey.apply(pattern.getDescription()), pattern.getTransactionType()));
+        }
+        return merchants;
+    }
+
+    static double signedAmount(Transaction.TransactionType type, double amount) {
+        if (type == Transaction.TransactionType.INCOME) return amount;
+        if (type == Transaction.TransactionType.EXPENSE) return -amount;
+        return 0; // Transfers don't affect the balance
+    }
+
+    static String recurringKey(String merchant, Transaction.TransactionType type) {
+        return type + ":" + merchant;
+    }
+
+    /**
+     * Simulates a range of paths; returns how many of them went below zero, or below the
+     * starting balance if that is already negative.
+     */
+    private final class PathTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final double startingBalance;
+        private final double[][] dayPools;
+        private final double[] scheduled;
+        private final long seed;
+        private final int from;
+        private final int to;
+
+        PathTask(double startingBalance, double[][] dayPools, double[] scheduled, long seed, int from, int to) {
+            this.startingBalance = startingBalance;
+            this.dayPools = dayPools;
+            this.scheduled = scheduled;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from > PATHS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                PathTask left = new PathTask(startingBalance, dayPools, scheduled, seed, from, middle);
+                left.fork();
+                int right = new PathTask(startingBalance, dayPools, scheduled, seed, middle, to).compute();
+                return right + left.join();
+            }
+
+            SplitMix64 random = new SplitMix64(SplitMix64.mix(seed + from));
+            double[][] balances = CashFlowSimulator.this.balances;
+            // A balance already below zero would count every path; count those that fall further
+            double floor = Math.min(0, startingBalance);
+            int negative = 0;
+            for (int path = from; path < to; path++) {
+                double balance = startingBalance;
+                boolean wentNegative = false;
+                for (int day = 1; day <= HORIZON_DAYS; day++) {
+                    double[] dayPool = dayPools[day];
+                    balance += dayPool[random.nextInt(dayPool.length)] + scheduled[day];
+                    balances[day][path] = balance;
+                    wentNegative |= balance < floor;
+                }
+                if (wentNegative) negative++;
+            }
+            return negative;
+        }
+    }
+
+    public static class SimulationResult {
+        private final int paths;
+        private final double probabilityOfNegative;
+        private final double[] p10;
+        private final double[] p50;
+        private final double[] p90;
+
+        SimulationResult(int paths, double probabilityOfNegative, double[] p10, double[] p50, double[] p90) {
+            this.paths = paths;
+            this.probabilityOfNegative = probabilityOfNegative;
+            this.p10 = p10;
+            this.p50 = p50;
+            this.p90 = p90;
+        }
+
+        // Getters; the trajectories are indexed by day from now, day 0 being the current balance
+        public int getPaths() { return paths; }
+        /**
+         * Share of paths whose balance drops below zero within the horizon, or below the
+         * current balance if that is already negative.
+         */
+        public double getProbabilityOfNegative() { return probabilityOfNegative; }
+        public double[] getP10() { return p10.clone(); }
+        public double[] getP50() { return p50.clone(); }
+        public double[] getP90() { return p90.clone(); }
+    }
+}
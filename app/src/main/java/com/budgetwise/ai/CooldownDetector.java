@@ -5,13 +5,26 @@ import com.budgetwise.data.models.Transaction;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Finds bursts of expenses logged in quick succession and warns while one is under way.
+ * <p>
+ * Past bursts come from one pass of a sliding window over the expense times: the window
+ * holds the expenses within 15 minutes of the latest one, and every window of three or more
+ * extends the current burst, so overlapping windows come out as one burst. Whether spending
+ * is rapid right now only needs the last few expenses, kept in a small ring of times:
+ * {@link #recordTransaction} adds each entry as it is saved, and {@link CooldownModule}
+ * reseeds the ring from the ledger after every analysis run that changed it.
+ */
 public class CooldownDetector {
     private static final long RAPID_THRESHOLD = TimeUnit.MINUTES.toMillis(15); // 15 minutes
     private static final int MIN_TRANSACTIONS_FOR_ALERT = 3;
     private static final double HIGH_AMOUNT_THRESHOLD = 100.0; // $100+
+    // The alert reports how many of the last 10 expenses were rapid
+    private static final int RECENT_EXPENSES = 10;
     
     private final Context context;
     private final AINotificationManager notificationManager;
+    private final RecentExpenseTimes recentExpenses = new RecentExpenseTimes(RECENT_EXPENSES);
 
     public CooldownDetector(Context context) {
         this.context = context;
@@ -19,94 +32,119 @@ public class CooldownDetector {
     }
 
     public CooldownResult analyzeSpendingPattern(List<Transaction> transactions) {
-        // Sort transactions by date (most recent first)
-        List<Transaction> sortedTransactions = new ArrayList<>(transactions);
-        sortedTransactions.sort((t1, t2) -> t2.getDate().compareTo(t1.getDate()));
-        
+        return analyzeSpendingPattern(AnalysisContext.of(transactions, System.currentTimeMillis()));
+    }
+
+    public CooldownResult analyzeSpendingPattern(AnalysisContext context) {
+        AnalysisContext.Series expenses = context.getExpenses();
+
         // Analyze recent spending bursts
-        List<SpendingBurst> bursts = detectSpendingBursts(sortedTransactions);
+        List<SpendingBurst> bursts = detectSpendingBursts(expenses);
         
-        // Check for current rapid spending
-        boolean isCurrentlyRapidSpending = isCurrentlyInRapidSpending(sortedTransactions);
+        // Check for current rapid spending among the last few expenses
+        int rapidCount = Math.min(RECENT_EXPENSES,
+            expenses.count(context.getNow() - RAPID_THRESHOLD, Long.MAX_VALUE));
+        boolean isCurrentlyRapidSpending = rapidCount >= MIN_TRANSACTIONS_FOR_ALERT;
         
         // Generate recommendations
         List<String> recommendations = generateCooldownRecommendations(bursts, isCurrentlyRapidSpending);
         
         // Trigger notifications if needed
         if (isCurrentlyRapidSpending) {
-            triggerCooldownNotification(sortedTransactions);
+            triggerCooldownNotification(rapidCount);
         }
         
         return new CooldownResult(bursts, isCurrentlyRapidSpending, recommendations);
     }
 
-    private List<SpendingBurst> detectSpendingBursts(List<Transaction> transactions) {
+    /**
+     * Records a transaction as it is saved and alerts if it makes spending rapid. Only looks
+     * at the last few expense times, so it is cheap enough to run on the main thread. Until
+     * the first analysis run has seeded them, only entries recorded since start count.
+     *
+     * @return true if spending is currently rapid
+     */
+    public boolean recordTransaction(Transaction transaction, long now) {
+        if (transaction.getType() != Transaction.TransactionType.EXPENSE || transaction.getDate() == null) {
+            return false;
+        }
+        int rapidCount;
+        synchronized (this) {
+            recentExpenses.add(transaction.getId(), transaction.getDate().getTime());
+            if (!recentExpenses.isRapid(now - RAPID_THRESHOLD, MIN_TRANSACTIONS_FOR_ALERT)) {
+                return false;
+            }
+            rapidCount = recentExpenses.countSince(now - RAPID_THRESHOLD);
+        }
+        triggerCooldownNotification(rapidCount);
+        return true;
+    }
+
+    /** Replaces the recent expense times with the ledger's, read newest first until the ring is full. */
+    synchronized void seedRecentExpenses(Iterator<LedgerEntry> newestFirst) {
+        recentExpenses.clear();
+        for (int i = 0; i < RECENT_EXPENSES && newestFirst.hasNext(); i++) {
+            LedgerEntry entry = newestFirst.next();
+            recentExpenses.add(entry.id, entry.time);
+        }
+    }
+
+    // Bursts in most-recent-first order
+    private List<SpendingBurst> detectSpendingBursts(AnalysisContext.Series expenses) {
         List<SpendingBurst> bursts = new ArrayList<>();
+        int burstStart = -1;
+        int burstEnd = -1;
+        int windowStart = 0;
         
-        for (int i = 0; i < transactions.size() - MIN_TRANSACTIONS_FOR_ALERT + 1; i++) {
-            List<Transaction> window = new ArrayList<>();
-            
-            // Collect transactions within the rapid threshold
-            for (int j = i; j < transactions.size(); j++) {
-                Transaction current = transactions.get(j);
-                
-                if (window.isEmpty()) {
-                    window.add(current);
-                } else {
-                    long timeDiff = window.get(0).getDate().getTime() - current.getDate().getTime();
-                    if (timeDiff <= RAPID_THRESHOLD) {
-                        window.add(current);
-                    } else {
-                        break;
-                    }
-                }
+        for (int windowEnd = 0; windowEnd < expenses.size(); windowEnd++) {
+            long end = expenses.timeAt(windowEnd);
+            while (end - expenses.timeAt(windowStart) > RAPID_THRESHOLD) {
+                windowStart++;
             }
+            if (windowEnd - windowStart + 1 < MIN_TRANSACTIONS_FOR_ALERT) continue;
             
-            // Check if this window constitutes a spending burst
-            if (window.size() >= MIN_TRANSACTIONS_FOR_ALERT) {
-                SpendingBurst burst = analyzeSpendingBurst(window);
-                if (burst != null) {
-                    bursts.add(burst);
-                    i += window.size() - 1; // Skip analyzed transactions
+            // Overlaps the burst so far, so it extends it; otherwise that burst is complete
+            if (burstEnd >= windowStart) {
+                burstEnd = windowEnd;
+            } else {
+                if (burstEnd >= 0) {
+                    bursts.add(analyzeSpendingBurst(expenses, burstStart, burstEnd));
                 }
+                burstStart = windowStart;
+                burstEnd = windowEnd;
             }
         }
+        if (burstEnd >= 0) {
+            bursts.add(analyzeSpendingBurst(expenses, burstStart, burstEnd));
+        }
         
+        Collections.reverse(bursts);
         return bursts;
     }
 
-    private SpendingBurst analyzeSpendingBurst(List<Transaction> burstTransactions) {
-        if (burstTransactions.size() < MIN_TRANSACTIONS_FOR_ALERT) return null;
-        
-        // Filter only expense transactions
-        List<Transaction> expenses = burstTransactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
-        
-        if (expenses.size() < MIN_TRANSACTIONS_FOR_ALERT) return null;
-        
-        double totalAmount = expenses.stream().mapToDouble(Transaction::getAmount).sum();
-        long startTime = expenses.get(expenses.size() - 1).getDate().getTime();
-        long endTime = expenses.get(0).getDate().getTime();
-        long duration = endTime - startTime;
-        
-        // Determine burst severity
-        BurstSeverity severity = determineBurstSeverity(expenses.size(), totalAmount, duration);
-        
-        // Analyze categories involved
+    // The expenses from index first to last, inclusive
+    private SpendingBurst analyzeSpendingBurst(AnalysisContext.Series expenses, int first, int last) {
+        int count = last - first + 1;
+        double totalAmount = 0;
         Set<String> categories = new HashSet<>();
-        for (Transaction t : expenses) {
+        for (int i = first; i <= last; i++) {
+            Transaction t = expenses.get(i);
+            totalAmount += t.getAmount();
             categories.add(t.getCategory());
         }
+        long duration = expenses.timeAt(last) - expenses.timeAt(first);
+        
+        // Determine burst severity
+        BurstSeverity severity = determineBurstSeverity(count, totalAmount, duration);
         
         return new SpendingBurst(
-            expenses.size(),
+            count,
             totalAmount,
             duration,
             severity,
             new ArrayList<>(categories),
-            expenses.get(0).getDate(), // Most recent transaction date
-            generateBurstDescription(expenses.size(), totalAmount, duration, categories)
+            expenses.get(last).getDate(), // Most recent transaction date
+            generateBurstDescription(count, totalAmount, duration, categories)
         );
     }
 
@@ -127,27 +165,6 @@ public class CooldownDetector {
         return BurstSeverity.LOW;
     }
 
-    private boolean isCurrentlyInRapidSpending(List<Transaction> transactions) {
-        if (transactions.size() < MIN_TRANSACTIONS_FOR_ALERT) return false;
-        
-        long now = System.currentTimeMillis();
-        List<Transaction> recentTransactions = new ArrayList<>();
-        
-        // Collect transactions from the last 15 minutes
-        for (Transaction t : transactions) {
-            if (t.getType() == Transaction.TransactionType.EXPENSE) {
-                long timeDiff = now - t.getDate().getTime();
-                if (timeDiff <= RAPID_THRESHOLD) {
-                    recentTransactions.add(t);
-                } else {
-                    break; // Transactions are sorted by date
-                }
-            }
-        }
-        
-        return recentTransactions.size() >= MIN_TRANSACTIONS_FOR_ALERT;
-    }
-
     private List<String> generateCooldownRecommendations(List<SpendingBurst> bursts, boolean currentlyRapid) {
         List<String> recommendations = new ArrayList<>();
         
@@ -175,20 +192,12 @@ public class CooldownDetector {
         return recommendations;
     }
 
-    private void triggerCooldownNotification(List<Transaction> recentTransactions) {
-        int count = (int) recentTransactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .limit(10) // Check last 10 transactions
-            .filter(t -> (System.currentTimeMillis() - t.getDate().getTime()) <= RAPID_THRESHOLD)
-            .count();
-        
-        if (count >= MIN_TRANSACTIONS_FOR_ALERT) {
-            notificationManager.showAlert(
-                "Rapid Spending Detected",
-                String.format("🛑 Multiple entries logged quickly (%d transactions). Review now?", count),
-                4001
-            );
-        }
+    private void triggerCooldownNotification(int count) {
+        notificationManager.showAlert(
+            "Rapid Spending Detected",
+            String.format("🛑 Multiple entries logged quickly (%d transactions). Review now?", count),
+            4001
+        );
     }
 
     private String generateBurstDescription(int count, double amount, long duration, Set<String> categories) {
@@ -252,4 +261,66 @@ public class CooldownDetector {
     public enum BurstSeverity {
         LOW, MEDIUM, HIGH
     }
-}
\ No newline at end of file
+
+    /**
+     * The latest expense times, oldest to newest in a ring. A time older than all of a full
+     * ring is dropped, as is a transaction already in it; any other is put in order, shifting
+     * at most the ring's length.
+     */
+    private static final class RecentExpenseTimes {
+        private final long[] times;
+        private final String[] ids;
+        private int newest = -1;
+        private int size;
+
+        RecentExpenseTimes(int capacity) {
+            this.times = new long[capacity];
+            this.ids = new String[capacity];
+        }
+
+        void clear() {
+            newest = -1;
+            size = 0;
+        }
+
+        void add(String id, long time) {
+            int capacity = times.length;
+            if (size == capacity && time < get(size - 1)) return;
+            // Recorded when saved and then seen again in the ledger
+            for (int back = 0; back < size; back++) {
+                if (ids[(newest - back + capacity) % capacity].equals(id)) return;
+            }
+            // Take the slot after the newest, which is the oldest's when full
+            newest = (newest + 1) % capacity;
+            if (size < capacity) size++;
+            int slot = newest;
+            for (int i = 1; i < size; i++) {
+                int previous = (slot + capacity - 1) % capacity;
+                if (times[previous] <= time) break;
+                times[slot] = times[previous];
+                ids[slot] = ids[previous];
+                slot = previous;
+            }
+            times[slot] = time;
+            ids[slot] = id;
+        }
+
+        // The time back places before the newest
+        private long get(int back) {
+            return times[(newest - back + times.length) % times.length];
+        }
+
+        /** True if the last {@code count} times are all at or after {@code since}. */
+        boolean isRapid(long since, int count) {
+            return size >= count && get(count - 1) >= since;
+        }
+
+        int countSince(long since) {
+            int count = 0;
+            while (count < size && get(count) >= since) {
+                count++;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.budgetwise.ai;
+
+import com.budgetwise.data.models.Budget;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Keeps the {@link CooldownDetector}'s recent expense times in step with the ledger. Every
+ * change reaches it through the engine on the analysis thread, so a deletion, an edit or an
+ * import reseeds the detector's ring as surely as an entry saved from the form, and nothing
+ * scans the history on the main thread.
+ */
+class CooldownModule implements IncrementalModule {
+    private final CooldownDetector detector;
+    private final TreeSet<LedgerEntry> expensesByTime = new TreeSet<>(LedgerEntry.BY_TIME);
+    private boolean changed;
+    private long version;
+
+    CooldownModule(CooldownDetector detector) {
+        this.detector = detector;
+    }
+
+    @Override
+    public void reset() {
+        version++;
+        expensesByTime.clear();
+        changed = true;
+    }
+
+    @Override
+    public void add(LedgerEntry entry, boolean replay) {
+        if (!entry.isExpense()) return;
+        version++;
+        expensesByTime.add(entry);
+        changed = true;
+    }
+
+    @Override
+    public void remove(LedgerEntry entry) {
+        if (expensesByTime.remove(entry)) {
+            version++;
+            changed = true;
+        }
+    }
+
+    @Override
+    public void onBudgetsChanged(List<Budget> budgets) {
+        // Cooldowns don't depend on budgets
+    }
+
+    @Override
+    public boolean readsContext() {
+        return false;
+    }
+
+    @Override
+    public long contextStart(long now) {
+        // Works from its own state
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public void refresh(AnalysisContext context) {
+        if (!changed) return;
+        detector.seedRecentExpenses(expensesByTime.descendingIterator());
+        changed = false;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+}
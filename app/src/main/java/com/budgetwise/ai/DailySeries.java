@@ -0,0 +1,62 @@
+package com.budgetwise.ai;
+
+import java.util.Arrays;
+
+/**
+ * Totals per local day in a primitive array that grows at either end, adjusted in place as
+ * transactions are added and removed. Days are day numbers from {@link AnalysisContext#localDay}.
+ */
+final class DailySeries {
+    // Anything smaller is what's left of removed amounts after rounding
+    private static final double EPSILON = 1e-9;
+
+    private double[] totals = new double[64];
+    private long firstDay;
+    private int length;
+
+    /** Adds {@code amount} to {@code day}'s total; a negative amount takes one back out. */
+    void add(long day, double amount) {
+        if (length == 0) {
+            firstDay = day;
+            length = 1;
+        } else if (day < firstDay) {
+            int shift = (int) (firstDay - day);
+            double[] grown = new double[Math.max(totals.length, length + shift)];
+            System.arraycopy(totals, 0, grown, shift, length);
+            totals = grown;
+            firstDay = day;
+            length += shift;
+        } else if (day >= firstDay + length) {
+            length = (int) (day - firstDay) + 1;
+            if (length > totals.length) {
+                totals = Arrays.copyOf(totals, Math.max(length, totals.length * 2));
+            }
+        }
+        totals[(int) (day - firstDay)] += amount;
+    }
+
+    /** The total of {@code day}, zero outside the covered days. */
+    double get(long day) {
+        long index = day - firstDay;
+        return index >= 0 && index < length ? totals[(int) index] : 0;
+    }
+
+    /** Sum of the totals of days in [from, to). */
+    double total(long from, long to) {
+        double total = 0;
+        for (long day = Math.max(from, firstDay); day < Math.min(to, firstDay + length); day++) {
+            total += totals[(int) (day - firstDay)];
+        }
+        return total;
+    }
+
+    /** The first day with a total, or {@link Long#MAX_VALUE} if there is none. */
+    long firstActiveDay() {
+        for (int i = 0; i < length; i++) {
+            if (Math.abs(totals[i]) > EPSILON) {
+                return firstDay + i;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
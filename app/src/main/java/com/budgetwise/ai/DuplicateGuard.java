@@ -42,19 +42,18 @@ public class DuplicateGuard {
 
     private List<Transaction> findPotentialDuplicates(Transaction newTransaction, List<Transaction> existingTransactions) {
         List<Transaction> potentialDuplicates = new ArrayList<>();
+        Map<Transaction, Double> scores = new IdentityHashMap<>();
         
         for (Transaction existing : existingTransactions) {
             if (isPotentialDuplicate(newTransaction, existing)) {
                 potentialDuplicates.add(existing);
+                // Scored once here rather than on every comparison of the sort
+                scores.put(existing, calculateSimilarityScore(newTransaction, existing));
             }
         }
         
         // Sort by similarity score (most similar first)
-        potentialDuplicates.sort((t1, t2) -> {
-            double score1 = calculateSimilarityScore(newTransaction, t1);
-            double score2 = calculateSimilarityScore(newTransaction, t2);
-            return Double.compare(score2, score1);
-        });
+        potentialDuplicates.sort((t1, t2) -> Double.compare(scores.get(t2), scores.get(t1)));
         
         return potentialDuplicates;
     }
@@ -78,10 +77,8 @@ public class DuplicateGuard {
         }
         
         // Check description similarity
-        double descriptionSimilarity = calculateDescriptionSimilarity(
-            newTransaction.getDescription(), existing.getDescription());
-        
-        return descriptionSimilarity > 0.7; // 70% similarity threshold
+        return SimilarityKernel.isSimilar(
+            newTransaction.getDescription(), existing.getDescription(), 0.7); // 70% similarity threshold
     }
 
     private double calculateSimilarityScore(Transaction t1, Transaction t2) {
@@ -93,7 +90,7 @@ public class DuplicateGuard {
         score += amountSimilarity * 0.4;
         
         // Description similarity (40% weight)
-        double descriptionSimilarity = calculateDescriptionSimilarity(t1.getDescription(), t2.getDescription());
+        double descriptionSimilarity = SimilarityKernel.similarity(t1.getDescription(), t2.getDescription());
         score += descriptionSimilarity * 0.4;
         
         // Time proximity (20% weight)
@@ -104,49 +101,6 @@ public class DuplicateGuard {
         return score;
     }
 
-    private double calculateDescriptionSimilarity(String desc1, String desc2) {
-        if (desc1 == null || desc2 == null) return 0.0;
-        
-        String normalized1 = normalizeDescription(desc1);
-        String normalized2 = normalizeDescription(desc2);
-        
-        // Use Levenshtein distance for similarity
-        int distance = levenshteinDistance(normalized1, normalized2);
-        int maxLength = Math.max(normalized1.length(), normalized2.length());
-        
-        return maxLength > 0 ? 1.0 - (double) distance / maxLength : 1.0;
-    }
-
-    private String normalizeDescription(String description) {
-        return description.toLowerCase()
-            .replaceAll("[^a-zA-Z0-9\\s]", "") // Remove special characters
-            .replaceAll("\\s+", " ") // Normalize whitespace
-            .trim();
-    }
-
-    private int levenshteinDistance(String s1, String s2) {
-        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
-        
-        for (int i = 0; i <= s1.length(); i++) {
-            dp[i][0] = i;
-        }
-        for (int j = 0; j <= s2.length(); j++) {
-            dp[0][j] = j;
-        }
-        
-        for (int i = 1; i <= s1.length(); i++) {
-            for (int j = 1; j <= s2.length(); j++) {
-                if (s1.charAt(i - 1) == s2.charAt(j - 1)) {
-                    dp[i][j] = dp[i - 1][j - 1];
-                } else {
-                    dp[i][j] = 1 + Math.min(Math.min(dp[i - 1][j], dp[i][j - 1]), dp[i - 1][j - 1]);
-                }
-            }
-        }
-        
-        return dp[s1.length()][s2.length()];
-    }
-
     private DuplicateConfidence calculateConfidence(Transaction newTransaction, Transaction existing) {
         double similarityScore = calculateSimilarityScore(newTransaction, existing);
         
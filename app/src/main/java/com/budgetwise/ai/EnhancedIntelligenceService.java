@@ -1,21 +1,41 @@
 package com.budgetwise.ai;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.util.Log;
 import androidx.lifecycle.MutableLiveData;
 import com.budgetwise.data.models.Budget;
 import com.budgetwise.data.models.Transaction;
 import com.budgetwise.data.repository.BudgetRepository;
+import com.budgetwise.data.storage.SecurePreferences;
+import com.budgetwise.security.EncryptionManager;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
 
 public class EnhancedIntelligenceService {
     private static final String TAG = "EnhancedIntelligenceService";
+    private static final long ANALYSIS_DEBOUNCE_MS = 500;
+    private static final long ANALYSIS_MAX_DELAY_MS = 2000;
+    private static final int UPCOMING_CHARGE_DAYS = 7;
+    // Months of history this month's typical expenses are compared with
+    private static final int BASELINE_MONTHS = 3;
+    private static final int MIN_EXPENSES_TO_COMPARE = 10;
+    // Warns when at least this share of simulated balance paths goes below zero (or further below)
+    private static final double CASH_FLOW_RISK = 0.1;
     
     private final Context context;
     private final BudgetRepository repository;
-    private final ExecutorService executorService;
+    private final AnalysisRequestCoalescer<List<String>> analysisRequests;
+    private final ExecutorService stageExecutor;
+    private final ExecutorService duplicateCheckExecutor;
+    private final ExecutorService simulationExecutor;
     
     // AI Modules
     private final RecurringDetector recurringDetector;
@@ -26,19 +46,44 @@ public class EnhancedIntelligenceService {
     private final DuplicateGuard duplicateGuard;
     private final SummaryGenerator summaryGenerator;
     private final CooldownDetector cooldownDetector;
+    private final KeywordCategorizer keywordCategorizer;
+    
+    // Incremental state behind the analyses
+    private final IncrementalAnalysisEngine analysisEngine;
+    private final RecurringModule recurringModule;
+    private final AnomalyModule anomalyModule;
+    private final ForecastModule forecastModule;
+    private final WindowedModule<List<EfficiencyTracker.EfficiencyResult>> efficiencyModule;
+    private final WindowedModule<List<GoalRecommender.GoalRecommendation>> goalModule;
+    private final WindowedModule<SummaryGenerator.WeeklySummary> summaryModule;
+    private final CashFlowModule cashFlowModule;
+    // Insights of the last run and the module versions they were built from; run thread only
+    private long[] insightsVersions;
+    private List<String> cachedInsights;
     
     // Live Data for UI updates
     private final MutableLiveData<List<String>> insightsLiveData = new MutableLiveData<>();
     private final MutableLiveData<ForecastEngine.ForecastResult> forecastLiveData = new MutableLiveData<>();
     private final MutableLiveData<SummaryGenerator.WeeklySummary> weeklySummaryLiveData = new MutableLiveData<>();
     
-    public EnhancedIntelligenceService(Context context, BudgetRepository repository) {
+    public EnhancedIntelligenceService(Context context, BudgetRepository repository,
+                                       EncryptionManager encryptionManager) {
         this.context = context;
         this.repository = repository;
-        this.executorService = Executors.newFixedThreadPool(3);
+        // Runs apply deltas in order, so they must not overlap
+        this.analysisRequests = new AnalysisRequestCoalescer<>(this::runAnalysis,
+            ANALYSIS_DEBOUNCE_MS, ANALYSIS_MAX_DELAY_MS);
+        // Stages of one run; independent ones run side by side
+        this.stageExecutor = Executors.newFixedThreadPool(3);
+        // Kept apart from analysis runs so a check answers while one is in flight
+        this.duplicateCheckExecutor = Executors.newSingleThreadExecutor();
+        // Simulation requests wait here for the analysis run that answers them
+        this.simulationExecutor = Executors.newSingleThreadExecutor();
         
         // Initialize AI modules
-        this.recurringDetector = new RecurringDetector(context);
+        // Merchant clusters and category keywords come from transaction data, so they are stored encrypted too
+        SecurePreferences securePreferences = new SecurePreferences(context, encryptionManager);
+        this.recurringDetector = new RecurringDetector(context, securePreferences);
         this.anomalyDetector = new AnomalyDetector(context);
         this.forecastEngine = new ForecastEngine(context);
         this.efficiencyTracker = new EfficiencyTracker(context);
@@ -46,50 +91,142 @@ public class EnhancedIntelligenceService {
         this.duplicateGuard = new DuplicateGuard(context);
         this.summaryGenerator = new SummaryGenerator(context);
         this.cooldownDetector = new CooldownDetector(context);
+        this.keywordCategorizer = new KeywordCategorizer(securePreferences);
+        
+        // The windows cover at least what each detector reads from the context
+        this.recurringModule = new RecurringModule(recurringDetector);
+        this.anomalyModule = new AnomalyModule(anomalyDetector);
+        this.forecastModule = new ForecastModule(forecastEngine);
+        this.efficiencyModule = new WindowedModule<>((now, budgets) -> earliestActiveBudgetStart(budgets),
+            true, (analysis, budgets) -> efficiencyTracker.analyzeBudgetEfficiency(budgets, analysis));
+        this.goalModule = new WindowedModule<>(WindowedModule.lastDays(30),
+            false, (analysis, budgets) -> goalRecommender.generateGoalRecommendations(analysis));
+        // Two weeks: the summary compares this week with the one before
+        this.summaryModule = new WindowedModule<>(WindowedModule.lastDays(14),
+            true, summaryGenerator::generateWeeklySummary);
+        this.cashFlowModule = new CashFlowModule(new CashFlowSimulator(new ForkJoinPool()),
+            recurringDetector::merchantKey);
+        Map<String, IncrementalModule> modules = new LinkedHashMap<>();
+        modules.put("recurring", recurringModule);
+        modules.put("anomalies", anomalyModule);
+        modules.put("forecast", forecastModule);
+        modules.put("efficiency", efficiencyModule);
+        modules.put("goals", goalModule);
+        modules.put("summary", summaryModule);
+        modules.put("cooldown", new CooldownModule(cooldownDetector));
+        modules.put("cashflow", cashFlowModule);
+        this.analysisEngine = new IncrementalAnalysisEngine(repository, new SpendingLedger(), modules, stageExecutor);
+        // Deletions and imports reach the modules without waiting for the next entry
+        repository.addTransactionsListener(this::runCompleteAnalysis);
+        // The modules index entries by local day, so a new zone means starting over
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context receiverContext, Intent intent) {
+                AnalysisContext.refreshZone();
+                rebuildAnalysis();
+            }
+        }, new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED));
     }
 
-    public void runCompleteAnalysis() {
-        executorService.execute(() -> {
-            try {
-                List<Transaction> transactions = repository.getCachedTransactions();
-                List<Budget> budgets = repository.getCachedBudgets();
-                
-                if (transactions.isEmpty()) {
-                    insightsLiveData.postValue(Arrays.asList("Add some transactions to get AI insights!"));
-                    return;
-                }
-                
-                List<String> allInsights = new ArrayList<>();
-                
-                // Run all AI analyses
-                analyzeRecurringPatterns(transactions, allInsights);
-                analyzeAnomalies(transactions, allInsights);
-                generateForecast(transactions, allInsights);
-                analyzeBudgetEfficiency(budgets, transactions, allInsights);
-                generateGoalRecommendations(transactions, allInsights);
-                generateWeeklySummary(transactions, budgets);
-                
-                // Update live data
-                insightsLiveData.postValue(allInsights);
-                
-                Log.d(TAG, "Complete AI analysis finished with " + allInsights.size() + " insights");
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Error in complete analysis", e);
-                insightsLiveData.postValue(Arrays.asList("Analysis temporarily unavailable"));
-            }
-        });
+    /**
+     * Brings the analysis up to date with the changes made since the last run. Calls close
+     * together share one run; the future holds the insights of the latest run covering this
+     * call, which are also posted to {@link #getInsightsLiveData()}.
+     */
+    public Future<List<String>> runCompleteAnalysis() {
+        return analysisRequests.request();
+    }
+
+    /** Discards the incremental state and analyses the full history again. */
+    public Future<List<String>> rebuildAnalysis() {
+        analysisEngine.requestRebuild();
+        return runCompleteAnalysis();
     }
 
-    private void analyzeRecurringPatterns(List<Transaction> transactions, List<String> insights) {
+    private List<String> runAnalysis(BooleanSupplier superseded) throws Exception {
         try {
-            List<RecurringDetector.RecurringPattern> patterns = recurringDetector.detectRecurringTransactions(transactions);
+            int analysed = analysisEngine.update();
+            // The engine has applied this run's changes either way; a newer request will
+            // pick up from here, so formatting and posting this run's insights is wasted work
+            if (superseded.getAsBoolean()) {
+                throw new CancellationException("Superseded by a newer request");
+            }
+
+            if (analysed == 0) {
+                insightsVersions = null;
+                List<String> empty = Arrays.asList("Add some transactions to get AI insights!");
+                insightsLiveData.postValue(empty);
+                return empty;
+            }
+
+            // The day is part of the key: upcoming-charge insights count days from today
+            long[] versions = {recurringModule.getVersion(), anomalyModule.getVersion(),
+                forecastModule.getVersion(), efficiencyModule.getVersion(), goalModule.getVersion(),
+                summaryModule.getVersion(), cashFlowModule.getVersion(),
+                AnalysisContext.localDay(System.currentTimeMillis())};
+            if (Arrays.equals(versions, insightsVersions)) {
+                // Same results as last time, already posted
+                return cachedInsights;
+            }
+            
+            List<String> allInsights = new ArrayList<>();
+            
+            // Modules refresh concurrently; their insights are merged in a fixed order
+            List<RecurringDetector.RecurringPattern> patterns = recurringModule.getPatterns();
+            analyzeRecurringPatterns(patterns, allInsights);
+            analyzeAnomalies(anomalyModule.getAnomalies(), allInsights);
+            analyzeTypicalSpending(allInsights);
+            generateForecast(forecastModule.getResult(), allInsights);
+            analyzeCashFlowRisk(patterns, allInsights);
+            analyzeBudgetEfficiency(efficiencyModule.getResult(), allInsights);
+            generateGoalRecommendations(goalModule.getResult(), allInsights);
+            generateWeeklySummary(summaryModule.getResult());
+            
+            // Update live data
+            insightsVersions = versions;
+            cachedInsights = allInsights;
+            insightsLiveData.postValue(allInsights);
             
+            Log.d(TAG, "Complete AI analysis finished with " + allInsights.size() + " insights");
+            return allInsights;
+            
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            Log.e(TAG, "Error in complete analysis", e);
+            // Whatever state the failure left behind can't be trusted for the next delta
+            analysisEngine.requestRebuild();
+            insightsVersions = null;
+            insightsLiveData.postValue(Arrays.asList("Analysis temporarily unavailable"));
+            throw e;
+        }
+    }
+
+    private static long earliestActiveBudgetStart(List<Budget> budgets) {
+        long start = Long.MAX_VALUE;
+        for (Budget budget : budgets) {
+            if (budget.isActive()) {
+                start = Math.min(start, budget.getStartDate());
+            }
+        }
+        return start;
+    }
+
+    private void analyzeRecurringPatterns(List<RecurringDetector.RecurringPattern> patterns, List<String> insights) {
+        try {
+            long today = AnalysisContext.localDay(System.currentTimeMillis());
             for (RecurringDetector.RecurringPattern pattern : patterns) {
                 if (!pattern.isMarkedAsRecurring()) {
                     insights.add(String.format("🔁 Detected recurring pattern: %s every %d days ($%.2f)",
                         pattern.getDescription(), pattern.getIntervalDays(), pattern.getAmount()));
                 }
+                
+                long daysUntilDue = AnalysisContext.localDay(pattern.getNextDueDate()) - today;
+                if (pattern.getNextDueDate() > 0 && daysUntilDue >= 0 && daysUntilDue <= UPCOMING_CHARGE_DAYS) {
+                    insights.add(String.format("⏰ %s of about $%.2f is due %s",
+                        pattern.getDescription(), pattern.getExpectedAmount(),
+                        daysUntilDue == 0 ? "today" : daysUntilDue == 1 ? "tomorrow" : "in " + daysUntilDue + " days"));
+                }
             }
             
             if (patterns.size() > 3) {
@@ -101,10 +238,8 @@ public class EnhancedIntelligenceService {
         }
     }
 
-    private void analyzeAnomalies(List<Transaction> transactions, List<String> insights) {
+    private void analyzeAnomalies(List<AnomalyDetector.AnomalyResult> anomalies, List<String> insights) {
         try {
-            List<AnomalyDetector.AnomalyResult> anomalies = anomalyDetector.detectAnomalies(transactions);
-            
             // Add high-priority anomalies to insights
             for (AnomalyDetector.AnomalyResult anomaly : anomalies) {
                 if (anomaly.getSeverity() == AnomalyDetector.AnomalySeverity.HIGH ||
@@ -122,9 +257,37 @@ public class EnhancedIntelligenceService {
         }
     }
 
-    private void generateForecast(List<Transaction> transactions, List<String> insights) {
+    // Quantiles rather than totals: one large bill shouldn't read as "spending more"
+    private void analyzeTypicalSpending(List<String> insights) {
+        try {
+            int month = AnalysisContext.localMonth(System.currentTimeMillis());
+            QuantileSketch thisMonth = anomalyModule.getMonthlyExpenses(month, month);
+            QuantileSketch baseline = anomalyModule.getMonthlyExpenses(month - BASELINE_MONTHS, month - 1);
+            if (thisMonth.getCount() < MIN_EXPENSES_TO_COMPARE || baseline.getCount() < MIN_EXPENSES_TO_COMPARE) {
+                return;
+            }
+            
+            double median = thisMonth.getMedian();
+            double usualMedian = baseline.getMedian();
+            if (median > usualMedian * 1.25) {
+                insights.add(String.format("🧾 Your typical expense this month is $%.2f, up from $%.2f",
+                    median, usualMedian));
+            }
+            
+            double upper = thisMonth.quantile(0.9);
+            double usualUpper = baseline.quantile(0.9);
+            if (upper > usualUpper * 1.5) {
+                insights.add(String.format("💳 Your larger expenses are bigger than usual: 1 in 10 is over $%.2f (usually $%.2f)",
+                    upper, usualUpper));
+            }
+            
+        } catch (Exception e) {
+            Log.e(TAG, "Error analyzing typical spending", e);
+        }
+    }
+
+    private void generateForecast(ForecastEngine.ForecastResult forecast, List<String> insights) {
         try {
-            ForecastEngine.ForecastResult forecast = forecastEngine.generateForecast(transactions);
             forecastLiveData.postValue(forecast);
             
             // Add forecast insights
@@ -150,10 +313,31 @@ public class EnhancedIntelligenceService {
         }
     }
 
-    private void analyzeBudgetEfficiency(List<Budget> budgets, List<Transaction> transactions, List<String> insights) {
+    private void analyzeCashFlowRisk(List<RecurringDetector.RecurringPattern> patterns, List<String> insights) {
+        try {
+            long now = System.currentTimeMillis();
+            CashFlowSimulator.SimulationResult simulation = cashFlowModule.simulate(patterns,
+                recurringModule.getVersion(), now);
+            // With only expenses logged the balance is just their sum, below zero from the start
+            if (simulation == null || !cashFlowModule.hasIncomeBaseline(patterns, now)
+                    || simulation.getProbabilityOfNegative() < CASH_FLOW_RISK) {
+                return;
+            }
+            double[] likely = simulation.getP50();
+            if (likely[0] < 0) {
+                insights.add(String.format("🌧️ Cash flow: %.0f%% chance your balance falls further below zero in the next %d days (likely $%.2f at the end)",
+                    simulation.getProbabilityOfNegative() * 100, likely.length - 1, likely[likely.length - 1]));
+            } else {
+                insights.add(String.format("🌧️ Cash flow: %.0f%% chance your balance drops below zero in the next %d days (likely $%.2f at the end)",
+                    simulation.getProbabilityOfNegative() * 100, likely.length - 1, likely[likely.length - 1]));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error simulating cash flow", e);
+        }
+    }
+
+    private void analyzeBudgetEfficiency(List<EfficiencyTracker.EfficiencyResult> results, List<String> insights) {
         try {
-            List<EfficiencyTracker.EfficiencyResult> results = efficiencyTracker.analyzeBudgetEfficiency(budgets, transactions);
-            
             for (EfficiencyTracker.EfficiencyResult result : results) {
                 switch (result.getStatus()) {
                     case OVER_BUDGET:
@@ -177,10 +361,8 @@ public class EnhancedIntelligenceService {
         }
     }
 
-    private void generateGoalRecommendations(List<Transaction> transactions, List<String> insights) {
+    private void generateGoalRecommendations(List<GoalRecommender.GoalRecommendation> recommendations, List<String> insights) {
         try {
-            List<GoalRecommender.GoalRecommendation> recommendations = goalRecommender.generateGoalRecommendations(transactions);
-            
             // Add high-priority goal recommendations
             for (GoalRecommender.GoalRecommendation rec : recommendations) {
                 if (rec.getPriority() == GoalRecommender.GoalPriority.HIGH) {
@@ -193,9 +375,8 @@ public class EnhancedIntelligenceService {
         }
     }
 
-    private void generateWeeklySummary(List<Transaction> transactions, List<Budget> budgets) {
+    private void generateWeeklySummary(SummaryGenerator.WeeklySummary summary) {
         try {
-            SummaryGenerator.WeeklySummary summary = summaryGenerator.generateWeeklySummary(transactions, budgets);
             weeklySummaryLiveData.postValue(summary);
             
         } catch (Exception e) {
@@ -204,9 +385,46 @@ public class EnhancedIntelligenceService {
     }
 
     // Public methods for specific AI features
+    public interface DuplicateCheckCallback {
+        void onResult(DuplicateGuard.DuplicateCheckResult result);
+    }
+
     public DuplicateGuard.DuplicateCheckResult checkForDuplicate(Transaction newTransaction) {
-        List<Transaction> existingTransactions = repository.getCachedTransactions();
-        return duplicateGuard.checkForDuplicate(newTransaction, existingTransactions);
+        // Only the repository's neighbouring index buckets can hold a duplicate
+        List<Transaction> candidates = repository.findDuplicateCandidates(newTransaction);
+        return duplicateGuard.checkForDuplicate(newTransaction, candidates);
+    }
+
+    /**
+     * Runs {@link #checkForDuplicate} off the calling thread. The callback runs on a
+     * background thread; if the check fails it reports no duplicate, so saving isn't blocked.
+     */
+    public void checkForDuplicateAsync(Transaction newTransaction, DuplicateCheckCallback callback) {
+        duplicateCheckExecutor.execute(() -> {
+            DuplicateGuard.DuplicateCheckResult result;
+            try {
+                result = checkForDuplicate(newTransaction);
+            } catch (Exception e) {
+                Log.e(TAG, "Error checking for duplicates", e);
+                result = new DuplicateGuard.DuplicateCheckResult(false, new ArrayList<>(),
+                    DuplicateGuard.DuplicateConfidence.NONE, "");
+            }
+            callback.onResult(result);
+        });
+    }
+
+    /**
+     * The balance over the next 30 days as simulated by the analysis run covering this call,
+     * from the current transactions and recurring patterns. The seed is the day, so repeated
+     * calls on the same data agree. The future holds null while there's under two weeks of
+     * history.
+     */
+    public Future<CashFlowSimulator.SimulationResult> simulateCashFlow() {
+        Future<List<String>> analysis = runCompleteAnalysis();
+        return simulationExecutor.submit(() -> {
+            analysis.get();
+            return cashFlowModule.getSimulation();
+        });
     }
 
     public CooldownDetector.CooldownResult analyzeCooldownStatus() {
@@ -214,66 +432,35 @@ public class EnhancedIntelligenceService {
         return cooldownDetector.analyzeSpendingPattern(transactions);
     }
 
+    /**
+     * Checks a transaction being saved for rapid spending and alerts if it is the third
+     * expense within 15 minutes. Looks only at the last few expenses, so it is safe to call
+     * on the main thread.
+     *
+     * @return true if spending is currently rapid
+     */
+    public boolean onTransactionAdded(Transaction transaction) {
+        return cooldownDetector.recordTransaction(transaction, System.currentTimeMillis());
+    }
+
     public String categorizeTransaction(String description) {
-        // Enhanced categorization with more sophisticated logic
-        if (description == null || description.trim().isEmpty()) {
-            return "Other";
-        }
-        
-        String lowerDescription = description.toLowerCase();
-        
-        // Food & Dining
-        if (containsAny(lowerDescription, "restaurant", "cafe", "coffee", "starbucks", "mcdonald", 
-                       "pizza", "burger", "food", "dining", "lunch", "dinner", "breakfast", "grocery")) {
-            return "Food & Dining";
-        }
-        
-        // Transportation
-        if (containsAny(lowerDescription, "gas", "fuel", "uber", "lyft", "taxi", "bus", "train", 
-                       "metro", "parking", "toll", "car", "vehicle")) {
-            return "Transportation";
-        }
-        
-        // Entertainment
-        if (containsAny(lowerDescription, "movie", "cinema", "netflix", "spotify", "game", "concert", 
-                       "theater", "entertainment", "music", "streaming")) {
-            return "Entertainment";
-        }
-        
-        // Shopping
-        if (containsAny(lowerDescription, "amazon", "walmart", "target", "store", "shop", "mall", 
-                       "clothing", "clothes", "shoes", "electronics")) {
-            return "Shopping";
-        }
-        
-        // Healthcare
-        if (containsAny(lowerDescription, "doctor", "hospital", "pharmacy", "medical", "health", 
-                       "dentist", "clinic", "medicine", "prescription")) {
-            return "Healthcare";
-        }
-        
-        // Bills & Utilities
-        if (containsAny(lowerDescription, "electric", "electricity", "water", "gas bill", "internet", 
-                       "phone", "cable", "utility", "bill", "payment")) {
-            return "Bills & Utilities";
-        }
-        
-        // Housing
-        if (containsAny(lowerDescription, "rent", "mortgage", "housing", "apartment", "home", 
-                       "property", "maintenance", "repair")) {
-            return "Housing";
-        }
-        
-        return "Other";
+        return keywordCategorizer.categorize(description);
     }
 
-    private boolean containsAny(String text, String... keywords) {
-        for (String keyword : keywords) {
-            if (text.contains(keyword)) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * Makes descriptions containing {@code keyword} suggest {@code category}, ahead of the
+     * built-in keywords and of keywords added earlier. Kept across restarts.
+     */
+    public void addCategoryKeyword(String keyword, String category) {
+        keywordCategorizer.addKeyword(keyword, category);
+    }
+
+    public void removeCategoryKeyword(String keyword) {
+        keywordCategorizer.removeKeyword(keyword);
+    }
+
+    public Map<String, String> getCategoryKeywords() {
+        return keywordCategorizer.getUserKeywords();
     }
 
     // Getters for LiveData
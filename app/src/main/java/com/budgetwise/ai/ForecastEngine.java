@@ -4,12 +4,11 @@ import android.content.Context;
 import android.util.Log;
 import com.budgetwise.data.models.Transaction;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class ForecastEngine {
     private static final String TAG = "ForecastEngine";
-    private static final int FORECAST_DAYS = 30; // Forecast for next 30 days
-    private static final int ANALYSIS_DAYS = 90; // Analyze last 90 days for patterns
+    static final int FORECAST_DAYS = 30; // Forecast for next 30 days
+    static final int ANALYSIS_DAYS = 90; // Analyze last 90 days for patterns
     
     private final Context context;
     private final AINotificationManager notificationManager;
@@ -20,24 +19,24 @@ public class ForecastEngine {
     }
 
     public ForecastResult generateForecast(List<Transaction> transactions) {
-        long now = System.currentTimeMillis();
+        return generateForecast(AnalysisContext.of(transactions, System.currentTimeMillis()));
+    }
+
+    public ForecastResult generateForecast(AnalysisContext context) {
+        long now = context.getNow();
         long analysisStart = now - (ANALYSIS_DAYS * 24 * 60 * 60 * 1000L);
         
-        // Filter recent transactions for analysis
-        List<Transaction> recentTransactions = transactions.stream()
-            .filter(t -> t.getDate().getTime() >= analysisStart)
-            .collect(Collectors.toList());
-
-        if (recentTransactions.size() < 10) {
+        // Only recent transactions are analysed
+        if (context.countSince(analysisStart) < 10) {
             return new ForecastResult(0, 0, 0, ForecastTrend.STABLE, "Insufficient data for forecast");
         }
 
         // Calculate spending patterns
-        double avgDailySpending = calculateAverageDaily(recentTransactions, Transaction.TransactionType.EXPENSE);
-        double avgDailyIncome = calculateAverageDaily(recentTransactions, Transaction.TransactionType.INCOME);
+        double avgDailySpending = context.getExpenses().total(analysisStart, Long.MAX_VALUE) / ANALYSIS_DAYS;
+        double avgDailyIncome = context.getIncome().total(analysisStart, Long.MAX_VALUE) / ANALYSIS_DAYS;
         
         // Apply trend analysis
-        ForecastTrend trend = analyzeTrend(recentTransactions);
+        ForecastTrend trend = analyzeTrend(context.getExpenses(), analysisStart, now);
         double trendMultiplier = getTrendMultiplier(trend);
         
         // Generate forecasts
@@ -52,38 +51,37 @@ public class ForecastEngine {
         return new ForecastResult(forecastSpending, forecastIncome, forecastSavings, trend, insights);
     }
 
-    private double calculateAverageDaily(List<Transaction> transactions, Transaction.TransactionType type) {
-        List<Transaction> filtered = transactions.stream()
-            .filter(t -> t.getType() == type)
-            .collect(Collectors.toList());
+    /**
+     * Builds the result of a model-based forecast: {@code spending} and {@code income} are
+     * the totals forecast for the next {@link #FORECAST_DAYS} days, and the trend compares
+     * the spending forecast with {@code recentSpending} over the same number of past days.
+     */
+    ForecastResult seasonalForecast(double spending, double income, double recentSpending,
+                                    Map<String, Double> categoryForecasts) {
+        ForecastTrend trend = ForecastTrend.STABLE;
+        if (recentSpending > 0) {
+            double changePercent = ((spending - recentSpending) / recentSpending) * 100;
+            if (changePercent > 15) trend = ForecastTrend.INCREASING;
+            else if (changePercent < -15) trend = ForecastTrend.DECREASING;
+        }
         
-        if (filtered.isEmpty()) return 0;
+        double savings = income - spending;
+        String insights = generateInsights(spending, income, savings, trend);
+        triggerForecastNotifications(savings, trend);
         
-        double total = filtered.stream().mapToDouble(Transaction::getAmount).sum();
-        return total / ANALYSIS_DAYS;
+        return new ForecastResult(spending, income, savings, trend, insights, categoryForecasts);
     }
 
-    private ForecastTrend analyzeTrend(List<Transaction> transactions) {
+    private ForecastTrend analyzeTrend(AnalysisContext.Series expenses, long analysisStart, long now) {
         // Split into two periods and compare
-        long now = System.currentTimeMillis();
         long midPoint = now - (ANALYSIS_DAYS * 24 * 60 * 60 * 1000L / 2);
         
-        List<Transaction> firstHalf = transactions.stream()
-            .filter(t -> t.getDate().getTime() < midPoint)
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .collect(Collectors.toList());
-        
-        List<Transaction> secondHalf = transactions.stream()
-            .filter(t -> t.getDate().getTime() >= midPoint)
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .collect(Collectors.toList());
-        
-        if (firstHalf.isEmpty() || secondHalf.isEmpty()) {
+        if (expenses.count(analysisStart, midPoint) == 0 || expenses.count(midPoint, Long.MAX_VALUE) == 0) {
             return ForecastTrend.STABLE;
         }
         
-        double firstHalfAvg = firstHalf.stream().mapToDouble(Transaction::getAmount).sum() / (ANALYSIS_DAYS / 2);
-        double secondHalfAvg = secondHalf.stream().mapToDouble(Transaction::getAmount).sum() / (ANALYSIS_DAYS / 2);
+        double firstHalfAvg = expenses.total(analysisStart, midPoint) / (ANALYSIS_DAYS / 2);
+        double secondHalfAvg = expenses.total(midPoint, Long.MAX_VALUE) / (ANALYSIS_DAYS / 2);
         
         double changePercent = ((secondHalfAvg - firstHalfAvg) / firstHalfAvg) * 100;
         
@@ -151,21 +149,15 @@ public class ForecastEngine {
     }
 
     public Map<String, Double> getCategoryForecasts(List<Transaction> transactions) {
+        return getCategoryForecasts(AnalysisContext.of(transactions, System.currentTimeMillis()));
+    }
+
+    public Map<String, Double> getCategoryForecasts(AnalysisContext context) {
         Map<String, Double> forecasts = new HashMap<>();
         
-        // Group by category and calculate forecasts
-        Map<String, List<Transaction>> byCategory = transactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .collect(Collectors.groupingBy(Transaction::getCategory));
-        
-        for (Map.Entry<String, List<Transaction>> entry : byCategory.entrySet()) {
-            String category = entry.getKey();
-            List<Transaction> categoryTransactions = entry.getValue();
-            
-            double avgDaily = calculateAverageDaily(categoryTransactions, Transaction.TransactionType.EXPENSE);
-            double forecast = avgDaily * FORECAST_DAYS;
-            
-            forecasts.put(category, forecast);
+        for (Map.Entry<String, AnalysisContext.Series> entry : context.getCategories().entrySet()) {
+            double avgDaily = entry.getValue().total(Long.MIN_VALUE, Long.MAX_VALUE) / ANALYSIS_DAYS;
+            forecasts.put(entry.getKey(), avgDaily * FORECAST_DAYS);
         }
         
         return forecasts;
@@ -177,14 +169,21 @@ public class ForecastEngine {
         private final double forecastSavings;
         private final ForecastTrend trend;
         private final String insights;
+        private final Map<String, Double> categoryForecasts;
 
         public ForecastResult(double forecastSpending, double forecastIncome, double forecastSavings,
                             ForecastTrend trend, String insights) {
+            this(forecastSpending, forecastIncome, forecastSavings, trend, insights, Collections.emptyMap());
+        }
+
+        public ForecastResult(double forecastSpending, double forecastIncome, double forecastSavings,
+                            ForecastTrend trend, String insights, Map<String, Double> categoryForecasts) {
             this.forecastSpending = forecastSpending;
             this.forecastIncome = forecastIncome;
             this.forecastSavings = forecastSavings;
             this.trend = trend;
             this.insights = insights;
+            this.categoryForecasts = categoryForecasts;
         }
 
         // Getters
@@ -193,6 +192,8 @@ public class ForecastEngine {
         public double getForecastSavings() { return forecastSavings; }
         public ForecastTrend getTrend() { return trend; }
         public String getInsights() { return insights; }
+        /** Forecast spending per category; empty unless the forecast models categories. */
+        public Map<String, Double> getCategoryForecasts() { return categoryForecasts; }
     }
 
     public enum ForecastTrend {
@@ -0,0 +1,171 @@
+package com.budgetwise.ai;
+
+import com.budgetwise.data.models.Budget;
+import com.budgetwise.data.models.Transaction;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Forecasts the next 30 days from daily totals instead of a 90-day average. Expenses,
+ * income and each expense category keep a {@link DailySeries}, adjusted as transactions
+ * come and go, and a {@link HoltWinters} model fitted over their completed days.
+ * <p>
+ * Each new day is one constant-time update per model. A change to a day a model has
+ * already consumed (a back-dated entry, an edit, a deletion) refits that one series from
+ * its first day on the next refresh; other series keep their state. Today isn't complete,
+ * so changes to it don't move the forecast until tomorrow.
+ */
+class ForecastModule implements IncrementalModule {
+    private final ForecastEngine engine;
+    private final Track expenses = new Track();
+    private final Track income = new Track();
+    private final Map<String, Track> categories = new HashMap<>();
+    private long resultVersion;
+    private boolean resultStale = true;
+    private ForecastEngine.ForecastResult result;
+
+    ForecastModule(ForecastEngine engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    public void reset() {
+        expenses.clear();
+        income.clear();
+        categories.clear();
+        resultStale = true;
+    }
+
+    @Override
+    public void add(LedgerEntry entry, boolean replay) {
+        apply(entry, entry.amount);
+    }
+
+    @Override
+    public void remove(LedgerEntry entry) {
+        apply(entry, -entry.amount);
+    }
+
+    private void apply(LedgerEntry entry, double amount) {
+        if (entry.transaction.getDate() == null) return;
+        long day = AnalysisContext.localDay(entry.time);
+        if (entry.isExpense()) {
+            expenses.add(day, amount);
+            categories.computeIfAbsent(entry.category, c -> new Track()).add(day, amount);
+        } else if (entry.type == Transaction.TransactionType.INCOME) {
+            income.add(day, amount);
+        }
+    }
+
+    @Override
+    public void onBudgetsChanged(List<Budget> budgets) {
+        // The forecast doesn't depend on budgets
+    }
+
+    @Override
+    public boolean readsContext() {
+        return false;
+    }
+
+    @Override
+    public long contextStart(long now) {
+        // Works from its own series
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public void refresh(AnalysisContext context) {
+        long today = AnalysisContext.localDay(context.getNow());
+        if (!fitThrough(today) && !resultStale) return;
+
+        if (!expenses.model.isReady()) {
+            result = new ForecastEngine.ForecastResult(0, 0, 0, ForecastEngine.ForecastTrend.STABLE,
+                "Insufficient data for forecast");
+        } else {
+            Map<String, Double> categoryForecasts = new HashMap<>();
+            for (Map.Entry<String, Track> entry : categories.entrySet()) {
+                if (entry.getValue().model.isReady()) {
+                    categoryForecasts.put(entry.getKey(), entry.getValue().model.forecastTotal(ForecastEngine.FORECAST_DAYS));
+                }
+            }
+            result = engine.seasonalForecast(
+                forecastSpending(),
+                forecastIncome(),
+                expenses.series.total(today - ForecastEngine.FORECAST_DAYS, today),
+                categoryForecasts);
+        }
+        resultStale = false;
+        resultVersion++;
+    }
+
+    /** Brings every model up to {@code today}; returns true if any of them moved. */
+    boolean fitThrough(long today) {
+        boolean changed = expenses.fitThrough(today);
+        changed |= income.fitThrough(today);
+        for (Track track : categories.values()) {
+            changed |= track.fitThrough(today);
+        }
+        return changed;
+    }
+
+    /** Spending forecast for the next {@link ForecastEngine#FORECAST_DAYS} days, or 0 before the model is ready. */
+    double forecastSpending() {
+        return expenses.model.isReady() ? expenses.model.forecastTotal(ForecastEngine.FORECAST_DAYS) : 0;
+    }
+
+    /** Income forecast for the next {@link ForecastEngine#FORECAST_DAYS} days, or 0 before the model is ready. */
+    double forecastIncome() {
+        return income.model.isReady() ? income.model.forecastTotal(ForecastEngine.FORECAST_DAYS) : 0;
+    }
+
+    @Override
+    public long getVersion() {
+        return resultVersion;
+    }
+
+    ForecastEngine.ForecastResult getResult() {
+        return result;
+    }
+
+    /** A series and the model fitted over its days before {@link #fittedUntil}. */
+    private static final class Track {
+        DailySeries series = new DailySeries();
+        HoltWinters model = new HoltWinters();
+        long fittedUntil = Long.MAX_VALUE;
+        boolean refit;
+
+        void clear() {
+            series = new DailySeries();
+            model = new HoltWinters();
+            fittedUntil = Long.MAX_VALUE;
+            refit = false;
+        }
+
+        void add(long day, double amount) {
+            series.add(day, amount);
+            if (day < fittedUntil) {
+                refit = true;
+            }
+        }
+
+        /** Feeds the model every completed day before {@code today}; returns true if it moved. */
+        boolean fitThrough(long today) {
+            boolean changed = refit;
+            if (refit) {
+                model = new HoltWinters();
+                fittedUntil = series.firstActiveDay();
+                refit = false;
+            }
+            // No day with a total yet
+            if (fittedUntil == Long.MAX_VALUE) {
+                return changed;
+            }
+            for (; fittedUntil < today; fittedUntil++) {
+                model.update(series.get(fittedUntil));
+                changed = true;
+            }
+            return changed;
+        }
+    }
+}
@@ -15,10 +15,14 @@ public class GoalRecommender {
     }
 
     public List<GoalRecommendation> generateGoalRecommendations(List<Transaction> transactions) {
+        return generateGoalRecommendations(AnalysisContext.of(transactions, System.currentTimeMillis()));
+    }
+
+    public List<GoalRecommendation> generateGoalRecommendations(AnalysisContext context) {
         List<GoalRecommendation> recommendations = new ArrayList<>();
         
         // Analyze savings potential
-        SavingsAnalysis analysis = analyzeSavingsPattern(transactions);
+        SavingsAnalysis analysis = analyzeSavingsPattern(context);
         
         // Generate different types of goal recommendations
         recommendations.addAll(generateSavingsGoals(analysis));
@@ -31,33 +35,19 @@ public class GoalRecommender {
         return recommendations;
     }
 
-    private SavingsAnalysis analyzeSavingsPattern(List<Transaction> transactions) {
-        long thirtyDaysAgo = System.currentTimeMillis() - (30L * 24 * 60 * 60 * 1000);
-        
-        List<Transaction> recentTransactions = transactions.stream()
-            .filter(t -> t.getDate().getTime() > thirtyDaysAgo)
-            .collect(Collectors.toList());
-        
-        double monthlyIncome = recentTransactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.INCOME)
-            .mapToDouble(Transaction::getAmount)
-            .sum();
+    private SavingsAnalysis analyzeSavingsPattern(AnalysisContext context) {
+        long thirtyDaysAgo = context.getNow() - (30L * 24 * 60 * 60 * 1000);
+        // Strictly after thirty days ago
+        long from = thirtyDaysAgo + 1;
         
-        double monthlyExpenses = recentTransactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .mapToDouble(Transaction::getAmount)
-            .sum();
+        double monthlyIncome = context.getIncome().total(from, Long.MAX_VALUE);
+        double monthlyExpenses = context.getExpenses().total(from, Long.MAX_VALUE);
         
         double currentSavings = monthlyIncome - monthlyExpenses;
         double savingsRate = monthlyIncome > 0 ? (currentSavings / monthlyIncome) * 100 : 0;
         
         // Analyze spending by category
-        Map<String, Double> categorySpending = recentTransactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .collect(Collectors.groupingBy(
-                Transaction::getCategory,
-                Collectors.summingDouble(Transaction::getAmount)
-            ));
+        Map<String, Double> categorySpending = context.categoryTotals(from, Long.MAX_VALUE);
         
         return new SavingsAnalysis(monthlyIncome, monthlyExpenses, currentSavings, 
                                  savingsRate, categorySpending);
@@ -0,0 +1,234 @@
+package com.budgetwise.ai;
+
+import android.util.Log;
+import com.budgetwise.data.models.Budget;
+import com.budgetwise.data.models.Tombstone;
+import com.budgetwise.data.models.Transaction;
+import com.budgetwise.data.repository.BudgetRepository;
+import com.budgetwise.data.repository.ChangeSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Feeds the analysis modules only what changed since their last run, using the repository's
+ * change sequence. A run after a single add costs the modules work proportional to that add
+ * (plus the trailing windows some of them read), not to the size of the history.
+ * <p>
+ * Module state lives in memory, so the first run after start is a rebuild from a snapshot.
+ * After that a rebuild only happens on request, or when the repository can no longer
+ * describe the gap as a delta, e.g. after a restore replaced the data wholesale.
+ * <p>
+ * Each run is a small stage graph on the stage executor:
+ * <pre>
+ *   changes ─┬─ modules with their own state (recurring, anomalies, ...)
+ *            └─ context ── modules reading the shared context (forecast, summary, ...)
+ * </pre>
+ * Every module is touched by exactly one stage, so modules never share mutable state; the
+ * ledger is written only by the changes stage, before anything reads it.
+ */
+class IncrementalAnalysisEngine {
+    private static final String TAG = "IncrementalAnalysis";
+    private static final String STAGE_CHANGES = "changes";
+    private static final String STAGE_CONTEXT = "context";
+
+    private final BudgetRepository repository;
+    private final Map<String, IncrementalModule> modules;
+    private final SpendingLedger ledger;
+    private final Executor stageExecutor;
+    private long lastSequence = -1;
+    private boolean rebuildRequested;
+
+    /**
+     * @param modules the modules by stage name; names must differ from "changes" and "context"
+     */
+    IncrementalAnalysisEngine(BudgetRepository repository, SpendingLedger ledger,
+                              Map<String, IncrementalModule> modules, Executor stageExecutor) {
+        this.repository = repository;
+        this.ledger = ledger;
+        this.modules = modules;
+        this.stageExecutor = stageExecutor;
+    }
+
+    /** Makes the next {@link #update()} rebuild every module from a full snapshot. */
+    synchronized void requestRebuild() {
+        rebuildRequested = true;
+    }
+
+    /**
+     * Applies everything written since the last update and refreshes the modules. When
+     * nothing was written and no module's cached result has expired, nothing runs.
+     *
+     * @return the number of transactions currently analysed
+     * @throws IllegalStateException if a stage failed; the next update rebuilds
+     */
+    synchronized int update() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        List<IncrementalModule> contextReaders = new ArrayList<>();
+        boolean contextNeeded = false;
+        for (IncrementalModule module : modules.values()) {
+            if (module.readsContext()) {
+                contextReaders.add(module);
+                contextNeeded |= module.contextStart(now) != Long.MAX_VALUE;
+            }
+        }
+        // Every cached result is still keyed on the current data and day
+        if (!contextNeeded && !rebuildRequested && lastSequence >= 0
+                && repository.getChangeSequence() == lastSequence) {
+            return ledger.size();
+        }
+
+        StageScheduler scheduler = new StageScheduler();
+
+        // Context readers only mark themselves stale on a change, so they take the delta
+        // here; that tells the context stage which windows it has to cover
+        scheduler.add(STAGE_CHANGES, inputs -> {
+            Delta delta = collectChanges();
+            for (IncrementalModule module : contextReaders) {
+                delta.applyTo(module);
+            }
+            return delta;
+        });
+        scheduler.add(STAGE_CONTEXT, inputs -> buildContext(contextReaders, now), STAGE_CHANGES);
+
+        AnalysisContext empty = AnalysisContext.ofSorted(Collections.emptyList(), now);
+        for (Map.Entry<String, IncrementalModule> entry : modules.entrySet()) {
+            IncrementalModule module = entry.getValue();
+            if (module.readsContext()) {
+                scheduler.add(entry.getKey(), inputs -> {
+                    module.refresh(inputs.get(STAGE_CONTEXT));
+                    return null;
+                }, STAGE_CONTEXT);
+            } else {
+                scheduler.add(entry.getKey(), inputs -> {
+                    Delta delta = inputs.get(STAGE_CHANGES);
+                    delta.applyTo(module);
+                    module.refresh(empty);
+                    return null;
+                }, STAGE_CHANGES);
+            }
+        }
+
+        StageScheduler.Run run = scheduler.run(stageExecutor);
+        Delta delta = run.get(STAGE_CHANGES);
+        if (!run.getFailures().isEmpty()) {
+            // Some modules saw the delta and some didn't; only a rebuild realigns them
+            rebuildRequested = true;
+            Map.Entry<String, Throwable> failure = run.getFailures().entrySet().iterator().next();
+            throw new IllegalStateException("Analysis stage " + failure.getKey() + " failed", failure.getValue());
+        }
+
+        Log.d(TAG, (delta.rebuild ? "Rebuilt from " : "Applied ") + delta.applied + " changes in "
+            + run.describeTimings());
+        return ledger.size();
+    }
+
+    /** Reads what changed since the last run and brings the ledger up to date with it. */
+    private Delta collectChanges() {
+        boolean rebuild = rebuildRequested || lastSequence < 0;
+        ChangeSet changes = null;
+        if (!rebuild) {
+            changes = repository.getChangesSince(lastSequence);
+            rebuild = !changes.isComplete();
+        }
+
+        Delta delta;
+        if (rebuild) {
+            changes = repository.getSnapshot();
+            delta = snapshotDelta(changes);
+        } else {
+            delta = incrementalDelta(changes);
+        }
+        lastSequence = changes.getSequence();
+        rebuildRequested = false;
+        return delta;
+    }
+
+    private Delta snapshotDelta(ChangeSet snapshot) {
+        Delta delta = new Delta(true, snapshot.getTransactions().size());
+        ledger.clear();
+        for (Transaction transaction : snapshot.getTransactions()) {
+            LedgerEntry entry = new LedgerEntry(transaction);
+            ledger.add(entry);
+            delta.added.add(entry);
+        }
+        delta.budgets = repository.getCachedBudgets();
+        return delta;
+    }
+
+    private Delta incrementalDelta(ChangeSet changes) {
+        Delta delta = new Delta(false, changes.getTransactions().size() + changes.getTombstones().size());
+        boolean budgetsChanged = !changes.getBudgets().isEmpty();
+        for (Tombstone tombstone : changes.getTombstones()) {
+            if (tombstone.getRecordType() == Tombstone.RecordType.TRANSACTION) {
+                remove(ledger.get(tombstone.getId()), delta);
+            } else {
+                budgetsChanged = true;
+            }
+        }
+
+        for (Transaction transaction : changes.getTransactions()) {
+            // An edit is the removal of what was indexed followed by the new version
+            remove(ledger.get(transaction.getId()), delta);
+            LedgerEntry entry = new LedgerEntry(transaction);
+            ledger.add(entry);
+            delta.added.add(entry);
+        }
+
+        if (budgetsChanged) {
+            delta.budgets = repository.getCachedBudgets();
+        }
+        return delta;
+    }
+
+    private void remove(LedgerEntry entry, Delta delta) {
+        if (entry == null) return;
+        ledger.remove(entry);
+        delta.removed.add(entry);
+    }
+
+    /** One context per run, covering the widest window any reader is about to read. */
+    private AnalysisContext buildContext(List<IncrementalModule> readers, long now) {
+        long contextStart = Long.MAX_VALUE;
+        for (IncrementalModule module : readers) {
+            contextStart = Math.min(contextStart, module.contextStart(now));
+        }
+        List<Transaction> window = contextStart == Long.MAX_VALUE
+            ? Collections.emptyList() : ledger.since(contextStart);
+        return AnalysisContext.ofSorted(window, now);
+    }
+
+    /**
+     * What one run hands to the modules. Removals are applied before additions, so an entry
+     * replaced by an edit is gone before its new version arrives.
+     */
+    private static final class Delta {
+        final boolean rebuild;
+        final int applied;
+        final List<LedgerEntry> removed = new ArrayList<>();
+        final List<LedgerEntry> added = new ArrayList<>();
+        List<Budget> budgets; // null when budgets didn't change
+
+        Delta(boolean rebuild, int applied) {
+            this.rebuild = rebuild;
+            this.applied = applied;
+        }
+
+        void applyTo(IncrementalModule module) {
+            if (rebuild) {
+                module.reset();
+            }
+            for (LedgerEntry entry : removed) {
+                module.remove(entry);
+            }
+            for (LedgerEntry entry : added) {
+                module.add(entry, rebuild);
+            }
+            if (budgets != null) {
+                module.onBudgetsChanged(budgets);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.budgetwise.ai;
+
+import com.budgetwise.data.models.Budget;
+import java.util.List;
+
+/**
+ * One analysis that keeps its own state between runs and is fed only the transactions that
+ * changed since the last run. An edit arrives as the removal of the old entry followed by
+ * the addition of the new one.
+ */
+interface IncrementalModule {
+    /** Drops all state ahead of a full rebuild. */
+    void reset();
+
+    /**
+     * Applies a transaction.
+     *
+     * @param replay true while rebuilding from a snapshot, when nothing is actually new
+     */
+    void add(LedgerEntry entry, boolean replay);
+
+    void remove(LedgerEntry entry);
+
+    void onBudgetsChanged(List<Budget> budgets);
+
+    /**
+     * True if {@link #refresh} reads the shared context. Such a module only waits for the
+     * context; one that works from its own state refreshes as soon as the delta is applied.
+     */
+    boolean readsContext();
+
+    /**
+     * Returns the earliest transaction time the next {@link #refresh} will read from the
+     * shared context, or {@link Long#MAX_VALUE} if it needs none.
+     */
+    long contextStart(long now);
+
+    /**
+     * Brings the module's results up to date with everything applied so far. Modules that
+     * don't read the context get an empty one, carrying only the time.
+     */
+    void refresh(AnalysisContext context);
+
+    /**
+     * Identifies the module's current results: equal versions mean equal results, so
+     * anything derived from them can be reused as long as the version stays the same.
+     */
+    long getVersion();
+}
@@ -0,0 +1,298 @@
+package com.budgetwise.ai;
+
+import android.util.Log;
+import com.budgetwise.data.storage.SecurePreferences;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Suggests a category from a transaction description by the keywords it contains.
+ * <p>
+ * Every keyword goes into one Aho-Corasick automaton, so a description is read once, a
+ * character at a time, whatever the number of keywords. When several keywords match, the
+ * one with the highest priority decides: keywords the user added come first, newest first,
+ * then the built-in categories in a fixed order. Ties go to the longer keyword, so the
+ * result never depends on map order.
+ * <p>
+ * Adding a keyword extends the trie with the nodes it needs; the transition table is rebuilt
+ * from the trie on the next lookup, in time linear in the trie, which stays small.
+ */
+public class KeywordCategorizer {
+    public static final String UNCATEGORIZED = "Other";
+    private static final String TAG = "KeywordCategorizer";
+    private static final String USER_KEYWORDS_KEY = "category_keywords";
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    // Categories in priority order; a description with keywords of several goes to the first
+    private static final String[][] DEFAULT_KEYWORDS = {
+        {"Food & Dining", "restaurant", "cafe", "coffee", "starbucks", "mcdonald", "pizza", "burger",
+            "food", "dining", "lunch", "dinner", "breakfast", "grocery"},
+        {"Transportation", "gas", "fuel", "uber", "lyft", "taxi", "bus", "train", "metro", "parking",
+            "toll", "car", "vehicle"},
+        {"Entertainment", "movie", "cinema", "netflix", "spotify", "game", "concert", "theater",
+            "entertainment", "music", "streaming"},
+        {"Shopping", "amazon", "walmart", "target", "store", "shop", "mall", "clothing", "clothes",
+            "shoes", "electronics"},
+        {"Healthcare", "doctor", "hospital", "pharmacy", "medical", "health", "dentist", "clinic",
+            "medicine", "prescription"},
+        {"Bills & Utilities", "electric", "electricity", "water", "gas bill", "internet", "phone",
+            "cable", "utility", "utilities", "bill", "payment"},
+        {"Housing", "rent", "mortgage", "housing", "apartment", "home", "property", "maintenance",
+            "repair"},
+    };
+
+    private final SecurePreferences preferences;
+    // Trie over every keyword added so far; node 0 is the root. A removed keyword keeps its
+    // nodes and only stops being an output.
+    private final List<Map<Character, Integer>> children = new ArrayList<>();
+    private final Map<String, Keyword> defaults = new HashMap<>();
+    private final Map<String, Keyword> keywords = new HashMap<>();
+    // In the order added, oldest first
+    private final LinkedHashMap<String, String> userKeywords = new LinkedHashMap<>();
+    private int userKeywordsAdded;
+    private volatile Automaton automaton;
+
+    /** @param preferences where user keywords are kept, or null to keep them in memory only */
+    public KeywordCategorizer(SecurePreferences preferences) {
+        this.preferences = preferences;
+        children.add(new HashMap<>());
+        for (int rank = 0; rank < DEFAULT_KEYWORDS.length; rank++) {
+            String category = DEFAULT_KEYWORDS[rank][0];
+            for (int i = 1; i < DEFAULT_KEYWORDS[rank].length; i++) {
+                String text = DEFAULT_KEYWORDS[rank][i];
+                Keyword keyword = new Keyword(category, rank, insert(text), text.length());
+                defaults.put(text, keyword);
+                keywords.put(text, keyword);
+            }
+        }
+        if (preferences != null) {
+            StoredKeywords stored = preferences.getObject(USER_KEYWORDS_KEY, StoredKeywords.class, null);
+            if (stored != null && stored.keywords != null) {
+                for (Map.Entry<String, String> entry : stored.keywords.entrySet()) {
+                    putUserKeyword(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /** The category of the highest-priority keyword in {@code description}, or {@link #UNCATEGORIZED}. */
+    public String categorize(String description) {
+        if (description == null || description.trim().isEmpty()) {
+            return UNCATEGORIZED;
+        }
+        Automaton current = automaton;
+        if (current == null) {
+            current = compile();
+        }
+        return current.match(description);
+    }
+
+    /**
+     * Makes descriptions containing {@code keyword} go to {@code category}, ahead of every
+     * built-in keyword and every keyword added before it. Matching ignores case.
+     */
+    public synchronized void addKeyword(String keyword, String category) {
+        String text = normalize(keyword);
+        if (text.isEmpty() || category == null || category.trim().isEmpty()) {
+            throw new IllegalArgumentException("A keyword and a category are required");
+        }
+        putUserKeyword(text, category.trim());
+        save();
+    }
+
+    /** Removes a keyword the user added; a built-in keyword of the same text applies again. */
+    public synchronized void removeKeyword(String keyword) {
+        String text = normalize(keyword);
+        if (userKeywords.remove(text) == null) return;
+        Keyword builtIn = defaults.get(text);
+        if (builtIn != null) {
+            keywords.put(text, builtIn);
+        } else {
+            keywords.remove(text);
+        }
+        automaton = null;
+        save();
+    }
+
+    /** Keyword to category for the keywords the user added, oldest first. */
+    public synchronized Map<String, String> getUserKeywords() {
+        return new LinkedHashMap<>(userKeywords);
+    }
+
+    private void putUserKeyword(String text, String category) {
+        // Re-adding moves a keyword to the front
+        userKeywords.remove(text);
+        userKeywords.put(text, category);
+        userKeywordsAdded++;
+        keywords.put(text, new Keyword(category, -userKeywordsAdded, insert(text), text.length()));
+        automaton = null;
+    }
+
+    private void save() {
+        if (preferences == null) return;
+        try {
+            StoredKeywords stored = new StoredKeywords();
+            stored.keywords = new LinkedHashMap<>(userKeywords);
+            preferences.putObject(USER_KEYWORDS_KEY, stored);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to save category keywords", e);
+        }
+    }
+
+    // Returns the node the keyword ends at, adding the nodes it's missing
+    private int insert(String text) {
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            Integer child = children.get(node).get(text.charAt(i));
+            if (child == null) {
+                child = children.size();
+                children.add(new HashMap<>());
+                children.get(node).put(text.charAt(i), child);
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    // Lower case per character, as descriptions are read, so no locale changes a match
+    private static String normalize(String keyword) {
+        if (keyword == null) return "";
+        char[] chars = keyword.trim().toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /** Builds the transition table from the trie with one breadth-first pass. */
+    private synchronized Automaton compile() {
+        if (automaton != null) return automaton;
+
+        int nodes = children.size();
+        Map<Character, Integer> symbols = new HashMap<>();
+        for (Map<Character, Integer> edges : children) {
+            for (Character c : edges.keySet()) {
+                if (!symbols.containsKey(c)) {
+                    // Symbol 0 is every character in no keyword
+                    symbols.put(c, symbols.size() + 1);
+                }
+            }
+        }
+        int width = symbols.size() + 1;
+
+        // Outputs are positions in priority order, so the best match is the smallest
+        List<Map.Entry<String, Keyword>> ordered = new ArrayList<>(keywords.entrySet());
+        ordered.sort((a, b) -> {
+            int order = Integer.compare(a.getValue().rank, b.getValue().rank);
+            if (order == 0) order = Integer.compare(b.getValue().length, a.getValue().length);
+            return order != 0 ? order : a.getKey().compareTo(b.getKey());
+        });
+        String[] categories = new String[ordered.size()];
+        int[] output = new int[nodes];
+        Arrays.fill(output, NO_MATCH);
+        for (int i = 0; i < ordered.size(); i++) {
+            Keyword keyword = ordered.get(i).getValue();
+            categories[i] = keyword.category;
+            output[keyword.node] = Math.min(output[keyword.node], i);
+        }
+
+        int[] next = new int[nodes * width];
+        int[] fail = new int[nodes];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (Map.Entry<Character, Integer> edge : children.get(0).entrySet()) {
+            next[symbols.get(edge.getKey())] = edge.getValue();
+            queue.add(edge.getValue());
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            // The longest proper suffix is shallower, so its output is final by now
+            output[node] = Math.min(output[node], output[fail[node]]);
+            System.arraycopy(next, fail[node] * width, next, node * width, width);
+            for (Map.Entry<Character, Integer> edge : children.get(node).entrySet()) {
+                int symbol = symbols.get(edge.getKey());
+                int child = edge.getValue();
+                fail[child] = next[fail[node] * width + symbol];
+                next[node * width + symbol] = child;
+                queue.add(child);
+            }
+        }
+
+        int[] ascii = new int[128];
+        Map<Character, Integer> otherSymbols = new HashMap<>();
+        for (Map.Entry<Character, Integer> symbol : symbols.entrySet()) {
+            if (symbol.getKey() < ascii.length) {
+                ascii[symbol.getKey()] = symbol.getValue();
+            } else {
+                otherSymbols.put(symbol.getKey(), symbol.getValue());
+            }
+        }
+        automaton = new Automaton(next, width, output, categories, ascii, otherSymbols);
+        return automaton;
+    }
+
+    private static final class Keyword {
+        final String category;
+        // Lower comes first; user keywords are negative
+        final int rank;
+        final int node;
+        final int length;
+
+        Keyword(String category, int rank, int node, int length) {
+            this.category = category;
+            this.rank = rank;
+            this.node = node;
+            this.length = length;
+        }
+    }
+
+    /** An immutable compiled automaton; lookups share it without locking. */
+    private static final class Automaton {
+        private final int[] next;
+        private final int width;
+        private final int[] output;
+        private final String[] categories;
+        private final int[] ascii;
+        private final Map<Character, Integer> otherSymbols;
+
+        Automaton(int[] next, int width, int[] output, String[] categories, int[] ascii,
+                  Map<Character, Integer> otherSymbols) {
+            this.next = next;
+            this.width = width;
+            this.output = output;
+            this.categories = categories;
+            this.ascii = ascii;
+            this.otherSymbols = otherSymbols;
+        }
+
+        String match(String description) {
+            int state = 0;
+            int best = NO_MATCH;
+            for (int i = 0; i < description.length(); i++) {
+                char c = Character.toLowerCase(description.charAt(i));
+                int symbol;
+                if (c < ascii.length) {
+                    symbol = ascii[c];
+                } else {
+                    Integer other = otherSymbols.get(c);
+                    symbol = other != null ? other : 0;
+                }
+                state = next[state * width + symbol];
+                if (output[state] < best) {
+                    best = output[state];
+                    // Nothing outranks the first keyword
+                    if (best == 0) break;
+                }
+            }
+            return best == NO_MATCH ? UNCATEGORIZED : categories[best];
+        }
+    }
+
+    private static final class StoredKeywords {
+        Map<String, String> keywords;
+    }
+}
@@ -0,0 +1,60 @@
+package com.budgetwise.ai;
+
+import com.budgetwise.data.models.Transaction;
+import java.util.Comparator;
+
+/**
+ * The facts the analysis modules index a transaction by, copied when the transaction is
+ * applied. Transactions are mutable and may be edited in place, so removing an edited
+ * transaction must use what was indexed, not what the object says now.
+ */
+final class LedgerEntry {
+    static final Comparator<LedgerEntry> BY_TIME = (a, b) -> {
+        int order = Long.compare(a.time, b.time);
+        return order != 0 ? order : a.id.compareTo(b.id);
+    };
+
+    static final Comparator<LedgerEntry> BY_AMOUNT = (a, b) -> {
+        int order = Double.compare(a.amount, b.amount);
+        return order != 0 ? order : a.id.compareTo(b.id);
+    };
+
+    final String id;
+    final long time;
+    final Transaction.TransactionType type;
+    final String category;
+    final double amount;
+    final Transaction transaction;
+
+    LedgerEntry(Transaction transaction) {
+        this.id = transaction.getId();
+        this.time = transaction.getDate() != null ? transaction.getDate().getTime() : 0;
+        this.type = transaction.getType();
+        this.category = transaction.getCategory();
+        this.amount = transaction.getAmount();
+        this.transaction = transaction;
+    }
+
+    /** A search key that sorts before every entry at or after {@code time} in {@link #BY_TIME}. */
+    static LedgerEntry atTime(long time) {
+        return new LedgerEntry(time, 0);
+    }
+
+    /** A search key that sorts before every entry of at least {@code amount} in {@link #BY_AMOUNT}. */
+    static LedgerEntry atAmount(double amount) {
+        return new LedgerEntry(0, amount);
+    }
+
+    private LedgerEntry(long time, double amount) {
+        this.id = "";
+        this.time = time;
+        this.type = null;
+        this.category = null;
+        this.amount = amount;
+        this.transaction = null;
+    }
+
+    boolean isExpense() {
+        return type == Transaction.TransactionType.EXPENSE;
+    }
+}
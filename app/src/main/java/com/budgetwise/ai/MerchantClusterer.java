@@ -0,0 +1,256 @@
+package com.budgetwise.ai;
+
+import android.util.Log;
+import com.budgetwise.data.storage.SecurePreferences;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Groups merchant keys whose descriptions are near-duplicates, so "NETFLIX.COM 8443" and
+ * "Netflix Inc" count as one merchant for recurring detection.
+ * <p>
+ * Each description is reduced to its meaningful words (legal suffixes and web noise
+ * dropped), cut into three-character shingles and summarised by a MinHash signature, whose
+ * agreement with another signature estimates the Jaccard similarity of the shingle sets.
+ * Signatures are split into bands and indexed per band, so a new merchant is only compared
+ * with merchants sharing at least one band: clustering costs roughly linear time instead of
+ * comparing every pair.
+ * <p>
+ * A merchant joins the cluster of its most similar earlier merchant, or starts its own.
+ * Assignments are persisted with the description each key came from, and the band index is
+ * rebuilt from them on load, so a merchant finds the clusters of earlier sessions whatever
+ * order transactions arrive in. An assignment never changes while it is kept; at most
+ * {@link #MAX_MERCHANTS} are kept, and the one unused longest makes room for a new one.
+ */
+class MerchantClusterer {
+    private static final String TAG = "MerchantClusterer";
+    private static final String ASSIGNMENTS_KEY = "merchant_clusters";
+    static final int MAX_MERCHANTS = 2000;
+    private static final int SHINGLE_LENGTH = 3;
+    private static final int BANDS = 8;
+    private static final int ROWS_PER_BAND = 4;
+    private static final int SIGNATURE_LENGTH = BANDS * ROWS_PER_BAND;
+    // Estimated Jaccard similarity needed to join a cluster
+    private static final double MIN_SIMILARITY = 0.5;
+    private static final Pattern NON_LETTERS = Pattern.compile("[^a-z]+");
+    private static final Set<String> NOISE_WORDS = new HashSet<>(Arrays.asList(
+        "com", "net", "org", "www", "http", "https", "inc", "llc", "ltd", "co", "corp", "the",
+        "pos", "debit", "purchase", "payment", "card"));
+    private static final long[] SEEDS = new long[SIGNATURE_LENGTH];
+
+    static {
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            seed = SplitMix64.mix(seed + i);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final SecurePreferences preferences;
+    // Least recently used first; clusterOf moves a key to the end
+    private final LinkedHashMap<String, String> clusterByKey = new LinkedHashMap<>();
+    private final Map<String, String> descriptionByKey = new HashMap<>();
+    private final Map<String, int[]> signatures = new HashMap<>();
+    private final Map<Long, Set<String>> bandBuckets = new HashMap<>();
+    private boolean unsaved;
+
+    /** @param preferences where assignments are kept, or null to keep them in memory only */
+    MerchantClusterer(SecurePreferences preferences) {
+        this.preferences = preferences;
+        if (preferences != null) {
+            StoredAssignments stored = preferences.getObject(ASSIGNMENTS_KEY, StoredAssignments.class, null);
+            if (stored != null && stored.clusterByKey != null) {
+                restore(stored.clusterByKey, stored.descriptionByKey);
+            }
+        }
+    }
+
+    /**
+     * Loads assignments kept earlier, least recently used first, and indexes every one whose
+     * description is known. Assignments written before descriptions were kept are indexed
+     * when their key shows up.
+     */
+    synchronized void restore(Map<String, String> clusters, Map<String, String> descriptions) {
+        for (Map.Entry<String, String> entry : clusters.entrySet()) {
+            assign(entry.getKey(), entry.getValue(), descriptions != null ? descriptions.get(entry.getKey()) : null);
+        }
+        evictUnused();
+    }
+
+    /**
+     * Returns the cluster of {@code key}, a merchant key from
+     * {@link RecurringDetector#normalizeDescription}, assigning one if it has none;
+     * {@code description} is the original text it came from, which keeps the word boundaries
+     * the key has lost.
+     */
+    synchronized String clusterOf(String key, String description) {
+        String cluster = clusterByKey.remove(key);
+        if (cluster != null) {
+            // Most recently used now
+            clusterByKey.put(key, cluster);
+            if (signatures.containsKey(key) || descriptionByKey.containsKey(key)) {
+                return cluster;
+            }
+        }
+
+        String text = description != null ? description : key;
+        int[] signature = signature(text);
+        if (cluster == null) {
+            String nearest = signature != null ? nearest(signature) : null;
+            cluster = nearest != null ? clusterByKey.get(nearest) : key;
+        }
+        assign(key, cluster, text);
+        unsaved = true;
+        evictUnused();
+        return cluster;
+    }
+
+    /**
+     * The cluster {@link #clusterOf} would return for {@code key}, without assigning or
+     * indexing anything, for callers that only group descriptions they don't track.
+     */
+    synchronized String lookup(String key, String description) {
+        String cluster = clusterByKey.get(key);
+        if (cluster != null) return cluster;
+        int[] signature = signature(description != null ? description : key);
+        String nearest = signature != null ? nearest(signature) : null;
+        return nearest != null ? clusterByKey.get(nearest) : key;
+    }
+
+    /** Writes assignments made since the last save. */
+    synchronized void save() {
+        if (!unsaved || preferences == null) return;
+        try {
+            StoredAssignments stored = new StoredAssignments();
+            stored.clusterByKey = new LinkedHashMap<>(clusterByKey);
+            stored.descriptionByKey = new HashMap<>(descriptionByKey);
+            preferences.putObject(ASSIGNMENTS_KEY, stored);
+            unsaved = false;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to save merchant clusters", e);
+        }
+    }
+
+    synchronized int size() {
+        return clusterByKey.size();
+    }
+
+    private void assign(String key, String cluster, String description) {
+        clusterByKey.put(key, cluster);
+        if (description == null) return;
+        descriptionByKey.put(key, description);
+        int[] signature = signature(description);
+        if (signature != null) {
+            index(key, signature);
+        }
+    }
+
+    private void evictUnused() {
+        Iterator<String> keys = clusterByKey.keySet().iterator();
+        while (clusterByKey.size() > MAX_MERCHANTS) {
+            String key = keys.next();
+            keys.remove();
+            descriptionByKey.remove(key);
+            int[] signature = signatures.remove(key);
+            if (signature != null) {
+                for (int band = 0; band < BANDS; band++) {
+                    long hash = bandHash(signature, band);
+                    Set<String> bucket = bandBuckets.get(hash);
+                    bucket.remove(key);
+                    if (bucket.isEmpty()) {
+                        bandBuckets.remove(hash);
+                    }
+                }
+            }
+            unsaved = true;
+        }
+    }
+
+    private String nearest(int[] signature) {
+        Set<String> candidates = new HashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            Set<String> bucket = bandBuckets.get(bandHash(signature, band));
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+
+        String nearest = null;
+        double best = MIN_SIMILARITY;
+        for (String candidate : candidates) {
+            double similarity = estimatedSimilarity(signature, signatures.get(candidate));
+            if (similarity >= best) {
+                best = similarity;
+                nearest = candidate;
+            }
+        }
+        return nearest;
+    }
+
+    private void index(String key, int[] signature) {
+        if (signatures.containsKey(key)) return;
+        signatures.put(key, signature);
+        for (int band = 0; band < BANDS; band++) {
+            bandBuckets.computeIfAbsent(bandHash(signature, band), b -> new HashSet<>()).add(key);
+        }
+    }
+
+    /** MinHash signature of the description's meaningful words, or null if it has none. */
+    static int[] signature(String description) {
+        StringBuilder words = new StringBuilder();
+        for (String word : NON_LETTERS.split(description.toLowerCase(Locale.US))) {
+            if (word.length() > 1 && !NOISE_WORDS.contains(word)) {
+                words.append(word);
+            }
+        }
+        if (words.length() == 0) return null;
+
+        int[] signature = new int[SIGNATURE_LENGTH];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int shingles = Math.max(1, words.length() - SHINGLE_LENGTH + 1);
+        for (int start = 0; start < shingles; start++) {
+            int end = Math.min(words.length(), start + SHINGLE_LENGTH);
+            long shingle = 0;
+            for (int i = start; i < end; i++) {
+                shingle = shingle * 31 + words.charAt(i);
+            }
+            for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+                int hash = (int) SplitMix64.mix(shingle ^ SEEDS[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /** Fraction of signature positions that agree, an estimate of the Jaccard similarity. */
+    static double estimatedSimilarity(int[] a, int[] b) {
+        int agreeing = 0;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            if (a[i] == b[i]) agreeing++;
+        }
+        return (double) agreeing / SIGNATURE_LENGTH;
+    }
+
+    private static long bandHash(int[] signature, int band) {
+        long hash = band;
+        for (int row = band * ROWS_PER_BAND; row < (band + 1) * ROWS_PER_BAND; row++) {
+            hash = hash * 0x100000001B3L + signature[row];
+        }
+        return hash;
+    }
+
+    private static final class StoredAssignments {
+        // Least recently used first
+        Map<String, String> clusterByKey;
+        Map<String, String> descriptionByKey;
+    }
+}
@@ -0,0 +1,229 @@
+package com.budgetwise.ai;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Approximate quantiles of a stream of amounts in bounded space (a KLL sketch, Karnin, Lang
+ * and Liberty 2016). Values go into level 0; when the sketch is full, the lowest full level
+ * is sorted and every other value moves up a level with twice the weight. Levels shrink
+ * geometrically towards the bottom, so about {@code 3k} values are kept however many are
+ * added, and a quantile is off by roughly 1.7/k in rank. Up to {@code k} values nothing is
+ * compacted and answers are exact.
+ * <p>
+ * Sketches merge: the sketch of two months is the merge of the two monthly sketches, so
+ * windows can be assembled from per-period parts without revisiting transactions.
+ * <p>
+ * Besides quantiles, a sketch gives a robust score for a value: its distance from the
+ * median in units of the median absolute deviation (Iglewicz and Hoaglin's modified
+ * z-score). Unlike a z-score, a few very large amounts (rent, an annual premium) barely
+ * move the median or the MAD, so they neither hide other outliers nor make ordinary
+ * amounts look unusual.
+ */
+public final class QuantileSketch {
+    /** Scores above this mark an outlier (Iglewicz and Hoaglin's recommended cut-off). */
+    public static final double OUTLIER_SCORE = 3.5;
+
+    private static final int DEFAULT_K = 200;
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+    // MAD and mean absolute deviation scaled to the standard deviation of a normal distribution
+    private static final double MAD_SCALE = 1.4826;
+    private static final double MEAN_DEVIATION_SCALE = 1.2533;
+
+    private final int k;
+    private double[][] levels = new double[1][8];
+    private int[] sizes = new int[1];
+    private int levelCount = 1;
+    private int capacity;
+    private int retained;
+    private long count;
+    private long random = 0x9E3779B97F4A7C15L;
+
+    // Summary of the current contents, built on first read after a change
+    private double[] sortedValues;
+    private long[] cumulativeWeights;
+    private double median;
+    private double robustScale;
+
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    public QuantileSketch(int k) {
+        if (k < 8) throw new IllegalArgumentException("k must be at least 8");
+        this.k = k;
+        this.capacity = levelCapacity(0);
+    }
+
+    public void add(double value) {
+        append(0, value);
+        count++;
+        if (retained > capacity) {
+            compress();
+        }
+        sortedValues = null;
+    }
+
+    /** Adds everything {@code other} has seen to this sketch; {@code other} is unchanged. */
+    public void merge(QuantileSketch other) {
+        for (int level = 0; level < other.levelCount; level++) {
+            for (int i = 0; i < other.sizes[level]; i++) {
+                append(level, other.levels[level][i]);
+            }
+        }
+        count += other.count;
+        while (retained > capacity) {
+            compress();
+        }
+        sortedValues = null;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /** The value at rank {@code q} in [0, 1], or NaN when empty. */
+    public double quantile(double q) {
+        if (count == 0) return Double.NaN;
+        summarize();
+        long target = (long) Math.ceil(Math.max(0, Math.min(1, q)) * cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = Arrays.binarySearch(cumulativeWeights, Math.max(1, target));
+        return sortedValues[index >= 0 ? index : -index - 1];
+    }
+
+    public double getMedian() {
+        return quantile(0.5);
+    }
+
+    /**
+     * The spread the robust score is measured in: the median absolute deviation scaled to a
+     * standard deviation, or, when more than half the values are equal and the MAD is zero,
+     * the scaled mean absolute deviation from the median. Zero when every value is equal.
+     */
+    public double getRobustScale() {
+        if (count == 0) return 0;
+        summarize();
+        return robustScale;
+    }
+
+    /**
+     * Signed distance of {@code value} from the median in robust standard deviations; above
+     * {@link #OUTLIER_SCORE} in size it is an outlier. Zero when the values have no spread.
+     */
+    public double robustScore(double value) {
+        if (count == 0) return 0;
+        summarize();
+        return robustScale > 0 ? (value - median) / robustScale : 0;
+    }
+
+    private void summarize() {
+        if (sortedValues != null) return;
+
+        TreeMap<Double, Long> weights = new TreeMap<>();
+        for (int level = 0; level < levelCount; level++) {
+            long weight = 1L << level;
+            for (int i = 0; i < sizes[level]; i++) {
+                weights.merge(levels[level][i], weight, Long::sum);
+            }
+        }
+        double[] values = new double[weights.size()];
+        long[] cumulative = new long[weights.size()];
+        long total = 0;
+        int index = 0;
+        for (Map.Entry<Double, Long> entry : weights.entrySet()) {
+            total += entry.getValue();
+            values[index] = entry.getKey();
+            cumulative[index] = total;
+            index++;
+        }
+        sortedValues = values;
+        cumulativeWeights = cumulative;
+        median = quantile(0.5);
+
+        // Same weights, keyed on the distance from the median
+        TreeMap<Double, Long> deviations = new TreeMap<>();
+        double deviationSum = 0;
+        long previous = 0;
+        for (int i = 0; i < values.length; i++) {
+            double deviation = Math.abs(values[i] - median);
+            long weight = cumulative[i] - previous;
+            previous = cumulative[i];
+            deviations.merge(deviation, weight, Long::sum);
+            deviationSum += deviation * weight;
+        }
+        double mad = 0;
+        long seen = 0;
+        for (Map.Entry<Double, Long> entry : deviations.entrySet()) {
+            seen += entry.getValue();
+            if (seen * 2 >= total) {
+                mad = entry.getKey();
+                break;
+            }
+        }
+        robustScale = mad > 0 ? MAD_SCALE * mad : MEAN_DEVIATION_SCALE * deviationSum / total;
+    }
+
+    // The top level holds k values and each one below two thirds of the one above
+    private int levelCapacity(int level) {
+        return Math.max(2, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, levelCount - 1 - level)));
+    }
+
+    private void compress() {
+        for (int level = 0; level < levelCount; level++) {
+            if (sizes[level] >= levelCapacity(level)) {
+                compact(level);
+                return;
+            }
+        }
+    }
+
+    private void compact(int level) {
+        if (level + 1 == levelCount) {
+            addLevel();
+        }
+        double[] values = levels[level];
+        int size = sizes[level];
+        Arrays.sort(values, 0, size);
+        // An odd value out stays behind
+        int leftover = size % 2;
+        int offset = nextBit();
+        for (int i = leftover + offset; i < size; i += 2) {
+            append(level + 1, values[i]);
+        }
+        retained -= size - leftover;
+        sizes[level] = leftover;
+    }
+
+    private void append(int level, double value) {
+        while (level >= levelCount) {
+            addLevel();
+        }
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][sizes[level]++] = value;
+        retained++;
+    }
+
+    private void addLevel() {
+        if (levelCount == levels.length) {
+            levels = Arrays.copyOf(levels, levelCount * 2);
+            sizes = Arrays.copyOf(sizes, levelCount * 2);
+        }
+        levels[levelCount] = new double[8];
+        levelCount++;
+        capacity = 0;
+        for (int level = 0; level < levelCount; level++) {
+            capacity += levelCapacity(level);
+        }
+    }
+
+    // Which half of each compacted pair survives; xorshift, so runs are repeatable
+    private int nextBit() {
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        return (int) (random >>> 63);
+    }
+}
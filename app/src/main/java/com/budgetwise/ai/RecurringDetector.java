@@ -3,102 +3,98 @@ package com.budgetwise.ai;
 import android.content.Context;
 import android.util.Log;
 import com.budgetwise.data.models.Transaction;
+import com.budgetwise.data.storage.SecurePreferences;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 public class RecurringDetector {
     private static final String TAG = "RecurringDetector";
-    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
     private static final long WEEK_MILLIS = TimeUnit.DAYS.toMillis(7);
     private static final long MONTH_MILLIS = TimeUnit.DAYS.toMillis(30);
+    static final int MIN_OCCURRENCES = 3; // Need at least 3 occurrences
+    // Every interval must be within this of the average
+    static final long CONSISTENCY_TOLERANCE = 3 * DAY_MILLIS;
+    private static final Pattern DIGITS = Pattern.compile("\\d+");
+    private static final Pattern NON_LETTERS = Pattern.compile("[^a-zA-Z\\s]");
     
     private final Context context;
     private final AINotificationManager notificationManager;
+    private final MerchantClusterer merchantClusterer;
 
-    public RecurringDetector(Context context) {
+    /** Merchant clusters are kept in {@code preferences}, so descriptions keep their merchant across restarts. */
+    public RecurringDetector(Context context, SecurePreferences preferences) {
+        this(context, new MerchantClusterer(preferences));
+    }
+
+    RecurringDetector(Context context, MerchantClusterer merchantClusterer) {
         this.context = context;
         this.notificationManager = new AINotificationManager(context);
+        this.merchantClusterer = merchantClusterer;
     }
 
     public List<RecurringPattern> detectRecurringTransactions(List<Transaction> transactions) {
+        return detectRecurringTransactions(AnalysisContext.of(transactions, System.currentTimeMillis()));
+    }
+
+    public List<RecurringPattern> detectRecurringTransactions(AnalysisContext context) {
         List<RecurringPattern> patterns = new ArrayList<>();
-        Map<String, List<Transaction>> groupedByDescription = groupTransactionsByDescription(transactions);
+        RecurringTracker tracker = newTracker();
+        for (Transaction transaction : context.getTransactions()) {
+            tracker.add(new LedgerEntry(transaction));
+        }
         
-        for (Map.Entry<String, List<Transaction>> entry : groupedByDescription.entrySet()) {
-            List<Transaction> similarTransactions = entry.getValue();
-            if (similarTransactions.size() >= 3) { // Need at least 3 occurrences
-                RecurringPattern pattern = analyzePattern(similarTransactions);
-                if (pattern != null) {
-                    patterns.add(pattern);
-                    
-                    // Trigger notification for newly detected recurring pattern
-                    if (!pattern.isMarkedAsRecurring()) {
-                        notificationManager.showReminder(
-                            "Recurring Transaction Detected",
-                            String.format("🔁 '%s' appears to be recurring every %d days. Mark as recurring?", 
-                                pattern.getDescription(), pattern.getIntervalDays()),
-                            pattern.hashCode()
-                        );
-                    }
-                }
+        for (String merchant : tracker.merchantKeys()) {
+            RecurringPattern pattern = tracker.patternFor(merchant);
+            if (pattern != null) {
+                patterns.add(pattern);
+                
+                // Trigger notification for newly detected recurring pattern
+                notifyPatternDetected(pattern);
             }
         }
         
+        saveMerchantClusters();
         return patterns;
     }
 
-    private Map<String, List<Transaction>> groupTransactionsByDescription(List<Transaction> transactions) {
-        Map<String, List<Transaction>> grouped = new HashMap<>();
-        
-        for (Transaction transaction : transactions) {
-            String key = normalizeDescription(transaction.getDescription());
-            grouped.computeIfAbsent(key, k -> new ArrayList<>()).add(transaction);
-        }
-        
-        return grouped;
+    /** A tracker grouping merchants with this detector's clusters. */
+    RecurringTracker newTracker() {
+        return new RecurringTracker(merchantClusterer);
     }
 
-    private String normalizeDescription(String description) {
-        return description.toLowerCase()
-            .replaceAll("\\d+", "") // Remove numbers
-            .replaceAll("[^a-zA-Z\\s]", "") // Remove special characters
-            .trim();
+    /**
+     * The merchant {@code description} belongs to, as recurring patterns group them. Only
+     * looks clusters up, so grouping descriptions outside the tracker never assigns one.
+     */
+    String merchantKey(String description) {
+        return merchantClusterer.lookup(normalizeDescription(description), description);
     }
 
-    private RecurringPattern analyzePattern(List<Transaction> transactions) {
-        if (transactions.size() < 3) return null;
-        
-        // Sort by date
-        transactions.sort((t1, t2) -> t1.getDate().compareTo(t2.getDate()));
-        
-        List<Long> intervals = new ArrayList<>();
-        for (int i = 1; i < transactions.size(); i++) {
-            long interval = transactions.get(i).getDate().getTime() - 
-                           transactions.get(i-1).getDate().getTime();
-            intervals.add(interval);
-        }
-        
-        // Check if intervals are consistent (within 3 days tolerance)
-        long avgInterval = intervals.stream().mapToLong(Long::longValue).sum() / intervals.size();
-        boolean isConsistent = intervals.stream()
-            .allMatch(interval -> Math.abs(interval - avgInterval) <= 3 * DAY_MILLIS);
-        
-        if (isConsistent) {
-            RecurringType type = determineRecurringType(avgInterval);
-            return new RecurringPattern(
-                transactions.get(0).getDescription(),
-                transactions.get(0).getCategory(),
-                transactions.get(0).getAmount(),
-                (int) (avgInterval / DAY_MILLIS),
-                type,
-                transactions.get(0).isRecurring()
+    /** Persists merchant clusters assigned since the last call. */
+    void saveMerchantClusters() {
+        merchantClusterer.save();
+    }
+
+    void notifyPatternDetected(RecurringPattern pattern) {
+        if (!pattern.isMarkedAsRecurring()) {
+            notificationManager.showReminder(
+                "Recurring Transaction Detected",
+                String.format("🔁 '%s' appears to be recurring every %d days. Mark as recurring?", 
+                    pattern.getDescription(), pattern.getIntervalDays()),
+                pattern.hashCode()
             );
         }
-        
-        return null;
     }
 
-    private RecurringType determineRecurringType(long intervalMillis) {
+    static String normalizeDescription(String description) {
+        if (description == null) return "";
+        String withoutNumbers = DIGITS.matcher(description.toLowerCase()).replaceAll(""); // Remove numbers
+        return NON_LETTERS.matcher(withoutNumbers).replaceAll("").trim(); // Remove special characters
+    }
+
+    static RecurringType determineRecurringType(long intervalMillis) {
         long days = intervalMillis / DAY_MILLIS;
         
         if (days <= 1) return RecurringType.DAILY;
@@ -117,15 +113,31 @@ public class RecurringDetector {
         private final int intervalDays;
         private final RecurringType type;
         private final boolean markedAsRecurring;
+        private final long nextDueDate;
+        private final double expectedAmount;
+        private final double intervalDeviationDays;
+        private final Transaction.TransactionType transactionType;
 
         public RecurringPattern(String description, String category, double amount, 
                               int intervalDays, RecurringType type, boolean markedAsRecurring) {
+            this(description, category, amount, intervalDays, type, markedAsRecurring, 0, amount, 0,
+                Transaction.TransactionType.EXPENSE);
+        }
+
+        public RecurringPattern(String description, String category, double amount,
+                              int intervalDays, RecurringType type, boolean markedAsRecurring,
+                              long nextDueDate, double expectedAmount, double intervalDeviationDays,
+                              Transaction.TransactionType transactionType) {
             this.description = description;
             this.category = category;
             this.amount = amount;
             this.intervalDays = intervalDays;
             this.type = type;
             this.markedAsRecurring = markedAsRecurring;
+            this.nextDueDate = nextDueDate;
+            this.expectedAmount = expectedAmount;
+            this.intervalDeviationDays = intervalDeviationDays;
+            this.transactionType = transactionType;
         }
 
         // Getters
@@ -135,6 +147,14 @@ public class RecurringDetector {
         public int getIntervalDays() { return intervalDays; }
         public RecurringType getType() { return type; }
         public boolean isMarkedAsRecurring() { return markedAsRecurring; }
+        /** When the next occurrence is expected (epoch millis), or 0 if not predicted. */
+        public long getNextDueDate() { return nextDueDate; }
+        /** The amount the next occurrence is expected to have. */
+        public double getExpectedAmount() { return expectedAmount; }
+        /** Standard deviation of the intervals in days; how far the due date may drift. */
+        public double getIntervalDeviationDays() { return intervalDeviationDays; }
+        /** Whether the occurrences are expenses or income. */
+        public Transaction.TransactionType getTransactionType() { return transactionType; }
     }
 
     public enum RecurringType {
@@ -0,0 +1,100 @@
+package com.budgetwise.ai;
+
+import com.budgetwise.data.models.Budget;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Recurring-pattern detection kept per merchant in a {@link RecurringTracker}. A change
+ * updates its merchant's interval statistics and marks it, and only marked merchants have
+ * their pattern re-read, so adding one coffee costs a couple of tree operations on the
+ * coffee merchant rather than re-analysing every description in the history.
+ */
+class RecurringModule implements IncrementalModule {
+    private final RecurringDetector detector;
+    private final RecurringTracker tracker;
+    private final Map<String, RecurringDetector.RecurringPattern> patterns = new LinkedHashMap<>();
+    // Results depend only on the applied changes, so each change is a new version
+    private long version;
+    private final Set<String> dirtyMerchants = new HashSet<>();
+    // Merchants touched by new changes rather than a rebuild; only these may notify
+    private final Set<String> liveMerchants = new HashSet<>();
+
+    RecurringModule(RecurringDetector detector) {
+        this.detector = detector;
+        this.tracker = detector.newTracker();
+    }
+
+    @Override
+    public void reset() {
+        version++;
+        tracker.clear();
+        patterns.clear();
+        dirtyMerchants.clear();
+        liveMerchants.clear();
+    }
+
+    @Override
+    public void add(LedgerEntry entry, boolean replay) {
+        version++;
+        String key = tracker.add(entry);
+        if (key == null) return;
+        dirtyMerchants.add(key);
+        if (!replay) {
+            liveMerchants.add(key);
+        }
+    }
+
+    @Override
+    public void remove(LedgerEntry entry) {
+        version++;
+        String key = tracker.remove(entry);
+        if (key == null) return;
+        dirtyMerchants.add(key);
+    }
+
+    @Override
+    public void onBudgetsChanged(List<Budget> budgets) {
+        // Recurring patterns don't depend on budgets
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public boolean readsContext() {
+        return false;
+    }
+
+    @Override
+    public long contextStart(long now) {
+        // Works from its own state
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public void refresh(AnalysisContext context) {
+        for (String key : dirtyMerchants) {
+            RecurringDetector.RecurringPattern pattern = tracker.patternFor(key);
+            if (pattern == null) {
+                patterns.remove(key);
+            } else if (patterns.put(key, pattern) == null && liveMerchants.contains(key)) {
+                // Newly detected, not merely re-confirmed
+                detector.notifyPatternDetected(pattern);
+            }
+        }
+        dirtyMerchants.clear();
+        liveMerchants.clear();
+        detector.saveMerchantClusters();
+    }
+
+    List<RecurringDetector.RecurringPattern> getPatterns() {
+        return new ArrayList<>(patterns.values());
+    }
+}
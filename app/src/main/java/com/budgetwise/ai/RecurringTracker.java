@@ -0,0 +1,141 @@
+package com.budgetwise.ai;
+
+import com.budgetwise.data.models.Transaction;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Per-merchant interval statistics kept up to date as transactions come and go. A merchant
+ * is a cluster of near-identical descriptions (see {@link MerchantClusterer}); its state is
+ * its occurrences in time order, the intervals between neighbours (as a sum and a counted
+ * set, for the detector's exact consistency rule) and their {@link RunningStats}.
+ * <p>
+ * A new latest occurrence adds one interval. One inserted or removed in the middle swaps
+ * the interval it splits or joins, so an update costs a couple of tree operations on that
+ * merchant's own state, whatever the size of the history. Reading a merchant's pattern is
+ * constant time.
+ */
+class RecurringTracker {
+    private final MerchantClusterer clusterer;
+    private final Map<String, Merchant> merchants = new HashMap<>();
+    private final Map<String, String> keyById = new HashMap<>();
+
+    RecurringTracker(MerchantClusterer clusterer) {
+        this.clusterer = clusterer;
+    }
+
+    void clear() {
+        merchants.clear();
+        keyById.clear();
+    }
+
+    /** Adds an occurrence; returns its merchant key, or null if it can't be placed in time. */
+    String add(LedgerEntry entry) {
+        if (entry.transaction.getDate() == null) return null;
+        String description = entry.transaction.getDescription();
+        String key = clusterer.clusterOf(RecurringDetector.normalizeDescription(description), description);
+        keyById.put(entry.id, key);
+        merchants.computeIfAbsent(key, k -> new Merchant()).add(entry);
+        return key;
+    }
+
+    /** Removes an occurrence added earlier; returns its merchant key, or null if it wasn't tracked. */
+    String remove(LedgerEntry entry) {
+        String key = keyById.remove(entry.id);
+        if (key == null) return null;
+        Merchant merchant = merchants.get(key);
+        merchant.remove(entry);
+        if (merchant.occurrences.isEmpty()) {
+            merchants.remove(key);
+        }
+        return key;
+    }
+
+    Iterable<String> merchantKeys() {
+        return merchants.keySet();
+    }
+
+    /** The merchant's pattern if its occurrences are recurring, otherwise null. */
+    RecurringDetector.RecurringPattern patternFor(String key) {
+        Merchant merchant = merchants.get(key);
+        return merchant != null ? merchant.pattern() : null;
+    }
+
+    private static final class Merchant {
+        final TreeSet<LedgerEntry> occurrences = new TreeSet<>(LedgerEntry.BY_TIME);
+        final TreeMap<Long, Integer> intervalCounts = new TreeMap<>();
+        final RunningStats intervals = new RunningStats();
+        long intervalSum;
+
+        void add(LedgerEntry entry) {
+            LedgerEntry previous = occurrences.lower(entry);
+            LedgerEntry next = occurrences.higher(entry);
+            if (previous != null && next != null) {
+                removeInterval(next.time - previous.time);
+            }
+            if (previous != null) {
+                addInterval(entry.time - previous.time);
+            }
+            if (next != null) {
+                addInterval(next.time - entry.time);
+            }
+            occurrences.add(entry);
+        }
+
+        void remove(LedgerEntry entry) {
+            if (!occurrences.remove(entry)) return;
+            LedgerEntry previous = occurrences.lower(entry);
+            LedgerEntry next = occurrences.higher(entry);
+            if (previous != null) {
+                removeInterval(entry.time - previous.time);
+            }
+            if (next != null) {
+                removeInterval(next.time - entry.time);
+            }
+            if (previous != null && next != null) {
+                addInterval(next.time - previous.time);
+            }
+        }
+
+        private void addInterval(long interval) {
+            intervalCounts.merge(interval, 1, Integer::sum);
+            intervalSum += interval;
+            intervals.add(interval);
+        }
+
+        private void removeInterval(long interval) {
+            intervalCounts.computeIfPresent(interval, (k, count) -> count > 1 ? count - 1 : null);
+            intervalSum -= interval;
+            intervals.remove(interval);
+        }
+
+        RecurringDetector.RecurringPattern pattern() {
+            if (occurrences.size() < RecurringDetector.MIN_OCCURRENCES) return null;
+
+            // Every interval within the tolerance of the average, checked at the extremes
+            long averageInterval = intervalSum / intervals.getCount();
+            if (intervalCounts.lastKey() - averageInterval > RecurringDetector.CONSISTENCY_TOLERANCE
+                    || averageInterval - intervalCounts.firstKey() > RecurringDetector.CONSISTENCY_TOLERANCE) {
+                return null;
+            }
+
+            Transaction first = occurrences.first().transaction;
+            LedgerEntry last = occurrences.last();
+            return new RecurringDetector.RecurringPattern(
+                first.getDescription(),
+                first.getCategory(),
+                first.getAmount(),
+                (int) (averageInterval / RecurringDetector.DAY_MILLIS),
+                RecurringDetector.determineRecurringType(averageInterval),
+                first.isRecurring(),
+                last.time + averageInterval,
+                // Recurring charges change price in steps, so the latest one is the best guess
+                last.amount,
+                intervals.getStandardDeviation() / RecurringDetector.DAY_MILLIS,
+                first.getType()
+            );
+        }
+    }
+}
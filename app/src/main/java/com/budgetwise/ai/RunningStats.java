@@ -0,0 +1,46 @@
+package com.budgetwise.ai;
+
+/**
+ * Count, mean and variance of values that come and go, by Welford's method: adding a value
+ * updates the mean and the sum of squared deviations directly, and removing one runs the
+ * same update backwards. Both are O(1) and, unlike a sum of squares, don't lose the variance
+ * to cancellation when amounts are large and close together.
+ */
+final class RunningStats {
+    private int count;
+    private double mean;
+    private double m2;
+
+    void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    /** Removes a value added earlier. */
+    void remove(double value) {
+        count--;
+        if (count == 0) {
+            mean = 0;
+            m2 = 0;
+            return;
+        }
+        double previousMean = mean;
+        mean = (previousMean * (count + 1) - value) / count;
+        m2 = Math.max(0, m2 - (value - previousMean) * (value - mean));
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    double getMean() {
+        return mean;
+    }
+
+    /** Population standard deviation, zero when empty. */
+    double getStandardDeviation() {
+        return count > 0 ? Math.sqrt(m2 / count) : 0;
+    }
+}
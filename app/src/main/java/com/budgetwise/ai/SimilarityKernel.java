@@ -0,0 +1,165 @@
+package com.budgetwise.ai;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Description similarity for duplicate and merchant matching:
+ * <ul>
+ *   <li>normalization uses precompiled patterns and is cached per description, since the
+ *       same few merchants make up most of a history;</li>
+ *   <li>edit distance is Myers' bit-parallel algorithm, one pass of word operations per
+ *       character for strings up to 64 characters, with a two-row fallback beyond that;</li>
+ *   <li>callers that only need to know whether two strings are close enough pass a bound,
+ *       and the computation stops as soon as the distance provably exceeds it.</li>
+ * </ul>
+ */
+final class SimilarityKernel {
+    private static final Pattern SPECIAL_CHARACTERS = Pattern.compile("[^a-zA-Z0-9\\s]");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int NORMALIZED_CACHE_SIZE = 1024;
+
+    private static final Map<String, String> normalizedCache =
+        new LinkedHashMap<String, String>(NORMALIZED_CACHE_SIZE, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > NORMALIZED_CACHE_SIZE;
+            }
+        };
+
+    private SimilarityKernel() {}
+
+    /** Lower case, letters, digits and single spaces only. */
+    static String normalize(String description) {
+        synchronized (normalizedCache) {
+            String normalized = normalizedCache.get(description);
+            if (normalized != null) return normalized;
+        }
+        String normalized = WHITESPACE.matcher(
+            SPECIAL_CHARACTERS.matcher(description.toLowerCase(Locale.getDefault())).replaceAll(""))
+            .replaceAll(" ").trim();
+        synchronized (normalizedCache) {
+            normalizedCache.put(description, normalized);
+        }
+        return normalized;
+    }
+
+    /**
+     * Similarity of two descriptions in [0, 1]: one minus the edit distance of their
+     * normalized forms over the longer length. Zero if either is null.
+     */
+    static double similarity(String description1, String description2) {
+        if (description1 == null || description2 == null) return 0.0;
+        String a = normalize(description1);
+        String b = normalize(description2);
+        int maxLength = Math.max(a.length(), b.length());
+        return maxLength > 0 ? 1.0 - (double) distance(a, b, maxLength) / maxLength : 1.0;
+    }
+
+    /**
+     * True if the similarity of the two descriptions exceeds {@code threshold}. Stops
+     * comparing once the distance rules that out, which is most pairs.
+     */
+    static boolean isSimilar(String description1, String description2, double threshold) {
+        if (description1 == null || description2 == null) return false;
+        String a = normalize(description1);
+        String b = normalize(description2);
+        int maxLength = Math.max(a.length(), b.length());
+        if (maxLength == 0) return 1.0 > threshold;
+        // Any distance above this bound already puts the similarity at or below the threshold
+        int bound = (int) Math.floor((1.0 - threshold) * maxLength);
+        int distance = distance(a, b, bound);
+        return distance <= bound && 1.0 - (double) distance / maxLength > threshold;
+    }
+
+    /** Levenshtein distance of {@code a} and {@code b}, or any value above {@code bound} if it exceeds it. */
+    static int distance(String a, String b, int bound) {
+        // The shorter string is the pattern, so more pairs fit in one word
+        if (a.length() > b.length()) {
+            String swap = a;
+            a = b;
+            b = swap;
+        }
+        if (b.length() - a.length() > bound) return bound + 1;
+        if (a.isEmpty()) return b.length();
+        return a.length() <= 64 ? bitParallelDistance(a, b, bound) : rowDistance(a, b, bound);
+    }
+
+    // Myers (1999) in Hyyrö's formulation: bit i of the vertical deltas is the step from
+    // row i to row i + 1 of the DP column, so a column is updated in a handful of word ops
+    private static int bitParallelDistance(String pattern, String text, int bound) {
+        int m = pattern.length();
+        int n = text.length();
+        long[] asciiPeq = new long[128];
+        Map<Character, Long> otherPeq = null;
+        for (int i = 0; i < m; i++) {
+            char c = pattern.charAt(i);
+            if (c < 128) {
+                asciiPeq[c] |= 1L << i;
+            } else {
+                if (otherPeq == null) otherPeq = new HashMap<>();
+                Long bits = otherPeq.get(c);
+                otherPeq.put(c, (bits != null ? bits : 0L) | 1L << i);
+            }
+        }
+
+        long last = 1L << (m - 1);
+        long pv = -1L;
+        long mv = 0L;
+        int score = m;
+        for (int j = 0; j < n; j++) {
+            char c = text.charAt(j);
+            long eq;
+            if (c < 128) {
+                eq = asciiPeq[c];
+            } else {
+                Long bits = otherPeq != null ? otherPeq.get(c) : null;
+                eq = bits != null ? bits : 0L;
+            }
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & last) != 0) {
+                score++;
+            } else if ((mh & last) != 0) {
+                score--;
+            }
+            // Row 0 grows by one per column
+            ph = (ph << 1) | 1L;
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+
+            // Each remaining column can lower the score by at most one
+            if (score - (n - j - 1) > bound) return bound + 1;
+        }
+        return score;
+    }
+
+    private static int rowDistance(String a, String b, int bound) {
+        int[] previous = new int[a.length() + 1];
+        int[] current = new int[a.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            previous[i] = i;
+        }
+        for (int j = 1; j <= b.length(); j++) {
+            current[0] = j;
+            int rowMin = current[0];
+            for (int i = 1; i <= a.length(); i++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[i] = Math.min(Math.min(previous[i] + 1, current[i - 1] + 1), previous[i - 1] + cost);
+                rowMin = Math.min(rowMin, current[i]);
+            }
+            // A row's minimum never decreases in later rows
+            if (rowMin > bound) return bound + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[a.length()];
+    }
+}
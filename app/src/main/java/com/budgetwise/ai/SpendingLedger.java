@@ -0,0 +1,49 @@
+package com.budgetwise.ai;
+
+import com.budgetwise.data.models.Transaction;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Every transaction the analysis has seen, ordered by date, so a module that looks at the
+ * last few weeks reads only those weeks instead of scanning the whole history.
+ */
+class SpendingLedger {
+    private final Map<String, LedgerEntry> byId = new HashMap<>();
+    private final TreeSet<LedgerEntry> byTime = new TreeSet<>(LedgerEntry.BY_TIME);
+
+    LedgerEntry get(String id) {
+        return byId.get(id);
+    }
+
+    void add(LedgerEntry entry) {
+        byId.put(entry.id, entry);
+        byTime.add(entry);
+    }
+
+    void remove(LedgerEntry entry) {
+        byId.remove(entry.id);
+        byTime.remove(entry);
+    }
+
+    void clear() {
+        byId.clear();
+        byTime.clear();
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    /** Returns the transactions dated at or after {@code fromTime}, oldest first. */
+    List<Transaction> since(long fromTime) {
+        List<Transaction> window = new ArrayList<>();
+        for (LedgerEntry entry : byTime.tailSet(LedgerEntry.atTime(fromTime), true)) {
+            window.add(entry.transaction);
+        }
+        return window;
+    }
+}
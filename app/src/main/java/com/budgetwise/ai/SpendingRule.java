@@ -0,0 +1,142 @@
+package com.budgetwise.ai;
+
+import com.budgetwise.data.models.Transaction;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A pattern over transactions as data: which transactions take part (type, category, hour of
+ * day, amount) and how many of them, totalling how much, must fall within a time window for
+ * a match. Matches are episodes: windows that share a transaction are one episode, reported
+ * once however many windows it spans. {@link SpendingRuleEngine} keeps the matches of a rule
+ * set up to date as transactions come and go.
+ */
+final class SpendingRule {
+    final AnomalyDetector.AnomalyType type;
+    final AnomalyDetector.AnomalySeverity severity;
+    final double score;
+    final long window;
+    final int minCount;
+    final double minTotal;
+    private final Set<Transaction.TransactionType> transactionTypes;
+    private final Set<String> categories;
+    private final int fromHour;
+    private final int toHour;
+    private final double amountAbove;
+    private final Function<SpendingRuleEngine.Episode, String> description;
+
+    private SpendingRule(Builder builder) {
+        this.type = builder.type;
+        this.severity = builder.severity;
+        this.score = builder.score;
+        this.window = builder.window;
+        this.minCount = builder.minCount;
+        this.minTotal = builder.minTotal;
+        this.transactionTypes = builder.transactionTypes;
+        this.categories = builder.categories;
+        this.fromHour = builder.fromHour;
+        this.toHour = builder.toHour;
+        this.amountAbove = builder.amountAbove;
+        this.description = builder.description;
+    }
+
+    static Builder reporting(AnomalyDetector.AnomalyType type, AnomalyDetector.AnomalySeverity severity) {
+        return new Builder(type, severity);
+    }
+
+    /** True if the transaction takes part in this rule's windows. */
+    boolean accepts(LedgerEntry entry) {
+        if (entry.transaction.getDate() == null) return false;
+        if (transactionTypes != null && !transactionTypes.contains(entry.type)) return false;
+        if (categories != null && !categories.contains(entry.category)) return false;
+        if (!(entry.amount > amountAbove)) return false;
+        if (fromHour >= 0) {
+            int hour = AnalysisContext.localHour(entry.time);
+            if (hour < fromHour || hour > toHour) return false;
+        }
+        return true;
+    }
+
+    String describe(SpendingRuleEngine.Episode episode) {
+        return description.apply(episode);
+    }
+
+    static final class Builder {
+        private final AnomalyDetector.AnomalyType type;
+        private final AnomalyDetector.AnomalySeverity severity;
+        private double score = 1.0;
+        private long window;
+        private int minCount = 1;
+        private double minTotal = Double.NEGATIVE_INFINITY;
+        private Set<Transaction.TransactionType> transactionTypes;
+        private Set<String> categories;
+        private int fromHour = -1;
+        private int toHour = -1;
+        private double amountAbove = Double.NEGATIVE_INFINITY;
+        private Function<SpendingRuleEngine.Episode, String> description = e -> "";
+
+        private Builder(AnomalyDetector.AnomalyType type, AnomalyDetector.AnomalySeverity severity) {
+            this.type = type;
+            this.severity = severity;
+        }
+
+        /** Only transactions of these types take part; by default all do. */
+        Builder of(Transaction.TransactionType first, Transaction.TransactionType... rest) {
+            transactionTypes = EnumSet.of(first, rest);
+            return this;
+        }
+
+        /** Only transactions in these categories take part; by default all do. */
+        Builder inCategories(String... names) {
+            categories = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(names)));
+            return this;
+        }
+
+        /** Only transactions in local hours {@code from} to {@code to}, both included. */
+        Builder betweenHours(int from, int to) {
+            fromHour = from;
+            toHour = to;
+            return this;
+        }
+
+        /** Only transactions for more than {@code amount}. */
+        Builder amountAbove(double amount) {
+            amountAbove = amount;
+            return this;
+        }
+
+        /** At least {@code count} transactions no more than {@code millis} apart; by default one. */
+        Builder atLeast(int count, long millis) {
+            minCount = count;
+            window = millis;
+            return this;
+        }
+
+        /** The transactions in the window must also total at least {@code total}. */
+        Builder totalling(double total) {
+            minTotal = total;
+            return this;
+        }
+
+        Builder scored(double score) {
+            this.score = score;
+            return this;
+        }
+
+        Builder described(Function<SpendingRuleEngine.Episode, String> description) {
+            this.description = description;
+            return this;
+        }
+
+        SpendingRule build() {
+            if (minCount < 1 || window < 0) {
+                throw new IllegalArgumentException("A rule needs a count of at least one and a non-negative window");
+            }
+            return new SpendingRule(this);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.budgetwise.ai;
+
+import com.budgetwise.data.models.Transaction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Keeps the matches of a set of {@link SpendingRule}s as transactions are added and removed.
+ * Windows are in event time: a back-dated entry lands where its date puts it, not at the end.
+ * <p>
+ * Each rule becomes a matcher that holds the transactions it accepts in date order and its
+ * current episodes. A change at time t only alters the windows ending within one window of
+ * t, so the matcher drops the episodes reaching into that range and rescans just them and
+ * the range with two pointers. That is a lookup plus the size of the neighbourhood, never the
+ * whole history. An episode rebuilt from one that was already reported, or holding one of
+ * its transactions, stays reported, so an episode that grows, shrinks, is split or has a
+ * transaction edited isn't reported again. An edit arrives as a removal and an addition,
+ * which can dissolve the episode in between, so reported transactions are remembered by id
+ * until a {@link #takeUnreported} finds them removed and not added back.
+ */
+final class SpendingRuleEngine {
+    private final List<Matcher> matchers = new ArrayList<>();
+
+    SpendingRuleEngine(List<SpendingRule> rules) {
+        for (SpendingRule rule : rules) {
+            matchers.add(new Matcher(rule));
+        }
+    }
+
+    /** Applies an added transaction; episodes it forms while replaying count as reported. */
+    void add(LedgerEntry entry, boolean replay) {
+        for (Matcher matcher : matchers) {
+            matcher.add(entry, replay);
+        }
+    }
+
+    void remove(LedgerEntry entry) {
+        for (Matcher matcher : matchers) {
+            matcher.remove(entry);
+        }
+    }
+
+    void clear() {
+        for (Matcher matcher : matchers) {
+            matcher.events.clear();
+            matcher.episodes.clear();
+            matcher.reportedIds.clear();
+            matcher.removedIds.clear();
+        }
+    }
+
+    /** The current matches, rule by rule, oldest episode first. */
+    List<AnomalyDetector.AnomalyResult> getMatches() {
+        List<AnomalyDetector.AnomalyResult> matches = new ArrayList<>();
+        for (Matcher matcher : matchers) {
+            for (Episode episode : matcher.episodes.values()) {
+                matches.add(episode.result);
+            }
+        }
+        return matches;
+    }
+
+    /** The matches not reported yet, which are marked reported. */
+    List<AnomalyDetector.AnomalyResult> takeUnreported() {
+        List<AnomalyDetector.AnomalyResult> matches = new ArrayList<>();
+        for (Matcher matcher : matchers) {
+            for (Episode episode : matcher.episodes.values()) {
+                if (!episode.reported) {
+                    matcher.markReported(episode);
+                    matches.add(episode.result);
+                }
+            }
+            // Edits have added theirs back by now
+            matcher.reportedIds.removeAll(matcher.removedIds);
+            matcher.removedIds.clear();
+        }
+        return matches;
+    }
+
+    /** The transactions of one match, from the first window to the last that shares one of them. */
+    static final class Episode {
+        private final LedgerEntry first;
+        private final LedgerEntry last;
+        private final int count;
+        private final double total;
+        private final Set<String> categories;
+        private boolean reported;
+        private AnomalyDetector.AnomalyResult result;
+
+        private Episode(List<LedgerEntry> entries) {
+            this.first = entries.get(0);
+            this.last = entries.get(entries.size() - 1);
+            this.count = entries.size();
+            double total = 0;
+            Set<String> categories = new HashSet<>();
+            for (LedgerEntry entry : entries) {
+                total += entry.amount;
+                categories.add(entry.category);
+            }
+            this.total = total;
+            this.categories = Collections.unmodifiableSet(categories);
+        }
+
+        int getCount() { return count; }
+        double getTotal() { return total; }
+        Set<String> getCategories() { return categories; }
+        long getDuration() { return last.time - first.time; }
+        /** The latest transaction, which the match is reported against. */
+        Transaction getLast() { return last.transaction; }
+
+        private boolean overlaps(Episode other) {
+            return LedgerEntry.BY_TIME.compare(first, other.last) <= 0
+                && LedgerEntry.BY_TIME.compare(other.first, last) <= 0;
+        }
+    }
+
+    private static final class Matcher {
+        private final SpendingRule rule;
+        private final TreeSet<LedgerEntry> events = new TreeSet<>(LedgerEntry.BY_TIME);
+        // Keyed by first transaction; episodes never share one
+        private final TreeMap<LedgerEntry, Episode> episodes = new TreeMap<>(LedgerEntry.BY_TIME);
+        // Transactions of reported episodes, and those of them removed since the last report
+        private final Set<String> reportedIds = new HashSet<>();
+        private final Set<String> removedIds = new HashSet<>();
+
+        Matcher(SpendingRule rule) {
+            this.rule = rule;
+        }
+
+        void add(LedgerEntry entry, boolean replay) {
+            if (rule.accepts(entry) && events.add(entry)) {
+                removedIds.remove(entry.id);
+                rematch(entry.time, replay);
+            }
+        }
+
+        void remove(LedgerEntry entry) {
+            if (events.remove(entry)) {
+                if (reportedIds.contains(entry.id)) {
+                    removedIds.add(entry.id);
+                }
+                rematch(entry.time, false);
+            }
+        }
+
+        void markReported(Episode episode) {
+            episode.reported = true;
+            for (LedgerEntry entry : events.subSet(episode.first, true, episode.last, true)) {
+                reportedIds.add(entry.id);
+            }
+        }
+
+        private void rematch(long time, boolean replay) {
+            // Only windows ending in [time, time + window] hold the change, so only episodes
+            // with a transaction in [time - window, time + window] can change
+            long from = time - rule.window;
+            long to = time + rule.window;
+            List<Episode> replaced = new ArrayList<>();
+            Map.Entry<LedgerEntry, Episode> before = episodes.lowerEntry(LedgerEntry.atTime(from));
+            if (before != null && before.getValue().last.time >= from) {
+                replaced.add(before.getValue());
+            }
+            replaced.addAll(episodes.subMap(LedgerEntry.atTime(from), true, LedgerEntry.atTime(to + 1), false).values());
+            long start = from;
+            long end = to;
+            for (Episode episode : replaced) {
+                episodes.remove(episode.first);
+                start = Math.min(start, episode.first.time);
+                end = Math.max(end, episode.last.time);
+            }
+
+            // Windows ending from start on; the ones ending early in it reach back one window
+            List<LedgerEntry> span = new ArrayList<>(events.subSet(
+                LedgerEntry.atTime(start - rule.window), true, LedgerEntry.atTime(end + 1), false));
+            int left = 0;
+            double windowTotal = 0;
+            int episodeStart = -1;
+            int episodeEnd = -1;
+            for (int right = 0; right < span.size(); right++) {
+                LedgerEntry latest = span.get(right);
+                windowTotal += latest.amount;
+                while (latest.time - span.get(left).time > rule.window) {
+                    windowTotal -= span.get(left++).amount;
+                }
+                if (latest.time < start || right - left + 1 < rule.minCount || windowTotal < rule.minTotal) {
+                    continue;
+                }
+                // Shares a transaction with the episode so far, so it extends it
+                if (episodeEnd >= left) {
+                    episodeEnd = right;
+                } else {
+                    if (episodeEnd >= 0) {
+                        put(span.subList(episodeStart, episodeEnd + 1), replaced, replay);
+                    }
+                    episodeStart = left;
+                    episodeEnd = right;
+                }
+            }
+            if (episodeEnd >= 0) {
+                put(span.subList(episodeStart, episodeEnd + 1), replaced, replay);
+            }
+        }
+
+        private void put(List<LedgerEntry> entries, List<Episode> replaced, boolean replay) {
+            Episode episode = new Episode(entries);
+            boolean reported = replay;
+            for (Episode previous : replaced) {
+                reported |= previous.reported && previous.overlaps(episode);
+            }
+            for (int i = 0; i < entries.size() && !reported; i++) {
+                reported = reportedIds.contains(entries.get(i).id);
+            }
+            episode.result = new AnomalyDetector.AnomalyResult(
+                episode.getLast(),
+                rule.type,
+                rule.severity,
+                episode.categories.size() == 1 ? episode.categories.iterator().next() : "Multiple Categories",
+                rule.score,
+                rule.describe(episode)
+            );
+            episodes.put(episode.first, episode);
+            if (reported) {
+                markReported(episode);
+            }
+        }
+    }
+}
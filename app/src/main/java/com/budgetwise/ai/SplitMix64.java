@@ -0,0 +1,31 @@
+package com.budgetwise.ai;
+
+/**
+ * SplitMix64 (Steele, Lea and Flood 2014): a generator with one word of state and a few
+ * multiplies per number, whose streams from different seeds are independent enough for
+ * simulation. Its finalizer, {@link #mix}, doubles as a well-spread 64-bit hash. Not
+ * thread-safe; each task gets its own.
+ */
+final class SplitMix64 {
+    private long state;
+
+    SplitMix64(long seed) {
+        this.state = seed;
+    }
+
+    long nextLong() {
+        state += 0x9E3779B97F4A7C15L;
+        return mix(state);
+    }
+
+    /** Uniform in [0, bound), by multiplying the top 32 bits instead of a division. */
+    int nextInt(int bound) {
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,199 @@
+package com.budgetwise.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs named stages as a dependency graph: each stage declares the stages whose outputs it
+ * reads and starts as soon as they have all finished, so independent stages run side by
+ * side on the executor. Inputs must be added before the stages that read them, which keeps
+ * the graph acyclic by construction.
+ * <p>
+ * A failed stage doesn't stop unrelated ones; the stages that depend on it are skipped.
+ */
+class StageScheduler {
+
+    interface Body {
+        /** Runs the stage; the returned value is the output later stages read by this stage's name. */
+        Object run(Outputs inputs) throws Exception;
+    }
+
+    /** Outputs of finished stages, by stage name. */
+    static final class Outputs {
+        private final Map<String, Object> values = new HashMap<>();
+
+        @SuppressWarnings("unchecked")
+        <T> T get(String stage) {
+            synchronized (values) {
+                return (T) values.get(stage);
+            }
+        }
+
+        private void put(String stage, Object value) {
+            synchronized (values) {
+                values.put(stage, value);
+            }
+        }
+    }
+
+    private static final class Stage {
+        final String name;
+        final List<String> inputs;
+        final Body body;
+        final List<Stage> dependents = new ArrayList<>();
+        int pendingInputs;
+        boolean failed;
+        long startNanos;
+        long endNanos;
+
+        Stage(String name, List<String> inputs, Body body) {
+            this.name = name;
+            this.inputs = inputs;
+            this.body = body;
+        }
+    }
+
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+    void add(String name, Body body, String... inputs) {
+        if (stages.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate stage " + name);
+        }
+        Stage stage = new Stage(name, Arrays.asList(inputs), body);
+        for (String input : inputs) {
+            Stage source = stages.get(input);
+            if (source == null) {
+                throw new IllegalArgumentException("Stage " + name + " reads unknown stage " + input);
+            }
+            source.dependents.add(stage);
+        }
+        stage.pendingInputs = inputs.length;
+        stages.put(name, stage);
+    }
+
+    /** Runs every stage once and waits for all of them to finish or be skipped. */
+    Run run(Executor executor) throws InterruptedException {
+        Run run = new Run(executor);
+        run.start();
+        run.await();
+        return run;
+    }
+
+    /** One execution of the graph: outputs, failures and per-stage timings. */
+    final class Run {
+        private final Executor executor;
+        private final Outputs outputs = new Outputs();
+        private final Map<String, Throwable> failures = Collections.synchronizedMap(new LinkedHashMap<>());
+        private final CountDownLatch remaining = new CountDownLatch(stages.size());
+        private long startNanos;
+        private long endNanos;
+
+        private Run(Executor executor) {
+            this.executor = executor;
+        }
+
+        private void start() {
+            startNanos = System.nanoTime();
+            for (Stage stage : stages.values()) {
+                if (stage.inputs.isEmpty()) {
+                    submit(stage);
+                }
+            }
+        }
+
+        private void await() throws InterruptedException {
+            remaining.await();
+            endNanos = System.nanoTime();
+        }
+
+        private void submit(Stage stage) {
+            executor.execute(() -> {
+                stage.startNanos = System.nanoTime();
+                try {
+                    outputs.put(stage.name, stage.body.run(outputs));
+                } catch (Throwable t) {
+                    failures.put(stage.name, t);
+                    stage.failed = true;
+                }
+                stage.endNanos = System.nanoTime();
+                finish(stage);
+            });
+        }
+
+        private void finish(Stage stage) {
+            List<Stage> ready = new ArrayList<>();
+            List<Stage> skipped = new ArrayList<>();
+            synchronized (this) {
+                for (Stage dependent : stage.dependents) {
+                    if (stage.failed) {
+                        dependent.failed = true;
+                    }
+                    if (--dependent.pendingInputs == 0) {
+                        (dependent.failed ? skipped : ready).add(dependent);
+                    }
+                }
+            }
+            remaining.countDown();
+            for (Stage dependent : skipped) {
+                dependent.startNanos = dependent.endNanos = System.nanoTime();
+                finish(dependent);
+            }
+            for (Stage dependent : ready) {
+                submit(dependent);
+            }
+        }
+
+        <T> T get(String stage) {
+            return outputs.get(stage);
+        }
+
+        /** Failures by stage name; stages skipped because an input failed are not listed. */
+        Map<String, Throwable> getFailures() {
+            return failures;
+        }
+
+        /**
+         * Describes when each stage ran relative to the start of the run, followed by the
+         * critical path: the chain of stages, each waiting on its last input to finish, that
+         * ends with the last stage to complete.
+         */
+        String describeTimings() {
+            StringBuilder description = new StringBuilder(String.format(Locale.US, "%.1f ms:",
+                millis(endNanos - startNanos)));
+            Stage last = null;
+            for (Stage stage : stages.values()) {
+                description.append(String.format(Locale.US, " %s %.1f ms (+%.1f)", stage.name,
+                    millis(stage.endNanos - stage.startNanos), millis(stage.startNanos - startNanos)));
+                if (last == null || stage.endNanos > last.endNanos) {
+                    last = stage;
+                }
+            }
+
+            List<String> path = new ArrayList<>();
+            for (Stage stage = last; stage != null; ) {
+                path.add(0, stage.name);
+                Stage latestInput = null;
+                for (String input : stage.inputs) {
+                    Stage candidate = stages.get(input);
+                    if (latestInput == null || candidate.endNanos > latestInput.endNanos) {
+                        latestInput = candidate;
+                    }
+                }
+                stage = latestInput;
+            }
+            return description.append("; critical path ").append(String.join(" → ", path)).toString();
+        }
+
+        private double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
@@ -5,7 +5,6 @@ import com.budgetwise.data.models.Budget;
 import com.budgetwise.data.models.Transaction;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class SummaryGenerator {
     private final Context context;
@@ -18,14 +17,14 @@ public class SummaryGenerator {
     }
 
     public WeeklySummary generateWeeklySummary(List<Transaction> transactions, List<Budget> budgets) {
-        long now = System.currentTimeMillis();
-        long weekAgo = now - (7L * 24 * 60 * 60 * 1000);
-        
-        List<Transaction> weeklyTransactions = transactions.stream()
-            .filter(t -> t.getDate().getTime() > weekAgo)
-            .collect(Collectors.toList());
+        return generateWeeklySummary(AnalysisContext.of(transactions, System.currentTimeMillis()), budgets);
+    }
+
+    public WeeklySummary generateWeeklySummary(AnalysisContext context, List<Budget> budgets) {
+        long weekAgo = context.getNow() - (7L * 24 * 60 * 60 * 1000);
         
-        WeeklySummary summary = analyzeWeeklyData(weeklyTransactions, budgets);
+        // Strictly after a week ago
+        WeeklySummary summary = analyzeWeeklyData(context, weekAgo + 1, budgets);
         
         // Trigger weekly summary notification
         triggerWeeklySummaryNotification(summary);
@@ -34,36 +33,23 @@ public class SummaryGenerator {
     }
 
     public MonthlySummary generateMonthlySummary(List<Transaction> transactions, List<Budget> budgets) {
-        long now = System.currentTimeMillis();
-        long monthAgo = now - (30L * 24 * 60 * 60 * 1000);
-        
-        List<Transaction> monthlyTransactions = transactions.stream()
-            .filter(t -> t.getDate().getTime() > monthAgo)
-            .collect(Collectors.toList());
-        
-        return analyzeMonthlyData(monthlyTransactions, budgets);
+        return generateMonthlySummary(AnalysisContext.of(transactions, System.currentTimeMillis()), budgets);
     }
 
-    private WeeklySummary analyzeWeeklyData(List<Transaction> transactions, List<Budget> budgets) {
-        double totalIncome = transactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.INCOME)
-            .mapToDouble(Transaction::getAmount)
-            .sum();
+    public MonthlySummary generateMonthlySummary(AnalysisContext context, List<Budget> budgets) {
+        long monthAgo = context.getNow() - (30L * 24 * 60 * 60 * 1000);
         
-        double totalExpenses = transactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .mapToDouble(Transaction::getAmount)
-            .sum();
+        return analyzeMonthlyData(context, monthAgo + 1, budgets);
+    }
+
+    private WeeklySummary analyzeWeeklyData(AnalysisContext context, long from, List<Budget> budgets) {
+        double totalIncome = context.getIncome().total(from, Long.MAX_VALUE);
+        double totalExpenses = context.getExpenses().total(from, Long.MAX_VALUE);
         
         double netSavings = totalIncome - totalExpenses;
         
         // Analyze spending by category
-        Map<String, Double> categorySpending = transactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .collect(Collectors.groupingBy(
-                Transaction::getCategory,
-                Collectors.summingDouble(Transaction::getAmount)
-            ));
+        Map<String, Double> categorySpending = context.categoryTotals(from, Long.MAX_VALUE);
         
         // Find top spending category
         String topCategory = categorySpending.entrySet().stream()
@@ -74,14 +60,14 @@ public class SummaryGenerator {
         double topCategoryAmount = categorySpending.getOrDefault(topCategory, 0.0);
         
         // Analyze budget performance
-        List<BudgetPerformance> budgetPerformances = analyzeBudgetPerformance(budgets, transactions);
+        List<BudgetPerformance> budgetPerformances = analyzeBudgetPerformance(budgets, context, from);
         
         // Generate insights
         List<String> insights = generateWeeklyInsights(totalIncome, totalExpenses, netSavings, 
                                                      categorySpending, budgetPerformances);
         
         // Calculate comparison with previous week
-        WeeklyComparison comparison = calculateWeeklyComparison(transactions);
+        WeeklyComparison comparison = calculateWeeklyComparison(context);
         
         return new WeeklySummary(
             totalIncome, totalExpenses, netSavings, categorySpending,
@@ -89,53 +75,37 @@ public class SummaryGenerator {
         );
     }
 
-    private MonthlySummary analyzeMonthlyData(List<Transaction> transactions, List<Budget> budgets) {
-        double totalIncome = transactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.INCOME)
-            .mapToDouble(Transaction::getAmount)
-            .sum();
-        
-        double totalExpenses = transactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .mapToDouble(Transaction::getAmount)
-            .sum();
+    private MonthlySummary analyzeMonthlyData(AnalysisContext context, long from, List<Budget> budgets) {
+        double totalIncome = context.getIncome().total(from, Long.MAX_VALUE);
+        double totalExpenses = context.getExpenses().total(from, Long.MAX_VALUE);
         
         double netSavings = totalIncome - totalExpenses;
         double savingsRate = totalIncome > 0 ? (netSavings / totalIncome) * 100 : 0;
         
         // Daily spending analysis
-        Map<String, Double> dailySpending = analyzeDailySpending(transactions);
+        Map<String, Double> dailySpending = analyzeDailySpending(context, from);
         double avgDailySpending = dailySpending.values().stream()
             .mapToDouble(Double::doubleValue)
             .average()
             .orElse(0.0);
         
         // Category analysis
-        Map<String, Double> categorySpending = transactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .collect(Collectors.groupingBy(
-                Transaction::getCategory,
-                Collectors.summingDouble(Transaction::getAmount)
-            ));
+        Map<String, Double> categorySpending = context.categoryTotals(from, Long.MAX_VALUE);
         
         return new MonthlySummary(
             totalIncome, totalExpenses, netSavings, savingsRate,
             categorySpending, dailySpending, avgDailySpending,
-            transactions.size(), generateMonthlyInsights(totalIncome, totalExpenses, savingsRate)
+            context.countSince(from), generateMonthlyInsights(totalIncome, totalExpenses, savingsRate)
         );
     }
 
-    private List<BudgetPerformance> analyzeBudgetPerformance(List<Budget> budgets, List<Transaction> transactions) {
+    private List<BudgetPerformance> analyzeBudgetPerformance(List<Budget> budgets, AnalysisContext context, long from) {
         List<BudgetPerformance> performances = new ArrayList<>();
         
         for (Budget budget : budgets) {
             if (!budget.isActive()) continue;
             
-            double spent = transactions.stream()
-                .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-                .filter(t -> t.getCategory().equals(budget.getCategory()))
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+            double spent = context.categoryTotal(budget.getCategory(), from, Long.MAX_VALUE);
             
             double percentUsed = (spent / budget.getBudgetAmount()) * 100;
             BudgetStatus status = determineBudgetStatus(percentUsed);
@@ -208,22 +178,14 @@ public class SummaryGenerator {
         return insights;
     }
 
-    private WeeklyComparison calculateWeeklyComparison(List<Transaction> allTransactions) {
-        long now = System.currentTimeMillis();
-        long thisWeekStart = now - (7L * 24 * 60 * 60 * 1000);
+    private WeeklyComparison calculateWeeklyComparison(AnalysisContext context) {
+        long thisWeekStart = context.getNow() - (7L * 24 * 60 * 60 * 1000);
         long lastWeekStart = thisWeekStart - (7L * 24 * 60 * 60 * 1000);
         
-        double thisWeekSpending = allTransactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .filter(t -> t.getDate().getTime() > thisWeekStart)
-            .mapToDouble(Transaction::getAmount)
-            .sum();
-        
-        double lastWeekSpending = allTransactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .filter(t -> t.getDate().getTime() > lastWeekStart && t.getDate().getTime() <= thisWeekStart)
-            .mapToDouble(Transaction::getAmount)
-            .sum();
+        // Each week is the half-open range (start, end]
+        AnalysisContext.Series expenses = context.getExpenses();
+        double thisWeekSpending = expenses.total(thisWeekStart + 1, Long.MAX_VALUE);
+        double lastWeekSpending = expenses.total(lastWeekStart + 1, thisWeekStart + 1);
         
         double changePercent = lastWeekSpending > 0 ? 
             ((thisWeekSpending - lastWeekSpending) / lastWeekSpending) * 100 : 0;
@@ -231,13 +193,26 @@ public class SummaryGenerator {
         return new WeeklyComparison(thisWeekSpending, lastWeekSpending, changePercent);
     }
 
-    private Map<String, Double> analyzeDailySpending(List<Transaction> transactions) {
-        return transactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .collect(Collectors.groupingBy(
-                t -> dateFormat.format(t.getDate()),
-                Collectors.summingDouble(Transaction::getAmount)
-            ));
+    private Map<String, Double> analyzeDailySpending(AnalysisContext context, long from) {
+        Map<String, Double> dailySpending = new HashMap<>();
+        double[] daily = context.getDailyExpenses();
+        long firstDay = context.getFirstDay();
+        long openingDay = context.dayOf(from);
+        
+        // The window opens mid-day; leave out that day's expenses from before it
+        AnalysisContext.Series expenses = context.getExpenses();
+        double openingDayExcluded = 0;
+        for (int i = expenses.indexOf(from) - 1; i >= 0 && context.dayOf(expenses.timeAt(i)) == openingDay; i--) {
+            openingDayExcluded += expenses.get(i).getAmount();
+        }
+        
+        for (int i = (int) Math.max(0, openingDay - firstDay); i < daily.length; i++) {
+            double spent = firstDay + i == openingDay ? daily[i] - openingDayExcluded : daily[i];
+            if (spent != 0) {
+                dailySpending.put(dateFormat.format(new Date(context.startOfDay(firstDay + i))), spent);
+            }
+        }
+        return dailySpending;
     }
 
     private void triggerWeeklySummaryNotification(WeeklySummary summary) {
@@ -0,0 +1,112 @@
+package com.budgetwise.ai;
+
+import com.budgetwise.data.models.Budget;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps a detector that only looks at a trailing window (the last month, the current budget
+ * periods). Its result is cached under a key of the module's input version and the local day,
+ * and recomputed from the run's shared context only when that key moves: a change landed
+ * inside the window, the budgets changed, or a new day slid the window. Changes to older
+ * history never touch it. The window only moves forward, so a change outside it stays
+ * irrelevant.
+ */
+class WindowedModule<R> implements IncrementalModule {
+
+    interface Window {
+        /** Returns the earliest time the analysis reads; the context holds at least everything after it. */
+        long start(long now, List<Budget> budgets);
+    }
+
+    interface Analysis<R> {
+        R analyze(AnalysisContext context, List<Budget> budgets);
+    }
+
+    private final Window window;
+    private final Analysis<R> analysis;
+    private final boolean usesBudgets;
+    private List<Budget> budgets = new ArrayList<>();
+    // Bumped by every change this module's result depends on
+    private long inputVersion;
+    // Key the cached result was computed under; -1 when nothing is cached
+    private long cachedInputVersion = -1;
+    private long cachedDay;
+    private long resultVersion;
+    private R result;
+
+    WindowedModule(Window window, boolean usesBudgets, Analysis<R> analysis) {
+        this.window = window;
+        this.usesBudgets = usesBudgets;
+        this.analysis = analysis;
+    }
+
+    /** A window of the last {@code days} days. */
+    static Window lastDays(int days) {
+        long span = TimeUnit.DAYS.toMillis(days);
+        return (now, budgets) -> now - span;
+    }
+
+    @Override
+    public void reset() {
+        inputVersion++;
+    }
+
+    @Override
+    public void add(LedgerEntry entry, boolean replay) {
+        touch(entry);
+    }
+
+    @Override
+    public void remove(LedgerEntry entry) {
+        touch(entry);
+    }
+
+    private void touch(LedgerEntry entry) {
+        if (inputVersion == cachedInputVersion && entry.time >= window.start(System.currentTimeMillis(), budgets)) {
+            inputVersion++;
+        }
+    }
+
+    @Override
+    public void onBudgetsChanged(List<Budget> budgets) {
+        this.budgets = budgets;
+        if (usesBudgets) {
+            inputVersion++;
+        }
+    }
+
+    private boolean isStale(long now) {
+        return inputVersion != cachedInputVersion || AnalysisContext.localDay(now) != cachedDay;
+    }
+
+    @Override
+    public boolean readsContext() {
+        return true;
+    }
+
+    @Override
+    public long contextStart(long now) {
+        return isStale(now) ? window.start(now, budgets) : Long.MAX_VALUE;
+    }
+
+    @Override
+    public void refresh(AnalysisContext context) {
+        if (isStale(context.getNow())) {
+            result = analysis.analyze(context, budgets);
+            cachedInputVersion = inputVersion;
+            cachedDay = AnalysisContext.localDay(context.getNow());
+            resultVersion++;
+        }
+    }
+
+    @Override
+    public long getVersion() {
+        return resultVersion;
+    }
+
+    R getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,125 @@
+package com.budgetwise.backup;
+
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Encrypted sidecar index of every backup in the folder, so the restore picker can list and
+ * describe hundreds of backups after decrypting one small file. Entries are keyed by file
+ * name and trusted only while the file's size and modification time still match; anything
+ * else is re-read from the file's authenticated header.
+ */
+class BackupCatalog {
+    private static final String TAG = "BackupCatalog";
+    static final String CATALOG_FILE_NAME = "catalog.bwi";
+
+    private final File catalogFile;
+    private final BackupWriter backupWriter;
+    private final BackupRestorer backupRestorer;
+    private final Map<String, BackupInfo> entries = new HashMap<>();
+    private boolean dirty;
+
+    BackupCatalog(File backupDir, BackupWriter backupWriter, BackupRestorer backupRestorer) {
+        this.catalogFile = new File(backupDir, CATALOG_FILE_NAME);
+        this.backupWriter = backupWriter;
+        this.backupRestorer = backupRestorer;
+        load();
+    }
+
+    private void load() {
+        if (!catalogFile.exists()) return;
+        try {
+            for (BackupInfo info : backupRestorer.readCatalog(catalogFile)) {
+                if (info.getFileName() != null) {
+                    entries.put(info.getFileName(), info);
+                }
+            }
+        } catch (IOException e) {
+            // A damaged catalog is rebuilt from the file headers
+            Log.w(TAG, "Discarding unreadable backup catalog", e);
+            dirty = true;
+        }
+    }
+
+    void put(BackupInfo info) {
+        entries.put(info.getFileName(), info);
+        dirty = true;
+    }
+
+    /**
+     * Returns the description of every given file, reading headers only for files the
+     * catalog does not know or that changed since they were indexed.
+     */
+    List<BackupInfo> describe(File[] backupFiles) {
+        Set<String> present = new HashSet<>();
+        List<BackupInfo> result = new ArrayList<>();
+        for (File file : backupFiles) {
+            present.add(file.getName());
+            BackupInfo info = entries.get(file.getName());
+            if (info == null || info.getSizeBytes() != file.length() || info.getLastModified() != file.lastModified()) {
+                info = index(file);
+                put(info);
+            }
+            result.add(info);
+        }
+        if (entries.keySet().retainAll(present)) {
+            dirty = true;
+        }
+        return result;
+    }
+
+    /** Drops entries whose files no longer exist. */
+    void retain(File[] backupFiles) {
+        Set<String> present = new HashSet<>();
+        for (File file : backupFiles) {
+            present.add(file.getName());
+        }
+        if (entries.keySet().retainAll(present)) {
+            dirty = true;
+        }
+    }
+
+    /** Returns the chunk hashes a manifest refers to, or null if the catalog doesn't know. */
+    List<String> getChunkHashes(File manifest) {
+        BackupInfo info = entries.get(manifest.getName());
+        if (info == null || info.getSizeBytes() != manifest.length()) {
+            return null;
+        }
+        return info.getChunkHashes();
+    }
+
+    void save() {
+        if (!dirty) return;
+        try {
+            backupWriter.writeCatalog(catalogFile, new ArrayList<>(entries.values()));
+            dirty = false;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to save backup catalog", e);
+        }
+    }
+
+    private BackupInfo index(File file) {
+        BackupInfo info = null;
+        try {
+            info = backupRestorer.readInfo(file);
+        } catch (IOException e) {
+            Log.w(TAG, "Unreadable backup header: " + file.getName(), e);
+        }
+        if (info == null) {
+            // Older files carry no header; describe them from the file name alone
+            BackupChain.Entry entry = BackupChain.parse(file);
+            info = new BackupInfo(entry.full ? BackupChain.KIND_FULL : BackupChain.KIND_DELTA, entry.time,
+                null, null, entry.baseSeq, entry.seq, -1, -1, -1, 0, 0);
+        }
+        // The checksum is only known for files indexed when they were written
+        info.setFileDetails(file.getName(), file.length(), file.lastModified(), null);
+        return info;
+    }
+}
@@ -0,0 +1,158 @@
+package com.budgetwise.backup;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Groups backup files into chains: a full snapshot followed by the deltas written on top of
+ * it. The kind and sequence range are encoded in the file name
+ * (backup_&lt;time&gt;_full_&lt;seq&gt;, backup_&lt;time&gt;_delta_&lt;base&gt;-&lt;seq&gt;), so chains
+ * can be resolved without decrypting anything. Files from older versions are standalone
+ * full backups.
+ * <p>
+ * Sequence numbers start over when the app is reinstalled, so names also carry the id of
+ * the install that wrote them (_i&lt;id&gt;) and a delta only continues a chain of its own
+ * install. Names without an id belong to one unnamed install.
+ */
+final class BackupChain {
+    static final String KIND_FULL = "full";
+    static final String KIND_DELTA = "delta";
+
+    static final String TIME_FORMAT = "yyyyMMdd_HHmmss";
+
+    private static final Pattern TIME_NAME = Pattern.compile("backup_(\\d{8}_\\d{6})");
+    private static final Pattern FULL_NAME = Pattern.compile(".*_full_(\\d+)(?:_i([0-9a-f]+))?\\.[a-z]+$");
+    private static final Pattern DELTA_NAME = Pattern.compile(".*_delta_(\\d+)-(\\d+)(?:_i([0-9a-f]+))?\\.[a-z]+$");
+
+    private BackupChain() {}
+
+    static final class Entry {
+        final File file;
+        final boolean full;
+        final long baseSeq;
+        // -1 for legacy backups that predate change sequencing
+        final long seq;
+        // When the backup was taken, from the file name (falls back to the modification time)
+        final long time;
+        // The install that wrote it; empty for names without one
+        final String install;
+
+        Entry(File file, boolean full, long baseSeq, long seq, String install) {
+            this.file = file;
+            this.full = full;
+            this.baseSeq = baseSeq;
+            this.seq = seq;
+            this.time = parseTime(file);
+            this.install = install != null ? install : "";
+        }
+
+        // Sequence numbers are only unique within one install
+        private String seqKey(long sequence) {
+            return install + ":" + sequence;
+        }
+    }
+
+    private static long parseTime(File file) {
+        Matcher matcher = TIME_NAME.matcher(file.getName());
+        if (matcher.lookingAt()) {
+            try {
+                return new SimpleDateFormat(TIME_FORMAT, Locale.US).parse(matcher.group(1)).getTime();
+            } catch (ParseException e) {
+                // Fall through to the modification time
+            }
+        }
+        return file.lastModified();
+    }
+
+    static String fileNameSuffix(String kind, long baseSeq, long seq, String install) {
+        return (KIND_FULL.equals(kind) ? "_full_" + seq : "_delta_" + baseSeq + "-" + seq) + "_i" + install;
+    }
+
+    static Entry parse(File file) {
+        String name = file.getName();
+        Matcher delta = DELTA_NAME.matcher(name);
+        if (delta.matches()) {
+            return new Entry(file, false, Long.parseLong(delta.group(1)), Long.parseLong(delta.group(2)),
+                delta.group(3));
+        }
+        Matcher full = FULL_NAME.matcher(name);
+        if (full.matches()) {
+            return new Entry(file, true, 0, Long.parseLong(full.group(1)), full.group(2));
+        }
+        return new Entry(file, true, 0, -1, null);
+    }
+
+    /**
+     * Builds every chain, oldest first. Each chain starts with its full snapshot and follows
+     * deltas of the same install whose base is the previous tip. Deltas that no chain reaches
+     * are left out.
+     */
+    static List<List<Entry>> chains(File[] files) {
+        List<Entry> fulls = new ArrayList<>();
+        Map<String, Entry> deltasByBase = new HashMap<>();
+        for (File file : files) {
+            Entry entry = parse(file);
+            if (entry.full) {
+                fulls.add(entry);
+            } else {
+                Entry existing = deltasByBase.get(entry.seqKey(entry.baseSeq));
+                if (existing == null || entry.seq > existing.seq) {
+                    deltasByBase.put(entry.seqKey(entry.baseSeq), entry);
+                }
+            }
+        }
+        Collections.sort(fulls, (a, b) -> a.seq != b.seq
+            ? Long.compare(a.seq, b.seq)
+            : Long.compare(a.file.lastModified(), b.file.lastModified()));
+
+        List<List<Entry>> chains = new ArrayList<>();
+        for (Entry full : fulls) {
+            List<Entry> chain = new ArrayList<>();
+            chain.add(full);
+            if (full.seq >= 0) {
+                Entry next = deltasByBase.get(full.seqKey(full.seq));
+                while (next != null) {
+                    chain.add(next);
+                    next = deltasByBase.get(next.seqKey(next.seq));
+                }
+            }
+            chains.add(chain);
+        }
+        return chains;
+    }
+
+    /** Returns the files needed to restore {@code target}: its full snapshot, then each delta in order. */
+    static List<Entry> resolve(File target, File[] files) throws IOException {
+        Map<String, Entry> bySeq = new HashMap<>();
+        for (File file : files) {
+            Entry entry = parse(file);
+            if (entry.seq >= 0) {
+                bySeq.put(entry.seqKey(entry.seq), entry);
+            }
+        }
+
+        List<Entry> path = new ArrayList<>();
+        Entry current = parse(target);
+        path.add(current);
+        while (!current.full) {
+            Entry base = bySeq.get(current.seqKey(current.baseSeq));
+            if (base == null || base.seq >= current.seq) {
+                throw new IOException("Backup chain is incomplete: missing base for " + current.file.getName());
+            }
+            current = base;
+            path.add(current);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+}
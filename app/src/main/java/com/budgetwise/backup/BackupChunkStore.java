@@ -0,0 +1,134 @@
+package com.budgetwise.backup;
+
+import android.util.Log;
+import com.budgetwise.data.models.Budget;
+import com.budgetwise.data.models.Transaction;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Content-addressed store for full backups. A snapshot is split into one chunk per month
+ * of transactions plus one for budgets; each chunk is named by the SHA-256 of its
+ * plaintext and written (encrypted) only if no chunk with that hash exists yet. Older
+ * months rarely change, so successive snapshots share almost all of their chunks.
+ */
+class BackupChunkStore {
+    private static final String TAG = "BackupChunkStore";
+    private static final String CHUNK_FOLDER = "chunks";
+    private static final String CHUNK_EXTENSION = ".bwc";
+
+    private final File chunkDir;
+    private final BackupWriter backupWriter;
+
+    BackupChunkStore(File backupDir, BackupWriter backupWriter) {
+        this.chunkDir = new File(backupDir, CHUNK_FOLDER);
+        this.backupWriter = backupWriter;
+    }
+
+    File getChunkFile(String hash) {
+        return new File(chunkDir, hash + CHUNK_EXTENSION);
+    }
+
+    /** Stores the chunks of a snapshot that are not present yet and returns the full chunk list. */
+    List<ChunkRef> storeSnapshot(List<Transaction> transactions, List<Budget> budgets) throws IOException {
+        if (!chunkDir.exists() && !chunkDir.mkdirs()) {
+            throw new IOException("Failed to create chunk directory");
+        }
+
+        // Group by month; records are ordered by id so unchanged months hash identically
+        SimpleDateFormat monthFormat = new SimpleDateFormat("yyyy-MM", Locale.US);
+        Map<String, List<Transaction>> byMonth = new TreeMap<>();
+        for (Transaction transaction : transactions) {
+            String month = monthFormat.format(transaction.getDate());
+            List<Transaction> monthTransactions = byMonth.get(month);
+            if (monthTransactions == null) {
+                monthTransactions = new ArrayList<>();
+                byMonth.put(month, monthTransactions);
+            }
+            monthTransactions.add(transaction);
+        }
+
+        List<ChunkRef> chunks = new ArrayList<>();
+        int written = 0;
+        for (Map.Entry<String, List<Transaction>> entry : byMonth.entrySet()) {
+            List<Transaction> monthTransactions = entry.getValue();
+            Collections.sort(monthTransactions, (a, b) -> a.getId().compareTo(b.getId()));
+            byte[] payload = backupWriter.serializeChunk(monthTransactions, Collections.<Budget>emptyList());
+            ChunkRef ref = new ChunkRef(sha256(payload), ChunkRef.TYPE_TRANSACTIONS,
+                entry.getKey(), monthTransactions.size());
+            if (store(ref, payload)) written++;
+            chunks.add(ref);
+        }
+
+        List<Budget> sortedBudgets = new ArrayList<>(budgets);
+        Collections.sort(sortedBudgets, (a, b) -> a.getId().compareTo(b.getId()));
+        byte[] payload = backupWriter.serializeChunk(Collections.<Transaction>emptyList(), sortedBudgets);
+        ChunkRef budgetRef = new ChunkRef(sha256(payload), ChunkRef.TYPE_BUDGETS, null, sortedBudgets.size());
+        if (store(budgetRef, payload)) written++;
+        chunks.add(budgetRef);
+
+        Log.d(TAG, "Snapshot stored: " + chunks.size() + " chunks, " + written + " new");
+        return chunks;
+    }
+
+    private boolean store(ChunkRef ref, byte[] payload) throws IOException {
+        File chunkFile = getChunkFile(ref.hash);
+        if (chunkFile.exists()) {
+            return false;
+        }
+        backupWriter.writeChunk(chunkFile, payload);
+        return true;
+    }
+
+    /**
+     * Deletes every chunk that no retained manifest references, plus leftovers of
+     * interrupted writes.
+     *
+     * @return the number of files deleted
+     */
+    int collectGarbage(Set<String> referencedHashes) {
+        File[] files = chunkDir.listFiles();
+        if (files == null) return 0;
+
+        int deleted = 0;
+        for (File file : files) {
+            String name = file.getName();
+            boolean referenced = name.endsWith(CHUNK_EXTENSION) &&
+                referencedHashes.contains(name.substring(0, name.length() - CHUNK_EXTENSION.length()));
+            if (!referenced && file.delete()) {
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            Log.d(TAG, "Removed " + deleted + " unreferenced chunks");
+        }
+        return deleted;
+    }
+
+    static String sha256(byte[] data) {
+        try {
+            return toHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
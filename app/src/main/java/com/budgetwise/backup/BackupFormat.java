@@ -0,0 +1,128 @@
+package com.budgetwise.backup;
+
+import com.budgetwise.security.EncryptionManager;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+
+/**
+ * Binary layout of streaming backup files:
+ * [magic "BWBK"][format version: 1 byte][key version: int] followed by the
+ * deflated JSON payload as AES-GCM segments (see SegmentedCipherOutputStream).
+ * Version 3 inserts a metadata block after the key version:
+ * [metadata length: int][IV][AES-GCM(metadata JSON)], authenticated against the
+ * preceding bytes, so a backup can be described after decrypting a few hundred bytes.
+ * The header bytes are bound into every segment as associated data.
+ */
+final class BackupFormat {
+    static final byte[] MAGIC = {'B', 'W', 'B', 'K'};
+    static final int FORMAT_VERSION = 3;
+    static final String FILE_EXTENSION = ".bwb";
+    static final String LEGACY_FILE_EXTENSION = ".json";
+
+    private static final int FORMAT_VERSION_NO_METADATA = 2;
+    private static final int PREFIX_LENGTH = MAGIC.length + 5;
+    private static final int MAX_METADATA_LENGTH = 64 * 1024;
+
+    private BackupFormat() {}
+
+    static final class Header {
+        final int formatVersion;
+        final int keyVersion;
+        final byte[] bytes;
+        // Decrypted metadata JSON; null for version 2 files
+        final byte[] metadata;
+
+        Header(int formatVersion, int keyVersion, byte[] bytes, byte[] metadata) {
+            this.formatVersion = formatVersion;
+            this.keyVersion = keyVersion;
+            this.bytes = bytes;
+            this.metadata = metadata;
+        }
+    }
+
+    static Header newHeader(EncryptionManager encryptionManager, int keyVersion, byte[] metadata)
+            throws IOException {
+        ByteBuffer prefix = ByteBuffer.allocate(PREFIX_LENGTH + 4)
+            .put(MAGIC)
+            .put((byte) FORMAT_VERSION)
+            .putInt(keyVersion);
+        try {
+            Cipher cipher = encryptionManager.createEncryptCipher(keyVersion);
+            int sealedLength = cipher.getOutputSize(metadata.length);
+            prefix.putInt(EncryptionManager.getIvLength() + sealedLength);
+            cipher.updateAAD(prefix.array());
+            byte[] sealed = cipher.doFinal(metadata);
+
+            byte[] bytes = ByteBuffer.allocate(prefix.capacity() + EncryptionManager.getIvLength() + sealed.length)
+                .put(prefix.array())
+                .put(cipher.getIV())
+                .put(sealed)
+                .array();
+            return new Header(FORMAT_VERSION, keyVersion, bytes, metadata);
+        } catch (Exception e) {
+            throw new IOException("Failed to seal backup metadata", e);
+        }
+    }
+
+    static void writeHeader(OutputStream out, Header header) throws IOException {
+        new DataOutputStream(out).write(header.bytes);
+    }
+
+    static Header readHeader(InputStream in, EncryptionManager encryptionManager) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] prefix = new byte[PREFIX_LENGTH];
+        data.readFully(prefix);
+        if (!Arrays.equals(Arrays.copyOf(prefix, MAGIC.length), MAGIC)) {
+            throw new IOException("Not a BudgetWise backup file");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(prefix, MAGIC.length, 5);
+        int formatVersion = buffer.get() & 0xFF;
+        int keyVersion = buffer.getInt();
+        if (formatVersion == FORMAT_VERSION_NO_METADATA) {
+            return new Header(formatVersion, keyVersion, prefix, null);
+        }
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported backup format version " + formatVersion);
+        }
+
+        int blockLength = data.readInt();
+        int ivLength = EncryptionManager.getIvLength();
+        if (blockLength <= ivLength || blockLength > MAX_METADATA_LENGTH) {
+            throw new IOException("Invalid backup metadata length " + blockLength);
+        }
+        byte[] block = new byte[blockLength];
+        data.readFully(block);
+
+        byte[] bytes = ByteBuffer.allocate(PREFIX_LENGTH + 4 + blockLength)
+            .put(prefix)
+            .putInt(blockLength)
+            .put(block)
+            .array();
+        try {
+            Cipher cipher = encryptionManager.createDecryptCipher(keyVersion, Arrays.copyOf(block, ivLength));
+            cipher.updateAAD(bytes, 0, PREFIX_LENGTH + 4);
+            byte[] metadata = cipher.doFinal(block, ivLength, blockLength - ivLength);
+            return new Header(formatVersion, keyVersion, bytes, metadata);
+        } catch (Exception e) {
+            throw new IOException("Backup metadata failed authentication", e);
+        }
+    }
+
+    /** Returns true if the file starts with the streaming format magic. */
+    static boolean hasMagic(InputStream in) throws IOException {
+        byte[] start = new byte[MAGIC.length];
+        int read = 0;
+        while (read < start.length) {
+            int count = in.read(start, read, start.length - read);
+            if (count < 0) return false;
+            read += count;
+        }
+        return Arrays.equals(start, MAGIC);
+    }
+}
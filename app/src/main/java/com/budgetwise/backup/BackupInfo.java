@@ -0,0 +1,80 @@
+package com.budgetwise.backup;
+
+import java.util.List;
+
+/**
+ * Describes a backup without its records: what it covers, when and by which app version it
+ * was written, and how to verify the file. Stored encrypted in each file's header and in
+ * the backup catalog.
+ */
+public class BackupInfo {
+    // From the authenticated file header
+    private String kind;
+    private long timestamp;
+    private String schemaVersion;
+    private String appVersion;
+    private long baseSeq;
+    private long seq;
+    private int transactionCount;
+    private int budgetCount;
+    private int tombstoneCount;
+    private long firstTransactionDate;
+    private long lastTransactionDate;
+
+    // Filled in by the catalog
+    private String fileName;
+    private long sizeBytes;
+    private long lastModified;
+    private String checksum;
+    // Chunks a full manifest refers to, so garbage collection needs no decryption
+    private List<String> chunkHashes;
+
+    BackupInfo() {
+    }
+
+    BackupInfo(String kind, long timestamp, String schemaVersion, String appVersion, long baseSeq, long seq,
+               int transactionCount, int budgetCount, int tombstoneCount,
+               long firstTransactionDate, long lastTransactionDate) {
+        this.kind = kind;
+        this.timestamp = timestamp;
+        this.schemaVersion = schemaVersion;
+        this.appVersion = appVersion;
+        this.baseSeq = baseSeq;
+        this.seq = seq;
+        this.transactionCount = transactionCount;
+        this.budgetCount = budgetCount;
+        this.tombstoneCount = tombstoneCount;
+        this.firstTransactionDate = firstTransactionDate;
+        this.lastTransactionDate = lastTransactionDate;
+    }
+
+    void setFileDetails(String fileName, long sizeBytes, long lastModified, String checksum) {
+        this.fileName = fileName;
+        this.sizeBytes = sizeBytes;
+        this.lastModified = lastModified;
+        this.checksum = checksum;
+    }
+
+    void setChunkHashes(List<String> chunkHashes) {
+        this.chunkHashes = chunkHashes;
+    }
+
+    // Getters
+    public String getKind() { return kind; }
+    public boolean isFull() { return !BackupChain.KIND_DELTA.equals(kind); }
+    public long getTimestamp() { return timestamp; }
+    public String getSchemaVersion() { return schemaVersion; }
+    public String getAppVersion() { return appVersion; }
+    public long getBaseSeq() { return baseSeq; }
+    public long getSeq() { return seq; }
+    public int getTransactionCount() { return transactionCount; }
+    public int getBudgetCount() { return budgetCount; }
+    public int getTombstoneCount() { return tombstoneCount; }
+    public long getFirstTransactionDate() { return firstTransactionDate; }
+    public long getLastTransactionDate() { return lastTransactionDate; }
+    public String getFileName() { return fileName; }
+    public long getSizeBytes() { return sizeBytes; }
+    public long getLastModified() { return lastModified; }
+    public String getChecksum() { return checksum; }
+    public List<String> getChunkHashes() { return chunkHashes; }
+}
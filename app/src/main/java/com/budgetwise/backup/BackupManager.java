@@ -1,37 +1,57 @@
 package com.budgetwise.backup;
 
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.os.Environment;
+import android.os.SystemClock;
 import android.util.Log;
-import com.budgetwise.data.models.Budget;
-import com.budgetwise.data.models.Transaction;
 import com.budgetwise.data.repository.BudgetRepository;
+import com.budgetwise.data.repository.ChangeSet;
 import com.budgetwise.security.EncryptionManager;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.security.SecureRandom;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class BackupManager {
     private static final String TAG = "BackupManager";
     private static final String BACKUP_FOLDER = "BudgetWise";
     private static final String BACKUP_FILE_PREFIX = "backup_";
-    private static final String BACKUP_FILE_EXTENSION = ".json";
-    private static final int MAX_BACKUP_FILES = 3;
+    // A new full snapshot is written once a chain holds this many backups
+    private static final int FULL_SNAPSHOT_INTERVAL = 7;
+    static final String BACKUP_DATA_VERSION = "2.0";
+    private static final long LOAD_TIMEOUT_SECONDS = 30;
+
+    // Plain preferences: the stats describe backups, not their contents
+    private static final String STATS_PREFS_NAME = "BudgetWiseBackupStats";
+    private static final String KEY_LAST_FILE = "last_backup_file";
+    private static final String KEY_LAST_SEQ = "last_backup_seq";
+    private static final String KEY_LAST_TIME = "last_backup_time";
+    private static final String KEY_LAST_DURATION = "last_backup_duration_ms";
+    private static final String KEY_LAST_SIZE = "last_backup_size";
+    // Cleared with the app's data, so a reinstall gets a new id and starts its own chains
+    private static final String KEY_INSTALL_ID = "backup_install_id";
     
     private final Context context;
     private final BudgetRepository repository;
     private final EncryptionManager encryptionManager;
     private final ExecutorService executorService;
     private final Gson gson;
+    private final BackupWriter backupWriter;
+    private final BackupRestorer backupRestorer;
 
     public BackupManager(Context context, BudgetRepository repository, EncryptionManager encryptionManager) {
         this.context = context;
@@ -39,9 +59,10 @@ public class BackupManager {
         this.encryptionManager = encryptionManager;
         this.executorService = Executors.newSingleThreadExecutor();
         this.gson = new GsonBuilder()
-            .setPrettyPrinting()
             .setDateFormat("yyyy-MM-dd HH:mm:ss")
             .create();
+        this.backupWriter = new BackupWriter(encryptionManager, gson);
+        this.backupRestorer = new BackupRestorer(encryptionManager, gson);
     }
 
     public interface BackupCallback {
@@ -49,36 +70,17 @@ public class BackupManager {
         void onError(String error);
     }
 
+    /**
+     * Writes an incremental backup containing only the changes since the newest backup, or
+     * a full snapshot when there is no usable chain, the chain already has
+     * {@link #FULL_SNAPSHOT_INTERVAL} entries, or the changes can't be expressed as a delta.
+     * Nothing is written when the repository has not changed since the last backup.
+     */
     public void createBackup(BackupCallback callback) {
         executorService.execute(() -> {
             try {
-                // Create backup data structure
-                BackupData backupData = new BackupData();
-                backupData.transactions = repository.getCachedTransactions();
-                backupData.budgets = repository.getCachedBudgets();
-                backupData.timestamp = System.currentTimeMillis();
-                backupData.version = "1.0";
-
-                // Convert to JSON
-                String jsonData = gson.toJson(backupData);
-                
-                // Encrypt the data
-                String encryptedData = encryptionManager.encrypt(jsonData);
-                
-                // Create backup file
-                File backupFile = createBackupFile();
-                
-                // Write encrypted data to file
-                try (FileWriter writer = new FileWriter(backupFile)) {
-                    writer.write(encryptedData);
-                }
-                
-                // Clean up old backups
-                cleanupOldBackups();
-                
-                Log.d(TAG, "Backup created successfully: " + backupFile.getAbsolutePath());
-                callback.onSuccess(backupFile.getAbsolutePath());
-                
+                BackupRun run = performBackup();
+                callback.onSuccess(run.file.getAbsolutePath());
             } catch (Exception e) {
                 Log.e(TAG, "Failed to create backup", e);
                 callback.onError("Failed to create backup: " + e.getMessage());
@@ -86,7 +88,163 @@ public class BackupManager {
         });
     }
 
+    /**
+     * Blocking variant of {@link #createBackup} for background jobs. The backup still runs on
+     * the backup thread, so it never overlaps a manual backup or a restore.
+     *
+     * @return the new backup, or null if nothing changed since the last one
+     */
+    public BackupInfo createBackupBlocking() throws Exception {
+        try {
+            return executorService.submit(() -> performBackup().info).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /** Returns true if the newest recorded backup already covers the repository's current state. */
+    public boolean isBackupUpToDate() {
+        SharedPreferences stats = getStats();
+        String fileName = stats.getString(KEY_LAST_FILE, null);
+        return fileName != null
+            && stats.getLong(KEY_LAST_SEQ, -1) == repository.getChangeSequence()
+            && new File(getBackupDir(), fileName).exists();
+    }
+
+    /** Wall-clock time of the last backup written, or 0 if none was recorded. */
+    public long getLastBackupTime() {
+        return getStats().getLong(KEY_LAST_TIME, 0);
+    }
+
+    private static final class BackupRun {
+        final File file;
+        // Null when the latest backup already matched the repository
+        final BackupInfo info;
+
+        BackupRun(File file, BackupInfo info) {
+            this.file = file;
+            this.info = info;
+        }
+    }
+
+    private BackupRun performBackup() throws Exception {
+        // A job started in a fresh process must not back up a repository that is still loading
+        if (!repository.awaitInitialLoad(LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IOException("Data is still loading");
+        }
+        long started = SystemClock.elapsedRealtime();
+
+        // Only a chain this install wrote can take a delta: another install's sequence numbers
+        // don't describe this repository, however high they are
+        String installId = getInstallId();
+        List<List<BackupChain.Entry>> chains = BackupChain.chains(listBackupFiles());
+        List<BackupChain.Entry> latestChain = null;
+        for (List<BackupChain.Entry> chain : chains) {
+            if (installId.equals(chain.get(0).install)) {
+                latestChain = chain;
+            }
+        }
+        if (latestChain == null && !chains.isEmpty()) {
+            Log.i(TAG, "No backup chain from this install among " + chains.size() + ", starting a new one");
+        }
+        BackupChain.Entry tip = latestChain == null ? null : latestChain.get(latestChain.size() - 1);
+
+        if (tip != null && tip.seq >= 0 && tip.seq == repository.getChangeSequence()) {
+            Log.d(TAG, "No changes since last backup: " + tip.file.getName());
+            return new BackupRun(tip.file, null);
+        }
+
+        ChangeSet changes = null;
+        if (tip != null && tip.seq >= 0 && latestChain.size() < FULL_SNAPSHOT_INTERVAL) {
+            changes = repository.getChangesSince(tip.seq);
+            if (!changes.isComplete() || changes.getSequence() < tip.seq) {
+                changes = null;
+            }
+        }
+        boolean full = changes == null;
+        if (full) {
+            changes = repository.getSnapshot();
+        }
+        String kind = full ? BackupChain.KIND_FULL : BackupChain.KIND_DELTA;
+        
+        // Stream compact, compressed and encrypted JSON straight to the file
+        File backupFile = createBackupFile(BackupChain.fileNameSuffix(
+            kind, changes.getSinceSeq(), changes.getSequence(), installId));
+        BackupInfo info;
+        if (full) {
+            // Full snapshots go to the chunk store; unchanged months are shared with earlier backups
+            List<ChunkRef> chunks = new BackupChunkStore(getBackupDir(), backupWriter)
+                .storeSnapshot(changes.getTransactions(), changes.getBudgets());
+            info = backupWriter.writeManifest(backupFile, changes, chunks, System.currentTimeMillis());
+        } else {
+            info = backupWriter.write(backupFile, changes, kind, System.currentTimeMillis());
+        }
+        
+        if (full) {
+            // Later deltas start from this snapshot, so older deletions need no tracking
+            repository.pruneTombstones(changes.getSequence());
+        }
+        BackupCatalog catalog = openCatalog();
+        catalog.put(info);
+        cleanupOldBackups(catalog);
+        catalog.save();
+
+        long duration = SystemClock.elapsedRealtime() - started;
+        recordBackup(info, duration);
+        Log.d(TAG, "Backup written (" + kind + "): " + info.getSizeBytes() + " bytes for "
+            + changes.getTransactions().size() + " transactions in " + duration + " ms");
+        
+        Log.d(TAG, "Backup created successfully: " + backupFile.getAbsolutePath());
+        return new BackupRun(backupFile, info);
+    }
+
+    private void recordBackup(BackupInfo info, long durationMs) {
+        getStats().edit()
+            .putString(KEY_LAST_FILE, info.getFileName())
+            .putLong(KEY_LAST_SEQ, info.getSeq())
+            .putLong(KEY_LAST_TIME, info.getTimestamp())
+            .putLong(KEY_LAST_DURATION, durationMs)
+            .putLong(KEY_LAST_SIZE, info.getSizeBytes())
+            .apply();
+    }
+
+    private synchronized String getInstallId() {
+        SharedPreferences stats = getStats();
+        String installId = stats.getString(KEY_INSTALL_ID, null);
+        if (installId == null) {
+            installId = Long.toHexString(new SecureRandom().nextLong() >>> 1);
+            stats.edit().putString(KEY_INSTALL_ID, installId).apply();
+        }
+        return installId;
+    }
+
+    private SharedPreferences getStats() {
+        return context.getSharedPreferences(STATS_PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public interface RestoreCallback extends BackupCallback {
+        void onProgress(int percent);
+    }
+
     public void restoreBackup(String filePath, BackupCallback callback) {
+        restoreBackup(filePath, new RestoreCallback() {
+            @Override
+            public void onProgress(int percent) { }
+
+            @Override
+            public void onSuccess(String message) { callback.onSuccess(message); }
+
+            @Override
+            public void onError(String error) { callback.onError(error); }
+        });
+    }
+
+    /**
+     * Decodes and validates the whole backup before anything is written, then replaces
+     * all transactions and budgets in one bulk commit. A corrupt or tampered file leaves
+     * the current data untouched.
+     */
+    public void restoreBackup(String filePath, RestoreCallback callback) {
         executorService.execute(() -> {
             try {
                 File backupFile = new File(filePath);
@@ -95,35 +253,60 @@ public class BackupManager {
                     return;
                 }
 
-                // Read encrypted data from file
-                StringBuilder encryptedData = new StringBuilder();
-                try (FileReader reader = new FileReader(backupFile)) {
-                    char[] buffer = new char[1024];
-                    int length;
-                    while ((length = reader.read(buffer)) != -1) {
-                        encryptedData.append(buffer, 0, length);
+                // Replay the chain: full snapshot first, then each delta on top of it.
+                // Manifests and deltas are small; progress follows the chunk and delta bytes.
+                List<BackupChain.Entry> chain = BackupChain.resolve(backupFile, listBackupFiles());
+                BackupChunkStore chunkStore = new BackupChunkStore(getBackupDir(), backupWriter);
+                List<BackupRestorer.Snapshot> snapshots = new ArrayList<>();
+                long totalBytes = 0;
+                for (BackupChain.Entry entry : chain) {
+                    BackupRestorer.Snapshot snapshot = backupRestorer.read(entry.file, null);
+                    snapshots.add(snapshot);
+                    totalBytes += snapshot.chunks.isEmpty() ? entry.file.length() : 0;
+                    for (ChunkRef ref : snapshot.chunks) {
+                        totalBytes += chunkStore.getChunkFile(ref.hash).length();
                     }
                 }
 
-                // Decrypt the data
-                String jsonData = encryptionManager.decrypt(encryptedData.toString());
-                
-                // Parse JSON
-                BackupData backupData = gson.fromJson(jsonData, BackupData.class);
-                
-                // Validate backup data
-                if (backupData == null || backupData.transactions == null || backupData.budgets == null) {
-                    callback.onError("Invalid backup file format");
-                    return;
+                ChainReplay replay = new ChainReplay();
+                long[] completedBytes = {0};
+                long total = Math.max(1, totalBytes);
+                for (int i = 0; i < chain.size(); i++) {
+                    BackupChain.Entry entry = chain.get(i);
+                    BackupRestorer.Snapshot snapshot = snapshots.get(i);
+                    replay.apply(entry, snapshot);
+                    if (snapshot.chunks.isEmpty()) {
+                        completedBytes[0] += entry.file.length();
+                    }
+                    for (ChunkRef ref : snapshot.chunks) {
+                        File chunkFile = chunkStore.getChunkFile(ref.hash);
+                        if (!chunkFile.exists()) {
+                            throw new IOException("Backup is missing chunk " + ref.hash);
+                        }
+                        long offset = completedBytes[0];
+                        long fileBytes = chunkFile.length();
+                        replay.addChunk(ref, backupRestorer.read(chunkFile, ref.hash, percent ->
+                            callback.onProgress((int) ((offset + fileBytes * percent / 100) * 100 / total))));
+                        completedBytes[0] += fileBytes;
+                    }
+                    callback.onProgress((int) (completedBytes[0] * 100 / total));
                 }
 
-                // Clear existing data and restore from backup
-                // Note: In a real implementation, you might want to ask user for confirmation
-                restoreDataFromBackup(backupData);
+                // Swap repository state in a single write; blocks until it is persisted
+                repository.replaceAll(replay.getTransactions(), replay.getBudgets()).get();
                 
-                Log.d(TAG, "Backup restored successfully from: " + filePath);
+                Log.d(TAG, "Backup restored successfully from: " + filePath + " ("
+                    + chain.size() + " file(s), "
+                    + replay.getTransactions().size() + " transactions, "
+                    + replay.getBudgets().size() + " budgets)");
                 callback.onSuccess("Backup restored successfully");
                 
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Failed to commit restored backup", e.getCause());
+                callback.onError("Failed to restore backup: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                callback.onError("Restore interrupted");
             } catch (Exception e) {
                 Log.e(TAG, "Failed to restore backup", e);
                 callback.onError("Failed to restore backup: " + e.getMessage());
@@ -131,66 +314,83 @@ public class BackupManager {
         });
     }
 
-    private File createBackupFile() throws IOException {
-        // Create backup directory
+    private File getBackupDir() {
         File documentsDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOCUMENTS);
-        File backupDir = new File(documentsDir, BACKUP_FOLDER);
+        return new File(documentsDir, BACKUP_FOLDER);
+    }
+
+    private File[] listBackupFiles() {
+        File[] backupFiles = getBackupDir().listFiles((dir, name) -> isBackupFileName(name));
+        return backupFiles != null ? backupFiles : new File[0];
+    }
+
+    private File createBackupFile(String suffix) throws IOException {
+        // Create backup directory
+        File backupDir = getBackupDir();
         
         if (!backupDir.exists() && !backupDir.mkdirs()) {
             throw new IOException("Failed to create backup directory");
         }
 
-        // Create backup file with timestamp
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
+        // Create backup file with timestamp and sequence range
+        SimpleDateFormat dateFormat = new SimpleDateFormat(BackupChain.TIME_FORMAT, Locale.US);
         String timestamp = dateFormat.format(new Date());
-        String fileName = BACKUP_FILE_PREFIX + timestamp + BACKUP_FILE_EXTENSION;
+        String fileName = BACKUP_FILE_PREFIX + timestamp + suffix + BackupFormat.FILE_EXTENSION;
         
         return new File(backupDir, fileName);
     }
 
-    private void cleanupOldBackups() {
+    // Retention selects restore points; every kept point keeps the chain it depends on
+    private void cleanupOldBackups(BackupCatalog catalog) {
         try {
-            File documentsDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOCUMENTS);
-            File backupDir = new File(documentsDir, BACKUP_FOLDER);
-            
-            if (!backupDir.exists()) return;
+            File[] backupFiles = listBackupFiles();
+            List<BackupChain.Entry> entries = new ArrayList<>();
+            for (File file : backupFiles) {
+                entries.add(BackupChain.parse(file));
+            }
 
-            File[] backupFiles = backupDir.listFiles((dir, name) -> 
-                name.startsWith(BACKUP_FILE_PREFIX) && name.endsWith(BACKUP_FILE_EXTENSION));
-            
-            if (backupFiles == null || backupFiles.length <= MAX_BACKUP_FILES) return;
+            Set<File> retained = new HashSet<>();
+            for (BackupChain.Entry point : BackupRetention.select(entries, System.currentTimeMillis())) {
+                try {
+                    for (BackupChain.Entry entry : BackupChain.resolve(point.file, backupFiles)) {
+                        retained.add(entry.file);
+                    }
+                } catch (IOException e) {
+                    Log.w(TAG, "Dropping unrestorable backup: " + point.file.getName());
+                }
+            }
 
-            // Sort files by last modified date (oldest first)
-            java.util.Arrays.sort(backupFiles, (f1, f2) -> 
-                Long.compare(f1.lastModified(), f2.lastModified()));
+            for (File file : backupFiles) {
+                if (!retained.contains(file) && file.delete()) {
+                    Log.d(TAG, "Deleted old backup: " + file.getName());
+                }
+            }
+            catalog.retain(listBackupFiles());
 
-            // Delete oldest files
-            int filesToDelete = backupFiles.length - MAX_BACKUP_FILES;
-            for (int i = 0; i < filesToDelete; i++) {
-                if (backupFiles[i].delete()) {
-                    Log.d(TAG, "Deleted old backup: " + backupFiles[i].getName());
+            // Chunks are shared between manifests, so only drop those no kept manifest lists
+            Set<String> referenced = new HashSet<>();
+            for (File file : retained) {
+                if (!BackupChain.parse(file).full) continue;
+                List<String> hashes = catalog.getChunkHashes(file);
+                if (hashes != null) {
+                    referenced.addAll(hashes);
+                } else {
+                    for (ChunkRef ref : backupRestorer.read(file, null).chunks) {
+                        referenced.add(ref.hash);
+                    }
                 }
             }
+            new BackupChunkStore(getBackupDir(), backupWriter).collectGarbage(referenced);
             
         } catch (Exception e) {
+            // An unreadable manifest aborts collection rather than risk deleting live chunks
             Log.e(TAG, "Failed to cleanup old backups", e);
         }
     }
 
-    private void restoreDataFromBackup(BackupData backupData) {
-        // Clear existing data
-        // Note: This is a simplified implementation
-        // In production, you might want to create a transaction-like operation
-        
-        // Restore transactions
-        for (Transaction transaction : backupData.transactions) {
-            repository.addTransaction(transaction);
-        }
-        
-        // Restore budgets
-        for (Budget budget : backupData.budgets) {
-            repository.addBudget(budget);
-        }
+    private static boolean isBackupFileName(String name) {
+        return name.startsWith(BACKUP_FILE_PREFIX) &&
+            (name.endsWith(BackupFormat.FILE_EXTENSION) || name.endsWith(BackupFormat.LEGACY_FILE_EXTENSION));
     }
 
     public void getAvailableBackups(BackupListCallback callback) {
@@ -204,8 +404,7 @@ public class BackupManager {
                     return;
                 }
 
-                File[] backupFiles = backupDir.listFiles((dir, name) -> 
-                    name.startsWith(BACKUP_FILE_PREFIX) && name.endsWith(BACKUP_FILE_EXTENSION));
+                File[] backupFiles = backupDir.listFiles((dir, name) -> isBackupFileName(name));
                 
                 if (backupFiles == null) {
                     callback.onSuccess(new File[0]);
@@ -225,15 +424,43 @@ public class BackupManager {
         });
     }
 
-    public interface BackupListCallback {
-        void onSuccess(File[] backupFiles);
+    public interface BackupCatalogCallback {
+        void onSuccess(List<BackupInfo> backups);
         void onError(String error);
     }
 
-    private static class BackupData {
-        public List<Transaction> transactions;
-        public List<Budget> budgets;
-        public long timestamp;
-        public String version;
+    /**
+     * Lists every backup with its description (counts, date range, versions), newest first.
+     * Descriptions come from the catalog index; only files it doesn't know yet have their
+     * headers read, and no payload is decrypted.
+     */
+    public void getBackupCatalog(BackupCatalogCallback callback) {
+        executorService.execute(() -> {
+            try {
+                BackupCatalog catalog = openCatalog();
+                List<BackupInfo> backups = catalog.describe(listBackupFiles());
+                catalog.save();
+
+                Collections.sort(backups, (a, b) -> Long.compare(b.getTimestamp(), a.getTimestamp()));
+                callback.onSuccess(backups);
+                
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to read backup catalog", e);
+                callback.onError("Failed to read backup catalog: " + e.getMessage());
+            }
+        });
+    }
+
+    public String getBackupPath(BackupInfo backup) {
+        return new File(getBackupDir(), backup.getFileName()).getAbsolutePath();
+    }
+
+    private BackupCatalog openCatalog() {
+        return new BackupCatalog(getBackupDir(), backupWriter, backupRestorer);
+    }
+
+    public interface BackupListCallback {
+        void onSuccess(File[] backupFiles);
+        void onError(String error);
     }
 }
@@ -0,0 +1,367 @@
+package com.budgetwise.backup;
+
+import com.budgetwise.data.models.Budget;
+import com.budgetwise.data.models.Tombstone;
+import com.budgetwise.data.models.Transaction;
+import com.budgetwise.security.EncryptionManager;
+import com.budgetwise.security.SegmentedCipherInputStream;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads a backup file into memory-only lists without touching the repository:
+ * memory-mapped file → AES-GCM segments → Inflater → streaming JSON. Every record is
+ * validated as it is parsed, and any problem fails the whole file so a restore is
+ * all-or-nothing.
+ */
+class BackupRestorer {
+    private static final int INFLATE_BUFFER_SIZE = 16 * 1024;
+    private static final int HEADER_BUFFER_SIZE = 1024;
+
+    interface ProgressListener {
+        void onProgress(int percent);
+    }
+
+    static final class Snapshot {
+        final List<Transaction> transactions;
+        final List<Budget> budgets;
+        final List<Tombstone> tombstones;
+        // Chunk-store manifests list their records here instead of inline
+        final List<ChunkRef> chunks;
+        final long timestamp;
+        final String version;
+        final boolean full;
+        final long baseSeq;
+        // -1 when the backup predates change sequencing
+        final long seq;
+
+        Snapshot(List<Transaction> transactions, List<Budget> budgets, List<Tombstone> tombstones,
+                 List<ChunkRef> chunks, long timestamp, String version, boolean full, long baseSeq, long seq) {
+            this.transactions = transactions;
+            this.budgets = budgets;
+            this.tombstones = tombstones;
+            this.chunks = chunks;
+            this.timestamp = timestamp;
+            this.version = version;
+            this.full = full;
+            this.baseSeq = baseSeq;
+            this.seq = seq;
+        }
+    }
+
+    private final EncryptionManager encryptionManager;
+    private final Gson gson;
+
+    BackupRestorer(EncryptionManager encryptionManager, Gson gson) {
+        this.encryptionManager = encryptionManager;
+        this.gson = gson;
+    }
+
+    Snapshot read(File backupFile, ProgressListener listener) throws IOException {
+        return read(backupFile, null, listener);
+    }
+
+    /**
+     * Reads a backup or chunk file. When {@code expectedSha256} is given, the decrypted
+     * payload must hash to it, which ties a chunk to the name its manifest refers to.
+     */
+    Snapshot read(File backupFile, String expectedSha256, ProgressListener listener) throws IOException {
+        int[] lastPercent = {-1};
+        MappedFileInputStream.ProgressListener byteListener = listener == null ? null : (read, total) -> {
+            // Decoding stops short of 100% until the last record has been validated
+            int percent = total == 0 ? 0 : (int) (read * 99 / total);
+            if (percent != lastPercent[0]) {
+                lastPercent[0] = percent;
+                listener.onProgress(percent);
+            }
+        };
+
+        try (MappedFileInputStream in = new MappedFileInputStream(backupFile, byteListener)) {
+            in.mark(BackupFormat.MAGIC.length);
+            boolean streamingFormat = BackupFormat.hasMagic(in);
+            in.reset();
+
+            Snapshot snapshot;
+            if (streamingFormat) {
+                BackupFormat.Header header = BackupFormat.readHeader(in, encryptionManager);
+                InputStream decrypted = new SegmentedCipherInputStream(
+                    in, encryptionManager, header.keyVersion, header.bytes);
+                InputStream inflated = new InflaterInputStream(decrypted, new Inflater(), INFLATE_BUFFER_SIZE);
+                MessageDigest digest = expectedSha256 != null ? newSha256() : null;
+                if (digest != null) {
+                    inflated = new DigestInputStream(inflated, digest);
+                }
+                try (Reader reader = new InputStreamReader(inflated, StandardCharsets.UTF_8)) {
+                    snapshot = parse(new JsonReader(reader));
+                    if (digest != null) {
+                        drain(inflated);
+                        if (!expectedSha256.equals(BackupChunkStore.toHex(digest.digest()))) {
+                            throw new IOException("Chunk content does not match its hash: " + backupFile.getName());
+                        }
+                    }
+                }
+            } else {
+                snapshot = parse(new JsonReader(new StringReader(readLegacyJson(in))));
+            }
+
+            if (listener != null) {
+                listener.onProgress(100);
+            }
+            return snapshot;
+        } catch (JsonParseException | IllegalStateException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Invalid backup file format: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads only the authenticated header of a backup file.
+     *
+     * @return the stored description, or null for files written before headers carried one
+     */
+    BackupInfo readInfo(File backupFile) throws IOException {
+        try (InputStream in = new FileInputStream(backupFile)) {
+            if (!BackupFormat.hasMagic(in)) {
+                return null;
+            }
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(backupFile), HEADER_BUFFER_SIZE)) {
+            BackupFormat.Header header = BackupFormat.readHeader(in, encryptionManager);
+            if (header.metadata == null) {
+                return null;
+            }
+            return gson.fromJson(new String(header.metadata, StandardCharsets.UTF_8), BackupInfo.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid backup metadata", e);
+        }
+    }
+
+    /** Reads a catalog file written by {@link BackupWriter#writeCatalog}. */
+    List<BackupInfo> readCatalog(File catalogFile) throws IOException {
+        try (MappedFileInputStream in = new MappedFileInputStream(catalogFile, null)) {
+            BackupFormat.Header header = BackupFormat.readHeader(in, encryptionManager);
+            InputStream decrypted = new SegmentedCipherInputStream(
+                in, encryptionManager, header.keyVersion, header.bytes);
+            InputStream inflated = new InflaterInputStream(decrypted, new Inflater(), INFLATE_BUFFER_SIZE);
+            try (Reader reader = new InputStreamReader(inflated, StandardCharsets.UTF_8)) {
+                List<BackupInfo> entries = gson.fromJson(reader, new TypeToken<List<BackupInfo>>(){}.getType());
+                return entries != null ? entries : new ArrayList<>();
+            }
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid backup catalog", e);
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[INFLATE_BUFFER_SIZE];
+        while (in.read(buffer) != -1) {
+            // Hash the remainder of the payload
+        }
+    }
+
+    private static MessageDigest newSha256() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+    }
+
+    // Backups written before the streaming format: one Base64 ciphertext of pretty-printed JSON
+    private String readLegacyJson(InputStream in) throws IOException {
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream(Math.max(32, in.available()));
+        byte[] buffer = new byte[INFLATE_BUFFER_SIZE];
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            encrypted.write(buffer, 0, length);
+        }
+        try {
+            return encryptionManager.decrypt(new String(encrypted.toByteArray(), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new IOException("Failed to decrypt legacy backup", e);
+        }
+    }
+
+    private Snapshot parse(JsonReader reader) throws IOException {
+        List<Transaction> transactions = null;
+        List<Budget> budgets = null;
+        List<Tombstone> tombstones = new ArrayList<>();
+        List<ChunkRef> chunks = new ArrayList<>();
+        long timestamp = 0;
+        String version = null;
+        String kind = BackupChain.KIND_FULL;
+        long baseSeq = 0;
+        long seq = -1;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "transactions":
+                    transactions = readTransactions(reader);
+                    break;
+                case "budgets":
+                    budgets = readBudgets(reader);
+                    break;
+                case "timestamp":
+                    timestamp = reader.nextLong();
+                    break;
+                case "version":
+                    version = reader.nextString();
+                    break;
+                case "kind":
+                    kind = reader.nextString();
+                    break;
+                case "baseSeq":
+                    baseSeq = reader.nextLong();
+                    break;
+                case "seq":
+                    seq = reader.nextLong();
+                    break;
+                case "tombstones":
+                    tombstones = readTombstones(reader);
+                    break;
+                case "chunks":
+                    chunks = readChunkRefs(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (transactions == null || budgets == null) {
+            throw new IOException("Invalid backup file format: missing transactions or budgets");
+        }
+        boolean full = !BackupChain.KIND_DELTA.equals(kind);
+        return new Snapshot(transactions, budgets, tombstones, chunks, timestamp, version, full, baseSeq, seq);
+    }
+
+    private List<Transaction> readTransactions(JsonReader reader) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Transaction transaction = gson.fromJson(reader, Transaction.class);
+            validateTransaction(transaction, transactions.size(), ids);
+            transactions.add(transaction);
+        }
+        reader.endArray();
+        return transactions;
+    }
+
+    private List<Budget> readBudgets(JsonReader reader) throws IOException {
+        List<Budget> budgets = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Budget budget = gson.fromJson(reader, Budget.class);
+            validateBudget(budget, budgets.size(), ids);
+            budgets.add(budget);
+        }
+        reader.endArray();
+        return budgets;
+    }
+
+    private List<Tombstone> readTombstones(JsonReader reader) throws IOException {
+        List<Tombstone> tombstones = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Tombstone tombstone = gson.fromJson(reader, Tombstone.class);
+            if (tombstone == null || isBlank(tombstone.getId()) || tombstone.getRecordType() == null) {
+                throw invalid("tombstone", tombstones.size(), "missing id or record type");
+            }
+            tombstones.add(tombstone);
+        }
+        reader.endArray();
+        return tombstones;
+    }
+
+    private List<ChunkRef> readChunkRefs(JsonReader reader) throws IOException {
+        List<ChunkRef> chunks = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            ChunkRef chunk = gson.fromJson(reader, ChunkRef.class);
+            if (chunk == null || chunk.hash == null || !chunk.hash.matches("[0-9a-f]{64}")) {
+                throw invalid("chunk reference", chunks.size(), "missing or malformed hash");
+            }
+            chunks.add(chunk);
+        }
+        reader.endArray();
+        return chunks;
+    }
+
+    private static void validateTransaction(Transaction t, int index, Set<String> ids) throws IOException {
+        if (t == null) {
+            throw invalid("transaction", index, "empty record");
+        }
+        if (isBlank(t.getId())) {
+            throw invalid("transaction", index, "missing id");
+        }
+        if (!ids.add(t.getId())) {
+            throw invalid("transaction", index, "duplicate id " + t.getId());
+        }
+        if (t.getType() == null) {
+            throw invalid("transaction", index, "missing type");
+        }
+        if (t.getDate() == null) {
+            throw invalid("transaction", index, "missing date");
+        }
+        if (t.getDescription() == null || t.getCategory() == null) {
+            throw invalid("transaction", index, "missing description or category");
+        }
+        if (Double.isNaN(t.getAmount()) || Double.isInfinite(t.getAmount()) || t.getAmount() < 0) {
+            throw invalid("transaction", index, "invalid amount");
+        }
+    }
+
+    private static void validateBudget(Budget b, int index, Set<String> ids) throws IOException {
+        if (b == null) {
+            throw invalid("budget", index, "empty record");
+        }
+        if (isBlank(b.getId())) {
+            throw invalid("budget", index, "missing id");
+        }
+        if (!ids.add(b.getId())) {
+            throw invalid("budget", index, "duplicate id " + b.getId());
+        }
+        if (isBlank(b.getCategory()) || b.getPeriod() == null) {
+            throw invalid("budget", index, "missing category or period");
+        }
+        if (Double.isNaN(b.getBudgetAmount()) || Double.isInfinite(b.getBudgetAmount())
+            || Double.isNaN(b.getSpentAmount()) || Double.isInfinite(b.getSpentAmount())) {
+            throw invalid("budget", index, "invalid amount");
+        }
+    }
+
+    private static IOException invalid(String kind, int index, String reason) {
+        return new IOException("Invalid " + kind + " at index " + index + ": " + reason);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
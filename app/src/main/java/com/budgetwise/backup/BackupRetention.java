@@ -0,0 +1,65 @@
+package com.budgetwise.backup;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks which restore points to keep: the newest backup of each of the last
+ * {@link #HOURLY_POINTS} hours, {@link #DAILY_POINTS} days and {@link #WEEKLY_POINTS}
+ * weeks, plus the newest backup overall. Callers keep the whole chain behind every
+ * selected point.
+ */
+final class BackupRetention {
+    static final int HOURLY_POINTS = 24;
+    static final int DAILY_POINTS = 7;
+    static final int WEEKLY_POINTS = 8;
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long WEEK = TimeUnit.DAYS.toMillis(7);
+
+    private BackupRetention() {}
+
+    static Set<BackupChain.Entry> select(List<BackupChain.Entry> entries, long now) {
+        Set<BackupChain.Entry> kept = new HashSet<>();
+        BackupChain.Entry newest = null;
+        for (BackupChain.Entry entry : entries) {
+            if (newest == null || entry.time > newest.time) {
+                newest = entry;
+            }
+        }
+        if (newest == null) {
+            return kept;
+        }
+        kept.add(newest);
+
+        long offset = TimeZone.getDefault().getOffset(now);
+        kept.addAll(newestPerBucket(entries, now, offset, HOUR, HOURLY_POINTS));
+        kept.addAll(newestPerBucket(entries, now, offset, DAY, DAILY_POINTS));
+        kept.addAll(newestPerBucket(entries, now, offset, WEEK, WEEKLY_POINTS));
+        return kept;
+    }
+
+    // Buckets are aligned to local time so "daily" means calendar days
+    private static Set<BackupChain.Entry> newestPerBucket(List<BackupChain.Entry> entries, long now,
+                                                          long offset, long bucketSize, int buckets) {
+        long currentBucket = Math.floorDiv(now + offset, bucketSize);
+        Map<Long, BackupChain.Entry> newestByBucket = new HashMap<>();
+        for (BackupChain.Entry entry : entries) {
+            long bucket = Math.floorDiv(entry.time + offset, bucketSize);
+            if (currentBucket - bucket >= buckets || bucket > currentBucket) {
+                continue;
+            }
+            BackupChain.Entry existing = newestByBucket.get(bucket);
+            if (existing == null || entry.time > existing.time) {
+                newestByBucket.put(bucket, entry);
+            }
+        }
+        return new HashSet<>(newestByBucket.values());
+    }
+}
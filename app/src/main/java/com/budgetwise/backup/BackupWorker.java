@@ -0,0 +1,69 @@
+package com.budgetwise.backup;
+
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.budgetwise.BudgetWiseApplication;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a backup once a day while the device is idle and the battery isn't low, but only
+ * when the repository has changed since the last one. Runs in WorkManager's background
+ * thread, so neither the UI nor app startup ever waits for it.
+ */
+public class BackupWorker extends Worker {
+    private static final String TAG = "BackupWorker";
+    private static final String WORK_NAME = "budgetwise_auto_backup";
+    private static final long INTERVAL_HOURS = 24;
+
+    public BackupWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /** Schedules (or keeps) the periodic backup; safe to call on every app start. */
+    public static void schedule(Context context) {
+        Constraints.Builder constraints = new Constraints.Builder()
+            .setRequiresBatteryNotLow(true)
+            .setRequiresStorageNotLow(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            constraints.setRequiresDeviceIdle(true);
+        }
+
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(BackupWorker.class, INTERVAL_HOURS, TimeUnit.HOURS)
+            .setConstraints(constraints.build())
+            .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.MINUTES)
+            .build();
+
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        BackupManager backupManager = BudgetWiseApplication.getInstance().getBackupManager();
+        try {
+            if (backupManager.isBackupUpToDate()) {
+                Log.d(TAG, "No changes since last backup, skipping");
+                return Result.success();
+            }
+
+            BackupInfo info = backupManager.createBackupBlocking();
+            if (info != null) {
+                Log.d(TAG, "Scheduled backup written: " + info.getFileName());
+            }
+            return Result.success();
+
+        } catch (Exception e) {
+            Log.e(TAG, "Scheduled backup failed, will retry", e);
+            return Result.retry();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.budgetwise.backup;
+
+import com.budgetwise.BuildConfig;
+import com.budgetwise.data.models.Budget;
+import com.budgetwise.data.models.Tombstone;
+import com.budgetwise.data.models.Transaction;
+import com.budgetwise.data.repository.ChangeSet;
+import com.budgetwise.security.EncryptionManager;
+import com.budgetwise.security.SegmentedCipherOutputStream;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Streams a backup straight to disk: compact JSON → Deflater → AES-GCM segments →
+ * buffered file. Records are serialized one at a time, so peak memory stays at a few
+ * buffers regardless of history size.
+ */
+class BackupWriter {
+    static final String KIND_CHUNK = "chunk";
+    static final String KIND_CATALOG = "catalog";
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+    private static final int DEFLATE_BUFFER_SIZE = 16 * 1024;
+
+    private final EncryptionManager encryptionManager;
+    private final Gson gson;
+
+    BackupWriter(EncryptionManager encryptionManager, Gson gson) {
+        this.encryptionManager = encryptionManager;
+        this.gson = gson;
+    }
+
+    private interface PayloadWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Writes an inline backup. A full backup carries the complete state; a delta carries the
+     * records written after {@code changes.getSinceSeq()} plus tombstones for deletions in
+     * that range.
+     *
+     * @return the description stored in the file header, with the file's size and checksum
+     */
+    BackupInfo write(File target, ChangeSet changes, String kind, long timestamp) throws IOException {
+        BackupInfo info = describe(changes, kind, timestamp);
+        writeEncrypted(target, info, out -> {
+            try (JsonWriter writer = newJsonWriter(out)) {
+                writer.beginObject();
+                writeMetadata(writer, changes, kind, timestamp);
+                writeRecords(writer, changes.getTransactions(), changes.getBudgets());
+
+                writer.name("tombstones").beginArray();
+                for (Tombstone tombstone : changes.getTombstones()) {
+                    gson.toJson(tombstone, Tombstone.class, writer);
+                }
+                writer.endArray();
+
+                writer.endObject();
+            }
+        });
+        return info;
+    }
+
+    /**
+     * Writes a full backup whose records live in the chunk store; the file itself only
+     * lists the chunks that make up the snapshot.
+     */
+    BackupInfo writeManifest(File target, ChangeSet changes, List<ChunkRef> chunks, long timestamp)
+            throws IOException {
+        BackupInfo info = describe(changes, BackupChain.KIND_FULL, timestamp);
+        List<String> chunkHashes = new ArrayList<>();
+        for (ChunkRef chunk : chunks) {
+            chunkHashes.add(chunk.hash);
+        }
+        info.setChunkHashes(chunkHashes);
+        writeEncrypted(target, info, out -> {
+            try (JsonWriter writer = newJsonWriter(out)) {
+                writer.beginObject();
+                writeMetadata(writer, changes, BackupChain.KIND_FULL, timestamp);
+                writeRecords(writer, Collections.<Transaction>emptyList(), Collections.<Budget>emptyList());
+
+                writer.name("chunks").beginArray();
+                for (ChunkRef chunk : chunks) {
+                    gson.toJson(chunk, ChunkRef.class, writer);
+                }
+                writer.endArray();
+
+                writer.endObject();
+            }
+        });
+        return info;
+    }
+
+    /** Serializes one chunk payload; the chunk's hash is taken over exactly these bytes. */
+    byte[] serializeChunk(List<Transaction> transactions, List<Budget> budgets) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (JsonWriter writer = newJsonWriter(buffer)) {
+            writer.beginObject();
+            writeRecords(writer, transactions, budgets);
+            writer.endObject();
+        }
+        return buffer.toByteArray();
+    }
+
+    long writeChunk(File target, byte[] payload) throws IOException {
+        BackupInfo info = new BackupInfo(KIND_CHUNK, System.currentTimeMillis(),
+            BackupManager.BACKUP_DATA_VERSION, BuildConfig.VERSION_NAME, 0, 0, 0, 0, 0, 0, 0);
+        writeEncrypted(target, info, out -> out.write(payload));
+        return info.getSizeBytes();
+    }
+
+    long writeCatalog(File target, List<BackupInfo> entries) throws IOException {
+        BackupInfo info = new BackupInfo(KIND_CATALOG, System.currentTimeMillis(),
+            BackupManager.BACKUP_DATA_VERSION, BuildConfig.VERSION_NAME, 0, 0, 0, 0, 0, 0, 0);
+        writeEncrypted(target, info, out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            gson.toJson(entries, writer);
+            writer.flush();
+        });
+        return info.getSizeBytes();
+    }
+
+    private static BackupInfo describe(ChangeSet changes, String kind, long timestamp) {
+        long first = 0;
+        long last = 0;
+        for (Transaction transaction : changes.getTransactions()) {
+            long time = transaction.getDate().getTime();
+            if (first == 0 || time < first) first = time;
+            if (time > last) last = time;
+        }
+        return new BackupInfo(kind, timestamp, BackupManager.BACKUP_DATA_VERSION, BuildConfig.VERSION_NAME,
+            changes.getSinceSeq(), changes.getSequence(), changes.getTransactions().size(),
+            changes.getBudgets().size(), changes.getTombstones().size(), first, last);
+    }
+
+    private void writeMetadata(JsonWriter writer, ChangeSet changes, String kind, long timestamp) throws IOException {
+        writer.name("version").value(BackupManager.BACKUP_DATA_VERSION);
+        writer.name("timestamp").value(timestamp);
+        writer.name("kind").value(kind);
+        writer.name("baseSeq").value(changes.getSinceSeq());
+        writer.name("seq").value(changes.getSequence());
+    }
+
+    private void writeRecords(JsonWriter writer, List<Transaction> transactions, List<Budget> budgets)
+            throws IOException {
+        writer.name("transactions").beginArray();
+        for (Transaction transaction : transactions) {
+            gson.toJson(transaction, Transaction.class, writer);
+        }
+        writer.endArray();
+
+        writer.name("budgets").beginArray();
+        for (Budget budget : budgets) {
+            gson.toJson(budget, Budget.class, writer);
+        }
+        writer.endArray();
+    }
+
+    private static JsonWriter newJsonWriter(OutputStream out) {
+        return new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes to a temporary file and renames it into place, so an interrupted write never
+     * leaves a half-written file behind. {@code info} goes into the authenticated header and
+     * receives the final size and SHA-256 of the file.
+     */
+    private void writeEncrypted(File target, BackupInfo info, PayloadWriter payload) throws IOException {
+        File tempFile = new File(target.getParentFile(), target.getName() + ".tmp");
+        byte[] metadata = gson.toJson(info).getBytes(StandardCharsets.UTF_8);
+        BackupFormat.Header header = BackupFormat.newHeader(
+            encryptionManager, encryptionManager.getCurrentKeyVersion(), metadata);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        MessageDigest fileDigest = newSha256();
+
+        try (OutputStream fileOut = new BufferedOutputStream(
+                new DigestOutputStream(new FileOutputStream(tempFile), fileDigest), FILE_BUFFER_SIZE)) {
+            BackupFormat.writeHeader(fileOut, header);
+
+            OutputStream encrypted = new SegmentedCipherOutputStream(
+                fileOut, encryptionManager, header.keyVersion, header.bytes);
+            try (OutputStream compressed = new DeflaterOutputStream(encrypted, deflater, DEFLATE_BUFFER_SIZE)) {
+                payload.write(compressed);
+            }
+        } catch (IOException | RuntimeException e) {
+            tempFile.delete();
+            throw e;
+        } finally {
+            deflater.end();
+        }
+
+        if (!tempFile.renameTo(target)) {
+            tempFile.delete();
+            throw new IOException("Failed to move backup into place");
+        }
+        info.setFileDetails(target.getName(), target.length(), target.lastModified(),
+            BackupChunkStore.toHex(fileDigest.digest()));
+    }
+
+    private static MessageDigest newSha256() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.budgetwise.backup;
+
+import com.budgetwise.data.models.Budget;
+import com.budgetwise.data.models.Tombstone;
+import com.budgetwise.data.models.Transaction;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rebuilds repository state from a backup chain: the full snapshot seeds the maps, and
+ * each delta upserts its records by id and removes the ids in its tombstones.
+ */
+class ChainReplay {
+    private final Map<String, Transaction> transactions = new LinkedHashMap<>();
+    private final Map<String, Budget> budgets = new LinkedHashMap<>();
+    private long seq = -1;
+    private boolean started;
+
+    void apply(BackupChain.Entry entry, BackupRestorer.Snapshot snapshot) throws IOException {
+        if (!started && !snapshot.full) {
+            throw new IOException("Backup chain must start with a full backup: " + entry.file.getName());
+        }
+        if (started && (snapshot.full || snapshot.baseSeq != seq)) {
+            throw new IOException("Backup " + entry.file.getName() + " does not continue the chain");
+        }
+        if (entry.seq >= 0 && snapshot.seq != entry.seq) {
+            throw new IOException("Backup " + entry.file.getName() + " does not match its file name");
+        }
+
+        if (snapshot.full) {
+            transactions.clear();
+            budgets.clear();
+        }
+        for (Transaction transaction : snapshot.transactions) {
+            transactions.put(transaction.getId(), transaction);
+        }
+        for (Budget budget : snapshot.budgets) {
+            budgets.put(budget.getId(), budget);
+        }
+        for (Tombstone tombstone : snapshot.tombstones) {
+            if (tombstone.getRecordType() == Tombstone.RecordType.TRANSACTION) {
+                transactions.remove(tombstone.getId());
+            } else {
+                budgets.remove(tombstone.getId());
+            }
+        }
+
+        seq = snapshot.seq;
+        started = true;
+    }
+
+    /** Adds the records of one chunk belonging to the full snapshot applied last. */
+    void addChunk(ChunkRef ref, BackupRestorer.Snapshot chunk) throws IOException {
+        if (!started) {
+            throw new IOException("Chunk " + ref.hash + " has no manifest");
+        }
+        for (Transaction transaction : chunk.transactions) {
+            if (transactions.put(transaction.getId(), transaction) != null) {
+                throw new IOException("Transaction " + transaction.getId() + " appears in more than one chunk");
+            }
+        }
+        for (Budget budget : chunk.budgets) {
+            budgets.put(budget.getId(), budget);
+        }
+    }
+
+    List<Transaction> getTransactions() {
+        return new ArrayList<>(transactions.values());
+    }
+
+    List<Budget> getBudgets() {
+        return new ArrayList<>(budgets.values());
+    }
+}
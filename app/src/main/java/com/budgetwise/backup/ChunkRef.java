@@ -0,0 +1,26 @@
+package com.budgetwise.backup;
+
+/**
+ * One entry of a backup manifest: a chunk in the chunk store, identified by the SHA-256
+ * of its plaintext payload.
+ */
+class ChunkRef {
+    static final String TYPE_TRANSACTIONS = "transactions";
+    static final String TYPE_BUDGETS = "budgets";
+
+    String hash;
+    String type;
+    // yyyy-MM of the transactions in the chunk; null for budgets
+    String month;
+    int count;
+
+    ChunkRef() {
+    }
+
+    ChunkRef(String hash, String type, String month, int count) {
+        this.hash = hash;
+        this.type = type;
+        this.month = month;
+        this.count = count;
+    }
+}
@@ -0,0 +1,109 @@
+package com.budgetwise.backup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a file through a read-only memory mapping. The kernel pages the file in on demand,
+ * so there is no intermediate heap buffer, and the buffer position doubles as an exact
+ * progress counter.
+ */
+class MappedFileInputStream extends InputStream {
+
+    interface ProgressListener {
+        void onProgress(long bytesRead, long totalBytes);
+    }
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final long totalBytes;
+    private final ProgressListener listener;
+    private int mark;
+
+    MappedFileInputStream(File source, ProgressListener listener) throws IOException {
+        this.file = new RandomAccessFile(source, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            this.totalBytes = channel.size();
+            if (totalBytes > Integer.MAX_VALUE) {
+                throw new IOException("Backup file is too large to map: " + totalBytes + " bytes");
+            }
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, totalBytes);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        this.listener = listener;
+    }
+
+    long getTotalBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public int read() {
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        int b = buffer.get() & 0xFF;
+        notifyProgress();
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        int remaining = buffer.remaining();
+        if (remaining == 0) {
+            return -1;
+        }
+        int count = Math.min(len, remaining);
+        buffer.get(b, off, count);
+        notifyProgress();
+        return count;
+    }
+
+    @Override
+    public long skip(long n) {
+        int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        mark = buffer.position();
+    }
+
+    @Override
+    public synchronized void reset() {
+        buffer.position(mark);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private void notifyProgress() {
+        if (listener != null) {
+            listener.onProgress(buffer.position(), totalBytes);
+        }
+    }
+}
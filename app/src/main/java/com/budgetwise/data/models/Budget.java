@@ -13,6 +13,8 @@ public class Budget {
     private boolean isActive;
     private long createdAt;
     private long updatedAt;
+    // Repository change sequence of the last write; 0 for records saved before sequencing
+    private long changeSeq;
 
     public enum BudgetPeriod {
         WEEKLY, MONTHLY, QUARTERLY, YEARLY
@@ -105,4 +107,7 @@ public class Budget {
 
     public long getCreatedAt() { return createdAt; }
     public long getUpdatedAt() { return updatedAt; }
+
+    public long getChangeSeq() { return changeSeq; }
+    public void setChangeSeq(long changeSeq) { this.changeSeq = changeSeq; }
 }
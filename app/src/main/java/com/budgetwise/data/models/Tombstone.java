@@ -0,0 +1,28 @@
+package com.budgetwise.data.models;
+
+/**
+ * Marks a deleted transaction or budget so incremental backups and change readers
+ * can replay the deletion.
+ */
+public class Tombstone {
+    private String id;
+    private RecordType recordType;
+    private long changeSeq;
+
+    public enum RecordType {
+        TRANSACTION, BUDGET
+    }
+
+    public Tombstone() {
+    }
+
+    public Tombstone(String id, RecordType recordType, long changeSeq) {
+        this.id = id;
+        this.recordType = recordType;
+        this.changeSeq = changeSeq;
+    }
+
+    public String getId() { return id; }
+    public RecordType getRecordType() { return recordType; }
+    public long getChangeSeq() { return changeSeq; }
+}
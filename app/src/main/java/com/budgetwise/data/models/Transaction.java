@@ -16,6 +16,8 @@ public class Transaction implements Serializable {
     private boolean isRecurring;
     private long createdAt;
     private long updatedAt;
+    // Repository change sequence of the last write; 0 for records saved before sequencing
+    private long changeSeq;
 
     public enum TransactionType {
         INCOME, EXPENSE, TRANSFER
@@ -84,4 +86,7 @@ public class Transaction implements Serializable {
 
     public long getCreatedAt() { return createdAt; }
     public long getUpdatedAt() { return updatedAt; }
+
+    public long getChangeSeq() { return changeSeq; }
+    public void setChangeSeq(long changeSeq) { this.changeSeq = changeSeq; }
 }
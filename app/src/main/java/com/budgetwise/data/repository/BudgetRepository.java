@@ -5,33 +5,56 @@ import android.util.Log;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import com.budgetwise.data.models.Budget;
+import com.budgetwise.data.models.Tombstone;
 import com.budgetwise.data.models.Transaction;
 import com.budgetwise.data.storage.SecurePreferences;
 import com.budgetwise.security.EncryptionManager;
 import com.google.gson.reflect.TypeToken;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class BudgetRepository {
     private static final String TAG = "BudgetRepository";
     private static final String TRANSACTIONS_KEY = "transactions";
     private static final String BUDGETS_KEY = "budgets";
-    
+    private static final String SEQUENCE_KEY = "change_sequence";
+    private static final String TOMBSTONES_KEY = "tombstones";
+    private static final String TOMBSTONE_FLOOR_KEY = "tombstone_floor";
+    private static final int MAX_TOMBSTONES = 5000;
+
     private final SecurePreferences securePreferences;
     private final ExecutorService executorService;
-    
+
     private final MutableLiveData<List<Transaction>> transactionsLiveData = new MutableLiveData<>();
     private final MutableLiveData<List<Budget>> budgetsLiveData = new MutableLiveData<>();
-    
+    private final List<Runnable> transactionListeners = new CopyOnWriteArrayList<>();
+
     private List<Transaction> cachedTransactions = new ArrayList<>();
     private List<Budget> cachedBudgets = new ArrayList<>();
+    // Guarded by the repository lock, like the cached lists it mirrors
+    private final DuplicateIndex duplicateIndex = new DuplicateIndex();
+
+    // Monotonic change sequence: every write stamps the records it touches with the next value
+    private long changeSeq;
+    private List<Tombstone> tombstones = new ArrayList<>();
+    // Deletions at or below this sequence are no longer tracked
+    private long tombstoneFloor;
+    private final CountDownLatch initialLoad = new CountDownLatch(1);
 
     public BudgetRepository(Context context, EncryptionManager encryptionManager) {
         this.securePreferences = new SecurePreferences(context, encryptionManager);
-        this.executorService = Executors.newFixedThreadPool(2);
+        // Single writer thread: mutations are applied and persisted in submission order
+        this.executorService = Executors.newSingleThreadExecutor();
         loadDataFromStorage();
     }
 
@@ -40,53 +63,196 @@ public class BudgetRepository {
             try {
                 // Load transactions
                 Type transactionListType = new TypeToken<List<Transaction>>(){}.getType();
-                cachedTransactions = securePreferences.getList(TRANSACTIONS_KEY, transactionListType);
-                transactionsLiveData.postValue(new ArrayList<>(cachedTransactions));
+                List<Transaction> transactions = securePreferences.getList(TRANSACTIONS_KEY, transactionListType);
 
                 // Load budgets
                 Type budgetListType = new TypeToken<List<Budget>>(){}.getType();
-                cachedBudgets = securePreferences.getList(BUDGETS_KEY, budgetListType);
-                budgetsLiveData.postValue(new ArrayList<>(cachedBudgets));
-                
+                List<Budget> budgets = securePreferences.getList(BUDGETS_KEY, budgetListType);
+
+                // Load change tracking state
+                Type tombstoneListType = new TypeToken<List<Tombstone>>(){}.getType();
+                List<Tombstone> storedTombstones = securePreferences.getList(TOMBSTONES_KEY, tombstoneListType);
+
+                synchronized (this) {
+                    cachedTransactions = new ArrayList<>(transactions);
+                    cachedBudgets = new ArrayList<>(budgets);
+                    duplicateIndex.rebuild(cachedTransactions);
+                    tombstones = new ArrayList<>(storedTombstones);
+                    tombstoneFloor = securePreferences.getLong(TOMBSTONE_FLOOR_KEY, 0);
+                    changeSeq = Math.max(securePreferences.getLong(SEQUENCE_KEY, 0),
+                        maxSequence(cachedTransactions, cachedBudgets));
+                }
+                publishTransactions(new ArrayList<>(transactions));
+                budgetsLiveData.postValue(new ArrayList<>(budgets));
+
                 Log.d(TAG, "Data loaded from storage");
             } catch (Exception e) {
                 Log.e(TAG, "Failed to load data from storage", e);
+            } finally {
+                initialLoad.countDown();
             }
         });
     }
 
+    /**
+     * Blocks until stored data has been loaded into memory. Background jobs that may start
+     * in a fresh process call this before reading, so they never mistake a still-loading
+     * repository for an empty one. Must not be called on the main thread.
+     *
+     * @return false if the timeout elapsed first
+     */
+    public boolean awaitInitialLoad(long timeout, TimeUnit unit) throws InterruptedException {
+        return initialLoad.await(timeout, unit);
+    }
+
     // Transaction methods
     public LiveData<List<Transaction>> getTransactions() {
         return transactionsLiveData;
     }
 
+    /**
+     * Runs {@code listener} on the writer thread after every committed change to the
+     * transactions, whether an entry, an edit, a deletion, an import or a restore.
+     */
+    public void addTransactionsListener(Runnable listener) {
+        transactionListeners.add(listener);
+    }
+
+    private void publishTransactions(List<Transaction> snapshot) {
+        transactionsLiveData.postValue(snapshot);
+        for (Runnable listener : transactionListeners) {
+            listener.run();
+        }
+    }
+
     public void addTransaction(Transaction transaction) {
         executorService.execute(() -> {
-            cachedTransactions.add(transaction);
-            securePreferences.putList(TRANSACTIONS_KEY, cachedTransactions);
-            transactionsLiveData.postValue(new ArrayList<>(cachedTransactions));
+            List<Transaction> snapshot;
+            long seq;
+            synchronized (this) {
+                seq = ++changeSeq;
+                transaction.setChangeSeq(seq);
+                cachedTransactions.add(transaction);
+                duplicateIndex.add(transaction);
+                snapshot = new ArrayList<>(cachedTransactions);
+            }
+            persist(TRANSACTIONS_KEY, snapshot, seq, null);
+            publishTransactions(snapshot);
             updateBudgetSpending(transaction);
         });
     }
 
+    /**
+     * Adds many transactions in one write, e.g. an imported statement. The whole batch shares
+     * one change sequence, budget spending is applied per category, and transactions and
+     * budgets are persisted in a single commit instead of one per record.
+     *
+     * @return a future that completes once the batch is committed
+     */
+    public Future<?> addTransactions(List<Transaction> transactions) {
+        List<Transaction> batch = new ArrayList<>(transactions);
+
+        return executorService.submit(() -> {
+            if (batch.isEmpty()) return null;
+
+            Map<String, Double> spentByCategory = new LinkedHashMap<>();
+            for (Transaction transaction : batch) {
+                if (transaction.getType() == Transaction.TransactionType.EXPENSE) {
+                    spentByCategory.merge(transaction.getCategory(), transaction.getAmount(), Double::sum);
+                }
+            }
+
+            List<Transaction> transactionSnapshot;
+            List<Budget> budgetSnapshot = null;
+            long seq;
+            synchronized (this) {
+                seq = ++changeSeq;
+                for (Transaction transaction : batch) {
+                    transaction.setChangeSeq(seq);
+                    duplicateIndex.add(transaction);
+                }
+                cachedTransactions.addAll(batch);
+                transactionSnapshot = new ArrayList<>(cachedTransactions);
+
+                // Same rule as updateBudgetSpending: the first active budget of the category
+                boolean budgetsChanged = false;
+                for (Map.Entry<String, Double> spent : spentByCategory.entrySet()) {
+                    for (Budget budget : cachedBudgets) {
+                        if (budget.getCategory().equals(spent.getKey()) && budget.isActive()) {
+                            budget.setSpentAmount(budget.getSpentAmount() + spent.getValue());
+                            budget.setChangeSeq(seq);
+                            budgetsChanged = true;
+                            break;
+                        }
+                    }
+                }
+                if (budgetsChanged) {
+                    budgetSnapshot = new ArrayList<>(cachedBudgets);
+                }
+            }
+
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put(TRANSACTIONS_KEY, transactionSnapshot);
+            if (budgetSnapshot != null) {
+                values.put(BUDGETS_KEY, budgetSnapshot);
+            }
+            values.put(SEQUENCE_KEY, seq);
+            if (!securePreferences.putAllAtomically(values)) {
+                throw new IllegalStateException("Failed to persist imported transactions");
+            }
+
+            publishTransactions(transactionSnapshot);
+            if (budgetSnapshot != null) {
+                budgetsLiveData.postValue(budgetSnapshot);
+            }
+            Log.d(TAG, "Added " + batch.size() + " transactions in one write");
+            return null;
+        });
+    }
+
     public void updateTransaction(Transaction transaction) {
         executorService.execute(() -> {
-            for (int i = 0; i < cachedTransactions.size(); i++) {
-                if (cachedTransactions.get(i).getId().equals(transaction.getId())) {
-                    cachedTransactions.set(i, transaction);
-                    break;
+            List<Transaction> snapshot;
+            long seq;
+            synchronized (this) {
+                int index = -1;
+                for (int i = 0; i < cachedTransactions.size(); i++) {
+                    if (cachedTransactions.get(i).getId().equals(transaction.getId())) {
+                        index = i;
+                        break;
+                    }
+                }
+                // Deleted in the meantime, or never saved: nothing changes
+                if (index < 0) {
+                    return;
                 }
+                seq = ++changeSeq;
+                transaction.setChangeSeq(seq);
+                cachedTransactions.set(index, transaction);
+                duplicateIndex.add(transaction);
+                snapshot = new ArrayList<>(cachedTransactions);
             }
-            securePreferences.putList(TRANSACTIONS_KEY, cachedTransactions);
-            transactionsLiveData.postValue(new ArrayList<>(cachedTransactions));
+            persist(TRANSACTIONS_KEY, snapshot, seq, null);
+            publishTransactions(snapshot);
         });
     }
 
     public void deleteTransaction(String transactionId) {
         executorService.execute(() -> {
-            cachedTransactions.removeIf(t -> t.getId().equals(transactionId));
-            securePreferences.putList(TRANSACTIONS_KEY, cachedTransactions);
-            transactionsLiveData.postValue(new ArrayList<>(cachedTransactions));
+            List<Transaction> snapshot;
+            List<Tombstone> tombstoneSnapshot;
+            long seq;
+            synchronized (this) {
+                if (!cachedTransactions.removeIf(t -> t.getId().equals(transactionId))) {
+                    return;
+                }
+                duplicateIndex.remove(transactionId);
+                seq = ++changeSeq;
+                tombstoneSnapshot = addTombstone(transactionId, Tombstone.RecordType.TRANSACTION, seq);
+                snapshot = new ArrayList<>(cachedTransactions);
+            }
+            persist(TRANSACTIONS_KEY, snapshot, seq, tombstoneSnapshot);
+            publishTransactions(snapshot);
         });
     }
 
@@ -97,36 +263,65 @@ public class BudgetRepository {
 
     public void addBudget(Budget budget) {
         executorService.execute(() -> {
-            cachedBudgets.add(budget);
-            securePreferences.putList(BUDGETS_KEY, cachedBudgets);
-            budgetsLiveData.postValue(new ArrayList<>(cachedBudgets));
+            List<Budget> snapshot;
+            long seq;
+            synchronized (this) {
+                seq = ++changeSeq;
+                budget.setChangeSeq(seq);
+                cachedBudgets.add(budget);
+                snapshot = new ArrayList<>(cachedBudgets);
+            }
+            persist(BUDGETS_KEY, snapshot, seq, null);
+            budgetsLiveData.postValue(snapshot);
         });
     }
 
     public void updateBudget(Budget budget) {
         executorService.execute(() -> {
-            for (int i = 0; i < cachedBudgets.size(); i++) {
-                if (cachedBudgets.get(i).getId().equals(budget.getId())) {
-                    cachedBudgets.set(i, budget);
-                    break;
+            List<Budget> snapshot;
+            long seq;
+            synchronized (this) {
+                int index = -1;
+                for (int i = 0; i < cachedBudgets.size(); i++) {
+                    if (cachedBudgets.get(i).getId().equals(budget.getId())) {
+                        index = i;
+                        break;
+                    }
                 }
+                if (index < 0) {
+                    return;
+                }
+                seq = ++changeSeq;
+                budget.setChangeSeq(seq);
+                cachedBudgets.set(index, budget);
+                snapshot = new ArrayList<>(cachedBudgets);
             }
-            securePreferences.putList(BUDGETS_KEY, cachedBudgets);
-            budgetsLiveData.postValue(new ArrayList<>(cachedBudgets));
+            persist(BUDGETS_KEY, snapshot, seq, null);
+            budgetsLiveData.postValue(snapshot);
         });
     }
 
     public void deleteBudget(String budgetId) {
         executorService.execute(() -> {
-            cachedBudgets.removeIf(b -> b.getId().equals(budgetId));
-            securePreferences.putList(BUDGETS_KEY, cachedBudgets);
-            budgetsLiveData.postValue(new ArrayList<>(cachedBudgets));
+            List<Budget> snapshot;
+            List<Tombstone> tombstoneSnapshot;
+            long seq;
+            synchronized (this) {
+                if (!cachedBudgets.removeIf(b -> b.getId().equals(budgetId))) {
+                    return;
+                }
+                seq = ++changeSeq;
+                tombstoneSnapshot = addTombstone(budgetId, Tombstone.RecordType.BUDGET, seq);
+                snapshot = new ArrayList<>(cachedBudgets);
+            }
+            persist(BUDGETS_KEY, snapshot, seq, tombstoneSnapshot);
+            budgetsLiveData.postValue(snapshot);
         });
     }
 
     private void updateBudgetSpending(Transaction transaction) {
         if (transaction.getType() == Transaction.TransactionType.EXPENSE) {
-            for (Budget budget : cachedBudgets) {
+            for (Budget budget : getCachedBudgets()) {
                 if (budget.getCategory().equals(transaction.getCategory()) && budget.isActive()) {
                     budget.setSpentAmount(budget.getSpentAmount() + transaction.getAmount());
                     updateBudget(budget);
@@ -136,11 +331,168 @@ public class BudgetRepository {
         }
     }
 
-    public List<Transaction> getCachedTransactions() {
+    /**
+     * Replaces all transactions and budgets in one step, e.g. when restoring a backup.
+     * Both lists are persisted in a single commit and observers get one update each,
+     * instead of one persist per record.
+     *
+     * @return a future that completes once the new state is committed
+     */
+    public Future<?> replaceAll(List<Transaction> transactions, List<Budget> budgets) {
+        List<Transaction> newTransactions = new ArrayList<>(transactions);
+        List<Budget> newBudgets = new ArrayList<>(budgets);
+
+        return executorService.submit(() -> {
+            long seq;
+            synchronized (this) {
+                // Earlier changes can no longer be expressed as a delta against the new state
+                seq = Math.max(changeSeq, maxSequence(newTransactions, newBudgets)) + 1;
+            }
+
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put(TRANSACTIONS_KEY, newTransactions);
+            values.put(BUDGETS_KEY, newBudgets);
+            values.put(SEQUENCE_KEY, seq);
+            values.put(TOMBSTONES_KEY, new ArrayList<Tombstone>());
+            values.put(TOMBSTONE_FLOOR_KEY, seq);
+            if (!securePreferences.putAllAtomically(values)) {
+                throw new IllegalStateException("Failed to persist replaced data");
+            }
+
+            synchronized (this) {
+                cachedTransactions = newTransactions;
+                cachedBudgets = newBudgets;
+                duplicateIndex.rebuild(newTransactions);
+                changeSeq = seq;
+                tombstones = new ArrayList<>();
+                tombstoneFloor = seq;
+            }
+            publishTransactions(new ArrayList<>(newTransactions));
+            budgetsLiveData.postValue(new ArrayList<>(newBudgets));
+            Log.d(TAG, "Replaced data: " + newTransactions.size() + " transactions, "
+                + newBudgets.size() + " budgets");
+            return null;
+        });
+    }
+
+    public synchronized List<Transaction> getCachedTransactions() {
         return new ArrayList<>(cachedTransactions);
     }
 
-    public List<Budget> getCachedBudgets() {
+    public synchronized List<Budget> getCachedBudgets() {
         return new ArrayList<>(cachedBudgets);
     }
+
+    /**
+     * Returns stored transactions that could duplicate {@code transaction}: same type, within
+     * a few cents and half an hour of it. Reads a few index buckets, not the whole history.
+     */
+    public synchronized List<Transaction> findDuplicateCandidates(Transaction transaction) {
+        return duplicateIndex.candidates(transaction);
+    }
+
+    // Change tracking
+
+    /** Returns the sequence number of the most recent write. */
+    public synchronized long getChangeSequence() {
+        return changeSeq;
+    }
+
+    /** Returns every record and deletion written after {@code sinceSeq}, taken atomically. */
+    public synchronized ChangeSet getChangesSince(long sinceSeq) {
+        List<Transaction> transactions = new ArrayList<>();
+        for (Transaction transaction : cachedTransactions) {
+            if (transaction.getChangeSeq() > sinceSeq) {
+                transactions.add(transaction);
+            }
+        }
+
+        List<Budget> budgets = new ArrayList<>();
+        for (Budget budget : cachedBudgets) {
+            if (budget.getChangeSeq() > sinceSeq) {
+                budgets.add(budget);
+            }
+        }
+
+        List<Tombstone> deleted = new ArrayList<>();
+        for (Tombstone tombstone : tombstones) {
+            if (tombstone.getChangeSeq() > sinceSeq) {
+                deleted.add(tombstone);
+            }
+        }
+
+        return new ChangeSet(sinceSeq, changeSeq, transactions, budgets, deleted,
+            sinceSeq >= tombstoneFloor);
+    }
+
+    /** Returns the full current state together with its sequence number, taken atomically. */
+    public synchronized ChangeSet getSnapshot() {
+        return new ChangeSet(0, changeSeq, new ArrayList<>(cachedTransactions),
+            new ArrayList<>(cachedBudgets), new ArrayList<>(), true);
+    }
+
+    /**
+     * Forgets deletions at or below {@code upToSeq}, typically once a full backup covers
+     * them. Deltas starting before that point are reported as incomplete afterwards.
+     */
+    public void pruneTombstones(long upToSeq) {
+        executorService.execute(() -> {
+            List<Tombstone> tombstoneSnapshot;
+            long floor;
+            synchronized (this) {
+                if (upToSeq <= tombstoneFloor) {
+                    return;
+                }
+                tombstones.removeIf(t -> t.getChangeSeq() <= upToSeq);
+                tombstoneFloor = upToSeq;
+                tombstoneSnapshot = new ArrayList<>(tombstones);
+                floor = tombstoneFloor;
+            }
+
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put(TOMBSTONES_KEY, tombstoneSnapshot);
+            values.put(TOMBSTONE_FLOOR_KEY, floor);
+            securePreferences.putAllAtomically(values);
+        });
+    }
+
+    // Must be called while holding the repository lock
+    private List<Tombstone> addTombstone(String id, Tombstone.RecordType type, long seq) {
+        tombstones.add(new Tombstone(id, type, seq));
+        if (tombstones.size() > MAX_TOMBSTONES) {
+            Iterator<Tombstone> iterator = tombstones.iterator();
+            while (tombstones.size() > MAX_TOMBSTONES && iterator.hasNext()) {
+                tombstoneFloor = Math.max(tombstoneFloor, iterator.next().getChangeSeq());
+                iterator.remove();
+            }
+        }
+        return new ArrayList<>(tombstones);
+    }
+
+    // Writes a changed list together with the new sequence (and tombstones) in one commit
+    private void persist(String key, List<?> list, long seq, List<Tombstone> tombstoneSnapshot) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put(key, list);
+        values.put(SEQUENCE_KEY, seq);
+        if (tombstoneSnapshot != null) {
+            values.put(TOMBSTONES_KEY, tombstoneSnapshot);
+            synchronized (this) {
+                values.put(TOMBSTONE_FLOOR_KEY, tombstoneFloor);
+            }
+        }
+        if (!securePreferences.putAllAtomically(values)) {
+            Log.e(TAG, "Failed to persist " + key);
+        }
+    }
+
+    private static long maxSequence(List<Transaction> transactions, List<Budget> budgets) {
+        long max = 0;
+        for (Transaction transaction : transactions) {
+            max = Math.max(max, transaction.getChangeSeq());
+        }
+        for (Budget budget : budgets) {
+            max = Math.max(max, budget.getChangeSeq());
+        }
+        return max;
+    }
 }
@@ -0,0 +1,46 @@
+package com.budgetwise.data.repository;
+
+import com.budgetwise.data.models.Budget;
+import com.budgetwise.data.models.Tombstone;
+import com.budgetwise.data.models.Transaction;
+import java.util.List;
+
+/**
+ * A consistent view of repository changes: every record written after {@link #getSinceSeq()}
+ * plus the deletions in that range, up to and including {@link #getSequence()}.
+ */
+public class ChangeSet {
+    private final long sinceSeq;
+    private final long sequence;
+    private final List<Transaction> transactions;
+    private final List<Budget> budgets;
+    private final List<Tombstone> tombstones;
+    private final boolean complete;
+
+    ChangeSet(long sinceSeq, long sequence, List<Transaction> transactions, List<Budget> budgets,
+              List<Tombstone> tombstones, boolean complete) {
+        this.sinceSeq = sinceSeq;
+        this.sequence = sequence;
+        this.transactions = transactions;
+        this.budgets = budgets;
+        this.tombstones = tombstones;
+        this.complete = complete;
+    }
+
+    public long getSinceSeq() { return sinceSeq; }
+    public long getSequence() { return sequence; }
+    public List<Transaction> getTransactions() { return transactions; }
+    public List<Budget> getBudgets() { return budgets; }
+    public List<Tombstone> getTombstones() { return tombstones; }
+
+    /**
+     * False when deletions older than the tombstone floor were already pruned (or the data
+     * was replaced wholesale), so the delta cannot be replayed on its own and the caller
+     * must fall back to a full snapshot.
+     */
+    public boolean isComplete() { return complete; }
+
+    public boolean isEmpty() {
+        return transactions.isEmpty() && budgets.isEmpty() && tombstones.isEmpty();
+    }
+}
@@ -0,0 +1,112 @@
+package com.budgetwise.data.repository;
+
+import com.budgetwise.data.models.Transaction;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transactions bucketed by (type, amount in cents, 30-minute slot), kept in step with the
+ * repository's cached list. A duplicate check reads the neighbouring buckets of the new
+ * transaction instead of comparing it with the whole history.
+ * <p>
+ * Sized for DuplicateGuard's rules: a duplicate is at most 30 minutes away (one slot either
+ * side) and within a cent (two cents either side, allowing for rounding to cents).
+ */
+final class DuplicateIndex {
+    static final long SLOT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    private static final int CENT_REACH = 2;
+
+    private final Map<Key, List<Transaction>> buckets = new HashMap<>();
+    // Keys as indexed, since callers may edit a transaction in place before updating it
+    private final Map<String, Key> keyById = new HashMap<>();
+
+    void rebuild(List<Transaction> transactions) {
+        buckets.clear();
+        keyById.clear();
+        for (Transaction transaction : transactions) {
+            add(transaction);
+        }
+    }
+
+    /** Indexes {@code transaction}, replacing whatever was indexed under its id. */
+    void add(Transaction transaction) {
+        remove(transaction.getId());
+        if (transaction.getDate() == null) return;
+        Key key = new Key(transaction.getType(), cents(transaction.getAmount()),
+            slot(transaction.getDate().getTime()));
+        keyById.put(transaction.getId(), key);
+        buckets.computeIfAbsent(key, k -> new ArrayList<>(1)).add(transaction);
+    }
+
+    void remove(String id) {
+        Key key = keyById.remove(id);
+        if (key == null) return;
+        List<Transaction> bucket = buckets.get(key);
+        bucket.removeIf(t -> t.getId().equals(id));
+        if (bucket.isEmpty()) {
+            buckets.remove(key);
+        }
+    }
+
+    /**
+     * Returns the indexed transactions of the same type within two cents and one slot of
+     * {@code transaction}, other than itself. The caller applies the exact rules.
+     */
+    List<Transaction> candidates(Transaction transaction) {
+        List<Transaction> candidates = new ArrayList<>();
+        if (transaction.getDate() == null) return candidates;
+        long cents = cents(transaction.getAmount());
+        long slot = slot(transaction.getDate().getTime());
+        for (long c = cents - CENT_REACH; c <= cents + CENT_REACH; c++) {
+            for (long s = slot - 1; s <= slot + 1; s++) {
+                List<Transaction> bucket = buckets.get(new Key(transaction.getType(), c, s));
+                if (bucket == null) continue;
+                for (Transaction candidate : bucket) {
+                    if (!candidate.getId().equals(transaction.getId())) {
+                        candidates.add(candidate);
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static long cents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private static long slot(long time) {
+        return Math.floorDiv(time, SLOT_MILLIS);
+    }
+
+    private static final class Key {
+        final Transaction.TransactionType type;
+        final long cents;
+        final long slot;
+
+        Key(Transaction.TransactionType type, long cents, long slot) {
+            this.type = type;
+            this.cents = cents;
+            this.slot = slot;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return cents == key.cents && slot == key.slot && type == key.type;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = type != null ? type.hashCode() : 0;
+            result = 31 * result + Long.hashCode(cents);
+            result = 31 * result + Long.hashCode(slot);
+            return result;
+        }
+    }
+}
@@ -8,12 +8,19 @@ import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class SecurePreferences {
     private static final String TAG = "SecurePreferences";
     private static final String PREFS_NAME = "BudgetWiseSecurePrefs";
+    // Shared by every instance so a background re-encryption never overwrites a newer value.
+    // Writers encrypt while holding it: a value encrypted outside could be written back after
+    // the rotation worker has re-encrypted and checkpointed its key, under a key being retired.
+    private static final Object WRITE_LOCK = new Object();
     
     private final SharedPreferences preferences;
     private final EncryptionManager encryptionManager;
@@ -27,8 +34,9 @@ public class SecurePreferences {
 
     public void putString(String key, String value) {
         try {
-            String encryptedValue = encryptionManager.encrypt(value);
-            preferences.edit().putString(key, encryptedValue).apply();
+            synchronized (WRITE_LOCK) {
+                preferences.edit().putString(key, encryptionManager.encrypt(value)).apply();
+            }
         } catch (Exception e) {
             Log.e(TAG, "Failed to store encrypted string", e);
         }
@@ -91,6 +99,34 @@ public class SecurePreferences {
         }
     }
 
+    /**
+     * Stores several values in a single SharedPreferences commit, so readers never observe
+     * a mix of old and new values. Each value is stored as JSON (numbers in the same form
+     * as {@link #putLong}) and everything is encrypted, under the write lock, before anything
+     * is written.
+     *
+     * @return true if the new values were committed
+     */
+    public boolean putAllAtomically(Map<String, ?> values) {
+        try {
+            Map<String, String> jsonValues = new LinkedHashMap<>();
+            for (Map.Entry<String, ?> entry : values.entrySet()) {
+                jsonValues.put(entry.getKey(), gson.toJson(entry.getValue()));
+            }
+
+            synchronized (WRITE_LOCK) {
+                SharedPreferences.Editor editor = preferences.edit();
+                for (Map.Entry<String, String> entry : jsonValues.entrySet()) {
+                    editor.putString(entry.getKey(), encryptionManager.encrypt(entry.getValue()));
+                }
+                return editor.commit();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to store values", e);
+            return false;
+        }
+    }
+
     public void putBoolean(String key, boolean value) {
         putString(key, String.valueOf(value));
     }
@@ -126,12 +162,43 @@ public class SecurePreferences {
         }
     }
 
+    /**
+     * Re-encrypts a single stored entry under the current key version. Each entry is one
+     * chunk of a key rotation, however large its value: the transaction list is a single
+     * entry and is re-encrypted in one step. The write is committed synchronously so the
+     * caller can checkpoint right after it.
+     *
+     * @return true if the entry was rewritten, false if it was missing or already current
+     */
+    public boolean reencryptEntry(String key) {
+        synchronized (WRITE_LOCK) {
+            String encryptedValue = preferences.getString(key, null);
+            if (encryptedValue == null ||
+                encryptionManager.getKeyVersion(encryptedValue) == encryptionManager.getCurrentKeyVersion()) {
+                return false;
+            }
+            String reencrypted = encryptionManager.reencrypt(encryptedValue);
+            return preferences.edit().putString(key, reencrypted).commit();
+        }
+    }
+
+    /** Returns all stored keys in a stable (sorted) order. */
+    public List<String> getStoredKeys() {
+        List<String> keys = new ArrayList<>(preferences.getAll().keySet());
+        Collections.sort(keys);
+        return keys;
+    }
+
     public void remove(String key) {
-        preferences.edit().remove(key).apply();
+        synchronized (WRITE_LOCK) {
+            preferences.edit().remove(key).apply();
+        }
     }
 
     public void clear() {
-        preferences.edit().clear().apply();
+        synchronized (WRITE_LOCK) {
+            preferences.edit().clear().apply();
+        }
     }
 
     public boolean contains(String key) {
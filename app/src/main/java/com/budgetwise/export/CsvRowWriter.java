@@ -0,0 +1,74 @@
+package com.budgetwise.export;
+
+import com.budgetwise.data.models.Transaction;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/** RFC 4180 CSV with one header line; amounts are unsigned and the type column gives the sign. */
+class CsvRowWriter implements ExportRowWriter {
+    private static final String[] COLUMNS = {"Date", "Type", "Amount", "Category", "Description", "Notes", "Recurring", "Id"};
+
+    private final Writer out;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat(DataExporter.DATE_PATTERN, Locale.US);
+
+    CsvRowWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void writeHeader() throws IOException {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) out.write(',');
+            out.write(COLUMNS[i]);
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void writeRow(Transaction transaction) throws IOException {
+        out.write(transaction.getDate() != null ? dateFormat.format(transaction.getDate()) : "");
+        out.write(',');
+        out.write(transaction.getType() != null ? transaction.getType().name() : "");
+        out.write(',');
+        out.write(DataExporter.formatAmount(transaction.getAmount()));
+        out.write(',');
+        writeText(transaction.getCategory());
+        out.write(',');
+        writeText(transaction.getDescription());
+        out.write(',');
+        writeText(transaction.getNotes());
+        out.write(',');
+        out.write(transaction.isRecurring() ? "true" : "false");
+        out.write(',');
+        writeText(transaction.getId());
+        out.write("\r\n");
+    }
+
+    private void writeText(String value) throws IOException {
+        if (value == null || value.isEmpty()) return;
+
+        // Spreadsheets evaluate cells starting with these as formulas
+        char first = value.charAt(0);
+        boolean formula = first == '=' || first == '+' || first == '-' || first == '@';
+        boolean quote = formula;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+
+        out.write('"');
+        if (formula) out.write('\'');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') out.write('"');
+            out.write(c);
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,171 @@
+package com.budgetwise.export;
+
+import android.os.Environment;
+import android.util.Log;
+import com.budgetwise.data.models.Transaction;
+import com.budgetwise.data.repository.BudgetRepository;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes transactions to a plain-text file for accounting tools. Rows are written in date
+ * order straight through a buffered stream, so memory use doesn't grow with the export;
+ * the only per-export allocation is the list of references to the matching transactions.
+ */
+public class DataExporter {
+    private static final String TAG = "DataExporter";
+    private static final String EXPORT_FOLDER = "BudgetWise";
+    private static final String EXPORT_FILE_PREFIX = "export_";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    // Cancellation and progress are checked once per batch rather than per row
+    private static final int CHECK_INTERVAL = 1024;
+    private static final long LOAD_TIMEOUT_SECONDS = 30;
+    static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    private final BudgetRepository repository;
+    private final ExecutorService executorService;
+
+    public DataExporter(BudgetRepository repository) {
+        this.repository = repository;
+        this.executorService = Executors.newSingleThreadExecutor();
+    }
+
+    public interface ExportCallback {
+        void onProgress(int percent);
+        void onSuccess(File file, int rowCount);
+        void onCancelled();
+        void onError(String error);
+    }
+
+    /**
+     * Exports the transactions matching {@code options} to a new file in the documents folder.
+     * Cancel the returned future (with interruption) to stop; a partial file is never left behind.
+     * Exactly one of onSuccess, onCancelled and onError is called, even for an export
+     * cancelled before it started.
+     */
+    public Future<?> export(ExportOptions options, ExportCallback callback) {
+        // Whoever claims this reports the outcome: the export itself, or the cancellation of
+        // an export that never got to run
+        AtomicBoolean claimed = new AtomicBoolean();
+        FutureTask<Void> task = new FutureTask<Void>(() -> {
+            if (!claimed.compareAndSet(false, true)) return;
+            try {
+                File exportFile = createExportFile(options.getFormat());
+                int rows = export(options, exportFile, callback);
+                Log.d(TAG, "Exported " + rows + " transactions to " + exportFile.getAbsolutePath());
+                callback.onSuccess(exportFile, rows);
+            } catch (InterruptedIOException e) {
+                Log.d(TAG, "Export cancelled");
+                callback.onCancelled();
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to export data", e);
+                callback.onError("Failed to export data: " + e.getMessage());
+            }
+        }, null) {
+            @Override
+            protected void done() {
+                if (isCancelled() && claimed.compareAndSet(false, true)) {
+                    callback.onCancelled();
+                }
+            }
+        };
+        executorService.execute(task);
+        return task;
+    }
+
+    private int export(ExportOptions options, File target, ExportCallback callback) throws IOException {
+        try {
+            if (!repository.awaitInitialLoad(LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IOException("Data is still loading");
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Export cancelled");
+        }
+
+        List<Transaction> matching = new ArrayList<>();
+        for (Transaction transaction : repository.getCachedTransactions()) {
+            if (options.matches(transaction)) {
+                matching.add(transaction);
+            }
+        }
+        matching.sort(Comparator.comparing(Transaction::getDate, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        File tempFile = new File(target.getParentFile(), target.getName() + ".tmp");
+        int total = matching.size();
+        int lastPercent = -1;
+        try (Writer out = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+            ExportRowWriter rowWriter = newRowWriter(options.getFormat(), out);
+            rowWriter.writeHeader();
+            for (int i = 0; i < total; i++) {
+                if (i % CHECK_INTERVAL == 0) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Export cancelled");
+                    }
+                    int percent = i * 100 / total;
+                    if (percent != lastPercent) {
+                        callback.onProgress(percent);
+                        lastPercent = percent;
+                    }
+                }
+                rowWriter.writeRow(matching.get(i));
+            }
+        } catch (IOException | RuntimeException e) {
+            tempFile.delete();
+            throw e;
+        }
+
+        if (!tempFile.renameTo(target)) {
+            tempFile.delete();
+            throw new IOException("Failed to move export into place");
+        }
+        callback.onProgress(100);
+        return total;
+    }
+
+    private static ExportRowWriter newRowWriter(ExportFormat format, Writer out) {
+        switch (format) {
+            case JSON_LINES:
+                return new JsonLinesRowWriter(out);
+            case CSV:
+            default:
+                return new CsvRowWriter(out);
+        }
+    }
+
+    private File createExportFile(ExportFormat format) throws IOException {
+        File documentsDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOCUMENTS);
+        File exportDir = new File(documentsDir, EXPORT_FOLDER);
+        if (!exportDir.exists() && !exportDir.mkdirs()) {
+            throw new IOException("Failed to create export directory");
+        }
+
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
+        return new File(exportDir, EXPORT_FILE_PREFIX + timestamp + format.getFileExtension());
+    }
+
+    /** Two decimal places without exponent notation, as accounting imports expect. */
+    static String formatAmount(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+}
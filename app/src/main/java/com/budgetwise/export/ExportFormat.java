@@ -0,0 +1,17 @@
+package com.budgetwise.export;
+
+public enum ExportFormat {
+    CSV(".csv", "text/csv"),
+    JSON_LINES(".jsonl", "application/x-ndjson");
+
+    private final String fileExtension;
+    private final String mimeType;
+
+    ExportFormat(String fileExtension, String mimeType) {
+        this.fileExtension = fileExtension;
+        this.mimeType = mimeType;
+    }
+
+    public String getFileExtension() { return fileExtension; }
+    public String getMimeType() { return mimeType; }
+}
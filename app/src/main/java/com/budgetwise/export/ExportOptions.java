@@ -0,0 +1,46 @@
+package com.budgetwise.export;
+
+import com.budgetwise.data.models.Transaction;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * What to export: the output format plus optional filters. Date bounds are inclusive and a
+ * null bound is open; an empty category set exports every category.
+ */
+public class ExportOptions {
+    private final ExportFormat format;
+    private Date startDate;
+    private Date endDate;
+    private final Set<String> categories = new HashSet<>();
+
+    public ExportOptions(ExportFormat format) {
+        this.format = format;
+    }
+
+    public void setDateRange(Date startDate, Date endDate) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    public void setCategories(Set<String> categories) {
+        this.categories.clear();
+        if (categories != null) {
+            this.categories.addAll(categories);
+        }
+    }
+
+    boolean matches(Transaction transaction) {
+        Date date = transaction.getDate();
+        if (startDate != null && (date == null || date.before(startDate))) return false;
+        if (endDate != null && (date == null || date.after(endDate))) return false;
+        return categories.isEmpty() || categories.contains(transaction.getCategory());
+    }
+
+    // Getters
+    public ExportFormat getFormat() { return format; }
+    public Date getStartDate() { return startDate; }
+    public Date getEndDate() { return endDate; }
+    public Set<String> getCategories() { return categories; }
+}
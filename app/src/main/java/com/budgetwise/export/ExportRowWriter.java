@@ -0,0 +1,11 @@
+package com.budgetwise.export;
+
+import com.budgetwise.data.models.Transaction;
+import java.io.IOException;
+
+/** Serializes transactions one row at a time in a particular export format. */
+interface ExportRowWriter {
+    void writeHeader() throws IOException;
+
+    void writeRow(Transaction transaction) throws IOException;
+}
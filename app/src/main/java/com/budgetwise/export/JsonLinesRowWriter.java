@@ -0,0 +1,44 @@
+package com.budgetwise.export;
+
+import com.budgetwise.data.models.Transaction;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/** One compact JSON object per line, so consumers can stream the file back just as cheaply. */
+class JsonLinesRowWriter implements ExportRowWriter {
+    private final Writer out;
+    private final JsonWriter json;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat(DataExporter.DATE_PATTERN, Locale.US);
+
+    JsonLinesRowWriter(Writer out) {
+        this.out = out;
+        // JsonWriter writes straight through, so the newline between values lands in order;
+        // lenient mode is what allows more than one top-level value
+        this.json = new JsonWriter(out);
+        this.json.setLenient(true);
+    }
+
+    @Override
+    public void writeHeader() {
+        // JSON Lines has no header
+    }
+
+    @Override
+    public void writeRow(Transaction transaction) throws IOException {
+        json.beginObject();
+        json.name("id").value(transaction.getId());
+        json.name("date").value(transaction.getDate() != null ? dateFormat.format(transaction.getDate()) : null);
+        json.name("type").value(transaction.getType() != null ? transaction.getType().name() : null);
+        json.name("amount").value(new BigDecimal(DataExporter.formatAmount(transaction.getAmount())));
+        json.name("category").value(transaction.getCategory());
+        json.name("description").value(transaction.getDescription());
+        json.name("notes").value(transaction.getNotes());
+        json.name("recurring").value(transaction.isRecurring());
+        json.endObject();
+        out.write('\n');
+    }
+}
@@ -0,0 +1,232 @@
+package com.budgetwise.importer;
+
+import com.budgetwise.data.models.Transaction;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Bank CSV exports (and BudgetWise's own). Columns are found by header name; the delimiter
+ * is whichever of comma, semicolon or tab the header uses most. Quoted fields may span lines.
+ */
+class CsvStatementParser extends StatementParser {
+    private static final String[] DATE_PATTERNS = {
+        "yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd", "MM/dd/yyyy", "dd/MM/yyyy", "MM/dd/yy", "dd/MM/yy",
+        "dd.MM.yyyy", "dd-MM-yyyy", "yyyy/MM/dd", "dd MMM yyyy", "MMM dd, yyyy"
+    };
+
+    private char delimiter = ',';
+    private int dateColumn = -1;
+    private int descriptionColumn = -1;
+    private int notesColumn = -1;
+    private int amountColumn = -1;
+    private int debitColumn = -1;
+    private int creditColumn = -1;
+    private int typeColumn = -1;
+    private int categoryColumn = -1;
+    private int idColumn = -1;
+
+    @Override
+    List<int[]> findRecords(List<String> lines) throws IOException {
+        int header = 0;
+        while (header < lines.size() && lines.get(header).trim().isEmpty()) {
+            header++;
+        }
+        if (header == lines.size()) {
+            return new ArrayList<>();
+        }
+        // Excel writes a byte order mark in front of the header
+        readHeader(lines.get(header).replace("\uFEFF", ""));
+
+        List<int[]> records = new ArrayList<>();
+        int start = -1;
+        boolean inQuotes = false;
+        for (int i = header + 1; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (start < 0) {
+                if (line.trim().isEmpty()) continue;
+                start = i;
+            }
+            for (int c = 0; c < line.length(); c++) {
+                if (line.charAt(c) == '"') inQuotes = !inQuotes;
+            }
+            if (!inQuotes) {
+                records.add(new int[] {start, i + 1});
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            records.add(new int[] {start, lines.size()});
+        }
+        return records;
+    }
+
+    private void readHeader(String line) throws IOException {
+        delimiter = mostFrequent(line, ',', ';', '\t');
+        List<String> columns = splitFields(line);
+        for (int i = 0; i < columns.size(); i++) {
+            String name = columns.get(i).trim().toLowerCase(Locale.US);
+            if (dateColumn < 0 && matches(name, "date", "transaction date", "posted date", "posting date",
+                    "booking date", "value date")) {
+                dateColumn = i;
+            } else if (descriptionColumn < 0 && matches(name, "description", "payee", "name", "merchant",
+                    "details", "transaction description")) {
+                descriptionColumn = i;
+            } else if (notesColumn < 0 && matches(name, "notes", "memo", "reference text")) {
+                notesColumn = i;
+            } else if (amountColumn < 0 && matches(name, "amount", "value", "transaction amount")) {
+                amountColumn = i;
+            } else if (debitColumn < 0 && matches(name, "debit", "withdrawal", "withdrawals", "money out", "paid out")) {
+                debitColumn = i;
+            } else if (creditColumn < 0 && matches(name, "credit", "deposit", "deposits", "money in", "paid in")) {
+                creditColumn = i;
+            } else if (typeColumn < 0 && matches(name, "type", "transaction type", "debit/credit")) {
+                typeColumn = i;
+            } else if (categoryColumn < 0 && matches(name, "category")) {
+                categoryColumn = i;
+            } else if (idColumn < 0 && matches(name, "id", "transaction id", "fitid", "reference")) {
+                idColumn = i;
+            }
+        }
+        if (descriptionColumn < 0 && notesColumn >= 0) {
+            // Some banks only have a memo column
+            descriptionColumn = notesColumn;
+            notesColumn = -1;
+        }
+        if (dateColumn < 0 || (amountColumn < 0 && debitColumn < 0 && creditColumn < 0)) {
+            throw new IOException("CSV header needs a date column and an amount column");
+        }
+    }
+
+    @Override
+    String dateText(List<String> lines, int from, int to) {
+        return field(splitFields(join(lines, from, to)), dateColumn);
+    }
+
+    @Override
+    String[] datePatterns() {
+        return DATE_PATTERNS;
+    }
+
+    @Override
+    ImportedRecord parseRecord(List<String> lines, int from, int to, SimpleDateFormat dateFormat)
+            throws ParseException {
+        List<String> fields = splitFields(join(lines, from, to));
+
+        double amount;
+        String debit = field(fields, debitColumn);
+        String credit = field(fields, creditColumn);
+        if (amountColumn >= 0 && !field(fields, amountColumn).isEmpty()) {
+            amount = parseAmount(field(fields, amountColumn));
+        } else if (!debit.isEmpty()) {
+            amount = -Math.abs(parseAmount(debit));
+        } else {
+            amount = Math.abs(parseAmount(credit));
+        }
+
+        Transaction.TransactionType type = parseType(field(fields, typeColumn), amount);
+        Transaction transaction = new Transaction(Math.abs(amount), field(fields, descriptionColumn), null, type);
+        transaction.setDate(parseDate(dateFormat, field(fields, dateColumn)));
+        String notes = field(fields, notesColumn);
+        if (!notes.isEmpty()) {
+            transaction.setNotes(notes);
+        }
+
+        String id = field(fields, idColumn);
+        String category = field(fields, categoryColumn);
+        return new ImportedRecord(transaction, id.isEmpty() ? null : id, category.isEmpty() ? null : category);
+    }
+
+    // An explicit type column wins (BudgetWise exports use unsigned amounts); otherwise the sign decides
+    private static Transaction.TransactionType parseType(String type, double amount) {
+        switch (type.trim().toUpperCase(Locale.US)) {
+            case "INCOME":
+            case "CREDIT":
+            case "CR":
+                return Transaction.TransactionType.INCOME;
+            case "EXPENSE":
+            case "DEBIT":
+            case "DR":
+                return Transaction.TransactionType.EXPENSE;
+            case "TRANSFER":
+                return Transaction.TransactionType.TRANSFER;
+            default:
+                return amount < 0 ? Transaction.TransactionType.EXPENSE : Transaction.TransactionType.INCOME;
+        }
+    }
+
+    private List<String> splitFields(String record) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean inQuotes = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (inQuotes) {
+                if (c == '"') {
+                    if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String field(List<String> fields, int column) {
+        if (column < 0 || column >= fields.size()) return "";
+        String value = fields.get(column).trim();
+        // Undo the formula guard BudgetWise adds on export
+        if (value.length() > 1 && value.charAt(0) == '\'' && "=+-@".indexOf(value.charAt(1)) >= 0) {
+            value = value.substring(1);
+        }
+        return value;
+    }
+
+    private static String join(List<String> lines, int from, int to) {
+        if (to - from == 1) return lines.get(from);
+        StringBuilder record = new StringBuilder(lines.get(from));
+        for (int i = from + 1; i < to; i++) {
+            record.append('\n').append(lines.get(i));
+        }
+        return record.toString();
+    }
+
+    private static boolean matches(String name, String... candidates) {
+        for (String candidate : candidates) {
+            if (name.equals(candidate)) return true;
+        }
+        return false;
+    }
+
+    private static char mostFrequent(String line, char... candidates) {
+        char best = candidates[0];
+        int bestCount = 0;
+        for (char candidate : candidates) {
+            int count = 0;
+            for (int i = 0; i < line.length(); i++) {
+                if (line.charAt(i) == candidate) count++;
+            }
+            if (count > bestCount) {
+                best = candidate;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,140 @@
+package com.budgetwise.importer;
+
+import com.budgetwise.data.models.Transaction;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Screens imported rows against existing history with hash lookups instead of a scan per row.
+ * History is indexed once by (type, amount in cents, local day); a row is a duplicate if its
+ * bucket holds a transaction with a matching description that no earlier row has claimed.
+ * Claiming keeps two genuine identical purchases on one day apart while a re-imported
+ * statement still collapses. Within the file, rows repeating a bank id are dropped.
+ */
+class ImportDeduplicator {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final Map<Key, List<Candidate>> buckets = new HashMap<>();
+    private final Set<String> knownIds = new HashSet<>();
+    private final Set<String> seenExternalIds = new HashSet<>();
+    private final TimeZone timeZone = TimeZone.getDefault();
+
+    ImportDeduplicator(List<Transaction> history) {
+        for (Transaction transaction : history) {
+            knownIds.add(transaction.getId());
+            if (transaction.getDate() == null) continue;
+            Key key = keyOf(transaction);
+            List<Candidate> bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new ArrayList<>(1);
+                buckets.put(key, bucket);
+            }
+            bucket.add(new Candidate(transaction.getDescription()));
+        }
+    }
+
+    /** Returns true if the record duplicates history or an earlier row, claiming what it matched. */
+    boolean isDuplicate(ImportedRecord record) {
+        if (record.externalId != null) {
+            // Our own exports carry record ids; bank ids repeat when statements overlap
+            if (knownIds.contains(record.externalId) || !seenExternalIds.add(record.externalId)) {
+                return true;
+            }
+        }
+
+        List<Candidate> bucket = buckets.get(keyOf(record.transaction));
+        if (bucket == null) return false;
+
+        String description = normalize(record.transaction.getDescription());
+        for (Candidate candidate : bucket) {
+            if (!candidate.claimed && descriptionsMatch(description, candidate.getNormalized())) {
+                candidate.claimed = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Key keyOf(Transaction transaction) {
+        Date date = transaction.getDate();
+        long time = date.getTime();
+        long day = Math.floorDiv(time + timeZone.getOffset(time), DAY_MILLIS);
+        long cents = Math.round(Math.abs(transaction.getAmount()) * 100);
+        return new Key(transaction.getType(), cents, day);
+    }
+
+    // Bank descriptions get truncated or padded, so containment counts as a match. A blank
+    // description only matches another blank one: every string contains the empty one
+    private static boolean descriptionsMatch(String a, String b) {
+        if (a.isEmpty() || b.isEmpty()) return a.isEmpty() && b.isEmpty();
+        return a.length() <= b.length() ? b.contains(a) : a.contains(b);
+    }
+
+    /** Lower-cases and keeps letters and digits, with single spaces between words. */
+    static String normalize(String description) {
+        if (description == null) return "";
+        StringBuilder normalized = new StringBuilder(description.length());
+        boolean space = false;
+        for (int i = 0; i < description.length(); i++) {
+            char c = description.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (space && normalized.length() > 0) normalized.append(' ');
+                normalized.append(Character.toLowerCase(c));
+                space = false;
+            } else if (Character.isWhitespace(c)) {
+                space = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static final class Candidate {
+        private final String description;
+        private String normalized;
+        boolean claimed;
+
+        Candidate(String description) {
+            this.description = description;
+        }
+
+        // Most buckets are never probed, so normalize on first use
+        String getNormalized() {
+            if (normalized == null) {
+                normalized = normalize(description);
+            }
+            return normalized;
+        }
+    }
+
+    private static final class Key {
+        final Transaction.TransactionType type;
+        final long cents;
+        final long day;
+
+        Key(Transaction.TransactionType type, long cents, long day) {
+            this.type = type;
+            this.cents = cents;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return type == other.type && cents == other.cents && day == other.day;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = type != null ? type.hashCode() : 0;
+            result = 31 * result + (int) (cents ^ (cents >>> 32));
+            return 31 * result + (int) (day ^ (day >>> 32));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.budgetwise.importer;
+
+public enum ImportFormat {
+    CSV, OFX, QIF;
+
+    /** Recognizes the format from the start of the file, so the file name doesn't matter. */
+    static ImportFormat detect(String start) {
+        String trimmed = start.trim();
+        if (trimmed.startsWith("OFXHEADER") || trimmed.contains("<OFX>")
+                || (trimmed.startsWith("<?xml") && trimmed.contains("<OFX"))) {
+            return OFX;
+        }
+        if (trimmed.startsWith("!Type") || trimmed.startsWith("!Account") || trimmed.startsWith("!Option")) {
+            return QIF;
+        }
+        return CSV;
+    }
+
+    StatementParser newParser() {
+        switch (this) {
+            case OFX:
+                return new OfxStatementParser();
+            case QIF:
+                return new QifStatementParser();
+            case CSV:
+            default:
+                return new CsvStatementParser();
+        }
+    }
+}
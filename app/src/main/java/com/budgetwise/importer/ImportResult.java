@@ -0,0 +1,32 @@
+package com.budgetwise.importer;
+
+import java.util.List;
+
+/** Outcome of one import: how many rows were read, added, skipped as duplicates or rejected. */
+public class ImportResult {
+    private final ImportFormat format;
+    private final int recordCount;
+    private final int importedCount;
+    private final int duplicateCount;
+    private final int errorCount;
+    // The first few rejected rows, e.g. "Record 12: Unreadable amount '1.2.3'"
+    private final List<String> errorSamples;
+
+    ImportResult(ImportFormat format, int recordCount, int importedCount, int duplicateCount,
+                 int errorCount, List<String> errorSamples) {
+        this.format = format;
+        this.recordCount = recordCount;
+        this.importedCount = importedCount;
+        this.duplicateCount = duplicateCount;
+        this.errorCount = errorCount;
+        this.errorSamples = errorSamples;
+    }
+
+    // Getters
+    public ImportFormat getFormat() { return format; }
+    public int getRecordCount() { return recordCount; }
+    public int getImportedCount() { return importedCount; }
+    public int getDuplicateCount() { return duplicateCount; }
+    public int getErrorCount() { return errorCount; }
+    public List<String> getErrorSamples() { return errorSamples; }
+}
@@ -0,0 +1,18 @@
+package com.budgetwise.importer;
+
+import com.budgetwise.data.models.Transaction;
+
+/** A parsed statement row, plus what the file itself says about it. */
+class ImportedRecord {
+    final Transaction transaction;
+    // Bank-assigned identifier (OFX FITID, CSV id column); null when the format has none
+    final String externalId;
+    // Category given by the file, used when the categorizer has no better answer
+    final String fileCategory;
+
+    ImportedRecord(Transaction transaction, String externalId, String fileCategory) {
+        this.transaction = transaction;
+        this.externalId = externalId;
+        this.fileCategory = fileCategory;
+    }
+}
@@ -0,0 +1,131 @@
+package com.budgetwise.importer;
+
+import com.budgetwise.data.models.Transaction;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * OFX statements, both the SGML 1.x flavour (unclosed leaf tags) and OFX 2 XML. Files are
+ * often a single line, so the units here are tags rather than lines.
+ */
+class OfxStatementParser extends StatementParser {
+    private static final String RECORD_START = "<STMTTRN>";
+    private static final String RECORD_END = "</STMTTRN>";
+    // Only the date part of DTPOSTED is used; the time is usually a placeholder
+    private static final String[] DATE_PATTERNS = {"yyyyMMdd"};
+
+    @Override
+    List<String> readUnits(BufferedReader reader) throws IOException {
+        List<String> tags = new ArrayList<>();
+        StringBuilder tag = new StringBuilder();
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c == '<' && tag.length() > 0) {
+                addTag(tags, tag);
+            }
+            tag.append((char) c);
+        }
+        addTag(tags, tag);
+        return tags;
+    }
+
+    private static void addTag(List<String> tags, StringBuilder tag) {
+        String text = tag.toString().trim();
+        if (!text.isEmpty()) {
+            tags.add(text);
+        }
+        tag.setLength(0);
+    }
+
+    @Override
+    List<int[]> findRecords(List<String> tags) {
+        List<int[]> records = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < tags.size(); i++) {
+            String tag = tags.get(i);
+            if (tag.regionMatches(true, 0, RECORD_START, 0, RECORD_START.length())) {
+                start = i + 1;
+            } else if (start >= 0 && tag.regionMatches(true, 0, RECORD_END, 0, RECORD_END.length())) {
+                records.add(new int[] {start, i});
+                start = -1;
+            }
+        }
+        return records;
+    }
+
+    @Override
+    String dateText(List<String> tags, int from, int to) {
+        return datePart(value(tags, from, to, "DTPOSTED"));
+    }
+
+    @Override
+    String[] datePatterns() {
+        return DATE_PATTERNS;
+    }
+
+    @Override
+    ImportedRecord parseRecord(List<String> tags, int from, int to, SimpleDateFormat dateFormat)
+            throws ParseException {
+        String trnType = null;
+        String posted = null;
+        String amountText = null;
+        String name = null;
+        String memo = null;
+        String fitId = null;
+        for (int i = from; i < to; i++) {
+            String tag = tags.get(i);
+            int close = tag.indexOf('>');
+            if (close < 0 || tag.charAt(1) == '/') continue;
+            String element = tag.substring(1, close).toUpperCase(Locale.US);
+            String value = decode(tag.substring(close + 1).trim());
+            switch (element) {
+                case "TRNTYPE": trnType = value; break;
+                case "DTPOSTED": posted = value; break;
+                case "TRNAMT": amountText = value; break;
+                case "NAME": name = value; break;
+                case "MEMO": memo = value; break;
+                case "FITID": fitId = value; break;
+                default: break;
+            }
+        }
+
+        double amount = parseAmount(amountText);
+        Transaction.TransactionType type = "XFER".equalsIgnoreCase(trnType)
+            ? Transaction.TransactionType.TRANSFER
+            : amount < 0 ? Transaction.TransactionType.EXPENSE : Transaction.TransactionType.INCOME;
+        String description = name != null && !name.isEmpty() ? name : memo;
+
+        Transaction transaction = new Transaction(Math.abs(amount), description, null, type);
+        transaction.setDate(parseDate(dateFormat, datePart(posted)));
+        if (memo != null && !memo.isEmpty() && !memo.equals(description)) {
+            transaction.setNotes(memo);
+        }
+        return new ImportedRecord(transaction, fitId != null && !fitId.isEmpty() ? fitId : null, null);
+    }
+
+    private static String value(List<String> tags, int from, int to, String element) {
+        String open = "<" + element + ">";
+        for (int i = from; i < to; i++) {
+            String tag = tags.get(i);
+            if (tag.regionMatches(true, 0, open, 0, open.length())) {
+                return tag.substring(open.length()).trim();
+            }
+        }
+        return null;
+    }
+
+    private static String datePart(String posted) {
+        return posted != null && posted.length() >= 8 ? posted.substring(0, 8) : posted;
+    }
+
+    private static String decode(String value) {
+        if (value.indexOf('&') < 0) return value;
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+            .replace("&apos;", "'").replace("&amp;", "&");
+    }
+}
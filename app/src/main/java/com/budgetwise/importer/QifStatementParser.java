@@ -0,0 +1,104 @@
+package com.budgetwise.importer;
+
+import com.budgetwise.data.models.Transaction;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Quicken Interchange Format: one field per line keyed by its first character, records
+ * ending with "^". Only cash-style accounts are read; investment sections are skipped.
+ */
+class QifStatementParser extends StatementParser {
+    // Quicken writes years after 1999 as 1/15'24; dateText turns the apostrophe into a slash
+    private static final String[] DATE_PATTERNS = {
+        "MM/dd/yyyy", "MM/dd/yy", "dd/MM/yyyy", "dd/MM/yy", "yyyy-MM-dd", "dd.MM.yyyy"
+    };
+
+    @Override
+    List<int[]> findRecords(List<String> lines) {
+        List<int[]> records = new ArrayList<>();
+        boolean investment = false;
+        int start = -1;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.startsWith("!")) {
+                if (line.regionMatches(true, 0, "!Type:", 0, 6)) {
+                    investment = line.regionMatches(true, 6, "Invst", 0, 5);
+                }
+                start = -1;
+            } else if (line.equals("^")) {
+                if (start >= 0 && !investment) {
+                    records.add(new int[] {start, i});
+                }
+                start = -1;
+            } else if (start < 0 && !line.isEmpty()) {
+                start = i;
+            }
+        }
+        return records;
+    }
+
+    @Override
+    String dateText(List<String> lines, int from, int to) {
+        for (int i = from; i < to; i++) {
+            String line = lines.get(i).trim();
+            if (line.startsWith("D")) {
+                return line.substring(1).replace('\'', '/').replace(" ", "");
+            }
+        }
+        return null;
+    }
+
+    @Override
+    String[] datePatterns() {
+        return DATE_PATTERNS;
+    }
+
+    @Override
+    ImportedRecord parseRecord(List<String> lines, int from, int to, SimpleDateFormat dateFormat)
+            throws ParseException {
+        String amountText = null;
+        String payee = null;
+        String memo = null;
+        String category = null;
+        for (int i = from; i < to; i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty()) continue;
+            String value = line.substring(1).trim();
+            switch (line.charAt(0)) {
+                case 'T':
+                case 'U':
+                    if (amountText == null) amountText = value;
+                    break;
+                case 'P': payee = value; break;
+                case 'M': memo = value; break;
+                case 'L': category = value; break;
+                default: break;
+            }
+        }
+
+        double amount = parseAmount(amountText);
+        // "[Account]" in the category field marks a transfer between accounts
+        boolean transfer = category != null && category.startsWith("[");
+        Transaction.TransactionType type = transfer ? Transaction.TransactionType.TRANSFER
+            : amount < 0 ? Transaction.TransactionType.EXPENSE : Transaction.TransactionType.INCOME;
+        String description = payee != null && !payee.isEmpty() ? payee : memo;
+
+        Transaction transaction = new Transaction(Math.abs(amount), description, null, type);
+        transaction.setDate(parseDate(dateFormat, dateText(lines, from, to)));
+        if (memo != null && !memo.isEmpty() && !memo.equals(description)) {
+            transaction.setNotes(memo);
+        }
+
+        String fileCategory = null;
+        if (category != null && !category.isEmpty() && !transfer) {
+            // Keep the top level of "Food:Groceries"
+            int sub = category.indexOf(':');
+            fileCategory = sub > 0 ? category.substring(0, sub) : category;
+        }
+        // QIF has no transaction ids; check numbers ("N") repeat across accounts
+        return new ImportedRecord(transaction, null, fileCategory);
+    }
+}
@@ -0,0 +1,158 @@
+package com.budgetwise.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads one statement format. Parsing happens in two steps so records can be parsed in
+ * parallel: a cheap sequential scan finds where each record starts and ends, then chunks of
+ * records are handed to {@link #parseRecord} on several threads. Anything a parser learns
+ * during the scan (column layout, say) must be fixed before parsing starts.
+ */
+abstract class StatementParser {
+    // 1970-01-01 and 2100-01-01 UTC
+    private static final long EARLIEST_DATE = 0L;
+    private static final long LATEST_DATE = 4102444800000L;
+
+    /** Splits the input into the units records are built from; lines unless a format says otherwise. */
+    List<String> readUnits(BufferedReader reader) throws IOException {
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    /** Returns one [start, end) unit range per record, in file order. */
+    abstract List<int[]> findRecords(List<String> units) throws IOException;
+
+    /** Returns the raw date text of a record, used to work out the file's date pattern. */
+    abstract String dateText(List<String> units, int from, int to);
+
+    /** Date patterns this format may use, most likely first. */
+    abstract String[] datePatterns();
+
+    /**
+     * Parses one record. Called concurrently for different records; {@code dateFormat} belongs
+     * to the calling chunk.
+     *
+     * @return the record, or null if the range holds no transaction
+     * @throws IllegalArgumentException or ParseException if the record is malformed
+     */
+    abstract ImportedRecord parseRecord(List<String> units, int from, int to, SimpleDateFormat dateFormat)
+        throws ParseException;
+
+    /**
+     * Picks the first pattern that parses every sample to a plausible date, so a file is read
+     * consistently instead of guessing day/month order row by row.
+     */
+    String detectDatePattern(List<String> samples) {
+        String[] patterns = datePatterns();
+        String best = patterns[0];
+        int bestMatches = -1;
+        for (String pattern : patterns) {
+            SimpleDateFormat format = newDateFormat(pattern);
+            int matches = 0;
+            for (String sample : samples) {
+                if (parsePlausibleDate(format, sample) != null) {
+                    matches++;
+                }
+            }
+            if (matches == samples.size()) {
+                return pattern;
+            }
+            if (matches > bestMatches) {
+                best = pattern;
+                bestMatches = matches;
+            }
+        }
+        return best;
+    }
+
+    static SimpleDateFormat newDateFormat(String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+        format.setLenient(false);
+        return format;
+    }
+
+    static Date parseDate(SimpleDateFormat format, String text) throws ParseException {
+        Date date = parsePlausibleDate(format, text);
+        if (date == null) {
+            throw new ParseException("Unreadable date '" + text + "'", 0);
+        }
+        return date;
+    }
+
+    // "yyyy" happily reads "24" as year 24, so reject years no statement would contain
+    private static Date parsePlausibleDate(SimpleDateFormat format, String text) {
+        if (text == null || text.isEmpty()) return null;
+        try {
+            Date date = format.parse(text);
+            return date.getTime() >= EARLIEST_DATE && date.getTime() < LATEST_DATE ? date : null;
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses a bank amount: currency symbols and spaces are ignored, "(12.50)" and "12.50-"
+     * are negative, and the separator that comes last is taken as the decimal point when both
+     * "." and "," appear ("1.234,56" and "1,234.56" are the same amount).
+     */
+    static double parseAmount(String text) {
+        if (text == null) throw new IllegalArgumentException("Missing amount");
+        StringBuilder digits = new StringBuilder(text.length());
+        boolean negative = false;
+        int lastDot = -1;
+        int lastComma = -1;
+        int commas = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            } else if (c == '.') {
+                lastDot = digits.length();
+                digits.append(c);
+            } else if (c == ',') {
+                lastComma = digits.length();
+                commas++;
+                digits.append(c);
+            } else if (c == '-' || c == '(') {
+                negative = true;
+            }
+        }
+        if (digits.length() == 0) throw new IllegalArgumentException("Missing amount");
+
+        char decimal;
+        if (lastDot >= 0 && lastComma >= 0) {
+            decimal = lastDot > lastComma ? '.' : ',';
+        } else if (lastComma >= 0) {
+            // A lone comma followed by one or two digits is a decimal comma
+            decimal = commas == 1 && digits.length() - lastComma - 1 <= 2 ? ',' : '.';
+        } else {
+            decimal = '.';
+        }
+        char grouping = decimal == '.' ? ',' : '.';
+
+        StringBuilder plain = new StringBuilder(digits.length());
+        for (int i = 0; i < digits.length(); i++) {
+            char c = digits.charAt(i);
+            if (c == grouping) continue;
+            plain.append(c == decimal ? '.' : c);
+        }
+        try {
+            double value = new BigDecimal(plain.toString()).doubleValue();
+            return negative ? -value : value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unreadable amount '" + text + "'");
+        }
+    }
+}
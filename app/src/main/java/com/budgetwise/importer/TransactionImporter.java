@@ -0,0 +1,245 @@
+package com.budgetwise.importer;
+
+import android.util.Log;
+import com.budgetwise.ai.EnhancedIntelligenceService;
+import com.budgetwise.data.models.Transaction;
+import com.budgetwise.data.repository.BudgetRepository;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Imports bank statements (CSV, OFX, QIF) in four stages:
+ * <ol>
+ *   <li>parse: records are located in one sequential pass, then parsed in parallel chunks;</li>
+ *   <li>categorize: each row goes through the app's categorizer, once per distinct description;</li>
+ *   <li>deduplicate: rows are screened against history and the file through an index;</li>
+ *   <li>commit: the surviving rows are added in a single repository write.</li>
+ * </ol>
+ */
+public class TransactionImporter {
+    private static final String TAG = "TransactionImporter";
+    private static final int MIN_CHUNK_SIZE = 1000;
+    private static final int DATE_SAMPLE_SIZE = 200;
+    private static final int MAX_ERROR_SAMPLES = 5;
+    private static final int SNIFF_LENGTH = 4096;
+    private static final long LOAD_TIMEOUT_SECONDS = 30;
+
+    private final BudgetRepository repository;
+    // Description to category; called once per distinct description of an import
+    private final Function<String, String> categorizer;
+    private final ExecutorService executorService;
+    private final ThreadPoolExecutor parsePool;
+
+    public TransactionImporter(BudgetRepository repository, EnhancedIntelligenceService intelligenceService) {
+        this(repository, intelligenceService::categorizeTransaction);
+    }
+
+    TransactionImporter(BudgetRepository repository, Function<String, String> categorizer) {
+        this.repository = repository;
+        this.categorizer = categorizer;
+        this.executorService = Executors.newSingleThreadExecutor();
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        this.parsePool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        // Imports are rare; don't keep the workers alive in between
+        this.parsePool.allowCoreThreadTimeOut(true);
+    }
+
+    public interface ImportCallback {
+        void onSuccess(ImportResult result);
+        void onError(String error);
+    }
+
+    /** Imports the statement in {@code input}, closing it when done. */
+    public void importStatement(InputStream input, ImportCallback callback) {
+        executorService.execute(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+                ImportResult result = runImport(reader);
+                callback.onSuccess(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to import statement", e);
+                callback.onError("Failed to import: " + e.getMessage());
+            }
+        });
+    }
+
+    private ImportResult runImport(BufferedReader reader) throws Exception {
+        long started = System.currentTimeMillis();
+        ParsedStatement statement = parse(reader);
+        List<ImportedRecord> parsed = statement.records;
+
+        // Stage 3: screen duplicates against a consistent view of history
+        if (!repository.awaitInitialLoad(LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IOException("Data is still loading");
+        }
+        ImportDeduplicator deduplicator = new ImportDeduplicator(repository.getCachedTransactions());
+        List<Transaction> accepted = new ArrayList<>(parsed.size());
+        for (ImportedRecord record : parsed) {
+            if (!deduplicator.isDuplicate(record)) {
+                accepted.add(record.transaction);
+            }
+        }
+
+        // Stage 4: one write for the whole batch
+        repository.addTransactions(accepted).get();
+
+        Log.d(TAG, "Imported " + accepted.size() + " of " + statement.recordCount + " " + statement.format
+            + " records in " + (System.currentTimeMillis() - started) + " ms (" + (parsed.size() - accepted.size())
+            + " duplicates, " + statement.errorCount + " errors)");
+        return new ImportResult(statement.format, statement.recordCount, accepted.size(),
+            parsed.size() - accepted.size(), statement.errorCount, statement.errorSamples);
+    }
+
+    /** Stages 1 and 2: parses and categorizes every record, in parallel chunks. */
+    ParsedStatement parse(BufferedReader reader) throws Exception {
+        ImportFormat format = ImportFormat.detect(peek(reader));
+        StatementParser parser = format.newParser();
+        List<String> units = parser.readUnits(reader);
+        List<int[]> records = parser.findRecords(units);
+
+        String datePattern = parser.detectDatePattern(sampleDates(parser, units, records));
+        List<ChunkResult> chunks = parseInChunks(parser, units, records, datePattern);
+
+        List<ImportedRecord> parsed = new ArrayList<>(records.size());
+        List<String> errorSamples = new ArrayList<>();
+        int errorCount = 0;
+        for (ChunkResult chunk : chunks) {
+            parsed.addAll(chunk.records);
+            errorCount += chunk.errorCount;
+            for (String error : chunk.errors) {
+                if (errorSamples.size() < MAX_ERROR_SAMPLES) errorSamples.add(error);
+            }
+        }
+        return new ParsedStatement(format, records.size(), parsed, errorCount, errorSamples);
+    }
+
+    private static String peek(BufferedReader reader) throws IOException {
+        reader.mark(SNIFF_LENGTH);
+        char[] start = new char[SNIFF_LENGTH];
+        int read = reader.read(start);
+        reader.reset();
+        return read > 0 ? new String(start, 0, read).replace("\uFEFF", "") : "";
+    }
+
+    private static List<String> sampleDates(StatementParser parser, List<String> units, List<int[]> records) {
+        List<String> samples = new ArrayList<>();
+        // Spread samples over the file so day/month order is seen past the 12th
+        int step = Math.max(1, records.size() / DATE_SAMPLE_SIZE);
+        for (int i = 0; i < records.size() && samples.size() < DATE_SAMPLE_SIZE; i += step) {
+            int[] range = records.get(i);
+            String text = parser.dateText(units, range[0], range[1]);
+            if (text != null && !text.isEmpty()) {
+                samples.add(text);
+            }
+        }
+        return samples;
+    }
+
+    private List<ChunkResult> parseInChunks(StatementParser parser, List<String> units, List<int[]> records,
+                                            String datePattern) throws Exception {
+        int chunkCount = Math.max(1, Math.min(parsePool.getMaximumPoolSize() * 2,
+            records.size() / MIN_CHUNK_SIZE));
+        int chunkSize = (records.size() + chunkCount - 1) / Math.max(1, chunkCount);
+        Map<String, String> categoryCache = new ConcurrentHashMap<>();
+
+        List<Callable<ChunkResult>> tasks = new ArrayList<>();
+        for (int start = 0; start < records.size(); start += chunkSize) {
+            int from = start;
+            int to = Math.min(records.size(), start + chunkSize);
+            tasks.add(() -> parseChunk(parser, units, records, from, to, datePattern, categoryCache));
+        }
+
+        List<ChunkResult> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<ChunkResult> future : parsePool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        return results;
+    }
+
+    private ChunkResult parseChunk(StatementParser parser, List<String> units, List<int[]> records,
+                                   int from, int to, String datePattern, Map<String, String> categoryCache) {
+        // SimpleDateFormat isn't thread-safe; each chunk gets its own
+        SimpleDateFormat dateFormat = StatementParser.newDateFormat(datePattern);
+        ChunkResult result = new ChunkResult(to - from);
+        for (int i = from; i < to; i++) {
+            int[] range = records.get(i);
+            try {
+                ImportedRecord record = parser.parseRecord(units, range[0], range[1], dateFormat);
+                if (record != null) {
+                    categorize(record, categoryCache);
+                    result.records.add(record);
+                }
+            } catch (ParseException | IllegalArgumentException e) {
+                result.errorCount++;
+                if (result.errors.size() < MAX_ERROR_SAMPLES) {
+                    result.errors.add("Record " + (i + 1) + ": " + e.getMessage());
+                }
+            }
+        }
+        return result;
+    }
+
+    // The categorizer knows the app's categories; the file's own category is only a fallback
+    private void categorize(ImportedRecord record, Map<String, String> categoryCache) {
+        Transaction transaction = record.transaction;
+        String description = transaction.getDescription() != null ? transaction.getDescription() : "";
+        String category = categoryCache.get(description);
+        if (category == null) {
+            category = categorizer.apply(description);
+            categoryCache.put(description, category);
+        }
+        if ("Other".equals(category) && record.fileCategory != null) {
+            category = record.fileCategory;
+        }
+        transaction.setCategory(category);
+    }
+
+    /** The records of a statement in file order, and the ones that couldn't be read. */
+    static final class ParsedStatement {
+        final ImportFormat format;
+        final int recordCount;
+        final List<ImportedRecord> records;
+        final int errorCount;
+        final List<String> errorSamples;
+
+        ParsedStatement(ImportFormat format, int recordCount, List<ImportedRecord> records, int errorCount,
+                        List<String> errorSamples) {
+            this.format = format;
+            this.recordCount = recordCount;
+            this.records = records;
+            this.errorCount = errorCount;
+            this.errorSamples = errorSamples;
+        }
+    }
+
+    private static final class ChunkResult {
+        final List<ImportedRecord> records;
+        final List<String> errors = new ArrayList<>();
+        int errorCount;
+
+        ChunkResult(int capacity) {
+            this.records = new ArrayList<>(capacity);
+        }
+    }
+}
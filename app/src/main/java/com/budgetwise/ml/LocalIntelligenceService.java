@@ -3,6 +3,8 @@ package com.budgetwise.ml;
 import android.content.Context;
 import android.util.Log;
 import androidx.lifecycle.MutableLiveData;
+import com.budgetwise.ai.KeywordCategorizer;
+import com.budgetwise.ai.QuantileSketch;
 import com.budgetwise.data.models.Budget;
 import com.budgetwise.data.models.Transaction;
 import com.budgetwise.data.repository.BudgetRepository;
@@ -19,54 +21,17 @@ public class LocalIntelligenceService {
     private final ExecutorService executorService;
     private final MutableLiveData<List<String>> insightsLiveData = new MutableLiveData<>();
     
-    // Category mapping for auto-categorization
-    private final Map<String, String> categoryKeywords = new HashMap<>();
+    // Same keywords and priorities as EnhancedIntelligenceService, kept in memory only
+    private final KeywordCategorizer categorizer = new KeywordCategorizer(null);
     
     public LocalIntelligenceService(Context context, BudgetRepository repository) {
         this.context = context;
         this.repository = repository;
         this.executorService = Executors.newSingleThreadExecutor();
-        initializeCategoryKeywords();
-    }
-
-    private void initializeCategoryKeywords() {
-        categoryKeywords.put("grocery", "Food & Dining");
-        categoryKeywords.put("restaurant", "Food & Dining");
-        categoryKeywords.put("coffee", "Food & Dining");
-        categoryKeywords.put("gas", "Transportation");
-        categoryKeywords.put("fuel", "Transportation");
-        categoryKeywords.put("uber", "Transportation");
-        categoryKeywords.put("taxi", "Transportation");
-        categoryKeywords.put("netflix", "Entertainment");
-        categoryKeywords.put("spotify", "Entertainment");
-        categoryKeywords.put("movie", "Entertainment");
-        categoryKeywords.put("amazon", "Shopping");
-        categoryKeywords.put("walmart", "Shopping");
-        categoryKeywords.put("target", "Shopping");
-        categoryKeywords.put("pharmacy", "Healthcare");
-        categoryKeywords.put("doctor", "Healthcare");
-        categoryKeywords.put("hospital", "Healthcare");
-        categoryKeywords.put("rent", "Housing");
-        categoryKeywords.put("mortgage", "Housing");
-        categoryKeywords.put("utilities", "Bills & Utilities");
-        categoryKeywords.put("electric", "Bills & Utilities");
-        categoryKeywords.put("internet", "Bills & Utilities");
     }
 
     public String categorizeTransaction(String description) {
-        if (description == null || description.trim().isEmpty()) {
-            return "Other";
-        }
-        
-        String lowerDescription = description.toLowerCase();
-        
-        for (Map.Entry<String, String> entry : categoryKeywords.entrySet()) {
-            if (lowerDescription.contains(entry.getKey())) {
-                return entry.getValue();
-            }
-        }
-        
-        return "Other";
+        return categorizer.categorize(description);
     }
 
     public void analyzeSpendingPatterns() {
@@ -223,16 +188,16 @@ public class LocalIntelligenceService {
             
             if (recentExpenses.size() < 5) return anomalies;
             
-            double averageAmount = recentExpenses.stream()
-                .mapToDouble(Transaction::getAmount)
-                .average()
-                .orElse(0.0);
-            
-            // Find transactions that are significantly higher than average
-            double threshold = averageAmount * 3; // 3x average
+            // Median and robust spread instead of the average, which a single rent payment
+            // drags up far enough to hide everything else
+            QuantileSketch amounts = new QuantileSketch();
+            for (Transaction transaction : recentExpenses) {
+                amounts.add(transaction.getAmount());
+            }
             
+            // Find transactions that are outliers on the high side
             List<Transaction> largeTransactions = recentExpenses.stream()
-                .filter(t -> t.getAmount() > threshold)
+                .filter(t -> amounts.robustScore(t.getAmount()) > QuantileSketch.OUTLIER_SCORE)
                 .sorted((t1, t2) -> Double.compare(t2.getAmount(), t1.getAmount()))
                 .limit(3)
                 .collect(Collectors.toList());
@@ -7,10 +7,12 @@ import android.content.Intent;
 import android.os.Build;
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
-import androidx.work.OneTimeWorkRequest;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
 import androidx.work.WorkManager;
 import androidx.work.Worker;
 import androidx.work.WorkerParameters;
+import com.budgetwise.BudgetWiseApplication;
 import com.budgetwise.MainActivity;
 import com.budgetwise.R;
 import com.budgetwise.data.models.Budget;
@@ -20,6 +22,8 @@ public class NotificationManager {
     private static final String CHANNEL_ID = "budget_alerts";
     private static final String CHANNEL_NAME = "Budget Alerts";
     private static final int NOTIFICATION_ID_BASE = 1000;
+    private static final String BACKUP_REMINDER_WORK_NAME = "budgetwise_backup_reminder";
+    private static final int BACKUP_REMINDER_AFTER_DAYS = 7;
     
     private final Context context;
     private final androidx.core.app.NotificationManagerCompat notificationManager;
@@ -79,12 +83,14 @@ public class NotificationManager {
         notificationManager.notify(NOTIFICATION_ID_BASE + budget.hashCode(), builder.build());
     }
 
+    /** Schedules (or keeps) the daily reminder check; safe to call on every app start. */
     public void scheduleBackupReminder() {
-        OneTimeWorkRequest backupReminderWork = new OneTimeWorkRequest.Builder(BackupReminderWorker.class)
+        PeriodicWorkRequest backupReminderWork = new PeriodicWorkRequest.Builder(BackupReminderWorker.class, 24, TimeUnit.HOURS)
             .setInitialDelay(24, TimeUnit.HOURS)
             .build();
 
-        WorkManager.getInstance(context).enqueue(backupReminderWork);
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+            BACKUP_REMINDER_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, backupReminderWork);
     }
 
     public enum BudgetAlertType {
@@ -98,6 +104,11 @@ public class NotificationManager {
 
         @Override
         public Result doWork() {
+            // Scheduled backups normally keep data safe; only remind when they haven't run lately
+            long lastBackup = BudgetWiseApplication.getInstance().getBackupManager().getLastBackupTime();
+            if (System.currentTimeMillis() - lastBackup < TimeUnit.DAYS.toMillis(BACKUP_REMINDER_AFTER_DAYS)) {
+                return Result.success();
+            }
             NotificationManager notificationManager = new NotificationManager(getApplicationContext());
             notificationManager.showBackupReminder();
             return Result.success();
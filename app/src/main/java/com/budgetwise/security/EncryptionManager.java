@@ -1,6 +1,7 @@
 package com.budgetwise.security;
 
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.provider.Settings;
 import android.security.keystore.KeyGenParameterSpec;
 import android.security.keystore.KeyProperties;
@@ -10,6 +11,8 @@ import android.util.Log;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
 import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.Mac;
@@ -24,36 +27,69 @@ public class EncryptionManager {
     private static final String KEYSTORE_PROVIDER = "AndroidKeyStore";
     private static final int GCM_IV_LENGTH = 12;
     private static final int GCM_TAG_LENGTH = 16;
+
+    // Key versioning: version 1 is the original alias, later versions get a suffix.
+    // Ciphertexts carry a "kv<version>:" header; values without one predate rotation.
+    private static final int LEGACY_KEY_VERSION = 1;
+    private static final String KEY_VERSION_PREFIX = "kv";
+    private static final char KEY_VERSION_SEPARATOR = ':';
+    private static final String META_PREFS_NAME = "BudgetWiseKeyMeta";
+    private static final String META_CURRENT_VERSION = "current_key_version";
+    private static final String META_ROTATION_TARGET = "rotation_target_version";
+    private static final String META_ROTATION_CHECKPOINT = "rotation_checkpoint";
     
     private final Context context;
-    private SecretKey secretKey;
+    private final SharedPreferences metaPreferences;
+    private final Map<Integer, SecretKey> keysByVersion = new ConcurrentHashMap<>();
+    private volatile int currentKeyVersion;
 
     public EncryptionManager(Context context) {
         this.context = context;
+        this.metaPreferences = context.getSharedPreferences(META_PREFS_NAME, Context.MODE_PRIVATE);
         initializeKey();
     }
 
     private void initializeKey() {
         try {
-            KeyStore keyStore = KeyStore.getInstance(KEYSTORE_PROVIDER);
-            keyStore.load(null);
-
-            if (!keyStore.containsAlias(KEYSTORE_ALIAS)) {
-                generateKey();
-            }
-
-            secretKey = (SecretKey) keyStore.getKey(KEYSTORE_ALIAS, null);
+            currentKeyVersion = metaPreferences.getInt(META_CURRENT_VERSION, LEGACY_KEY_VERSION);
+            getKey(currentKeyVersion);
         } catch (Exception e) {
             Log.e(TAG, "Failed to initialize encryption key", e);
             throw new RuntimeException("Encryption initialization failed", e);
         }
     }
 
-    private void generateKey() throws Exception {
+    private SecretKey getKey(int version) throws Exception {
+        SecretKey key = keysByVersion.get(version);
+        if (key != null) {
+            return key;
+        }
+
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE_PROVIDER);
+        keyStore.load(null);
+
+        String alias = aliasForVersion(version);
+        if (!keyStore.containsAlias(alias)) {
+            if (version != currentKeyVersion) {
+                throw new IllegalStateException("Missing key for version " + version);
+            }
+            generateKey(alias);
+        }
+
+        key = (SecretKey) keyStore.getKey(alias, null);
+        keysByVersion.put(version, key);
+        return key;
+    }
+
+    private static String aliasForVersion(int version) {
+        return version == LEGACY_KEY_VERSION ? KEYSTORE_ALIAS : KEYSTORE_ALIAS + "_v" + version;
+    }
+
+    private void generateKey(String alias) throws Exception {
         KeyGenerator keyGenerator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE_PROVIDER);
         
         KeyGenParameterSpec keyGenParameterSpec = new KeyGenParameterSpec.Builder(
-                KEYSTORE_ALIAS,
+                alias,
                 KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
                 .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
                 .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
@@ -66,8 +102,9 @@ public class EncryptionManager {
 
     public String encrypt(String plainText) {
         try {
+            int version = currentKeyVersion;
             Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey);
+            cipher.init(Cipher.ENCRYPT_MODE, getKey(version));
 
             byte[] iv = cipher.getIV();
             byte[] encryptedData = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
@@ -77,7 +114,8 @@ public class EncryptionManager {
             System.arraycopy(iv, 0, encryptedWithIv, 0, iv.length);
             System.arraycopy(encryptedData, 0, encryptedWithIv, iv.length, encryptedData.length);
 
-            return Base64.encodeToString(encryptedWithIv, Base64.DEFAULT);
+            return KEY_VERSION_PREFIX + version + KEY_VERSION_SEPARATOR
+                + Base64.encodeToString(encryptedWithIv, Base64.DEFAULT);
         } catch (Exception e) {
             Log.e(TAG, "Encryption failed", e);
             throw new RuntimeException("Encryption failed", e);
@@ -86,7 +124,8 @@ public class EncryptionManager {
 
     public String decrypt(String encryptedText) {
         try {
-            byte[] encryptedWithIv = Base64.decode(encryptedText, Base64.DEFAULT);
+            int version = getKeyVersion(encryptedText);
+            byte[] encryptedWithIv = Base64.decode(stripKeyVersion(encryptedText), Base64.DEFAULT);
 
             // Extract IV and encrypted data
             byte[] iv = new byte[GCM_IV_LENGTH];
@@ -96,7 +135,7 @@ public class EncryptionManager {
 
             Cipher cipher = Cipher.getInstance(TRANSFORMATION);
             GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, gcmParameterSpec);
+            cipher.init(Cipher.DECRYPT_MODE, getKey(version), gcmParameterSpec);
 
             byte[] decryptedData = cipher.doFinal(encryptedData);
             return new String(decryptedData, StandardCharsets.UTF_8);
@@ -106,6 +145,120 @@ public class EncryptionManager {
         }
     }
 
+    /**
+     * Returns the key version recorded in the header of a value produced by {@link #encrypt}.
+     * Values written before key rotation existed have no header and map to version 1.
+     */
+    public int getKeyVersion(String encryptedText) {
+        if (encryptedText == null || !encryptedText.startsWith(KEY_VERSION_PREFIX)) {
+            return LEGACY_KEY_VERSION;
+        }
+        int separator = encryptedText.indexOf(KEY_VERSION_SEPARATOR);
+        if (separator < 0) {
+            return LEGACY_KEY_VERSION;
+        }
+        try {
+            return Integer.parseInt(encryptedText.substring(KEY_VERSION_PREFIX.length(), separator));
+        } catch (NumberFormatException e) {
+            return LEGACY_KEY_VERSION;
+        }
+    }
+
+    private String stripKeyVersion(String encryptedText) {
+        if (!encryptedText.startsWith(KEY_VERSION_PREFIX)) {
+            return encryptedText;
+        }
+        int separator = encryptedText.indexOf(KEY_VERSION_SEPARATOR);
+        return separator < 0 ? encryptedText : encryptedText.substring(separator + 1);
+    }
+
+    /**
+     * Decrypts a value with whatever key version it was written under and encrypts it again
+     * with the current key.
+     */
+    public String reencrypt(String encryptedText) {
+        return encrypt(decrypt(encryptedText));
+    }
+
+    public int getCurrentKeyVersion() {
+        return currentKeyVersion;
+    }
+
+    /**
+     * Creates an AES-GCM cipher ready to encrypt with the given key version. The Keystore
+     * picks a fresh random IV, available through {@link Cipher#getIV()}.
+     */
+    public Cipher createEncryptCipher(int keyVersion) throws Exception {
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, getKey(keyVersion));
+        return cipher;
+    }
+
+    public Cipher createDecryptCipher(int keyVersion, byte[] iv) throws Exception {
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, getKey(keyVersion), new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv));
+        return cipher;
+    }
+
+    public static int getIvLength() {
+        return GCM_IV_LENGTH;
+    }
+
+    // Key rotation
+
+    /**
+     * Generates the next key version and makes it current for all new writes. Existing
+     * values stay readable because their header names the key they were written with;
+     * {@link KeyRotationWorker} re-encrypts them in the background. Retired keys are kept
+     * so that older backup files can still be restored.
+     *
+     * @return the target key version of the rotation in progress
+     */
+    public synchronized int beginKeyRotation() {
+        if (isKeyRotationPending()) {
+            return metaPreferences.getInt(META_ROTATION_TARGET, currentKeyVersion);
+        }
+
+        int newVersion = currentKeyVersion + 1;
+        try {
+            generateKey(aliasForVersion(newVersion));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to generate rotated key", e);
+            throw new RuntimeException("Key rotation failed", e);
+        }
+
+        metaPreferences.edit()
+            .putInt(META_CURRENT_VERSION, newVersion)
+            .putInt(META_ROTATION_TARGET, newVersion)
+            .remove(META_ROTATION_CHECKPOINT)
+            .commit();
+        currentKeyVersion = newVersion;
+
+        Log.d(TAG, "Key rotation started, new key version " + newVersion);
+        return newVersion;
+    }
+
+    public boolean isKeyRotationPending() {
+        return metaPreferences.contains(META_ROTATION_TARGET);
+    }
+
+    /** Returns the last storage key that was fully re-encrypted, or null if none yet. */
+    public String getRotationCheckpoint() {
+        return metaPreferences.getString(META_ROTATION_CHECKPOINT, null);
+    }
+
+    public void saveRotationCheckpoint(String storageKey) {
+        metaPreferences.edit().putString(META_ROTATION_CHECKPOINT, storageKey).commit();
+    }
+
+    public synchronized void completeKeyRotation() {
+        metaPreferences.edit()
+            .remove(META_ROTATION_TARGET)
+            .remove(META_ROTATION_CHECKPOINT)
+            .commit();
+        Log.d(TAG, "Key rotation completed at key version " + currentKeyVersion);
+    }
+
     public String generateHMAC(String data) {
         try {
             String deviceId = Settings.Secure.getString(context.getContentResolver(), Settings.Secure.ANDROID_ID);
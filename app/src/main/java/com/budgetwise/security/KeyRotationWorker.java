@@ -0,0 +1,94 @@
+package com.budgetwise.security;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.budgetwise.BudgetWiseApplication;
+import com.budgetwise.data.storage.SecurePreferences;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-encrypts secure storage under the current key version, one entry at a time.
+ * Progress is checkpointed after every entry so a killed process resumes with the entry
+ * it was on instead of starting over. An entry is the unit: the transaction list is one
+ * value, so an interruption while it is re-encrypted redoes it whole. Reads keep working
+ * throughout because every value records the key version it was written with.
+ * <p>
+ * Started from the security card in settings; the application resumes a pending one.
+ */
+public class KeyRotationWorker extends Worker {
+    private static final String TAG = "KeyRotationWorker";
+    private static final String WORK_NAME = "budgetwise_key_rotation";
+
+    public KeyRotationWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /** Starts a new key version and schedules re-encryption of existing data. */
+    public static void startRotation(Context context, EncryptionManager encryptionManager) {
+        encryptionManager.beginKeyRotation();
+        enqueue(context);
+    }
+
+    /** Schedules (or keeps) the rotation job; safe to call on every app start. */
+    public static void enqueue(Context context) {
+        Constraints constraints = new Constraints.Builder()
+            .setRequiresBatteryNotLow(true)
+            .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(KeyRotationWorker.class)
+            .setConstraints(constraints)
+            .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+            .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        EncryptionManager encryptionManager = BudgetWiseApplication.getInstance().getEncryptionManager();
+        if (!encryptionManager.isKeyRotationPending()) {
+            return Result.success();
+        }
+
+        SecurePreferences securePreferences = new SecurePreferences(getApplicationContext(), encryptionManager);
+        String checkpoint = encryptionManager.getRotationCheckpoint();
+        int rewritten = 0;
+
+        try {
+            List<String> keys = securePreferences.getStoredKeys();
+            for (String key : keys) {
+                if (checkpoint != null && key.compareTo(checkpoint) <= 0) {
+                    continue; // Already handled before the last interruption
+                }
+                if (isStopped()) {
+                    Log.d(TAG, "Rotation interrupted after " + rewritten + " entries, will resume");
+                    return Result.retry();
+                }
+
+                if (securePreferences.reencryptEntry(key)) {
+                    rewritten++;
+                }
+                encryptionManager.saveRotationCheckpoint(key);
+            }
+
+            encryptionManager.completeKeyRotation();
+            Log.d(TAG, "Re-encrypted " + rewritten + " entries under key version "
+                + encryptionManager.getCurrentKeyVersion());
+            return Result.success();
+
+        } catch (Exception e) {
+            Log.e(TAG, "Key rotation failed, will retry from checkpoint", e);
+            return Result.retry();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.budgetwise.security;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.crypto.Cipher;
+
+/**
+ * Reads a stream written by {@link SegmentedCipherOutputStream}, decrypting and
+ * authenticating one segment at a time. A stream that ends before its final segment
+ * is reported as truncated.
+ */
+public class SegmentedCipherInputStream extends InputStream {
+    // Upper bound for a single frame: one plaintext segment plus the GCM tag
+    private static final int MAX_CIPHERTEXT_LENGTH = SegmentedCipherOutputStream.SEGMENT_SIZE + 16;
+
+    private final DataInputStream in;
+    private final EncryptionManager encryptionManager;
+    private final int keyVersion;
+    private final byte[] associatedHeader;
+    private byte[] segment = new byte[0];
+    private int position;
+    private long segmentIndex;
+    private boolean finalSegmentRead;
+
+    public SegmentedCipherInputStream(InputStream in, EncryptionManager encryptionManager,
+                                      int keyVersion, byte[] associatedHeader) {
+        this.in = new DataInputStream(in);
+        this.encryptionManager = encryptionManager;
+        this.keyVersion = keyVersion;
+        this.associatedHeader = associatedHeader;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) return -1;
+        return segment[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!ensureData()) return -1;
+        int count = Math.min(len, segment.length - position);
+        System.arraycopy(segment, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return segment.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean ensureData() throws IOException {
+        while (position == segment.length) {
+            if (finalSegmentRead) return false;
+            readSegment();
+        }
+        return true;
+    }
+
+    private void readSegment() throws IOException {
+        try {
+            boolean isFinal = in.readByte() == 1;
+            int length = in.readInt();
+            if (length < 0 || length > MAX_CIPHERTEXT_LENGTH) {
+                throw new IOException("Corrupt segment length: " + length);
+            }
+            byte[] iv = new byte[EncryptionManager.getIvLength()];
+            in.readFully(iv);
+            byte[] ciphertext = new byte[length];
+            in.readFully(ciphertext);
+
+            Cipher cipher = encryptionManager.createDecryptCipher(keyVersion, iv);
+            cipher.updateAAD(SegmentedCipherOutputStream.segmentAad(associatedHeader, segmentIndex, isFinal));
+            segment = cipher.doFinal(ciphertext);
+            position = 0;
+            segmentIndex++;
+            finalSegmentRead = isFinal;
+        } catch (EOFException e) {
+            throw new IOException("Encrypted stream is truncated", e);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Segment authentication failed", e);
+        }
+    }
+}
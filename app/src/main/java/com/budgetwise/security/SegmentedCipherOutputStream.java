@@ -0,0 +1,99 @@
+package com.budgetwise.security;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import javax.crypto.Cipher;
+
+/**
+ * Encrypts a stream as a sequence of independently authenticated AES-GCM segments so
+ * that neither writing nor reading has to hold the whole payload in memory.
+ *
+ * Frame layout: [final flag: 1 byte][ciphertext length: int][IV][ciphertext + tag].
+ * Each segment's AAD binds the caller's header, the segment index and the final flag,
+ * so segments cannot be reordered, dropped or truncated without failing authentication.
+ */
+public class SegmentedCipherOutputStream extends OutputStream {
+    public static final int SEGMENT_SIZE = 64 * 1024;
+
+    private final DataOutputStream out;
+    private final EncryptionManager encryptionManager;
+    private final int keyVersion;
+    private final byte[] associatedHeader;
+    private final byte[] buffer = new byte[SEGMENT_SIZE];
+    private int bufferLength;
+    private long segmentIndex;
+    private boolean closed;
+
+    public SegmentedCipherOutputStream(OutputStream out, EncryptionManager encryptionManager,
+                                       int keyVersion, byte[] associatedHeader) {
+        this.out = new DataOutputStream(out);
+        this.encryptionManager = encryptionManager;
+        this.keyVersion = keyVersion;
+        this.associatedHeader = associatedHeader;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (bufferLength == SEGMENT_SIZE) {
+            writeSegment(false);
+        }
+        buffer[bufferLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (bufferLength == SEGMENT_SIZE) {
+                // Only emit a full segment once more data arrives, so the last one can be flagged
+                writeSegment(false);
+            }
+            int count = Math.min(len, SEGMENT_SIZE - bufferLength);
+            System.arraycopy(b, off, buffer, bufferLength, count);
+            bufferLength += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            writeSegment(true);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeSegment(boolean isFinal) throws IOException {
+        try {
+            Cipher cipher = encryptionManager.createEncryptCipher(keyVersion);
+            cipher.updateAAD(segmentAad(associatedHeader, segmentIndex, isFinal));
+            byte[] ciphertext = cipher.doFinal(buffer, 0, bufferLength);
+            byte[] iv = cipher.getIV();
+
+            out.writeByte(isFinal ? 1 : 0);
+            out.writeInt(ciphertext.length);
+            out.write(iv);
+            out.write(ciphertext);
+
+            segmentIndex++;
+            bufferLength = 0;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Segment encryption failed", e);
+        }
+    }
+
+    static byte[] segmentAad(byte[] header, long index, boolean isFinal) {
+        return ByteBuffer.allocate(header.length + 9)
+            .put(header)
+            .putLong(index)
+            .put((byte) (isFinal ? 1 : 0))
+            .array();
+    }
+}
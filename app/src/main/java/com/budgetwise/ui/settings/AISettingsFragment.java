@@ -74,7 +74,7 @@ public class AISettingsFragment extends Fragment {
             binding.buttonRunAnalysis.setEnabled(false);
             binding.buttonRunAnalysis.setText("Running Analysis...");
             
-            intelligenceService.runCompleteAnalysis();
+            intelligenceService.rebuildAnalysis();
             
             // Re-enable button after delay
             v.postDelayed(() -> {
@@ -1,24 +1,40 @@
 package com.budgetwise.ui.settings;
 
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatDelegate;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import com.budgetwise.BudgetWiseApplication;
 import com.budgetwise.databinding.FragmentSettingsBinding;
+import com.budgetwise.export.ExportFormat;
+import com.budgetwise.export.ExportOptions;
+import com.budgetwise.security.EncryptionManager;
+import com.budgetwise.security.KeyRotationWorker;
 import com.budgetwise.ui.settings.backup.BackupActivity;
 import com.budgetwise.utils.ThemeManager;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
+import com.google.android.material.snackbar.Snackbar;
+import java.io.FileNotFoundException;
+import java.util.Calendar;
 
 public class SettingsFragment extends Fragment {
     private FragmentSettingsBinding binding;
     private SettingsViewModel viewModel;
     private ThemeManager themeManager;
+    private Snackbar exportSnackbar;
+    private Snackbar importSnackbar;
+
+    // Statement formats are recognized from the content, so any file may be picked
+    private final ActivityResultLauncher<String[]> statementPicker =
+        registerForActivityResult(new ActivityResultContracts.OpenDocument(), this::importStatement);
 
     public View onCreateView(@NonNull LayoutInflater inflater,
                              ViewGroup container, Bundle savedInstanceState) {
@@ -34,7 +50,9 @@ public class SettingsFragment extends Fragment {
 
     private void setupViewModel() {
         SettingsViewModelFactory factory = new SettingsViewModelFactory(
-            BudgetWiseApplication.getInstance().getBudgetRepository()
+            BudgetWiseApplication.getInstance().getBudgetRepository(),
+            BudgetWiseApplication.getInstance().getDataExporter(),
+            BudgetWiseApplication.getInstance().getTransactionImporter()
         );
         viewModel = new ViewModelProvider(this, factory).get(SettingsViewModel.class);
     }
@@ -55,17 +73,16 @@ public class SettingsFragment extends Fragment {
         binding.cardTheme.setOnClickListener(v -> showThemeDialog());
 
         // Security Settings
-        binding.cardSecurity.setOnClickListener(v -> {
-            // TODO: Open security settings
-        });
+        binding.cardSecurity.setOnClickListener(v -> showKeyRotationDialog());
 
         // About
         binding.cardAbout.setOnClickListener(v -> showAboutDialog());
 
         // Export Data
-        binding.cardExportData.setOnClickListener(v -> {
-            viewModel.exportData();
-        });
+        binding.cardExportData.setOnClickListener(v -> showExportFormatDialog());
+
+        // Import Transactions
+        binding.cardImportData.setOnClickListener(v -> statementPicker.launch(new String[] {"*/*"}));
 
         // Clear All Data
         binding.cardClearData.setOnClickListener(v -> showClearDataDialog());
@@ -77,6 +94,139 @@ public class SettingsFragment extends Fragment {
             binding.textBudgetCount.setText(String.format("%d budgets", stats.budgetCount));
             binding.textDataSize.setText(String.format("%.1f KB", stats.dataSizeKB));
         });
+
+        viewModel.getExportState().observe(getViewLifecycleOwner(), this::showExportState);
+        viewModel.getImportState().observe(getViewLifecycleOwner(), this::showImportState);
+    }
+
+    private void importStatement(Uri uri) {
+        if (uri == null) return;
+        try {
+            viewModel.importTransactions(requireContext().getContentResolver().openInputStream(uri));
+        } catch (FileNotFoundException e) {
+            Snackbar.make(binding.getRoot(), "Could not open the selected file", Snackbar.LENGTH_LONG).show();
+        }
+    }
+
+    private void showImportState(SettingsViewModel.ImportState state) {
+        // Null once a result has been shown
+        if (state == null) return;
+        if (state.running) {
+            importSnackbar = Snackbar.make(binding.getRoot(), "Importing transactions…", Snackbar.LENGTH_INDEFINITE);
+            importSnackbar.show();
+            return;
+        }
+        if (importSnackbar != null) {
+            importSnackbar.dismiss();
+            importSnackbar = null;
+        }
+
+        String message;
+        if (state.result == null) {
+            message = state.error;
+        } else {
+            message = "Imported " + state.result.getImportedCount() + " transactions";
+            if (state.result.getDuplicateCount() > 0) {
+                message += ", skipped " + state.result.getDuplicateCount() + " duplicates";
+            }
+            if (state.result.getErrorCount() > 0) {
+                message += ", " + state.result.getErrorCount() + " rows unreadable";
+            }
+        }
+        Snackbar.make(binding.getRoot(), message, Snackbar.LENGTH_LONG).show();
+        viewModel.onImportResultShown();
+    }
+
+    private void showExportFormatDialog() {
+        String[] formats = {"CSV (spreadsheets)", "JSON Lines"};
+        new MaterialAlertDialogBuilder(requireContext())
+            .setTitle("Export Format")
+            .setItems(formats, (dialog, which) ->
+                showExportRangeDialog(which == 0 ? ExportFormat.CSV : ExportFormat.JSON_LINES))
+            .setNegativeButton("Cancel", null)
+            .show();
+    }
+
+    private void showExportRangeDialog(ExportFormat format) {
+        String[] ranges = {"All transactions", "This year", "Last 30 days"};
+        new MaterialAlertDialogBuilder(requireContext())
+            .setTitle("Export Range")
+            .setItems(ranges, (dialog, which) -> {
+                ExportOptions options = new ExportOptions(format);
+                Calendar start = Calendar.getInstance();
+                if (which == 1) {
+                    start.set(Calendar.DAY_OF_YEAR, 1);
+                } else if (which == 2) {
+                    start.add(Calendar.DAY_OF_YEAR, -30);
+                }
+                if (which != 0) {
+                    start.set(Calendar.HOUR_OF_DAY, 0);
+                    start.set(Calendar.MINUTE, 0);
+                    start.set(Calendar.SECOND, 0);
+                    start.set(Calendar.MILLISECOND, 0);
+                    options.setDateRange(start.getTime(), null);
+                }
+                viewModel.exportData(options);
+            })
+            .setNegativeButton("Cancel", null)
+            .show();
+    }
+
+    private void showExportState(SettingsViewModel.ExportState state) {
+        // Null once a result has been shown
+        if (state == null) return;
+        switch (state.status) {
+            case RUNNING:
+                String text = "Exporting… " + state.progress + "%";
+                if (exportSnackbar == null || !exportSnackbar.isShownOrQueued()) {
+                    exportSnackbar = Snackbar.make(binding.getRoot(), text, Snackbar.LENGTH_INDEFINITE)
+                        .setAction("Cancel", v -> viewModel.cancelExport());
+                    exportSnackbar.show();
+                } else {
+                    exportSnackbar.setText(text);
+                }
+                break;
+            case DONE:
+                showExportResult("Exported " + state.rowCount + " transactions to " + state.file.getName());
+                break;
+            case CANCELLED:
+                showExportResult("Export cancelled");
+                break;
+            case FAILED:
+                showExportResult(state.error);
+                break;
+        }
+    }
+
+    private void showExportResult(String message) {
+        if (exportSnackbar != null) {
+            exportSnackbar.dismiss();
+            exportSnackbar = null;
+        }
+        Snackbar.make(binding.getRoot(), message, Snackbar.LENGTH_LONG).show();
+        viewModel.onExportResultShown();
+    }
+
+    private void showKeyRotationDialog() {
+        EncryptionManager encryptionManager = BudgetWiseApplication.getInstance().getEncryptionManager();
+        if (encryptionManager.isKeyRotationPending()) {
+            Snackbar.make(binding.getRoot(), "Encryption key rotation is in progress", Snackbar.LENGTH_LONG).show();
+            return;
+        }
+        new MaterialAlertDialogBuilder(requireContext())
+            .setTitle("Rotate Encryption Key")
+            .setMessage("Your data will be re-encrypted under a new key in the background. "
+                + "The app stays usable while it runs.")
+            .setPositiveButton("Rotate", (dialog, which) -> {
+                try {
+                    KeyRotationWorker.startRotation(requireContext().getApplicationContext(), encryptionManager);
+                    Snackbar.make(binding.getRoot(), "Key rotation started", Snackbar.LENGTH_LONG).show();
+                } catch (RuntimeException e) {
+                    Snackbar.make(binding.getRoot(), "Could not create a new key", Snackbar.LENGTH_LONG).show();
+                }
+            })
+            .setNegativeButton("Cancel", null)
+            .show();
     }
 
     private void showThemeDialog() {
@@ -137,6 +287,8 @@ public class SettingsFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        exportSnackbar = null;
+        importSnackbar = null;
         binding = null;
     }
 }
@@ -2,12 +2,27 @@ package com.budgetwise.ui.settings;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 import com.budgetwise.data.repository.BudgetRepository;
+import com.budgetwise.export.DataExporter;
+import com.budgetwise.export.ExportOptions;
+import com.budgetwise.importer.ImportResult;
+import com.budgetwise.importer.TransactionImporter;
+import java.io.File;
+import java.io.InputStream;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SettingsViewModel extends ViewModel {
     private final BudgetRepository repository;
+    private final DataExporter dataExporter;
+    private final TransactionImporter transactionImporter;
     private final MediatorLiveData<DataStats> dataStats = new MediatorLiveData<>();
+    private final MutableLiveData<ExportState> exportState = new MutableLiveData<>();
+    private Future<?> exportTask;
+    private AtomicBoolean exportCancelled;
+    private final MutableLiveData<ImportState> importState = new MutableLiveData<>();
 
     public static class DataStats {
         public int transactionCount;
@@ -15,8 +30,41 @@ public class SettingsViewModel extends ViewModel {
         public double dataSizeKB;
     }
 
-    public SettingsViewModel(BudgetRepository repository) {
+    public static class ExportState {
+        public enum Status { RUNNING, DONE, CANCELLED, FAILED }
+
+        public final Status status;
+        public final int progress;
+        public final File file;
+        public final int rowCount;
+        public final String error;
+
+        ExportState(Status status, int progress, File file, int rowCount, String error) {
+            this.status = status;
+            this.progress = progress;
+            this.file = file;
+            this.rowCount = rowCount;
+            this.error = error;
+        }
+    }
+
+    public static class ImportState {
+        public final boolean running;
+        public final ImportResult result;
+        public final String error;
+
+        ImportState(boolean running, ImportResult result, String error) {
+            this.running = running;
+            this.result = result;
+            this.error = error;
+        }
+    }
+
+    public SettingsViewModel(BudgetRepository repository, DataExporter dataExporter,
+                             TransactionImporter transactionImporter) {
         this.repository = repository;
+        this.dataExporter = dataExporter;
+        this.transactionImporter = transactionImporter;
         setupMediators();
     }
 
@@ -39,8 +87,100 @@ public class SettingsViewModel extends ViewModel {
         return dataStats;
     }
 
-    public void exportData() {
-        // TODO: Implement data export functionality
+    public LiveData<ExportState> getExportState() {
+        return exportState;
+    }
+
+    /**
+     * Starts an export. Progress and the outcome arrive through {@link #getExportState()};
+     * the outcome is published by the export alone, also when it is cancelled, and stays
+     * until {@link #onExportResultShown()}.
+     */
+    public void exportData(ExportOptions options) {
+        if (isExporting()) return;
+
+        exportState.setValue(new ExportState(ExportState.Status.RUNNING, 0, null, 0, null));
+        AtomicBoolean cancelled = new AtomicBoolean();
+        exportCancelled = cancelled;
+        exportTask = dataExporter.export(options, new DataExporter.ExportCallback() {
+            @Override
+            public void onProgress(int percent) {
+                // A late update must not turn a cancelled export back to running
+                if (cancelled.get()) return;
+                exportState.postValue(new ExportState(ExportState.Status.RUNNING, percent, null, 0, null));
+            }
+
+            @Override
+            public void onSuccess(File file, int rowCount) {
+                exportState.postValue(new ExportState(ExportState.Status.DONE, 100, file, rowCount, null));
+            }
+
+            @Override
+            public void onCancelled() {
+                exportState.postValue(new ExportState(ExportState.Status.CANCELLED, 0, null, 0, null));
+            }
+
+            @Override
+            public void onError(String error) {
+                exportState.postValue(new ExportState(ExportState.Status.FAILED, 0, null, 0, error));
+            }
+        });
+    }
+
+    public void cancelExport() {
+        if (exportTask != null) {
+            exportCancelled.set(true);
+            exportTask.cancel(true);
+        }
+    }
+
+    /** Clears a finished export's outcome once shown, so a recreated view doesn't show it again. */
+    public void onExportResultShown() {
+        ExportState state = exportState.getValue();
+        if (state != null && state.status != ExportState.Status.RUNNING) {
+            exportState.setValue(null);
+        }
+    }
+
+    private boolean isExporting() {
+        ExportState state = exportState.getValue();
+        return state != null && state.status == ExportState.Status.RUNNING;
+    }
+
+    public LiveData<ImportState> getImportState() {
+        return importState;
+    }
+
+    /** Imports a bank statement; the stream is closed when the import finishes. */
+    public void importTransactions(InputStream input) {
+        ImportState state = importState.getValue();
+        if (state != null && state.running) return;
+
+        importState.setValue(new ImportState(true, null, null));
+        transactionImporter.importStatement(input, new TransactionImporter.ImportCallback() {
+            @Override
+            public void onSuccess(ImportResult result) {
+                importState.postValue(new ImportState(false, result, null));
+            }
+
+            @Override
+            public void onError(String error) {
+                importState.postValue(new ImportState(false, null, error));
+            }
+        });
+    }
+
+    /** Clears a finished import's outcome once shown, so a recreated view doesn't show it again. */
+    public void onImportResultShown() {
+        ImportState state = importState.getValue();
+        if (state != null && !state.running) {
+            importState.setValue(null);
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        cancelExport();
     }
 
     public void clearAllData() {
@@ -4,19 +4,26 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
 import com.budgetwise.data.repository.BudgetRepository;
+import com.budgetwise.export.DataExporter;
+import com.budgetwise.importer.TransactionImporter;
 
 public class SettingsViewModelFactory implements ViewModelProvider.Factory {
     private final BudgetRepository repository;
+    private final DataExporter dataExporter;
+    private final TransactionImporter transactionImporter;
 
-    public SettingsViewModelFactory(BudgetRepository repository) {
+    public SettingsViewModelFactory(BudgetRepository repository, DataExporter dataExporter,
+                                    TransactionImporter transactionImporter) {
         this.repository = repository;
+        this.dataExporter = dataExporter;
+        this.transactionImporter = transactionImporter;
     }
 
     @NonNull
     @Override
     public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
         if (modelClass.isAssignableFrom(SettingsViewModel.class)) {
-            return (T) new SettingsViewModel(repository);
+            return (T) new SettingsViewModel(repository, dataExporter, transactionImporter);
         }
         throw new IllegalArgumentException("Unknown ViewModel class");
     }
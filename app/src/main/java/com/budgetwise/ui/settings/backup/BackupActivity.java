@@ -1,11 +1,26 @@
 package com.budgetwise.ui.settings.backup;
 
 import android.os.Bundle;
+import android.text.format.Formatter;
+import android.view.View;
 import androidx.appcompat.app.AppCompatActivity;
+import com.budgetwise.BudgetWiseApplication;
+import com.budgetwise.backup.BackupInfo;
+import com.budgetwise.backup.BackupManager;
 import com.budgetwise.databinding.ActivityBackupBinding;
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
+import com.google.android.material.snackbar.Snackbar;
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
 
 public class BackupActivity extends AppCompatActivity {
     private ActivityBackupBinding binding;
+    private BackupManager backupManager;
+    private final SimpleDateFormat dateTimeFormat = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -13,6 +28,8 @@ public class BackupActivity extends AppCompatActivity {
         binding = ActivityBackupBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
+        backupManager = BudgetWiseApplication.getInstance().getBackupManager();
+
         setupToolbar();
         setupClickListeners();
     }
@@ -26,19 +43,169 @@ public class BackupActivity extends AppCompatActivity {
     }
 
     private void setupClickListeners() {
-        // TODO: Implement backup and restore functionality
-        binding.buttonBackup.setOnClickListener(v -> {
-            // Implement backup logic
+        binding.buttonBackup.setOnClickListener(v -> createBackup());
+        binding.buttonRestore.setOnClickListener(v -> loadBackupsForRestore());
+    }
+
+    private void createBackup() {
+        binding.buttonBackup.setEnabled(false);
+        backupManager.createBackup(new BackupManager.BackupCallback() {
+            @Override
+            public void onSuccess(String filePath) {
+                runOnUiThread(() -> {
+                    if (binding == null) return;
+                    binding.buttonBackup.setEnabled(true);
+                    showMessage("Backup saved to " + new File(filePath).getName());
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                runOnUiThread(() -> {
+                    if (binding == null) return;
+                    binding.buttonBackup.setEnabled(true);
+                    showMessage(error);
+                });
+            }
         });
+    }
+
+    private void loadBackupsForRestore() {
+        backupManager.getBackupCatalog(new BackupManager.BackupCatalogCallback() {
+            @Override
+            public void onSuccess(List<BackupInfo> backups) {
+                runOnUiThread(() -> {
+                    if (binding == null) return;
+                    if (backups.isEmpty()) {
+                        showMessage("No backups found");
+                    } else {
+                        showRestoreDialog(backups);
+                    }
+                });
+            }
 
-        binding.buttonRestore.setOnClickListener(v -> {
-            // Implement restore logic
+            @Override
+            public void onError(String error) {
+                runOnUiThread(() -> showMessage(error));
+            }
         });
     }
 
+    private void showRestoreDialog(List<BackupInfo> backups) {
+        String[] items = new String[backups.size()];
+        for (int i = 0; i < backups.size(); i++) {
+            items[i] = formatSummary(backups.get(i));
+        }
+
+        new MaterialAlertDialogBuilder(this)
+            .setTitle("Restore Backup")
+            .setItems(items, (dialog, which) -> confirmRestore(backups.get(which)))
+            .setNegativeButton("Cancel", null)
+            .show();
+    }
+
+    private void confirmRestore(BackupInfo backup) {
+        new MaterialAlertDialogBuilder(this)
+            .setTitle("Replace Current Data?")
+            .setMessage(formatDetails(backup)
+                + "\n\nAll transactions and budgets will be replaced with the contents of this backup. "
+                + "This action cannot be undone.")
+            .setPositiveButton("Restore", (dialog, which) ->
+                restoreBackup(new File(backupManager.getBackupPath(backup))))
+            .setNegativeButton("Cancel", null)
+            .show();
+    }
+
+    private String formatSummary(BackupInfo backup) {
+        String kind = backup.isFull() ? "Full" : "Incremental";
+        String summary = dateTimeFormat.format(new Date(backup.getTimestamp())) + " · " + kind;
+        if (backup.getTransactionCount() >= 0) {
+            summary += " · " + backup.getTransactionCount() + " transactions";
+        }
+        return summary;
+    }
+
+    private String formatDetails(BackupInfo backup) {
+        StringBuilder details = new StringBuilder(formatSummary(backup));
+        if (backup.getTransactionCount() < 0) {
+            details.append("\nCreated by an older version; contents are shown after restoring.");
+        } else {
+            details.append("\n").append(backup.getBudgetCount()).append(" budgets");
+            if (!backup.isFull()) {
+                details.append(", ").append(backup.getTombstoneCount()).append(" deletions");
+            }
+            if (backup.getFirstTransactionDate() > 0) {
+                details.append("\nTransactions from ")
+                    .append(dateFormat.format(new Date(backup.getFirstTransactionDate())))
+                    .append(" to ")
+                    .append(dateFormat.format(new Date(backup.getLastTransactionDate())));
+            }
+            if (backup.getAppVersion() != null) {
+                details.append("\nApp version ").append(backup.getAppVersion());
+            }
+        }
+        details.append("\n").append(Formatter.formatShortFileSize(this, backup.getSizeBytes()));
+        return details.toString();
+    }
+
+    private void restoreBackup(File backupFile) {
+        setRestoreInProgress(true);
+        binding.progressRestore.setProgressCompat(0, false);
+        binding.textRestoreStatus.setText("Reading backup…");
+
+        backupManager.restoreBackup(backupFile.getAbsolutePath(), new BackupManager.RestoreCallback() {
+            @Override
+            public void onProgress(int percent) {
+                runOnUiThread(() -> {
+                    if (binding == null) return;
+                    binding.progressRestore.setProgressCompat(percent, true);
+                    binding.textRestoreStatus.setText(percent < 100
+                        ? "Reading backup… " + percent + "%"
+                        : "Applying restored data…");
+                });
+            }
+
+            @Override
+            public void onSuccess(String message) {
+                runOnUiThread(() -> {
+                    if (binding == null) return;
+                    setRestoreInProgress(false);
+                    showMessage(message);
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                runOnUiThread(() -> {
+                    if (binding == null) return;
+                    setRestoreInProgress(false);
+                    showMessage(error);
+                });
+            }
+        });
+    }
+
+    private void setRestoreInProgress(boolean inProgress) {
+        binding.buttonBackup.setEnabled(!inProgress);
+        binding.buttonRestore.setEnabled(!inProgress);
+        binding.progressRestore.setVisibility(inProgress ? View.VISIBLE : View.GONE);
+        binding.textRestoreStatus.setVisibility(inProgress ? View.VISIBLE : View.GONE);
+    }
+
+    private void showMessage(String message) {
+        if (binding == null) return;
+        Snackbar.make(binding.getRoot(), message, Snackbar.LENGTH_LONG).show();
+    }
+
     @Override
     public boolean onSupportNavigateUp() {
         onBackPressed();
         return true;
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        binding = null;
+    }
+}
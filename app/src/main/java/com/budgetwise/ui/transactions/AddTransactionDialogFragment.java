@@ -195,24 +195,34 @@ public class AddTransactionDialogFragment extends BottomSheetDialogFragment {
             transaction.setNotes(notes);
             transaction.setRecurring(isRecurring);
             
-            // Check for duplicates before adding
+            // Check for duplicates before adding, off the main thread
             EnhancedIntelligenceService intelligenceService = 
                 BudgetWiseApplication.getInstance().getIntelligenceService();
-            DuplicateGuard.DuplicateCheckResult duplicateCheck = 
-                intelligenceService.checkForDuplicate(transaction);
+            binding.buttonSave.setEnabled(false);
+            intelligenceService.checkForDuplicateAsync(transaction, duplicateCheck -> {
+                if (getActivity() == null) return;
+                getActivity().runOnUiThread(() -> {
+                    if (binding == null) return;
+                    binding.buttonSave.setEnabled(true);
+                    onDuplicateChecked(transaction, duplicateCheck);
+                });
+            });
+        }
+    }
+
+    private void onDuplicateChecked(Transaction transaction, DuplicateGuard.DuplicateCheckResult duplicateCheck) {
+        if (duplicateCheck.isDuplicate() && 
+            duplicateCheck.getConfidence() == DuplicateGuard.DuplicateConfidence.HIGH) {
+            // Show confirmation dialog for potential duplicate
+            showDuplicateConfirmationDialog(transaction, duplicateCheck);
+        } else {
+            // Add transaction normally
+            BudgetWiseApplication.getInstance().getBudgetRepository().addTransaction(transaction);
             
-            if (duplicateCheck.isDuplicate() && 
-                duplicateCheck.getConfidence() == DuplicateGuard.DuplicateConfidence.HIGH) {
-                // Show confirmation dialog for potential duplicate
-                showDuplicateConfirmationDialog(transaction, duplicateCheck);
-            } else {
-                // Add transaction normally
-                BudgetWiseApplication.getInstance().getBudgetRepository().addTransaction(transaction);
-                
-                // Trigger AI analysis
-                intelligenceService.runCompleteAnalysis();
-                dismiss();
-            }
+            // Trigger AI analysis
+            BudgetWiseApplication.getInstance().getIntelligenceService().onTransactionAdded(transaction);
+            BudgetWiseApplication.getInstance().getIntelligenceService().runCompleteAnalysis();
+            dismiss();
         }
     }
     
@@ -222,6 +232,7 @@ public class AddTransactionDialogFragment extends BottomSheetDialogFragment {
             .setMessage(duplicateCheck.getMessage() + "\n\nDo you want to add this transaction anyway?")
             .setPositiveButton("Add Anyway", (dialog, which) -> {
                 BudgetWiseApplication.getInstance().getBudgetRepository().addTransaction(transaction);
+                BudgetWiseApplication.getInstance().getIntelligenceService().onTransactionAdded(transaction);
                 BudgetWiseApplication.getInstance().getIntelligenceService().runCompleteAnalysis();
                 dismiss();
             })
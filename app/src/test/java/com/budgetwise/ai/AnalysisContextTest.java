@@ -0,0 +1,196 @@
+package com.budgetwise.ai;
+
+import static org.junit.Assert.assertEquals;
+
+import com.budgetwise.data.models.Transaction;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AnalysisContextTest {
+    private static final String[] CATEGORIES = {"Food & Dining", "Transportation", "Shopping"};
+    private static final long START = 1_700_000_000_000L;
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        // Off UTC and with daylight saving, so day boundaries aren't multiples of a day
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        AnalysisContext.refreshZone();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+        AnalysisContext.refreshZone();
+    }
+
+    private static List<Transaction> randomTransactions(Random random, int count) {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Transaction.TransactionType type = random.nextInt(4) == 0
+                ? Transaction.TransactionType.INCOME : Transaction.TransactionType.EXPENSE;
+            Transaction transaction = new Transaction(
+                Math.round(random.nextDouble() * 20000) / 100.0, "t" + i,
+                CATEGORIES[random.nextInt(CATEGORIES.length)], type);
+            transaction.setDate(new Date(START + (long) (random.nextDouble() * 200 * AnalysisContext.DAY_MILLIS)));
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    private static boolean isExpense(Transaction transaction) {
+        return transaction.getType() == Transaction.TransactionType.EXPENSE;
+    }
+
+    private static boolean within(Transaction transaction, long from, long to) {
+        long time = transaction.getDate().getTime();
+        return time >= from && time < to;
+    }
+
+    @Test
+    public void windowCountsAndTotalsMatchFiltering() {
+        Random random = new Random(1);
+        List<Transaction> transactions = randomTransactions(random, 500);
+        long now = START + 200 * AnalysisContext.DAY_MILLIS;
+        AnalysisContext context = AnalysisContext.of(transactions, now);
+        assertEquals(transactions.size(), context.size());
+
+        for (int round = 0; round < 500; round++) {
+            long from = START + (long) ((random.nextDouble() * 220 - 10) * AnalysisContext.DAY_MILLIS);
+            long to = from + (long) (random.nextDouble() * 60 * AnalysisContext.DAY_MILLIS);
+
+            int expenses = 0;
+            int income = 0;
+            int since = 0;
+            double expenseTotal = 0;
+            double incomeTotal = 0;
+            Map<String, Double> categoryTotals = new HashMap<>();
+            for (Transaction transaction : transactions) {
+                if (transaction.getDate().getTime() >= from) since++;
+                if (!within(transaction, from, to)) continue;
+                if (isExpense(transaction)) {
+                    expenses++;
+                    expenseTotal += transaction.getAmount();
+                    categoryTotals.merge(transaction.getCategory(), transaction.getAmount(), Double::sum);
+                } else {
+                    income++;
+                    incomeTotal += transaction.getAmount();
+                }
+            }
+
+            assertEquals(since, context.countSince(from));
+            assertEquals(expenses, context.getExpenses().count(from, to));
+            assertEquals(income, context.getIncome().count(from, to));
+            assertEquals(expenseTotal, context.getExpenses().total(from, to), 1e-6);
+            assertEquals(incomeTotal, context.getIncome().total(from, to), 1e-6);
+            Map<String, Double> totals = context.categoryTotals(from, to);
+            assertEquals(categoryTotals.keySet(), totals.keySet());
+            for (String category : CATEGORIES) {
+                double expected = categoryTotals.containsKey(category) ? categoryTotals.get(category) : 0;
+                assertEquals(expected, context.categoryTotal(category, from, to), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void seriesAreSortedWithRunningStatistics() {
+        List<Transaction> transactions = randomTransactions(new Random(2), 300);
+        AnalysisContext context = AnalysisContext.of(transactions, START);
+
+        for (Map.Entry<String, AnalysisContext.Series> entry : context.getCategories().entrySet()) {
+            AnalysisContext.Series series = entry.getValue();
+            List<Double> amounts = new ArrayList<>();
+            for (Transaction transaction : transactions) {
+                if (isExpense(transaction) && transaction.getCategory().equals(entry.getKey())) {
+                    amounts.add(transaction.getAmount());
+                }
+            }
+            assertEquals(amounts.size(), series.size());
+            for (int i = 1; i < series.size(); i++) {
+                assertEquals(true, series.timeAt(i - 1) <= series.timeAt(i));
+            }
+
+            double mean = 0;
+            for (double amount : amounts) mean += amount;
+            mean /= amounts.size();
+            double squares = 0;
+            for (double amount : amounts) squares += (amount - mean) * (amount - mean);
+            assertEquals(mean, series.getMean(), 1e-9);
+            assertEquals(Math.sqrt(squares / amounts.size()), series.getStandardDeviation(), 1e-9);
+        }
+    }
+
+    @Test
+    public void dailyExpensesFollowLocalDays() {
+        List<Transaction> transactions = randomTransactions(new Random(3), 400);
+        AnalysisContext context = AnalysisContext.of(transactions, START);
+        double[] daily = context.getDailyExpenses();
+        long firstDay = context.getFirstDay();
+
+        double[] expected = new double[daily.length];
+        Map<String, double[]> expectedByCategory = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            if (!isExpense(transaction)) continue;
+            int day = (int) (AnalysisContext.localDay(transaction.getDate().getTime()) - firstDay);
+            expected[day] += transaction.getAmount();
+            expectedByCategory.computeIfAbsent(transaction.getCategory(), c -> new double[daily.length])[day]
+                += transaction.getAmount();
+        }
+        for (int day = 0; day < daily.length; day++) {
+            assertEquals(expected[day], daily[day], 1e-6);
+            // A local day starts at its midnight and ends at the next one's
+            long from = context.startOfDay(firstDay + day);
+            long to = context.startOfDay(firstDay + day + 1);
+            assertEquals(expected[day], context.getExpenses().total(from, to), 1e-6);
+        }
+        for (Map.Entry<String, double[]> entry : expectedByCategory.entrySet()) {
+            double[] categoryDaily = context.getCategories().get(entry.getKey()).getDaily();
+            for (int day = 0; day < daily.length; day++) {
+                assertEquals(entry.getValue()[day], categoryDaily[day], 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void skipsUndatedTransactions() {
+        List<Transaction> transactions = randomTransactions(new Random(4), 10);
+        transactions.get(3).setDate(null);
+        AnalysisContext context = AnalysisContext.of(transactions, START);
+        assertEquals(9, context.size());
+    }
+
+    @Test
+    public void emptyContext() {
+        AnalysisContext context = AnalysisContext.of(new ArrayList<>(), START);
+        assertEquals(0, context.size());
+        assertEquals(0, context.getDailyExpenses().length);
+        assertEquals(0, context.getExpenses().total(0, Long.MAX_VALUE), 0.0);
+        assertEquals(0.0, context.getExpenses().getStandardDeviation(), 0.0);
+    }
+
+    @Test
+    public void localTimeFollowsTheZoneOnceRefreshed() {
+        // 2023-11-14 22:13 UTC: 17:13 in New York, 07:13 the next day in Tokyo
+        long time = START;
+        long newYorkDay = AnalysisContext.localDay(time);
+        assertEquals(17, AnalysisContext.localHour(time));
+
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+        // The zone is cached until the app hears of the change
+        assertEquals(newYorkDay, AnalysisContext.localDay(time));
+        AnalysisContext.refreshZone();
+        assertEquals(newYorkDay + 1, AnalysisContext.localDay(time));
+        assertEquals(7, AnalysisContext.localHour(time));
+        assertEquals(2023 * 12 + 10, AnalysisContext.localMonth(time));
+    }
+}
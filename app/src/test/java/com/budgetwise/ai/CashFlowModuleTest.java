@@ -0,0 +1,172 @@
+package com.budgetwise.ai;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.budgetwise.data.models.Transaction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CashFlowModuleTest {
+    private static final long DAY = AnalysisContext.DAY_MILLIS;
+    private static final long NOW = 1_700_000_000_000L;
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        AnalysisContext.refreshZone();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+        AnalysisContext.refreshZone();
+    }
+
+    private static Transaction transaction(double amount, String description, Transaction.TransactionType type,
+                                           long time) {
+        Transaction transaction = new Transaction(amount, description, "Shopping", type);
+        transaction.setDate(new Date(time));
+        return transaction;
+    }
+
+    private static List<Transaction> history(Random random) {
+        List<Transaction> transactions = new ArrayList<>();
+        transactions.add(transaction(2500, "Salary", Transaction.TransactionType.INCOME, NOW - 120 * DAY));
+        for (int day = 120; day >= 1; day--) {
+            transactions.add(transaction(Math.round(random.nextDouble() * 6000) / 100.0, "Shop " + (day % 9),
+                Transaction.TransactionType.EXPENSE, NOW - day * DAY + 3600_000));
+            if (day % 30 == 0) {
+                transactions.add(transaction(900, "Rent", Transaction.TransactionType.EXPENSE, NOW - day * DAY));
+                transactions.add(transaction(2500, "Salary", Transaction.TransactionType.INCOME, NOW - day * DAY));
+            }
+            if (day % 7 == 0) {
+                transactions.add(transaction(200, "To savings", Transaction.TransactionType.TRANSFER, NOW - day * DAY));
+            }
+        }
+        return transactions;
+    }
+
+    private static RecurringDetector.RecurringPattern monthly(String description, double amount,
+                                                              Transaction.TransactionType type) {
+        return new RecurringDetector.RecurringPattern(description, "Bills & Utilities", amount, 30,
+            RecurringDetector.RecurringType.MONTHLY, true, NOW + 5 * DAY, amount, 0, type);
+    }
+
+    private static CashFlowModule module(List<Transaction> transactions) {
+        CashFlowModule module = new CashFlowModule(new CashFlowSimulator(new ForkJoinPool(2)), d -> d);
+        for (Transaction transaction : transactions) {
+            module.add(new LedgerEntry(transaction), true);
+        }
+        return module;
+    }
+
+    private static void assertSameSimulation(CashFlowSimulator.SimulationResult expected,
+                                             CashFlowSimulator.SimulationResult actual) {
+        assertEquals(expected.getProbabilityOfNegative(), actual.getProbabilityOfNegative(), 0.0);
+        assertArrayEquals(expected.getP10(), actual.getP10(), 1e-6);
+        assertArrayEquals(expected.getP50(), actual.getP50(), 1e-6);
+        assertArrayEquals(expected.getP90(), actual.getP90(), 1e-6);
+    }
+
+    @Test
+    public void matchesASimulationOverTheWholeHistory() {
+        List<Transaction> transactions = history(new Random(3));
+        List<RecurringDetector.RecurringPattern> patterns = new ArrayList<>();
+        patterns.add(monthly("Rent", 900, Transaction.TransactionType.EXPENSE));
+        patterns.add(monthly("Salary", 2500, Transaction.TransactionType.INCOME));
+
+        CashFlowSimulator.SimulationResult expected = new CashFlowSimulator(new ForkJoinPool(2)).simulate(
+            transactions, patterns, d -> d, NOW, CashFlowSimulator.DEFAULT_PATHS, AnalysisContext.localDay(NOW));
+        assertSameSimulation(expected, module(transactions).simulate(patterns, 1, NOW));
+    }
+
+    @Test
+    public void followsRemovalsAndInPlaceEdits() {
+        List<Transaction> transactions = history(new Random(4));
+        List<RecurringDetector.RecurringPattern> patterns =
+            Collections.singletonList(monthly("Rent", 900, Transaction.TransactionType.EXPENSE));
+        CashFlowModule module = module(transactions);
+
+        // An edited transaction is removed as it was indexed, then added as it is now
+        Transaction edited = transactions.get(5);
+        LedgerEntry before = new LedgerEntry(edited);
+        edited.setDescription("Rent");
+        edited.setAmount(900);
+        module.remove(before);
+        module.add(new LedgerEntry(edited), false);
+        Transaction deleted = transactions.remove(7);
+        module.remove(new LedgerEntry(deleted));
+
+        CashFlowSimulator.SimulationResult expected = new CashFlowSimulator(new ForkJoinPool(2)).simulate(
+            transactions, patterns, d -> d, NOW, CashFlowSimulator.DEFAULT_PATHS, AnalysisContext.localDay(NOW));
+        assertSameSimulation(expected, module.simulate(patterns, 1, NOW));
+    }
+
+    @Test
+    public void reusesTheSimulationUntilAnInputChanges() {
+        List<Transaction> transactions = history(new Random(5));
+        List<RecurringDetector.RecurringPattern> patterns = Collections.emptyList();
+        CashFlowModule module = module(transactions);
+
+        CashFlowSimulator.SimulationResult first = module.simulate(patterns, 1, NOW);
+        assertNotNull(first);
+        assertSame(first, module.simulate(patterns, 1, NOW + 60_000));
+        assertSame(first, module.getSimulation());
+
+        // A new day, new patterns or a new transaction each call for a new simulation
+        assertNotSame(first, module.simulate(patterns, 1, NOW + DAY));
+        CashFlowSimulator.SimulationResult second = module.simulate(patterns, 2, NOW + DAY);
+        module.add(new LedgerEntry(transaction(5, "Coffee", Transaction.TransactionType.EXPENSE, NOW)), false);
+        assertNull(module.getSimulation());
+        assertNotSame(second, module.simulate(patterns, 2, NOW + DAY));
+    }
+
+    @Test
+    public void expensesAloneGiveNoIncomeBaseline() {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int day = 60; day >= 1; day--) {
+            transactions.add(transaction(10, "Lunch", Transaction.TransactionType.EXPENSE, NOW - day * DAY));
+            transactions.add(transaction(100, "To savings", Transaction.TransactionType.TRANSFER, NOW - day * DAY));
+        }
+        CashFlowModule module = module(transactions);
+        List<RecurringDetector.RecurringPattern> patterns =
+            Collections.singletonList(monthly("Rent", 900, Transaction.TransactionType.EXPENSE));
+        assertFalse(module.hasIncomeBaseline(patterns, NOW));
+
+        // Income in the history is a baseline; so is a recurring income still to come
+        Transaction salary = transaction(2500, "Salary", Transaction.TransactionType.INCOME, NOW - 20 * DAY);
+        module.add(new LedgerEntry(salary), false);
+        assertTrue(module.hasIncomeBaseline(patterns, NOW));
+        module.remove(new LedgerEntry(salary));
+        assertFalse(module.hasIncomeBaseline(patterns, NOW));
+        assertTrue(module.hasIncomeBaseline(
+            Collections.singletonList(monthly("Salary", 2500, Transaction.TransactionType.INCOME)), NOW));
+    }
+
+    @Test
+    public void resetStartsOver() {
+        CashFlowModule module = module(history(new Random(6)));
+        assertNotNull(module.simulate(Collections.emptyList(), 1, NOW));
+        module.reset();
+        assertNull(module.getSimulation());
+        assertNull(module.simulate(Collections.emptyList(), 1, NOW));
+    }
+}
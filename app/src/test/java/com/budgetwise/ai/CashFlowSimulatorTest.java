@@ -0,0 +1,181 @@
+package com.budgetwise.ai;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.budgetwise.data.models.Transaction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CashFlowSimulatorTest {
+    private static final long DAY = AnalysisContext.DAY_MILLIS;
+    private static final long NOW = 1_700_000_000_000L;
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        AnalysisContext.refreshZone();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+        AnalysisContext.refreshZone();
+    }
+
+    private static RecurringDetector.RecurringPattern monthly(String description, double amount, long nextDue,
+                                                              Transaction.TransactionType type) {
+        return new RecurringDetector.RecurringPattern(description, "Bills & Utilities", amount, 30,
+            RecurringDetector.RecurringType.MONTHLY, true, nextDue, amount, 0, type);
+    }
+
+    private static double[] schedule(RecurringDetector.RecurringPattern pattern) {
+        double[] scheduled = new double[CashFlowSimulator.HORIZON_DAYS + 1];
+        CashFlowSimulator.schedule(pattern, AnalysisContext.localDay(NOW), scheduled);
+        return scheduled;
+    }
+
+    @Test
+    public void schedulesChargesOnTheirDays() {
+        double[] scheduled = schedule(monthly("Rent", 1200, NOW + 5 * DAY, Transaction.TransactionType.EXPENSE));
+        double[] expected = new double[CashFlowSimulator.HORIZON_DAYS + 1];
+        expected[5] = -1200;
+        assertArrayEquals(expected, scheduled, 0.0);
+
+        // The next salary after this one falls beyond the horizon
+        scheduled = schedule(monthly("Salary", 3000, NOW + 2 * DAY, Transaction.TransactionType.INCOME));
+        assertEquals(3000, scheduled[2], 0.0);
+        assertEquals(3000, sum(scheduled), 0.0);
+    }
+
+    @Test
+    public void slightlyLateChargeIsExpectedTomorrow() {
+        double[] scheduled = schedule(monthly("Internet", 60, NOW - 2 * DAY, Transaction.TransactionType.EXPENSE));
+        assertEquals(-60, scheduled[1], 0.0);
+        // Then again a month after it was due
+        assertEquals(-60, scheduled[28], 0.0);
+        assertEquals(-120, sum(scheduled), 0.0);
+    }
+
+    @Test
+    public void longOverdueChargeIsTakenAsCancelled() {
+        double[] scheduled = schedule(monthly("Old gym", 45, NOW - 10 * DAY, Transaction.TransactionType.EXPENSE));
+        assertEquals(0, sum(scheduled), 0.0);
+        scheduled = schedule(monthly("Old gym", 45, NOW - 200 * DAY, Transaction.TransactionType.EXPENSE));
+        assertEquals(0, sum(scheduled), 0.0);
+    }
+
+    private static List<Transaction> history(Random random, int days) {
+        List<Transaction> transactions = new ArrayList<>();
+        Transaction salary = new Transaction(2000, "Salary", "Income", Transaction.TransactionType.INCOME);
+        salary.setDate(new Date(NOW - days * DAY));
+        transactions.add(salary);
+        for (int day = days; day >= 1; day--) {
+            Transaction expense = new Transaction(Math.round(random.nextDouble() * 8000) / 100.0, "Shop " + day,
+                "Shopping", Transaction.TransactionType.EXPENSE);
+            expense.setDate(new Date(NOW - day * DAY + 3600_000));
+            transactions.add(expense);
+        }
+        return transactions;
+    }
+
+    @Test
+    public void needsTwoWeeksOfHistory() {
+        CashFlowSimulator simulator = new CashFlowSimulator(new ForkJoinPool(2));
+        assertNull(simulator.simulate(history(new Random(1), 10), Collections.emptyList(), d -> d, NOW, 1000, 1));
+        assertNotNull(simulator.simulate(history(new Random(1), 20), Collections.emptyList(), d -> d, NOW, 1000, 1));
+    }
+
+    @Test
+    public void sameSeedSameResultWhateverTheParallelism() {
+        List<Transaction> transactions = history(new Random(2), 90);
+        List<RecurringDetector.RecurringPattern> patterns = Collections.singletonList(
+            monthly("Rent", 900, NOW + 3 * DAY, Transaction.TransactionType.EXPENSE));
+        CashFlowSimulator.SimulationResult one = new CashFlowSimulator(new ForkJoinPool(1))
+            .simulate(transactions, patterns, d -> d, NOW, 5000, 7);
+        CashFlowSimulator.SimulationResult four = new CashFlowSimulator(new ForkJoinPool(4))
+            .simulate(transactions, patterns, d -> d, NOW, 5000, 7);
+
+        assertEquals(one.getProbabilityOfNegative(), four.getProbabilityOfNegative(), 0.0);
+        assertArrayEquals(one.getP10(), four.getP10(), 0.0);
+        assertArrayEquals(one.getP50(), four.getP50(), 0.0);
+        assertArrayEquals(one.getP90(), four.getP90(), 0.0);
+        for (int day = 0; day <= CashFlowSimulator.HORIZON_DAYS; day++) {
+            assertTrue(one.getP10()[day] <= one.getP50()[day] && one.getP50()[day] <= one.getP90()[day]);
+        }
+        // The rent lands on its day in every path
+        assertTrue(one.getP90()[3] < one.getP90()[2]);
+    }
+
+    @Test
+    public void balanceAlreadyBelowZeroCountsOnlyPathsThatFallFurther() {
+        List<Transaction> transactions = new ArrayList<>();
+        Transaction deposit = new Transaction(1000, "Deposit", "Income", Transaction.TransactionType.INCOME);
+        deposit.setDate(new Date(NOW - 120 * DAY));
+        transactions.add(deposit);
+        Transaction laptop = new Transaction(5000, "Laptop", "Shopping", Transaction.TransactionType.EXPENSE);
+        laptop.setDate(new Date(NOW - 120 * DAY));
+        transactions.add(laptop);
+        // Every day since nets +20, and 90 of them are what the simulation draws from
+        for (int day = 119; day >= 1; day--) {
+            Transaction pay = new Transaction(50, "Tips", "Income", Transaction.TransactionType.INCOME);
+            pay.setDate(new Date(NOW - day * DAY));
+            transactions.add(pay);
+            Transaction lunch = new Transaction(30, "Lunch", "Food & Dining", Transaction.TransactionType.EXPENSE);
+            lunch.setDate(new Date(NOW - day * DAY));
+            transactions.add(lunch);
+        }
+
+        CashFlowSimulator.SimulationResult result = new CashFlowSimulator(new ForkJoinPool(2))
+            .simulate(transactions, Collections.emptyList(), d -> d, NOW, 1000, 1);
+        assertTrue(result.getP50()[0] < 0);
+        assertEquals(0, result.getProbabilityOfNegative(), 0.0);
+
+        // A rent that takes it below where it started counts in every path
+        result = new CashFlowSimulator(new ForkJoinPool(2)).simulate(transactions,
+            Collections.singletonList(monthly("Rent", 900, NOW + 3 * DAY, Transaction.TransactionType.EXPENSE)),
+            d -> d, NOW, 1000, 1);
+        assertEquals(1, result.getProbabilityOfNegative(), 0.0);
+    }
+
+    @Test
+    public void positiveBalanceCountsPathsBelowZero() {
+        List<Transaction> transactions = new ArrayList<>();
+        Transaction deposit = new Transaction(5000, "Deposit", "Income", Transaction.TransactionType.INCOME);
+        deposit.setDate(new Date(NOW - 30 * DAY));
+        transactions.add(deposit);
+        for (int day = 30; day >= 1; day--) {
+            Transaction lunch = new Transaction(20, "Lunch", "Food & Dining", Transaction.TransactionType.EXPENSE);
+            lunch.setDate(new Date(NOW - day * DAY));
+            transactions.add(lunch);
+        }
+        CashFlowSimulator simulator = new CashFlowSimulator(new ForkJoinPool(2));
+        // 4400 left, spent at 20 a day: nothing goes below zero in a month
+        assertEquals(0, simulator.simulate(transactions, Collections.emptyList(), d -> d, NOW, 1000, 1)
+            .getProbabilityOfNegative(), 0.0);
+        CashFlowSimulator.SimulationResult result = simulator.simulate(transactions,
+            Collections.singletonList(monthly("Rent", 5000, NOW + 3 * DAY, Transaction.TransactionType.EXPENSE)),
+            d -> d, NOW, 1000, 1);
+        assertEquals(1, result.getProbabilityOfNegative(), 0.0);
+    }
+
+    private static double sum(double[] values) {
+        double total = 0;
+        for (double value : values) total += value;
+        return total;
+    }
+}
@@ -0,0 +1,77 @@
+package com.budgetwise.ai;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class DailySeriesTest {
+
+    @Test
+    public void matchesTotalsKeptPerDay() {
+        Random random = new Random(1);
+        DailySeries series = new DailySeries();
+        Map<Long, Double> reference = new HashMap<>();
+        List<long[]> added = new ArrayList<>();
+        List<Double> amounts = new ArrayList<>();
+        long base = 19000;
+
+        for (int round = 0; round < 5000; round++) {
+            if (added.isEmpty() || random.nextInt(3) != 0) {
+                // Grows both ways, including far before the current first day
+                long day = base + random.nextInt(400) - 200 + (random.nextInt(50) == 0 ? -1000 : 0);
+                double amount = Math.round(random.nextDouble() * 10000) / 100.0;
+                series.add(day, amount);
+                reference.merge(day, amount, Double::sum);
+                added.add(new long[] {day});
+                amounts.add(amount);
+            } else {
+                int index = random.nextInt(added.size());
+                long day = added.remove(index)[0];
+                double amount = amounts.remove(index);
+                series.add(day, -amount);
+                reference.merge(day, -amount, Double::sum);
+            }
+
+            if (round % 50 == 0) {
+                for (long day = base - 1300; day < base + 300; day += 37) {
+                    assertEquals(reference.getOrDefault(day, 0.0), series.get(day), 1e-6);
+                }
+                long from = base - 1300 + random.nextInt(1600);
+                long to = from + random.nextInt(400);
+                double total = 0;
+                for (Map.Entry<Long, Double> entry : reference.entrySet()) {
+                    if (entry.getKey() >= from && entry.getKey() < to) total += entry.getValue();
+                }
+                assertEquals(total, series.total(from, to), 1e-6);
+
+                long first = Long.MAX_VALUE;
+                for (int i = 0; i < added.size(); i++) first = Math.min(first, added.get(i)[0]);
+                assertEquals(first, series.firstActiveDay());
+            }
+        }
+    }
+
+    @Test
+    public void emptySeries() {
+        DailySeries series = new DailySeries();
+        assertEquals(0.0, series.get(5), 0.0);
+        assertEquals(0.0, series.total(0, 100), 0.0);
+        assertEquals(Long.MAX_VALUE, series.firstActiveDay());
+    }
+
+    @Test
+    public void removedDayIsNoLongerActive() {
+        DailySeries series = new DailySeries();
+        series.add(100, 0.1);
+        series.add(100, 0.2);
+        series.add(105, 5);
+        series.add(100, -0.1);
+        series.add(100, -0.2);
+        assertEquals(105, series.firstActiveDay());
+    }
+}
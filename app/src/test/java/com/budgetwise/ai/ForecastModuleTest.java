@@ -0,0 +1,81 @@
+package com.budgetwise.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.budgetwise.data.models.Transaction;
+import java.util.Date;
+import java.util.TimeZone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ForecastModuleTest {
+    private static final long DAY = AnalysisContext.DAY_MILLIS;
+    private static final long NOW = 1_700_000_000_000L;
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        AnalysisContext.refreshZone();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+        AnalysisContext.refreshZone();
+    }
+
+    private static LedgerEntry entry(double amount, Transaction.TransactionType type, long time) {
+        Transaction transaction = new Transaction(amount, "Entry", "Shopping", type);
+        transaction.setDate(new Date(time));
+        return new LedgerEntry(transaction);
+    }
+
+    @Test
+    public void transfersAreNeitherSpendingNorIncome() {
+        // The engine is only needed to build the result, which this test doesn't reach
+        ForecastModule module = new ForecastModule(null);
+        for (int day = 60; day >= 1; day--) {
+            module.add(entry(10, Transaction.TransactionType.EXPENSE, NOW - day * DAY), false);
+            module.add(entry(100, Transaction.TransactionType.TRANSFER, NOW - day * DAY), false);
+        }
+        assertTrue(module.fitThrough(AnalysisContext.localDay(NOW)));
+
+        assertEquals(300, module.forecastSpending(), 1e-6);
+        assertEquals(0, module.forecastIncome(), 0.0);
+    }
+
+    @Test
+    public void incomeCountsOnlyIncome() {
+        ForecastModule module = new ForecastModule(null);
+        for (int day = 60; day >= 1; day--) {
+            module.add(entry(10, Transaction.TransactionType.EXPENSE, NOW - day * DAY), false);
+            module.add(entry(50, Transaction.TransactionType.INCOME, NOW - day * DAY), false);
+            module.add(entry(100, Transaction.TransactionType.TRANSFER, NOW - day * DAY), false);
+        }
+        module.fitThrough(AnalysisContext.localDay(NOW));
+
+        assertEquals(300, module.forecastSpending(), 1e-6);
+        assertEquals(1500, module.forecastIncome(), 1e-6);
+    }
+
+    @Test
+    public void removingATransferLeavesTheModelsAlone() {
+        ForecastModule module = new ForecastModule(null);
+        LedgerEntry transfer = entry(100, Transaction.TransactionType.TRANSFER, NOW - 30 * DAY);
+        for (int day = 60; day >= 1; day--) {
+            module.add(entry(10, Transaction.TransactionType.EXPENSE, NOW - day * DAY), false);
+        }
+        module.add(transfer, false);
+        long today = AnalysisContext.localDay(NOW);
+        module.fitThrough(today);
+
+        module.remove(transfer);
+        assertFalse(module.fitThrough(today));
+    }
+}
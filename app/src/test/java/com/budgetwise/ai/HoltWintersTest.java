@@ -0,0 +1,75 @@
+package com.budgetwise.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class HoltWintersTest {
+
+    @Test
+    public void readyAfterFourWeeks() {
+        HoltWinters model = new HoltWinters();
+        for (int day = 0; day < HoltWinters.WINDOW_DAYS - 1; day++) {
+            model.update(10);
+            assertFalse(model.isReady());
+        }
+        model.update(10);
+        assertTrue(model.isReady());
+    }
+
+    @Test
+    public void flatSpendingForecastsTheSameRate() {
+        HoltWinters model = new HoltWinters();
+        for (int day = 0; day < 200; day++) model.update(25);
+        assertEquals(30 * 25, model.forecastTotal(30), 1e-6);
+    }
+
+    @Test
+    public void learnsTheWeeklyPattern() {
+        double[] week = {5, 5, 5, 5, 60, 80, 10};
+        HoltWinters model = new HoltWinters();
+        for (int day = 0; day < 140; day++) model.update(week[day % 7]);
+
+        // The next day is day 140, a weekday like day 0
+        double weekTotal = 0;
+        for (double value : week) weekTotal += value;
+        assertEquals(weekTotal, model.forecastTotal(7), 1e-6);
+        double previous = 0;
+        for (int ahead = 1; ahead <= 7; ahead++) {
+            double total = model.forecastTotal(ahead);
+            assertEquals(week[(140 + ahead - 1) % 7], total - previous, 1e-6);
+            previous = total;
+        }
+    }
+
+    @Test
+    public void trendIsDamped() {
+        HoltWinters model = new HoltWinters();
+        for (int day = 0; day < 365; day++) model.update(10 + day * 0.1);
+        double last = 10 + 364 * 0.1;
+        double total = model.forecastTotal(30);
+        // The level trails by up to a window of growth, and the damped trend adds little
+        assertTrue(total > 30 * (last - 0.1 * HoltWinters.WINDOW_DAYS));
+        assertTrue(total < 30 * (last + 1));
+        assertTrue(model.forecastTotal(60) - total < 30 * (last + 1));
+    }
+
+    @Test
+    public void forecastsNeverGoBelowZero() {
+        Random random = new Random(1);
+        HoltWinters model = new HoltWinters();
+        for (int day = 0; day < 120; day++) {
+            // Heavy spending then nothing at all
+            model.update(day < 60 ? random.nextDouble() * 500 : 0);
+        }
+        double previous = 0;
+        for (int ahead = 1; ahead <= 30; ahead++) {
+            double total = model.forecastTotal(ahead);
+            assertTrue(total >= previous);
+            previous = total;
+        }
+    }
+}
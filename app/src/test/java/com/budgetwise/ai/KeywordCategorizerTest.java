@@ -0,0 +1,130 @@
+package com.budgetwise.ai;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class KeywordCategorizerTest {
+    // The if-chain the automaton replaced, with "utilities" added to the bills keywords
+    private static final String[][] CHAIN = {
+        {"Food & Dining", "restaurant", "cafe", "coffee", "starbucks", "mcdonald", "pizza", "burger",
+            "food", "dining", "lunch", "dinner", "breakfast", "grocery"},
+        {"Transportation", "gas", "fuel", "uber", "lyft", "taxi", "bus", "train", "metro", "parking",
+            "toll", "car", "vehicle"},
+        {"Entertainment", "movie", "cinema", "netflix", "spotify", "game", "concert", "theater",
+            "entertainment", "music", "streaming"},
+        {"Shopping", "amazon", "walmart", "target", "store", "shop", "mall", "clothing", "clothes",
+            "shoes", "electronics"},
+        {"Healthcare", "doctor", "hospital", "pharmacy", "medical", "health", "dentist", "clinic",
+            "medicine", "prescription"},
+        {"Bills & Utilities", "electric", "electricity", "water", "gas bill", "internet", "phone",
+            "cable", "utility", "utilities", "bill", "payment"},
+        {"Housing", "rent", "mortgage", "housing", "apartment", "home", "property", "maintenance",
+            "repair"},
+    };
+
+    private static String chainCategorize(String description) {
+        if (description == null || description.trim().isEmpty()) return "Other";
+        String lower = description.toLowerCase();
+        for (String[] category : CHAIN) {
+            for (int i = 1; i < category.length; i++) {
+                if (lower.contains(category[i])) return category[0];
+            }
+        }
+        return "Other";
+    }
+
+    private static String randomDescription(Random random) {
+        StringBuilder description = new StringBuilder();
+        int parts = 1 + random.nextInt(4);
+        for (int part = 0; part < parts; part++) {
+            if (part > 0) description.append(random.nextBoolean() ? " " : "*");
+            switch (random.nextInt(4)) {
+                case 0: {
+                    // A keyword, sometimes cut short or in capitals
+                    String[] category = CHAIN[random.nextInt(CHAIN.length)];
+                    String keyword = category[1 + random.nextInt(category.length - 1)];
+                    if (random.nextInt(3) == 0) keyword = keyword.substring(0, 1 + random.nextInt(keyword.length()));
+                    description.append(random.nextBoolean() ? keyword.toUpperCase() : keyword);
+                    break;
+                }
+                case 1:
+                    description.append(random.nextInt(100000));
+                    break;
+                case 2:
+                    description.append("café über ñandú".charAt(random.nextInt(15)));
+                    break;
+                default:
+                    for (int i = 0; i < 1 + random.nextInt(8); i++) {
+                        description.append((char) ('a' + random.nextInt(26)));
+                    }
+            }
+        }
+        return description.toString();
+    }
+
+    @Test
+    public void builtInKeywordsMatchTheIfChain() {
+        KeywordCategorizer categorizer = new KeywordCategorizer(null);
+        Random random = new Random(1);
+        for (int i = 0; i < 50000; i++) {
+            String description = randomDescription(random);
+            assertEquals(description, chainCategorize(description), categorizer.categorize(description));
+        }
+    }
+
+    @Test
+    public void categoriesKeepTheirPriority() {
+        KeywordCategorizer categorizer = new KeywordCategorizer(null);
+        // "gas bill" is a bill keyword, but "gas" comes first in the chain
+        assertEquals("Transportation", categorizer.categorize("City gas bill"));
+        assertEquals("Food & Dining", categorizer.categorize("Home delivery pizza"));
+        assertEquals("Bills & Utilities", categorizer.categorize("UTILITIES March"));
+        assertEquals(KeywordCategorizer.UNCATEGORIZED, categorizer.categorize("xyz 123"));
+        assertEquals(KeywordCategorizer.UNCATEGORIZED, categorizer.categorize("   "));
+        assertEquals(KeywordCategorizer.UNCATEGORIZED, categorizer.categorize(null));
+    }
+
+    @Test
+    public void userKeywordsComeFirstNewestFirst() {
+        KeywordCategorizer categorizer = new KeywordCategorizer(null);
+        categorizer.addKeyword("Costco", "Groceries");
+        assertEquals("Groceries", categorizer.categorize("COSTCO GAS #12"));
+
+        categorizer.addKeyword("gas", "Fuel");
+        assertEquals("Fuel", categorizer.categorize("COSTCO GAS #12"));
+
+        // Re-adding moves a keyword back to the front
+        categorizer.addKeyword("costco", "Warehouse");
+        assertEquals("Warehouse", categorizer.categorize("COSTCO GAS #12"));
+        assertEquals(Arrays.asList("gas", "costco"), Arrays.asList(categorizer.getUserKeywords().keySet().toArray()));
+
+        categorizer.removeKeyword("costco");
+        assertEquals("Fuel", categorizer.categorize("COSTCO GAS #12"));
+        // The built-in keyword of the same text applies again
+        categorizer.removeKeyword("gas");
+        assertEquals("Transportation", categorizer.categorize("COSTCO GAS #12"));
+        assertEquals(0, categorizer.getUserKeywords().size());
+    }
+
+    @Test
+    public void userKeywordsMatchBeyondAscii() {
+        KeywordCategorizer categorizer = new KeywordCategorizer(null);
+        categorizer.addKeyword("Café Über", "Coffee shops");
+        assertEquals("Coffee shops", categorizer.categorize("CAFÉ ÜBER Berlin"));
+        // Accents count: "café" doesn't contain "cafe", so "uber" decides
+        assertEquals("Transportation", categorizer.categorize("café uber"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void blankKeywordIsRejected() {
+        new KeywordCategorizer(null).addKeyword("  ", "Food & Dining");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void blankCategoryIsRejected() {
+        new KeywordCategorizer(null).addKeyword("costco", " ");
+    }
+}
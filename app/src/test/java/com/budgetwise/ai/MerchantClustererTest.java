@@ -0,0 +1,98 @@
+package com.budgetwise.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class MerchantClustererTest {
+
+    private static String clusterOf(MerchantClusterer clusterer, String description) {
+        return clusterer.clusterOf(RecurringDetector.normalizeDescription(description), description);
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < 12; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+
+    @Test
+    public void nearDuplicatesJoinOneCluster() {
+        MerchantClusterer clusterer = new MerchantClusterer(null);
+        String netflix = clusterOf(clusterer, "NETFLIX.COM 8443");
+        String spotify = clusterOf(clusterer, "Spotify Premium");
+        assertEquals(netflix, clusterOf(clusterer, "Netflix Inc"));
+        assertEquals(spotify, clusterOf(clusterer, "SPOTIFY PREMIUM 1234"));
+        assertNotEquals(netflix, spotify);
+    }
+
+    @Test
+    public void restoredAssignmentsAreIndexedBeforeTheirKeyShowsUp() {
+        MerchantClusterer previous = new MerchantClusterer(null);
+        String netflix = clusterOf(previous, "NETFLIX.COM 8443");
+
+        Map<String, String> clusters = new LinkedHashMap<>();
+        clusters.put(RecurringDetector.normalizeDescription("NETFLIX.COM 8443"), netflix);
+        Map<String, String> descriptions = new HashMap<>();
+        descriptions.put(RecurringDetector.normalizeDescription("NETFLIX.COM 8443"), "NETFLIX.COM 8443");
+
+        // A variant arriving first still joins the stored cluster
+        MerchantClusterer restored = new MerchantClusterer(null);
+        restored.restore(clusters, descriptions);
+        assertEquals(netflix, clusterOf(restored, "Netflix Inc"));
+        assertEquals(netflix, clusterOf(restored, "NETFLIX.COM 8443"));
+    }
+
+    @Test
+    public void restoredAssignmentsWithoutDescriptionKeepTheirCluster() {
+        Map<String, String> clusters = new LinkedHashMap<>();
+        clusters.put("netflix inc", "netflixcom");
+        MerchantClusterer restored = new MerchantClusterer(null);
+        restored.restore(clusters, null);
+        assertEquals("netflixcom", clusterOf(restored, "Netflix Inc"));
+        // Indexed now, so a variant finds it
+        assertEquals("netflixcom", clusterOf(restored, "NETFLIX INC 99"));
+    }
+
+    @Test
+    public void lookupAssignsNothing() {
+        MerchantClusterer clusterer = new MerchantClusterer(null);
+        String netflix = clusterOf(clusterer, "NETFLIX.COM 8443");
+        assertEquals(netflix, clusterer.lookup(RecurringDetector.normalizeDescription("Netflix Inc"), "Netflix Inc"));
+        assertEquals("hulu", clusterer.lookup("hulu", "Hulu"));
+        assertEquals(1, clusterer.size());
+        // The unassigned key is still free to start its own cluster
+        assertEquals("hulu", clusterOf(clusterer, "Hulu"));
+        assertEquals(2, clusterer.size());
+    }
+
+    @Test
+    public void keepsAtMostTheRecentlyUsedMerchants() {
+        Random random = new Random(1);
+        String oldest = randomWord(random);
+        String evicted = randomWord(random);
+        Map<String, String> clusters = new LinkedHashMap<>();
+        clusters.put(oldest, "kept");
+        clusters.put(evicted, "dropped");
+        MerchantClusterer clusterer = new MerchantClusterer(null);
+        clusterer.restore(clusters, null);
+        String oldestCluster = "kept";
+        for (int i = 0; i < MerchantClusterer.MAX_MERCHANTS + 100; i++) {
+            clusterOf(clusterer, randomWord(random));
+            if (i % 100 == 0) {
+                // Used again, so it stays
+                assertEquals(oldestCluster, clusterOf(clusterer, oldest));
+            }
+        }
+        assertEquals(MerchantClusterer.MAX_MERCHANTS, clusterer.size());
+        assertEquals(oldestCluster, clusterer.lookup(oldest, oldest));
+        assertEquals(evicted, clusterer.lookup(evicted, evicted));
+    }
+}
@@ -0,0 +1,114 @@
+package com.budgetwise.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class QuantileSketchTest {
+    private static final double[] QUANTILES = {0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1};
+
+    /** The value at rank {@code q} of sorted values, as the sketch defines rank. */
+    private static double exactQuantile(double[] sorted, double q) {
+        int rank = (int) Math.max(1, Math.ceil(q * sorted.length));
+        return sorted[rank - 1];
+    }
+
+    /** Fraction of {@code sorted} at or below {@code value}. */
+    private static double rankOf(double[] sorted, double value) {
+        int below = 0;
+        while (below < sorted.length && sorted[below] <= value) below++;
+        return (double) below / sorted.length;
+    }
+
+    private static double[] amounts(Random random, int count) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            // Skewed like spending: mostly small, a long tail of large ones
+            values[i] = Math.round(Math.exp(random.nextGaussian() * 1.2 + 3) * 100) / 100.0;
+        }
+        return values;
+    }
+
+    @Test
+    public void exactUpToK() {
+        Random random = new Random(1);
+        for (int count = 1; count <= 200; count += 7) {
+            double[] values = amounts(random, count);
+            QuantileSketch sketch = new QuantileSketch();
+            for (double value : values) sketch.add(value);
+            double[] sorted = values.clone();
+            Arrays.sort(sorted);
+
+            assertEquals(count, sketch.getCount());
+            for (double q : QUANTILES) {
+                assertEquals(exactQuantile(sorted, q), sketch.quantile(q), 0.0);
+            }
+            double median = exactQuantile(sorted, 0.5);
+            double[] deviations = new double[count];
+            for (int i = 0; i < count; i++) deviations[i] = Math.abs(sorted[i] - median);
+            Arrays.sort(deviations);
+            double mad = exactQuantile(deviations, 0.5);
+            if (mad > 0) {
+                assertEquals(1.4826 * mad, sketch.getRobustScale(), 1e-9);
+                assertEquals((sorted[count - 1] - median) / (1.4826 * mad), sketch.robustScore(sorted[count - 1]), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void rankErrorIsBoundedBeyondK() {
+        double[] values = amounts(new Random(2), 100000);
+        QuantileSketch sketch = new QuantileSketch();
+        for (double value : values) sketch.add(value);
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        for (double q : QUANTILES) {
+            double rank = rankOf(sorted, sketch.quantile(q));
+            assertTrue("q=" + q + " rank=" + rank, Math.abs(rank - Math.max(q, 1.0 / sorted.length)) < 0.02);
+        }
+        double median = exactQuantile(sorted, 0.5);
+        assertEquals(median, sketch.getMedian(), median * 0.05);
+    }
+
+    @Test
+    public void mergeMatchesOneSketch() {
+        Random random = new Random(3);
+        QuantileSketch merged = new QuantileSketch();
+        double[] all = new double[0];
+        for (int month = 0; month < 12; month++) {
+            double[] values = amounts(random, 500 + random.nextInt(3000));
+            QuantileSketch sketch = new QuantileSketch();
+            for (double value : values) sketch.add(value);
+            merged.merge(sketch);
+            double[] grown = Arrays.copyOf(all, all.length + values.length);
+            System.arraycopy(values, 0, grown, all.length, values.length);
+            all = grown;
+        }
+        Arrays.sort(all);
+        assertEquals(all.length, merged.getCount());
+        for (double q : QUANTILES) {
+            double rank = rankOf(all, merged.quantile(q));
+            assertTrue("q=" + q + " rank=" + rank, Math.abs(rank - Math.max(q, 1.0 / all.length)) < 0.03);
+        }
+    }
+
+    @Test
+    public void identicalAmountsHaveNoSpread() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < 1000; i++) sketch.add(9.99);
+        assertEquals(9.99, sketch.getMedian(), 0.0);
+        assertEquals(0.0, sketch.getRobustScale(), 0.0);
+        assertEquals(0.0, sketch.robustScore(500), 0.0);
+    }
+
+    @Test
+    public void emptySketch() {
+        QuantileSketch sketch = new QuantileSketch();
+        assertTrue(Double.isNaN(sketch.getMedian()));
+        assertEquals(0.0, sketch.getRobustScale(), 0.0);
+    }
+}
@@ -0,0 +1,120 @@
+package com.budgetwise.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.budgetwise.data.models.Transaction;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+public class RecurringTrackerTest {
+    private static final long DAY = RecurringDetector.DAY_MILLIS;
+    private static final long START = 1_700_000_000_000L;
+    private static final String[] MERCHANTS = {"Netflix", "Spotify Premium", "City Water", "Gym Membership"};
+
+    private static Transaction transaction(String description, long time, double amount) {
+        Transaction transaction = new Transaction(amount, description, "Bills & Utilities",
+            Transaction.TransactionType.EXPENSE);
+        transaction.setDate(new Date(time));
+        return transaction;
+    }
+
+    /** The batch rule: sorted intervals, every one within the tolerance of their average. */
+    private static RecurringDetector.RecurringPattern referencePattern(List<LedgerEntry> occurrences) {
+        if (occurrences.size() < RecurringDetector.MIN_OCCURRENCES) return null;
+        List<LedgerEntry> sorted = new ArrayList<>(occurrences);
+        sorted.sort(LedgerEntry.BY_TIME);
+        long sum = 0;
+        for (int i = 1; i < sorted.size(); i++) {
+            sum += sorted.get(i).time - sorted.get(i - 1).time;
+        }
+        long average = sum / (sorted.size() - 1);
+        for (int i = 1; i < sorted.size(); i++) {
+            if (Math.abs(sorted.get(i).time - sorted.get(i - 1).time - average) > RecurringDetector.CONSISTENCY_TOLERANCE) {
+                return null;
+            }
+        }
+        LedgerEntry last = sorted.get(sorted.size() - 1);
+        return new RecurringDetector.RecurringPattern(
+            sorted.get(0).transaction.getDescription(), "Bills & Utilities", sorted.get(0).amount,
+            (int) (average / DAY), RecurringDetector.determineRecurringType(average), false,
+            last.time + average, last.amount, 0, Transaction.TransactionType.EXPENSE);
+    }
+
+    @Test
+    public void incrementalPatternsMatchBatchRule() {
+        Random random = new Random(1);
+        RecurringTracker tracker = new RecurringTracker(new MerchantClusterer(null));
+        List<LedgerEntry> live = new ArrayList<>();
+        Map<String, String> keyById = new HashMap<>();
+
+        for (int round = 0; round < 3000; round++) {
+            if (live.isEmpty() || random.nextInt(3) != 0) {
+                int merchant = random.nextInt(MERCHANTS.length);
+                // Mostly near a monthly rhythm, sometimes far off it, in any order
+                long time = START + (long) random.nextInt(12) * 30 * DAY
+                    + (random.nextInt(5) == 0 ? random.nextInt(20) : random.nextInt(3)) * DAY
+                    + random.nextInt(1000) * 1000L;
+                LedgerEntry entry = new LedgerEntry(transaction(MERCHANTS[merchant], time, 10 + merchant));
+                String key = tracker.add(entry);
+                assertNotNull(key);
+                keyById.put(entry.id, key);
+                live.add(entry);
+            } else {
+                LedgerEntry entry = live.remove(random.nextInt(live.size()));
+                assertEquals(keyById.remove(entry.id), tracker.remove(entry));
+            }
+
+            Map<String, List<LedgerEntry>> byKey = new HashMap<>();
+            for (LedgerEntry entry : live) {
+                byKey.computeIfAbsent(keyById.get(entry.id), k -> new ArrayList<>()).add(entry);
+            }
+            Set<String> tracked = new HashSet<>();
+            for (String key : tracker.merchantKeys()) tracked.add(key);
+            assertEquals(byKey.keySet(), tracked);
+
+            for (Map.Entry<String, List<LedgerEntry>> merchant : byKey.entrySet()) {
+                RecurringDetector.RecurringPattern expected = referencePattern(merchant.getValue());
+                RecurringDetector.RecurringPattern actual = tracker.patternFor(merchant.getKey());
+                if (expected == null) {
+                    assertNull(actual);
+                    continue;
+                }
+                assertNotNull(actual);
+                assertEquals(expected.getIntervalDays(), actual.getIntervalDays());
+                assertEquals(expected.getNextDueDate(), actual.getNextDueDate());
+                assertEquals(expected.getExpectedAmount(), actual.getExpectedAmount(), 0.0);
+                assertEquals(expected.getType(), actual.getType());
+            }
+        }
+    }
+
+    @Test
+    public void nearDuplicateDescriptionsShareAMerchant() {
+        RecurringTracker tracker = new RecurringTracker(new MerchantClusterer(null));
+        String first = tracker.add(new LedgerEntry(transaction("NETFLIX.COM 8443", START, 15.49)));
+        String second = tracker.add(new LedgerEntry(transaction("Netflix Inc", START + 30 * DAY, 15.49)));
+        tracker.add(new LedgerEntry(transaction("NETFLIX.COM 1234", START + 60 * DAY, 15.49)));
+        assertEquals(first, second);
+
+        RecurringDetector.RecurringPattern pattern = tracker.patternFor(first);
+        assertNotNull(pattern);
+        assertEquals(30, pattern.getIntervalDays());
+        assertEquals(RecurringDetector.RecurringType.MONTHLY, pattern.getType());
+        assertEquals(START + 90 * DAY, pattern.getNextDueDate());
+    }
+
+    @Test
+    public void removingUnknownEntryIsIgnored() {
+        RecurringTracker tracker = new RecurringTracker(new MerchantClusterer(null));
+        assertNull(tracker.remove(new LedgerEntry(transaction("Netflix", START, 1))));
+    }
+}
@@ -0,0 +1,75 @@
+package com.budgetwise.ai;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class RunningStatsTest {
+
+    private static void assertMatches(List<Double> values, RunningStats stats) {
+        assertEquals(values.size(), stats.getCount());
+        if (values.isEmpty()) {
+            assertEquals(0.0, stats.getMean(), 0.0);
+            assertEquals(0.0, stats.getStandardDeviation(), 0.0);
+            return;
+        }
+        double mean = 0;
+        for (double value : values) mean += value;
+        mean /= values.size();
+        double squares = 0;
+        for (double value : values) squares += (value - mean) * (value - mean);
+        double deviation = Math.sqrt(squares / values.size());
+        double scale = Math.max(1, Math.abs(mean));
+        assertEquals(mean, stats.getMean(), 1e-9 * scale);
+        assertEquals(deviation, stats.getStandardDeviation(), 1e-6 * Math.max(1, deviation));
+    }
+
+    @Test
+    public void addsAndRemovesMatchTwoPassStatistics() {
+        Random random = new Random(1);
+        List<Double> values = new ArrayList<>();
+        RunningStats stats = new RunningStats();
+        for (int round = 0; round < 20000; round++) {
+            if (values.isEmpty() || random.nextInt(3) != 0) {
+                double value = Math.round(random.nextDouble() * 100000) / 100.0;
+                values.add(value);
+                stats.add(value);
+            } else {
+                stats.remove(values.remove(random.nextInt(values.size())));
+            }
+            if (round % 97 == 0) {
+                assertMatches(values, stats);
+            }
+        }
+        assertMatches(values, stats);
+    }
+
+    @Test
+    public void keepsVarianceOfLargeCloseValues() {
+        // A sum of squares loses all of this to cancellation
+        RunningStats stats = new RunningStats();
+        List<Double> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            double value = 1e9 + (i % 10) * 0.01;
+            values.add(value);
+            stats.add(value);
+        }
+        assertMatches(values, stats);
+    }
+
+    @Test
+    public void emptyAfterRemovingEverything() {
+        RunningStats stats = new RunningStats();
+        stats.add(12.5);
+        stats.add(30);
+        stats.remove(12.5);
+        stats.remove(30);
+        assertMatches(new ArrayList<>(), stats);
+        stats.add(7);
+        assertEquals(7, stats.getMean(), 0.0);
+        assertEquals(0, stats.getStandardDeviation(), 0.0);
+    }
+}
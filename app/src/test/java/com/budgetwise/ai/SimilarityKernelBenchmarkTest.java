@@ -0,0 +1,63 @@
+package com.budgetwise.ai;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Times the full-matrix edit distance against the kernel, unbounded and with the bound
+ * duplicate matching uses, over merchant-length descriptions. Timing depends on the machine
+ * it runs on, so it is ignored in regular runs; remove the annotation to run it by hand.
+ */
+public class SimilarityKernelBenchmarkTest {
+    private static final int PAIRS = 2000;
+    private static final int ROUNDS = 20;
+
+    @Ignore("Timing benchmark; run by hand")
+    @Test
+    public void kernelBeatsTheMatrixAndTheBoundCutsItFurther() {
+        Random random = new Random(42);
+        String alphabet = "abcdefghijklmnopqrstuvwxyz0123456789 ";
+        List<String[]> pairs = new ArrayList<>();
+        for (int i = 0; i < PAIRS; i++) {
+            String a = SimilarityKernelTest.randomString(random, alphabet, 40);
+            String b = random.nextInt(4) == 0
+                ? SimilarityKernelTest.mutate(random, a, alphabet)
+                : SimilarityKernelTest.randomString(random, alphabet, 40);
+            pairs.add(new String[] {a, b});
+        }
+
+        // Best of the rounds, so a pause in one of them doesn't decide the outcome
+        long matrix = Long.MAX_VALUE;
+        long kernel = Long.MAX_VALUE;
+        long bounded = Long.MAX_VALUE;
+        long sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (String[] pair : pairs) sink += SimilarityKernelTest.referenceDistance(pair[0], pair[1]);
+            matrix = Math.min(matrix, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (String[] pair : pairs) {
+                sink += SimilarityKernel.distance(pair[0], pair[1], Math.max(pair[0].length(), pair[1].length()));
+            }
+            kernel = Math.min(kernel, System.nanoTime() - start);
+
+            // isSimilar at 0.8 bounds the distance at a fifth of the longer length
+            start = System.nanoTime();
+            for (String[] pair : pairs) {
+                sink += SimilarityKernel.distance(pair[0], pair[1], Math.max(pair[0].length(), pair[1].length()) / 5);
+            }
+            bounded = Math.min(bounded, System.nanoTime() - start);
+        }
+        System.out.printf("matrix %d ns/pair, kernel %d ns/pair, bounded %d ns/pair (%d)%n",
+            matrix / PAIRS, kernel / PAIRS, bounded / PAIRS, sink);
+
+        assertTrue("kernel " + kernel + " ns vs matrix " + matrix + " ns", kernel < matrix);
+        assertTrue("bounded " + bounded + " ns vs kernel " + kernel + " ns", bounded <= kernel);
+    }
+}
@@ -0,0 +1,126 @@
+package com.budgetwise.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class SimilarityKernelTest {
+
+    /** The full-matrix dynamic program the kernel replaced. */
+    static int referenceDistance(String a, String b) {
+        int[][] dp = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) dp[i][0] = i;
+        for (int j = 0; j <= b.length(); j++) dp[0][j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                dp[i][j] = Math.min(Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1), dp[i - 1][j - 1] + cost);
+            }
+        }
+        return dp[a.length()][b.length()];
+    }
+
+    static String randomString(Random random, String alphabet, int maxLength) {
+        int length = random.nextInt(maxLength + 1);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    // Mostly edits of one another, so distances are small as well as large
+    static String mutate(Random random, String s, String alphabet) {
+        StringBuilder builder = new StringBuilder(s);
+        int edits = random.nextInt(6);
+        for (int i = 0; i < edits; i++) {
+            int at = builder.length() == 0 ? 0 : random.nextInt(builder.length());
+            char c = alphabet.charAt(random.nextInt(alphabet.length()));
+            switch (random.nextInt(3)) {
+                case 0: builder.insert(at, c); break;
+                case 1: if (builder.length() > 0) builder.deleteCharAt(at); break;
+                default: if (builder.length() > 0) builder.setCharAt(at, c); break;
+            }
+        }
+        return builder.toString();
+    }
+
+    private void checkDistances(String alphabet, int maxLength, long seed) {
+        Random random = new Random(seed);
+        for (int round = 0; round < 3000; round++) {
+            String a = randomString(random, alphabet, maxLength);
+            String b = random.nextBoolean() ? mutate(random, a, alphabet) : randomString(random, alphabet, maxLength);
+            int expected = referenceDistance(a, b);
+            String pair = "'" + a + "' / '" + b + "'";
+
+            assertEquals(pair, expected, SimilarityKernel.distance(a, b, Math.max(a.length(), b.length())));
+            int bound = random.nextInt(maxLength + 1);
+            int bounded = SimilarityKernel.distance(a, b, bound);
+            if (expected <= bound) {
+                assertEquals(pair + " within " + bound, expected, bounded);
+            } else {
+                assertTrue(pair + " beyond " + bound, bounded > bound);
+            }
+        }
+    }
+
+    @Test
+    public void distanceMatchesDynamicProgram() {
+        checkDistances("abcdefghijklmnopqrstuvwxyz ", 40, 1);
+    }
+
+    @Test
+    public void distanceMatchesDynamicProgramOnSmallAlphabet() {
+        checkDistances("ab", 30, 2);
+    }
+
+    @Test
+    public void distanceMatchesDynamicProgramBeyondOneWord() {
+        // Patterns over 64 characters take the two-row path
+        checkDistances("abcd", 150, 3);
+    }
+
+    @Test
+    public void distanceMatchesDynamicProgramOutsideAscii() {
+        checkDistances("aé€ü中b", 40, 4);
+    }
+
+    @Test
+    public void distanceAtWordBoundary() {
+        String a = repeat('a', 64);
+        String b = repeat('a', 63) + "b";
+        assertEquals(1, SimilarityKernel.distance(a, b, 64));
+        assertEquals(64, SimilarityKernel.distance(a, "", 64));
+        assertEquals(65, SimilarityKernel.distance(a + "a", "", 65));
+    }
+
+    @Test
+    public void isSimilarAgreesWithSimilarity() {
+        Random random = new Random(5);
+        String alphabet = "abcde !-";
+        double[] thresholds = {0.0, 0.5, 0.65, 0.8, 0.85, 0.9, 1.0};
+        for (int round = 0; round < 3000; round++) {
+            String a = randomString(random, alphabet, 20);
+            String b = mutate(random, a, alphabet);
+            double threshold = thresholds[random.nextInt(thresholds.length)];
+            assertEquals(a + " / " + b + " at " + threshold,
+                SimilarityKernel.similarity(a, b) > threshold, SimilarityKernel.isSimilar(a, b, threshold));
+        }
+    }
+
+    @Test
+    public void similarityNormalizesDescriptions() {
+        assertEquals(1.0, SimilarityKernel.similarity("STARBUCKS  #123", "starbucks 123"), 0.0);
+        assertEquals(1.0, SimilarityKernel.similarity("", "!!"), 0.0);
+        assertEquals(0.0, SimilarityKernel.similarity(null, "coffee"), 0.0);
+        assertEquals(1.0 - 1.0 / 6, SimilarityKernel.similarity("coffee", "toffee"), 1e-9);
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) builder.append(c);
+        return builder.toString();
+    }
+}
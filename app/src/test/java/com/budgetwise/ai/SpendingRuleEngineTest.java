@@ -0,0 +1,238 @@
+package com.budgetwise.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.budgetwise.data.models.Transaction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpendingRuleEngineTest {
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long START = 1_700_000_000_000L;
+    private static final String[] CATEGORIES = {"Food & Dining", "Shopping", "Entertainment"};
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        AnalysisContext.refreshZone();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+        AnalysisContext.refreshZone();
+    }
+
+    // Descriptions carry what identifies an episode, so results compare as strings
+    private static SpendingRule.Builder rule(AnomalyDetector.AnomalyType type) {
+        return SpendingRule.reporting(type, AnomalyDetector.AnomalySeverity.MEDIUM)
+            .described(episode -> episode.getCount() + " for " + Math.round(episode.getTotal()));
+    }
+
+    private static List<SpendingRule> rules() {
+        return Arrays.asList(
+            rule(AnomalyDetector.AnomalyType.RAPID_SPENDING)
+                .of(Transaction.TransactionType.EXPENSE).atLeast(3, TimeUnit.HOURS.toMillis(1)).build(),
+            rule(AnomalyDetector.AnomalyType.UNUSUAL_TIMING).betweenHours(2, 6).amountAbove(50).build(),
+            rule(AnomalyDetector.AnomalyType.UNUSUALLY_HIGH)
+                .inCategories("Shopping").atLeast(2, 30 * MINUTE).totalling(200).build());
+    }
+
+    private static LedgerEntry entry(long time, double amount, String category, Transaction.TransactionType type) {
+        Transaction transaction = new Transaction(amount, "t", category, type);
+        transaction.setDate(new Date(time));
+        return new LedgerEntry(transaction);
+    }
+
+    private static LedgerEntry expense(long time, double amount) {
+        return entry(time, amount, "Food & Dining", Transaction.TransactionType.EXPENSE);
+    }
+
+    /** Every window in date order, overlapping qualifying windows merged, from scratch. */
+    private static List<String> batchMatches(List<SpendingRule> rules, List<LedgerEntry> entries) {
+        List<String> matches = new ArrayList<>();
+        for (SpendingRule rule : rules) {
+            List<LedgerEntry> accepted = new ArrayList<>();
+            for (LedgerEntry entry : entries) {
+                if (rule.accepts(entry)) accepted.add(entry);
+            }
+            accepted.sort(LedgerEntry.BY_TIME);
+            int episodeStart = -1;
+            int episodeEnd = -1;
+            for (int end = 0; end <= accepted.size(); end++) {
+                int start = end;
+                boolean qualifies = false;
+                if (end < accepted.size()) {
+                    double total = 0;
+                    for (int i = end; i >= 0 && accepted.get(end).time - accepted.get(i).time <= rule.window; i--) {
+                        total += accepted.get(i).amount;
+                        start = i;
+                    }
+                    qualifies = end - start + 1 >= rule.minCount && total >= rule.minTotal;
+                }
+                if (qualifies && episodeEnd >= start) {
+                    episodeEnd = end;
+                    continue;
+                }
+                if (episodeEnd >= 0 && (qualifies || end == accepted.size())) {
+                    matches.add(describe(rule, accepted.subList(episodeStart, episodeEnd + 1)));
+                    episodeEnd = -1;
+                }
+                if (qualifies) {
+                    episodeStart = start;
+                    episodeEnd = end;
+                }
+            }
+        }
+        Collections.sort(matches);
+        return matches;
+    }
+
+    private static String describe(SpendingRule rule, List<LedgerEntry> episode) {
+        double total = 0;
+        for (LedgerEntry entry : episode) total += entry.amount;
+        LedgerEntry last = episode.get(episode.size() - 1);
+        return rule.type + " " + last.id + " " + episode.size() + " for " + Math.round(total);
+    }
+
+    private static List<String> describe(List<AnomalyDetector.AnomalyResult> results) {
+        List<String> described = new ArrayList<>();
+        for (AnomalyDetector.AnomalyResult result : results) {
+            described.add(result.getType() + " " + result.getTransaction().getId() + " " + result.getDescription());
+        }
+        Collections.sort(described);
+        return described;
+    }
+
+    @Test
+    public void incrementalMatchesEqualABatchRebuild() {
+        Random random = new Random(1);
+        List<SpendingRule> rules = rules();
+        SpendingRuleEngine engine = new SpendingRuleEngine(rules);
+        List<LedgerEntry> live = new ArrayList<>();
+
+        for (int round = 0; round < 2000; round++) {
+            if (live.isEmpty() || random.nextInt(3) != 0) {
+                // Clustered in a few slots so windows overlap, in any order; whole amounts
+                // so window totals are exact
+                long time = START + random.nextInt(3) * TimeUnit.DAYS.toMillis(1)
+                    + random.nextInt(6) * TimeUnit.HOURS.toMillis(4) + random.nextInt(90) * MINUTE;
+                LedgerEntry entry = entry(time, 1 + random.nextInt(150), CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    random.nextInt(5) == 0 ? Transaction.TransactionType.INCOME : Transaction.TransactionType.EXPENSE);
+                engine.add(entry, false);
+                live.add(entry);
+            } else {
+                engine.remove(live.remove(random.nextInt(live.size())));
+            }
+            assertEquals("round " + round, batchMatches(rules, live), describe(engine.getMatches()));
+        }
+    }
+
+    @Test
+    public void episodeIsReportedOnceHoweverItChanges() {
+        SpendingRuleEngine engine = new SpendingRuleEngine(rules());
+        LedgerEntry first = expense(START, 10);
+        engine.add(first, false);
+        engine.add(expense(START + 10 * MINUTE, 10), false);
+        assertTrue(engine.takeUnreported().isEmpty());
+
+        engine.add(expense(START + 20 * MINUTE, 10), false);
+        List<AnomalyDetector.AnomalyResult> reported = engine.takeUnreported();
+        assertEquals(1, reported.size());
+        assertEquals("3 for 30", reported.get(0).getDescription());
+
+        // Grows, shrinks, then is edited: still the same episode
+        LedgerEntry fourth = expense(START + 30 * MINUTE, 10);
+        engine.add(fourth, false);
+        assertTrue(engine.takeUnreported().isEmpty());
+        engine.remove(first);
+        assertTrue(engine.takeUnreported().isEmpty());
+        engine.remove(fourth);
+        engine.add(expense(START + 35 * MINUTE, 12), false);
+        assertTrue(engine.takeUnreported().isEmpty());
+        assertEquals(Collections.singletonList("3 for 32"), descriptions(engine.getMatches()));
+
+        // A separate burst later on is new
+        for (int i = 0; i < 3; i++) {
+            engine.add(expense(START + TimeUnit.HOURS.toMillis(5) + i * MINUTE, 10), false);
+        }
+        assertEquals(1, engine.takeUnreported().size());
+    }
+
+    @Test
+    public void editingATransactionDoesNotReportItsEpisodeAgain() {
+        SpendingRuleEngine engine = new SpendingRuleEngine(rules());
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            LedgerEntry entry = expense(START + i * MINUTE, 10);
+            entries.add(entry);
+            engine.add(entry, false);
+        }
+        assertEquals(1, engine.takeUnreported().size());
+
+        // An edit is the old entry out and the new one in; the episode dissolves in between
+        Transaction edited = entries.get(1).transaction;
+        edited.setAmount(25);
+        engine.remove(entries.get(1));
+        engine.add(new LedgerEntry(edited), false);
+        assertTrue(engine.takeUnreported().isEmpty());
+        assertEquals(Collections.singletonList("3 for 45"), descriptions(engine.getMatches()));
+
+        // Once its transactions are deleted for good, new ones in the same place are news
+        engine.remove(entries.get(0));
+        engine.remove(new LedgerEntry(edited));
+        engine.remove(entries.get(2));
+        assertTrue(engine.takeUnreported().isEmpty());
+        for (int i = 0; i < 3; i++) {
+            engine.add(expense(START + i * MINUTE, 10), false);
+        }
+        assertEquals(1, engine.takeUnreported().size());
+    }
+
+    @Test
+    public void replayedEpisodesCountAsReported() {
+        SpendingRuleEngine engine = new SpendingRuleEngine(rules());
+        for (int i = 0; i < 3; i++) {
+            engine.add(expense(START + i * MINUTE, 10), true);
+        }
+        assertEquals(1, engine.getMatches().size());
+        assertTrue(engine.takeUnreported().isEmpty());
+        engine.add(expense(START + 3 * MINUTE, 10), false);
+        assertTrue(engine.takeUnreported().isEmpty());
+    }
+
+    @Test
+    public void episodeFallsApartWhenItsEntriesGo() {
+        SpendingRuleEngine engine = new SpendingRuleEngine(rules());
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            LedgerEntry entry = expense(START + i * MINUTE, 10);
+            entries.add(entry);
+            engine.add(entry, false);
+        }
+        assertEquals(1, engine.getMatches().size());
+        engine.remove(entries.get(1));
+        assertTrue(engine.getMatches().isEmpty());
+        engine.clear();
+        assertTrue(engine.getMatches().isEmpty());
+    }
+
+    private static List<String> descriptions(List<AnomalyDetector.AnomalyResult> results) {
+        List<String> descriptions = new ArrayList<>();
+        for (AnomalyDetector.AnomalyResult result : results) descriptions.add(result.getDescription());
+        return descriptions;
+    }
+}
@@ -0,0 +1,148 @@
+package com.budgetwise.backup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BackupChainTest {
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    static File full(long seq, String install) {
+        return new File("backup_20240305_101500" + BackupChain.fileNameSuffix(BackupChain.KIND_FULL, 0, seq, install)
+            + BackupFormat.FILE_EXTENSION);
+    }
+
+    static File delta(long baseSeq, long seq, String install) {
+        return new File("backup_20240305_101500"
+            + BackupChain.fileNameSuffix(BackupChain.KIND_DELTA, baseSeq, seq, install) + BackupFormat.FILE_EXTENSION);
+    }
+
+    private static List<String> names(List<BackupChain.Entry> entries) {
+        List<String> names = new ArrayList<>();
+        for (BackupChain.Entry entry : entries) {
+            names.add(entry.file.getName());
+        }
+        return names;
+    }
+
+    private static List<String> names(File... files) {
+        List<String> names = new ArrayList<>();
+        for (File file : files) {
+            names.add(file.getName());
+        }
+        return names;
+    }
+
+    @Test
+    public void parsesKindSequenceInstallAndTime() {
+        BackupChain.Entry full = BackupChain.parse(full(12, "a1"));
+        assertTrue(full.full);
+        assertEquals(12, full.seq);
+        assertEquals("a1", full.install);
+        // 2024-03-05 10:15:00 UTC
+        assertEquals(1709633700000L, full.time);
+
+        BackupChain.Entry delta = BackupChain.parse(delta(12, 15, "a1"));
+        assertFalse(delta.full);
+        assertEquals(12, delta.baseSeq);
+        assertEquals(15, delta.seq);
+        assertEquals("a1", delta.install);
+    }
+
+    @Test
+    public void parsesOlderNames() {
+        // Written before install ids
+        BackupChain.Entry unnamed = BackupChain.parse(new File("backup_20240305_101500_delta_3-4.bwb"));
+        assertFalse(unnamed.full);
+        assertEquals("", unnamed.install);
+        assertEquals(4, unnamed.seq);
+
+        // Written before change sequencing: a standalone full backup
+        BackupChain.Entry legacy = BackupChain.parse(new File("backup_20230101_080000.json"));
+        assertTrue(legacy.full);
+        assertEquals(-1, legacy.seq);
+        assertEquals(1672560000000L, legacy.time);
+    }
+
+    @Test
+    public void chainsFollowDeltasOfTheirOwnInstall() {
+        File[] files = {
+            delta(2, 3, "a1"), full(1, "a1"), delta(1, 2, "a1"),
+            // A reinstall started over at 1
+            full(1, "b2"), delta(1, 2, "b2"),
+            // Its base is gone
+            delta(7, 8, "a1"),
+        };
+        List<List<BackupChain.Entry>> chains = BackupChain.chains(files);
+
+        assertEquals(2, chains.size());
+        for (List<BackupChain.Entry> chain : chains) {
+            if (chain.get(0).install.equals("a1")) {
+                assertEquals(names(full(1, "a1"), delta(1, 2, "a1"), delta(2, 3, "a1")), names(chain));
+            } else {
+                assertEquals(names(full(1, "b2"), delta(1, 2, "b2")), names(chain));
+            }
+        }
+    }
+
+    @Test
+    public void resolvesTheFullSnapshotThenEachDelta() throws IOException {
+        File[] files = {full(1, "a1"), delta(1, 2, "a1"), delta(2, 3, "a1"), delta(3, 4, "a1")};
+        assertEquals(names(full(1, "a1"), delta(1, 2, "a1"), delta(2, 3, "a1")),
+            names(BackupChain.resolve(delta(2, 3, "a1"), files)));
+        assertEquals(names(full(1, "a1")), names(BackupChain.resolve(full(1, "a1"), files)));
+    }
+
+    @Test
+    public void resolveRejectsABaseFromAnotherInstall() {
+        // Same sequence number, different install: not this delta's base
+        File[] files = {full(1, "b2"), delta(1, 2, "a1")};
+        assertIncomplete(delta(1, 2, "a1"), files);
+    }
+
+    @Test
+    public void resolveRejectsABaseThatIsntOlder() {
+        File[] files = {full(5, "a1"), delta(5, 4, "a1")};
+        assertIncomplete(delta(5, 4, "a1"), files);
+
+        // Two deltas naming each other would otherwise be followed forever
+        File[] cycle = {delta(4, 5, "a1"), delta(5, 4, "a1")};
+        assertIncomplete(delta(4, 5, "a1"), cycle);
+    }
+
+    @Test
+    public void resolveRejectsAMissingBase() {
+        File[] files = {full(1, "a1"), delta(2, 3, "a1")};
+        assertIncomplete(delta(2, 3, "a1"), files);
+    }
+
+    private static void assertIncomplete(File target, File[] files) {
+        try {
+            BackupChain.resolve(target, files);
+            fail("Resolved " + target.getName());
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("incomplete"));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.budgetwise.backup;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BackupRetentionTest {
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    private static BackupChain.Entry backup(String time) {
+        return BackupChain.parse(new File("backup_" + time + "_full_1_ia1" + BackupFormat.FILE_EXTENSION));
+    }
+
+    // Backups are named after the local time they were taken, yyyyMMdd_HHmmss
+    private static Set<String> kept(String now, String... times) {
+        List<BackupChain.Entry> entries = new ArrayList<>();
+        for (String time : times) {
+            entries.add(backup(time));
+        }
+        Set<String> kept = new TreeSet<>();
+        for (BackupChain.Entry entry : BackupRetention.select(entries, backup(now).time)) {
+            kept.add(entry.file.getName().substring("backup_".length(), "backup_yyyyMMdd_HHmmss".length()));
+        }
+        return kept;
+    }
+
+    private static Set<String> set(String... times) {
+        return new TreeSet<>(Arrays.asList(times));
+    }
+
+    @Test
+    public void keepsTheNewestOfEachRecentHour() {
+        assertEquals(set("20240305_095000", "20240305_100500"),
+            kept("20240305_103000", "20240305_091000", "20240305_095000", "20240305_100500"));
+    }
+
+    @Test
+    public void keepsTheNewestOfEachRecentDay() {
+        // Older than a day: only one per calendar day, split at midnight
+        assertEquals(set("20240302_200000", "20240303_003000", "20240305_100000"),
+            kept("20240305_103000", "20240302_080000", "20240302_200000", "20240303_003000", "20240305_100000"));
+    }
+
+    @Test
+    public void keepsTheNewestOfEachRecentWeek() {
+        // Week buckets start on Thursdays, like epoch weeks: the 5th to the 7th of February share one
+        assertEquals(set("20240207_120000", "20240208_120000", "20240305_100000"),
+            kept("20240305_103000", "20240205_120000", "20240207_120000", "20240208_120000", "20240305_100000"));
+    }
+
+    @Test
+    public void dropsWhatIsOlderThanEveryBucket() {
+        assertEquals(set("20240305_100000"),
+            kept("20240305_103000", "20231201_120000", "20240305_100000"));
+        // Unless it's the only backup there is
+        assertEquals(set("20231201_120000"), kept("20240305_103000", "20231201_120000"));
+        assertEquals(set(), kept("20240305_103000"));
+    }
+
+    @Test
+    public void bucketsFollowTheLocalDay() {
+        // 23:00 and 01:00 in Tokyo are two days, though both fall on the 3rd in UTC
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+        assertEquals(set("20240303_230000", "20240304_010000", "20240306_100000"),
+            kept("20240306_103000", "20240303_230000", "20240304_010000", "20240306_100000"));
+
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        assertEquals(set("20240303_160000", "20240306_100000"),
+            kept("20240306_103000", "20240303_140000", "20240303_160000", "20240306_100000"));
+    }
+
+    @Test
+    public void ignoresBucketsAheadOfNow() {
+        // A clock set back: the future backup is still the newest overall, nothing more
+        assertEquals(set("20240301_100000", "20240310_100000"),
+            kept("20240305_103000", "20240301_100000", "20240310_100000"));
+    }
+}
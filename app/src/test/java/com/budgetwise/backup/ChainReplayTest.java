@@ -0,0 +1,181 @@
+package com.budgetwise.backup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.budgetwise.data.models.Budget;
+import com.budgetwise.data.models.Tombstone;
+import com.budgetwise.data.models.Transaction;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+
+public class ChainReplayTest {
+    private static BackupRestorer.Snapshot snapshot(List<Transaction> transactions, List<Budget> budgets,
+                                                    List<Tombstone> tombstones, boolean full, long baseSeq, long seq) {
+        return new BackupRestorer.Snapshot(transactions, budgets, tombstones, Collections.emptyList(),
+            0, "test", full, baseSeq, seq);
+    }
+
+    private static BackupChain.Entry fullEntry(long seq) {
+        return BackupChain.parse(BackupChainTest.full(seq, "a1"));
+    }
+
+    private static BackupChain.Entry deltaEntry(long baseSeq, long seq) {
+        return BackupChain.parse(BackupChainTest.delta(baseSeq, seq, "a1"));
+    }
+
+    private static Transaction copy(Transaction transaction) {
+        Transaction copy = new Transaction(transaction.getAmount(), transaction.getDescription(),
+            transaction.getCategory(), transaction.getType());
+        copy.setId(transaction.getId());
+        return copy;
+    }
+
+    private static Map<String, String> transactionState(List<Transaction> transactions) {
+        Map<String, String> state = new TreeMap<>();
+        for (Transaction transaction : transactions) {
+            state.put(transaction.getId(), transaction.getDescription() + " " + transaction.getAmount());
+        }
+        return state;
+    }
+
+    private static Map<String, Double> budgetState(List<Budget> budgets) {
+        Map<String, Double> state = new TreeMap<>();
+        for (Budget budget : budgets) {
+            state.put(budget.getId(), budget.getBudgetAmount());
+        }
+        return state;
+    }
+
+    @Test
+    public void deltasWithTombstonesReplayToTheFullSnapshot() throws IOException {
+        Random random = new Random(11);
+        Map<String, Transaction> live = new TreeMap<>();
+        Map<String, Budget> liveBudgets = new TreeMap<>();
+        for (int i = 0; i < 50; i++) {
+            Transaction transaction = new Transaction(i, "Item " + i, "Shopping", Transaction.TransactionType.EXPENSE);
+            live.put(transaction.getId(), transaction);
+        }
+        for (String category : new String[] {"Food & Dining", "Transportation", "Shopping"}) {
+            Budget budget = new Budget(category, 300, Budget.BudgetPeriod.MONTHLY);
+            liveBudgets.put(budget.getId(), budget);
+        }
+
+        ChainReplay replay = new ChainReplay();
+        replay.apply(fullEntry(1), snapshot(copies(live), new ArrayList<>(liveBudgets.values()),
+            Collections.emptyList(), true, 0, 1));
+
+        for (long seq = 2; seq <= 6; seq++) {
+            List<Transaction> upserts = new ArrayList<>();
+            List<Budget> budgetUpserts = new ArrayList<>();
+            List<Tombstone> tombstones = new ArrayList<>();
+            List<String> ids = new ArrayList<>(live.keySet());
+            for (int i = 0; i < 5; i++) {
+                Transaction added = new Transaction(100 * seq + i, "New " + seq + "/" + i, "Shopping",
+                    Transaction.TransactionType.EXPENSE);
+                live.put(added.getId(), added);
+                upserts.add(copy(added));
+            }
+            for (int i = 0; i < 4; i++) {
+                Transaction edited = live.get(ids.get(random.nextInt(ids.size())));
+                edited.setAmount(edited.getAmount() + 0.5);
+                upserts.add(copy(edited));
+            }
+            for (int i = 0; i < 3; i++) {
+                String id = ids.remove(random.nextInt(ids.size()));
+                // Some were edited in this very delta too; the tombstone wins
+                live.remove(id);
+                tombstones.add(new Tombstone(id, Tombstone.RecordType.TRANSACTION, seq));
+            }
+            if (seq == 4) {
+                String budgetId = liveBudgets.keySet().iterator().next();
+                liveBudgets.remove(budgetId);
+                tombstones.add(new Tombstone(budgetId, Tombstone.RecordType.BUDGET, seq));
+                Budget budget = new Budget("Entertainment", 80, Budget.BudgetPeriod.MONTHLY);
+                liveBudgets.put(budget.getId(), budget);
+                budgetUpserts.add(budget);
+            }
+            replay.apply(deltaEntry(seq - 1, seq), snapshot(upserts, budgetUpserts, tombstones, false, seq - 1, seq));
+        }
+
+        ChainReplay fromFull = new ChainReplay();
+        fromFull.apply(fullEntry(6), snapshot(copies(live), new ArrayList<>(liveBudgets.values()),
+            Collections.emptyList(), true, 0, 6));
+
+        assertEquals(transactionState(fromFull.getTransactions()), transactionState(replay.getTransactions()));
+        assertEquals(budgetState(fromFull.getBudgets()), budgetState(replay.getBudgets()));
+        assertEquals(50 + 5 * 5 - 5 * 3, replay.getTransactions().size());
+    }
+
+    private static List<Transaction> copies(Map<String, Transaction> live) {
+        List<Transaction> copies = new ArrayList<>();
+        for (Transaction transaction : live.values()) {
+            copies.add(copy(transaction));
+        }
+        return copies;
+    }
+
+    @Test
+    public void chainMustStartWithAFullSnapshot() {
+        assertRejected(new ChainReplay(), deltaEntry(1, 2),
+            snapshot(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), false, 1, 2));
+    }
+
+    @Test
+    public void deltaMustContinueTheChain() throws IOException {
+        ChainReplay replay = new ChainReplay();
+        replay.apply(fullEntry(1), snapshot(Collections.emptyList(), Collections.emptyList(),
+            Collections.emptyList(), true, 0, 1));
+        assertRejected(replay, deltaEntry(2, 3),
+            snapshot(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), false, 2, 3));
+        // Nor can a second full snapshot follow
+        assertRejected(replay, fullEntry(4),
+            snapshot(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), true, 0, 4));
+    }
+
+    @Test
+    public void contentMustMatchTheFileName() {
+        assertRejected(new ChainReplay(), fullEntry(1),
+            snapshot(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), true, 0, 2));
+    }
+
+    @Test
+    public void aTransactionBelongsToOneChunk() throws IOException {
+        ChainReplay replay = new ChainReplay();
+        Transaction transaction = new Transaction(5, "Coffee", "Food & Dining", Transaction.TransactionType.EXPENSE);
+        ChunkRef ref = new ChunkRef("abc", ChunkRef.TYPE_TRANSACTIONS, "2024-03", 1);
+        BackupRestorer.Snapshot chunk = snapshot(Collections.singletonList(transaction), Collections.emptyList(),
+            Collections.emptyList(), true, 0, 1);
+        try {
+            replay.addChunk(ref, chunk);
+            fail("Accepted a chunk without a manifest");
+        } catch (IOException expected) {
+            // The manifest comes first
+        }
+
+        replay.apply(fullEntry(1), snapshot(Collections.emptyList(), Collections.emptyList(),
+            Collections.emptyList(), true, 0, 1));
+        replay.addChunk(ref, chunk);
+        try {
+            replay.addChunk(ref, chunk);
+            fail("Accepted a transaction twice");
+        } catch (IOException expected) {
+            // Chunks partition the snapshot
+        }
+    }
+
+    private static void assertRejected(ChainReplay replay, BackupChain.Entry entry, BackupRestorer.Snapshot snapshot) {
+        try {
+            replay.apply(entry, snapshot);
+            fail("Applied " + entry.file.getName());
+        } catch (IOException expected) {
+            // Restoring stops rather than building the wrong state
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.budgetwise.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.budgetwise.data.models.Transaction;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.TimeZone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ImportDeduplicatorTest {
+    private static final long HOUR = 60 * 60 * 1000L;
+    // 2023-11-14 00:00 UTC
+    private static final long MIDNIGHT = 1_699_920_000_000L;
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    private static Transaction transaction(double amount, String description, long time) {
+        Transaction transaction = new Transaction(amount, description, "Shopping", Transaction.TransactionType.EXPENSE);
+        transaction.setDate(new Date(time));
+        return transaction;
+    }
+
+    private static ImportedRecord row(double amount, String description, long time) {
+        return new ImportedRecord(transaction(amount, description, time), null, null);
+    }
+
+    @Test
+    public void reimportedRowIsADuplicate() {
+        ImportDeduplicator deduplicator = new ImportDeduplicator(
+            Collections.singletonList(transaction(12.5, "Coffee Shop", MIDNIGHT + 9 * HOUR)));
+        assertTrue(deduplicator.isDuplicate(row(12.5, "COFFEE SHOP", MIDNIGHT + 15 * HOUR)));
+    }
+
+    @Test
+    public void eachExistingTransactionIsClaimedOnce() {
+        // Two genuine identical purchases in the file, one of them already imported
+        ImportDeduplicator deduplicator = new ImportDeduplicator(
+            Collections.singletonList(transaction(3, "Bus fare", MIDNIGHT + 8 * HOUR)));
+        assertTrue(deduplicator.isDuplicate(row(3, "Bus fare", MIDNIGHT + 8 * HOUR)));
+        assertFalse(deduplicator.isDuplicate(row(3, "Bus fare", MIDNIGHT + 18 * HOUR)));
+    }
+
+    @Test
+    public void keyIsTypeCentsAndLocalDay() {
+        ImportDeduplicator deduplicator = new ImportDeduplicator(Arrays.asList(
+            transaction(20, "Grocer", MIDNIGHT + 10 * HOUR),
+            transaction(20, "Grocer", MIDNIGHT + 11 * HOUR),
+            transaction(20, "Grocer", MIDNIGHT + 12 * HOUR)));
+        assertFalse(deduplicator.isDuplicate(row(20.01, "Grocer", MIDNIGHT + 10 * HOUR)));
+        assertFalse(deduplicator.isDuplicate(row(20, "Grocer", MIDNIGHT - HOUR)));
+        assertFalse(deduplicator.isDuplicate(row(20, "Grocer", MIDNIGHT + 24 * HOUR)));
+        Transaction income = transaction(20, "Grocer", MIDNIGHT + 10 * HOUR);
+        income.setType(Transaction.TransactionType.INCOME);
+        assertFalse(deduplicator.isDuplicate(new ImportedRecord(income, null, null)));
+
+        // Amounts compare without sign and to the cent
+        assertTrue(deduplicator.isDuplicate(row(-20, "Grocer", MIDNIGHT)));
+        assertTrue(deduplicator.isDuplicate(row(20.001, "Grocer", MIDNIGHT + 23 * HOUR)));
+    }
+
+    @Test
+    public void daysAreLocalDays() {
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        // 23:00 and 02:00 UTC the next day are both the evening of the same New York day
+        ImportDeduplicator deduplicator = new ImportDeduplicator(
+            Collections.singletonList(transaction(45, "Dinner", MIDNIGHT - HOUR)));
+        assertTrue(deduplicator.isDuplicate(row(45, "Dinner", MIDNIGHT + 2 * HOUR)));
+
+        deduplicator = new ImportDeduplicator(
+            Collections.singletonList(transaction(45, "Dinner", MIDNIGHT + 2 * HOUR)));
+        // 06:00 UTC is 01:00 the next New York day
+        assertFalse(deduplicator.isDuplicate(row(45, "Dinner", MIDNIGHT + 6 * HOUR)));
+    }
+
+    @Test
+    public void truncatedOrPaddedDescriptionsMatch() {
+        ImportDeduplicator deduplicator = new ImportDeduplicator(Arrays.asList(
+            transaction(9.99, "Streaming Service", MIDNIGHT),
+            transaction(30, "AMZN Mktp US*2K4", MIDNIGHT)));
+        assertTrue(deduplicator.isDuplicate(row(9.99, "STREAMING SERVICE 800-555-0100", MIDNIGHT)));
+        assertTrue(deduplicator.isDuplicate(row(30, "amzn mktp", MIDNIGHT)));
+    }
+
+    @Test
+    public void unrelatedDescriptionsDontMatch() {
+        ImportDeduplicator deduplicator = new ImportDeduplicator(
+            Collections.singletonList(transaction(9.99, "Streaming Service", MIDNIGHT)));
+        assertFalse(deduplicator.isDuplicate(row(9.99, "Bookshop", MIDNIGHT)));
+    }
+
+    @Test
+    public void blankDescriptionOnlyMatchesBlank() {
+        // A blank row used to match every transaction in its bucket: "" is contained in anything
+        ImportDeduplicator deduplicator = new ImportDeduplicator(
+            Collections.singletonList(transaction(5, "Coffee", MIDNIGHT)));
+        assertFalse(deduplicator.isDuplicate(row(5, "", MIDNIGHT)));
+        assertFalse(deduplicator.isDuplicate(row(5, null, MIDNIGHT)));
+        assertFalse(deduplicator.isDuplicate(row(5, " - ", MIDNIGHT)));
+
+        deduplicator = new ImportDeduplicator(Collections.singletonList(transaction(5, "", MIDNIGHT)));
+        assertFalse(deduplicator.isDuplicate(row(5, "Coffee", MIDNIGHT)));
+        assertTrue(deduplicator.isDuplicate(row(5, null, MIDNIGHT)));
+    }
+
+    @Test
+    public void externalIdsCatchRepeatsAndOwnExports() {
+        Transaction existing = transaction(70, "Electric", MIDNIGHT);
+        ImportDeduplicator deduplicator = new ImportDeduplicator(Collections.singletonList(existing));
+        // An exported record comes back with its own id, whatever else changed
+        assertTrue(deduplicator.isDuplicate(
+            new ImportedRecord(transaction(71, "Electricity", MIDNIGHT + 48 * HOUR), existing.getId(), null)));
+
+        assertFalse(deduplicator.isDuplicate(new ImportedRecord(transaction(15, "Taxi", MIDNIGHT), "FIT-1", null)));
+        assertTrue(deduplicator.isDuplicate(new ImportedRecord(transaction(16, "Cab", MIDNIGHT), "FIT-1", null)));
+    }
+
+    @Test
+    public void undatedHistoryIsSkipped() {
+        Transaction undated = transaction(8, "Lunch", MIDNIGHT);
+        undated.setDate(null);
+        ImportDeduplicator deduplicator = new ImportDeduplicator(Collections.singletonList(undated));
+        assertFalse(deduplicator.isDuplicate(row(8, "Lunch", MIDNIGHT)));
+    }
+
+    @Test
+    public void normalizeKeepsWordsAndDigits() {
+        assertEquals("starbucks 1234 seattle", ImportDeduplicator.normalize("  STARBUCKS #1234\tSeattle. "));
+        assertEquals("", ImportDeduplicator.normalize(null));
+        assertEquals("", ImportDeduplicator.normalize("*** --"));
+    }
+}
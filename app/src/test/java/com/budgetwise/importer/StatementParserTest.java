@@ -0,0 +1,116 @@
+package com.budgetwise.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TimeZone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StatementParserTest {
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void parsesPlainAndSignedAmounts() {
+        assertEquals(12.5, StatementParser.parseAmount("12.50"), 0.0);
+        assertEquals(-0.99, StatementParser.parseAmount("-0.99"), 0.0);
+        assertEquals(-12.5, StatementParser.parseAmount("(12.50)"), 0.0);
+        assertEquals(-12.5, StatementParser.parseAmount("12.50-"), 0.0);
+        assertEquals(42, StatementParser.parseAmount("42"), 0.0);
+    }
+
+    @Test
+    public void ignoresCurrencySymbolsAndSpaces() {
+        assertEquals(1234.56, StatementParser.parseAmount("$1,234.56"), 0.0);
+        assertEquals(3.99, StatementParser.parseAmount("€ 3,99"), 0.0);
+        assertEquals(-7, StatementParser.parseAmount(" -£7.00 "), 0.0);
+    }
+
+    @Test
+    public void lastSeparatorIsTheDecimalPoint() {
+        assertEquals(1234.56, StatementParser.parseAmount("1,234.56"), 0.0);
+        assertEquals(1234.56, StatementParser.parseAmount("1.234,56"), 0.0);
+        assertEquals(1234567.8, StatementParser.parseAmount("1.234.567,80"), 1e-9);
+    }
+
+    @Test
+    public void loneCommaIsDecimalOnlyBeforeCents() {
+        assertEquals(12.5, StatementParser.parseAmount("12,5"), 0.0);
+        assertEquals(12.05, StatementParser.parseAmount("12,05"), 0.0);
+        assertEquals(1234, StatementParser.parseAmount("1,234"), 0.0);
+        assertEquals(1234567, StatementParser.parseAmount("1,234,567"), 0.0);
+    }
+
+    @Test
+    public void rejectsWhatIsntAnAmount() {
+        for (String text : Arrays.asList(null, "", "n/a", "1.2.3")) {
+            try {
+                StatementParser.parseAmount(text);
+                fail("Accepted '" + text + "'");
+            } catch (IllegalArgumentException expected) {
+                // Reported as a rejected row
+            }
+        }
+    }
+
+    @Test
+    public void detectsDayFirstFromAnyUnambiguousSample() {
+        CsvStatementParser parser = new CsvStatementParser();
+        assertEquals("dd/MM/yyyy", parser.detectDatePattern(Arrays.asList("01/02/2024", "03/04/2024", "13/04/2024")));
+        assertEquals("MM/dd/yyyy", parser.detectDatePattern(Arrays.asList("01/02/2024", "04/13/2024")));
+        // Either order reads these; month first is the more likely
+        assertEquals("MM/dd/yyyy", parser.detectDatePattern(Arrays.asList("01/02/2024", "03/04/2024")));
+    }
+
+    @Test
+    public void detectsIsoAndNamedMonths() {
+        CsvStatementParser parser = new CsvStatementParser();
+        assertEquals("yyyy-MM-dd", parser.detectDatePattern(Collections.singletonList("2024-03-05")));
+        assertEquals("yyyy-MM-dd HH:mm:ss", parser.detectDatePattern(Collections.singletonList("2024-03-05 14:30:00")));
+        assertEquals("dd MMM yyyy", parser.detectDatePattern(Collections.singletonList("05 Mar 2024")));
+        assertEquals("dd.MM.yyyy", parser.detectDatePattern(Collections.singletonList("25.12.2023")));
+    }
+
+    @Test
+    public void twoDigitYearsArentReadAsAncientYears() {
+        // "MM/dd/yyyy" would read 24 as the year 24
+        CsvStatementParser parser = new CsvStatementParser();
+        assertEquals("MM/dd/yy", parser.detectDatePattern(Collections.singletonList("03/05/24")));
+        assertEquals("dd/MM/yy", parser.detectDatePattern(Arrays.asList("03/05/24", "30/05/24")));
+    }
+
+    @Test
+    public void unreadableSamplesFallBackToTheBestPattern() {
+        CsvStatementParser parser = new CsvStatementParser();
+        assertEquals("dd/MM/yyyy", parser.detectDatePattern(Arrays.asList("13/02/2024", "not a date")));
+    }
+
+    @Test
+    public void parseDateRejectsImplausibleDates() throws ParseException {
+        assertEquals(1709596800000L,
+            StatementParser.parseDate(StatementParser.newDateFormat("yyyy-MM-dd"), "2024-03-05").getTime());
+        for (String text : Arrays.asList("", "2024-02-30", "1969-12-31", "2100-01-01")) {
+            try {
+                StatementParser.parseDate(StatementParser.newDateFormat("yyyy-MM-dd"), text);
+                fail("Accepted '" + text + "'");
+            } catch (ParseException expected) {
+                // The row is rejected
+            }
+        }
+    }
+}
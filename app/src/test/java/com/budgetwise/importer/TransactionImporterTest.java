@@ -0,0 +1,155 @@
+package com.budgetwise.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.budgetwise.data.models.Transaction;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TransactionImporterTest {
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    private static TransactionImporter.ParsedStatement parse(TransactionImporter importer, String... lines)
+            throws Exception {
+        return importer.parse(new BufferedReader(new StringReader(String.join("\n", lines))));
+    }
+
+    private static Date date(int year, int month, int day) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, day);
+        return calendar.getTime();
+    }
+
+    @Test
+    public void parsesAndCategorizesACsvStatement() throws Exception {
+        TransactionImporter importer = new TransactionImporter(null,
+            description -> description.contains("Coffee") ? "Food & Dining" : "Other");
+        TransactionImporter.ParsedStatement statement = parse(importer,
+            "Date,Description,Amount,Category",
+            "2024-03-01,Coffee Corner,-4.50,Eating out",
+            "2024-03-02,Payroll,\"2,500.00\",Salary",
+            "2024-03-03,Hardware store,-19.99,");
+
+        assertEquals(ImportFormat.CSV, statement.format);
+        assertEquals(3, statement.recordCount);
+        assertEquals(0, statement.errorCount);
+        List<ImportedRecord> records = statement.records;
+        assertEquals(3, records.size());
+
+        Transaction coffee = records.get(0).transaction;
+        assertEquals(Transaction.TransactionType.EXPENSE, coffee.getType());
+        assertEquals(4.5, coffee.getAmount(), 0.0);
+        assertEquals(date(2024, 3, 1), coffee.getDate());
+        // The app's categories come first; the file's only when the categorizer has none
+        assertEquals("Food & Dining", coffee.getCategory());
+        Transaction payroll = records.get(1).transaction;
+        assertEquals(Transaction.TransactionType.INCOME, payroll.getType());
+        assertEquals(2500, payroll.getAmount(), 0.0);
+        assertEquals("Salary", payroll.getCategory());
+        assertEquals("Other", records.get(2).transaction.getCategory());
+    }
+
+    @Test
+    public void readsDatesDayFirstWhenALaterRowSaysSo() throws Exception {
+        TransactionImporter importer = new TransactionImporter(null, description -> "Other");
+        TransactionImporter.ParsedStatement statement = parse(importer,
+            "Date;Payee;Amount",
+            "01/02/2024;Bakery;-3,20",
+            "05/02/2024;Bakery;-3,20",
+            "25/02/2024;Bakery;-3,20");
+
+        assertEquals(date(2024, 2, 1), statement.records.get(0).transaction.getDate());
+        assertEquals(date(2024, 2, 5), statement.records.get(1).transaction.getDate());
+        assertEquals(date(2024, 2, 25), statement.records.get(2).transaction.getDate());
+        assertEquals(3.2, statement.records.get(0).transaction.getAmount(), 0.0);
+    }
+
+    @Test
+    public void countsAndSamplesRejectedRows() throws Exception {
+        TransactionImporter importer = new TransactionImporter(null, description -> "Other");
+        TransactionImporter.ParsedStatement statement = parse(importer,
+            "Date,Description,Amount",
+            "2024-03-01,Lunch,-12.00",
+            "2024-03-02,Lunch,n/a",
+            "2024-13-45,Lunch,-12.00",
+            "2024-03-04,Lunch,-12.00");
+
+        assertEquals(4, statement.recordCount);
+        assertEquals(2, statement.records.size());
+        assertEquals(2, statement.errorCount);
+        assertEquals(Arrays.asList("Record 2: Missing amount", "Record 3: Unreadable date '2024-13-45'"),
+            statement.errorSamples);
+    }
+
+    @Test
+    public void keepsFileOrderAcrossChunks() throws Exception {
+        Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        TransactionImporter importer = new TransactionImporter(null, description -> {
+            calls.computeIfAbsent(description, d -> new AtomicInteger()).incrementAndGet();
+            return "Shopping";
+        });
+        String[] lines = new String[5001];
+        lines[0] = "Date,Description,Amount,Id";
+        for (int i = 1; i < lines.length; i++) {
+            lines[i] = String.format("2024-01-%02d,Shop %d,-%d.00,row-%d", 1 + i % 28, i % 10, i, i);
+        }
+        TransactionImporter.ParsedStatement statement = parse(importer, lines);
+
+        assertEquals(5000, statement.records.size());
+        for (int i = 0; i < 5000; i++) {
+            ImportedRecord record = statement.records.get(i);
+            assertEquals("row-" + (i + 1), record.externalId);
+            assertEquals(i + 1, record.transaction.getAmount(), 0.0);
+            assertEquals("Shopping", record.transaction.getCategory());
+        }
+        // Cached per description; chunks racing on the first rows may each ask once
+        assertEquals(10, calls.size());
+        for (AtomicInteger count : calls.values()) {
+            assertTrue(count.get() <= 5);
+        }
+    }
+
+    @Test
+    public void recognizesQif() throws Exception {
+        TransactionImporter importer = new TransactionImporter(null, description -> "Other");
+        TransactionImporter.ParsedStatement statement = parse(importer,
+            "!Type:Bank",
+            "D03/01/2024",
+            "T-45.00",
+            "PGas station",
+            "^");
+
+        assertEquals(ImportFormat.QIF, statement.format);
+        assertEquals(1, statement.records.size());
+        Transaction fuel = statement.records.get(0).transaction;
+        assertEquals("Gas station", fuel.getDescription());
+        assertEquals(45, fuel.getAmount(), 0.0);
+        assertEquals(Transaction.TransactionType.EXPENSE, fuel.getType());
+        assertNull(statement.records.get(0).externalId);
+    }
+}